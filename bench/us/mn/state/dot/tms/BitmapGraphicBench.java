@@ -0,0 +1,91 @@
+/*
+ * IRIS -- Intelligent Roadway Information System
+ * Copyright (C) 2016  Minnesota Department of Transportation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package us.mn.state.dot.tms;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Bitmap graphic benchmarks, for one bitmap on each sign in the network.
+ * Sizes are a character matrix sign and a full matrix sign.
+ *
+ * @author Douglas Lau
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BitmapGraphicBench {
+
+	/** Sign size (width x height) */
+	@Param({ "120x21", "288x72" })
+	public String size;
+
+	private BitmapGraphic[] bmaps;
+
+	private BitmapGraphic[] others;
+
+	private BitmapGraphic work;
+
+	@Setup
+	public void setup() {
+		String[] wh = size.split("x");
+		int w = Integer.parseInt(wh[0]);
+		int h = Integer.parseInt(wh[1]);
+		bmaps = Fixtures.createBitmaps(Fixtures.NETWORK_DMS, w, h);
+		others = Fixtures.createBitmaps(Fixtures.NETWORK_DMS + 1, w,
+			h);
+		work = new BitmapGraphic(w, h);
+	}
+
+	/** Count lit pixels of every bitmap */
+	@Benchmark
+	public int getLitCount() {
+		int t = 0;
+		for (BitmapGraphic bg: bmaps)
+			t += bg.getLitCount();
+		return t;
+	}
+
+	/** Clear pixels which are lit in another bitmap */
+	@Benchmark
+	public int difference() {
+		int t = 0;
+		for (int i = 0; i < bmaps.length; i++) {
+			work.copy(bmaps[i]);
+			work.difference(others[i]);
+			t += work.getLitCount();
+		}
+		return t;
+	}
+
+	/** Outline every bitmap */
+	@Benchmark
+	public int outline() {
+		int t = 0;
+		for (BitmapGraphic bg: bmaps) {
+			work.copy(bg);
+			work.outline();
+			t += work.getLitCount();
+		}
+		return t;
+	}
+}
@@ -0,0 +1,107 @@
+/*
+ * IRIS -- Intelligent Roadway Information System
+ * Copyright (C) 2016  Minnesota Department of Transportation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package us.mn.state.dot.tms;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import us.mn.state.dot.geokit.Position;
+
+/**
+ * Corridor building and nearest node benchmarks.  Locations are either
+ * cached (GeoPoint.Cached) or plain proxies, to compare the primitive
+ * distance kernel with and without cached coordinates.
+ *
+ * @author Douglas Lau
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CorridorBench {
+
+	/** Number of roadway nodes in corridor */
+	@Param({ "100", "400" })
+	public int n_nodes;
+
+	/** Use cached locations */
+	@Param({ "true", "false" })
+	public boolean cached;
+
+	private ArrayList<R_Node> nodes;
+
+	private CorridorBase corridor;
+
+	private GeoLoc[] probes;
+
+	@Setup
+	public void setup() {
+		nodes = Fixtures.createCorridorNodes(n_nodes, cached);
+		corridor = buildCorridor();
+		Road road = nodes.get(0).getGeoLoc().getRoadway();
+		probes = new GeoLoc[16];
+		for (int i = 0; i < probes.length; i++) {
+			probes[i] = Fixtures.createGeoLoc(road, Direction.EAST,
+				44.95, -93.5 + i * n_nodes * 0.0003, cached);
+		}
+	}
+
+	/** Build a corridor from the unsorted nodes */
+	private CorridorBase buildCorridor() {
+		CorridorBase c = new CorridorBase(nodes.get(0).getGeoLoc());
+		for (R_Node n: nodes)
+			c.addNode(n);
+		c.arrangeNodes();
+		return c;
+	}
+
+	@Benchmark
+	public CorridorBase arrangeNodes() {
+		return buildCorridor();
+	}
+
+	@Benchmark
+	public float calculateMilePoint() {
+		float t = 0;
+		for (GeoLoc loc: probes)
+			t += corridor.calculateMilePoint(loc);
+		return t;
+	}
+
+	@Benchmark
+	public int findNearest() {
+		int t = 0;
+		for (GeoLoc loc: probes) {
+			Position pos = GeoLocHelper.getWgs84Position(loc);
+			t += corridor.findNearest(pos).hashCode();
+		}
+		return t;
+	}
+
+	@Benchmark
+	public double distanceMeters() {
+		double t = 0;
+		GeoLoc l0 = probes[0];
+		for (R_Node n: nodes)
+			t += GeoLocHelper.distanceMeters(l0, n.getGeoLoc());
+		return t;
+	}
+}
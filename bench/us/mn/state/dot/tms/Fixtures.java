@@ -0,0 +1,278 @@
+/*
+ * IRIS -- Intelligent Roadway Information System
+ * Copyright (C) 2016  Minnesota Department of Transportation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package us.mn.state.dot.tms;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Random;
+import us.mn.state.dot.tms.client.roads.ClientGeoLoc;
+import us.mn.state.dot.tms.server.PeriodicSample;
+import us.mn.state.dot.tms.server.PeriodicSampleType;
+import static us.mn.state.dot.tms.server.Constants.MISSING_DATA;
+
+/**
+ * Benchmark fixtures.  Sonar objects are created as dynamic proxies which
+ * return fixed attribute values, like client proxies do.  Synthetic data is
+ * generated from a fixed random seed, so every run measures the same data.
+ *
+ * @author Douglas Lau
+ */
+public class Fixtures {
+
+	/** Number of roadway nodes in a realistic network */
+	static public final int NETWORK_NODES = 5000;
+
+	/** Number of detectors in a realistic network */
+	static public final int NETWORK_DETECTORS = 12000;
+
+	/** Number of DMS in a realistic network */
+	static public final int NETWORK_DMS = 500;
+
+	/** Number of roadway nodes in each generated corridor */
+	static private final int CORRIDOR_NODES = 125;
+
+	/** Invocation handler which returns fixed attribute values */
+	static private class AttrHandler implements InvocationHandler {
+		private final String name;
+		private final HashMap<String, Object> attrs =
+			new HashMap<String, Object>();
+		private AttrHandler(String n) {
+			name = n;
+		}
+		public Object invoke(Object proxy, Method m, Object[] args) {
+			String mn = m.getName();
+			if ("hashCode".equals(mn))
+				return System.identityHashCode(proxy);
+			if ("equals".equals(mn))
+				return proxy == args[0];
+			if ("toString".equals(mn) || "getName".equals(mn))
+				return name;
+			if (mn.startsWith("get") && attrs.containsKey(mn))
+				return attrs.get(mn);
+			return defaultValue(m.getReturnType());
+		}
+	}
+
+	/** Get the default value for a return type */
+	static private Object defaultValue(Class c) {
+		if (c == Boolean.TYPE)
+			return Boolean.FALSE;
+		if (c == Short.TYPE)
+			return Short.valueOf((short)0);
+		if (c == Integer.TYPE)
+			return Integer.valueOf(0);
+		if (c == Float.TYPE)
+			return Float.valueOf(0);
+		if (c == Double.TYPE)
+			return Double.valueOf(0);
+		return null;
+	}
+
+	/** Create a proxy with fixed attribute values */
+	static private <T> T createProxy(Class<T> c, String n, Object... kv) {
+		AttrHandler h = new AttrHandler(n);
+		for (int i = 0; i + 1 < kv.length; i += 2)
+			h.attrs.put((String)kv[i], kv[i + 1]);
+		return c.cast(Proxy.newProxyInstance(c.getClassLoader(),
+			new Class[] { c }, h));
+	}
+
+	/** Create a road */
+	static public Road createRoad(String n, String abbrev) {
+		return createProxy(Road.class, n, "getAbbrev", abbrev);
+	}
+
+	/** Create a geo location.
+	 * @param r Roadway.
+	 * @param d Road direction.
+	 * @param lat Latitude.
+	 * @param lon Longitude.
+	 * @param cached Create a cached location (otherwise a proxy). */
+	static public GeoLoc createGeoLoc(Road r, Direction d, double lat,
+		double lon, boolean cached)
+	{
+		short rd = (short)d.ordinal();
+		if (cached)
+			return new ClientGeoLoc(r, rd, (float)lat, (float)lon, 0);
+		else {
+			return createProxy(GeoLoc.class, "loc", "getRoadway", r,
+				"getRoadDir", rd,
+				"getLat", Double.valueOf((float)lat),
+				"getLon", Double.valueOf((float)lon));
+		}
+	}
+
+	/** Create a roadway node */
+	static public R_Node createNode(String n, GeoLoc loc) {
+		return createProxy(R_Node.class, n, "getGeoLoc", loc);
+	}
+
+	/** Create roadway nodes along an eastbound corridor, in random order.
+	 * @param n_nodes Number of nodes.
+	 * @param cached Use cached locations.
+	 * @return List of nodes. */
+	static public ArrayList<R_Node> createCorridorNodes(int n_nodes,
+		boolean cached)
+	{
+		Road road = createRoad("I-94", "I94");
+		Random rand = new Random(n_nodes);
+		ArrayList<R_Node> nodes = new ArrayList<R_Node>(n_nodes);
+		for (int i = 0; i < n_nodes; i++) {
+			// About 400 meters apart, with a gentle curve
+			double lon = -93.5 + i * 0.005;
+			double lat = 44.95 + 0.02 * Math.sin(i / 20.0) +
+				rand.nextGaussian() * 0.0002;
+			GeoLoc loc = createGeoLoc(road, Direction.EAST, lat,
+				lon, cached);
+			nodes.add(createNode("rnd_" + i, loc));
+		}
+		Collections.shuffle(nodes, rand);
+		return nodes;
+	}
+
+	/** Create roadway nodes for a network of corridors, in random order.
+	 * Each road has two corridors (one for each direction), and roads
+	 * alternate between east-west and north-south.
+	 * @param n_nodes Number of nodes.
+	 * @param cached Use cached locations.
+	 * @return List of nodes. */
+	static public ArrayList<R_Node> createNetworkNodes(int n_nodes,
+		boolean cached)
+	{
+		Random rand = new Random(n_nodes);
+		ArrayList<R_Node> nodes = new ArrayList<R_Node>(n_nodes);
+		Road road = null;
+		for (int i = 0; i < n_nodes; i++) {
+			int c = i / CORRIDOR_NODES;
+			int r = c / 2;
+			if (road == null || i % (CORRIDOR_NODES * 2) == 0)
+				road = createRoad("Road " + r, "R" + r);
+			boolean ew = (r & 1) == 0;
+			boolean rev = (c & 1) != 0;
+			Direction d = ew
+			            ? (rev ? Direction.WEST : Direction.EAST)
+			            : (rev ? Direction.SOUTH : Direction.NORTH);
+			// Roads are about 4 km apart, nodes about 400 m apart
+			double a = (i % CORRIDOR_NODES) * 0.005 +
+				rand.nextGaussian() * 0.0002;
+			double b = (r / 2) * 0.04 + (rev ? 0.0003 : 0);
+			double lat = ew ? 44.7 + b : 44.7 + a;
+			double lon = ew ? -93.6 + a : -93.6 + b;
+			GeoLoc loc = createGeoLoc(road, d, lat, lon, cached);
+			nodes.add(createNode("rnd_" + i, loc));
+		}
+		Collections.shuffle(nodes, rand);
+		return nodes;
+	}
+
+	/** Create one periodic sample for each detector.
+	 * @param n_det Number of detectors.
+	 * @param seed Random seed.
+	 * @param stamp Time stamp at end of sample period.
+	 * @param period Sample period (seconds).
+	 * @param t Sample type.
+	 * @return Array of samples, with about 2% missing. */
+	static public PeriodicSample[] createSamples(int n_det, long seed,
+		long stamp, int period, PeriodicSampleType t)
+	{
+		Random rand = new Random(seed);
+		int range = Math.max(t.max_value / 4, 1);
+		PeriodicSample[] samples = new PeriodicSample[n_det];
+		for (int i = 0; i < n_det; i++) {
+			int v = (rand.nextInt(50) > 0)
+			      ? rand.nextInt(range)
+			      : MISSING_DATA;
+			samples[i] = new PeriodicSample(stamp, period, v);
+		}
+		return samples;
+	}
+
+	/** Sign message lines */
+	static private final String[] LINES = {
+		"CRASH", "ROAD WORK", "LEFT LANE CLOSED", "AHEAD",
+		"USE CAUTION", "EXIT CLOSED", "SNOW PLOWS", "ON ROAD",
+		"AMBER ALERT", "REDUCED SPEED", "EXPECT DELAYS", "WATCH FOR",
+		"STOPPED TRAFFIC",
+	};
+
+	/** Create MULTI strings for sign messages.
+	 * @param n_dms Number of signs.
+	 * @return Array of MULTI strings, one for each sign. */
+	static public String[] createSignMessages(int n_dms) {
+		Random rand = new Random(n_dms);
+		String[] msgs = new String[n_dms];
+		for (int i = 0; i < n_dms; i++) {
+			StringBuilder sb = new StringBuilder();
+			switch (i % 4) {
+			case 0:
+				sb.append("[jl2]RAMP ").append(i);
+				sb.append("[jl4][ttS").append(i);
+				sb.append("] MIN[nl]");
+				sb.append("[jl2]I-").append(i % 100);
+				sb.append("[jl4][ttS").append(i + 1);
+				sb.append("] MIN");
+				break;
+			case 1:
+				sb.append("[cf255,208,0][pt30o0]");
+				sb.append(LINES[rand.nextInt(LINES.length)]);
+				sb.append("[nl]");
+				sb.append(LINES[rand.nextInt(LINES.length)]);
+				sb.append("[np][fo2]");
+				sb.append(LINES[rand.nextInt(LINES.length)]);
+				break;
+			case 2:
+				sb.append("[g7,1,1][tr30,1,66,27][jp3]");
+				sb.append(LINES[rand.nextInt(LINES.length)]);
+				sb.append("[nl][vsa] MPH");
+				break;
+			default:
+				sb.append("[jp3]");
+				sb.append(LINES[rand.nextInt(LINES.length)]);
+				sb.append("[nl][slow45,1,dist]");
+				sb.append(LINES[rand.nextInt(LINES.length)]);
+				break;
+			}
+			msgs[i] = sb.toString();
+		}
+		return msgs;
+	}
+
+	/** Create bitmaps for sign messages.
+	 * @param n_dms Number of signs.
+	 * @param w Bitmap width.
+	 * @param h Bitmap height.
+	 * @return Array of bitmaps, with about 15% of pixels lit. */
+	static public BitmapGraphic[] createBitmaps(int n_dms, int w, int h) {
+		Random rand = new Random(n_dms);
+		BitmapGraphic[] bmaps = new BitmapGraphic[n_dms];
+		for (int i = 0; i < n_dms; i++) {
+			BitmapGraphic bg = new BitmapGraphic(w, h);
+			for (int y = 0; y < h; y++) {
+				for (int x = 0; x < w; x++) {
+					if (rand.nextInt(100) < 15) {
+						bg.setPixel(x, y,
+							DmsColor.YELLOW);
+					}
+				}
+			}
+			bmaps[i] = bg;
+		}
+		return bmaps;
+	}
+}
@@ -0,0 +1,74 @@
+/*
+ * IRIS -- Intelligent Roadway Information System
+ * Copyright (C) 2016  Minnesota Department of Transportation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package us.mn.state.dot.tms;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * MULTI parsing benchmarks, for one message on each sign in the network.
+ *
+ * @author Douglas Lau
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MultiBench {
+
+	private String[] msgs;
+
+	@Setup
+	public void setup() {
+		msgs = Fixtures.createSignMessages(Fixtures.NETWORK_DMS);
+	}
+
+	/** Parse every message into a MULTI string */
+	@Benchmark
+	public int parse() {
+		int t = 0;
+		for (String m: msgs) {
+			MultiString ms = new MultiString();
+			MultiParser.parse(m, ms);
+			t += ms.toString().length();
+		}
+		return t;
+	}
+
+	/** Validate every message */
+	@Benchmark
+	public int isValid() {
+		int t = 0;
+		for (String m: msgs) {
+			if (MultiParser.isValid(m))
+				t++;
+		}
+		return t;
+	}
+
+	/** Normalize every message */
+	@Benchmark
+	public int normalize() {
+		int t = 0;
+		for (String m: msgs)
+			t += MultiParser.normalize(m).length();
+		return t;
+	}
+}
@@ -0,0 +1,65 @@
+/*
+ * IRIS -- Intelligent Roadway Information System
+ * Copyright (C) 2016  Minnesota Department of Transportation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package us.mn.state.dot.tms;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Network benchmarks, building every corridor of a generated network of
+ * roadway nodes, as the corridor manager does at startup.
+ *
+ * @author Douglas Lau
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class NetworkBench {
+
+	private ArrayList<R_Node> nodes;
+
+	@Setup
+	public void setup() {
+		nodes = Fixtures.createNetworkNodes(Fixtures.NETWORK_NODES,
+			true);
+	}
+
+	/** Group nodes into corridors and arrange each corridor */
+	@Benchmark
+	public int createCorridors() {
+		HashMap<String, CorridorBase> corridors =
+			new HashMap<String, CorridorBase>();
+		for (R_Node n: nodes) {
+			String cid = R_NodeHelper.getCorridorName(n);
+			CorridorBase c = corridors.get(cid);
+			if (c == null) {
+				c = new CorridorBase(n.getGeoLoc());
+				corridors.put(cid, c);
+			}
+			c.addNode(n);
+		}
+		for (CorridorBase c: corridors.values())
+			c.arrangeNodes();
+		return corridors.size();
+	}
+}
@@ -0,0 +1,116 @@
+/*
+ * IRIS -- Intelligent Roadway Information System
+ * Copyright (C) 2016  Minnesota Department of Transportation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package us.mn.state.dot.tms.server;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import us.mn.state.dot.tms.Fixtures;
+
+/**
+ * Periodic sample cache benchmarks, for one sample interval of a network
+ * of detectors.  Each cache holds five minutes of 30-second samples.
+ *
+ * @author Douglas Lau
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class PeriodicSampleCacheBench {
+
+	/** Sample period (seconds) */
+	static private final int PERIOD = 30;
+
+	/** Sample period (ms) */
+	static private final int PERIOD_MS = PERIOD * 1000;
+
+	/** Number of sample periods to keep */
+	static private final int N_KEEP = 10;
+
+	/** Sample type */
+	@Param({ "VOLUME", "OCCUPANCY" })
+	public PeriodicSampleType sample_type;
+
+	private PeriodicSampleCache[] caches;
+
+	private PeriodicSample[] samples;
+
+	private long stamp;
+
+	@Setup
+	public void setup() {
+		int n_det = Fixtures.NETWORK_DETECTORS;
+		samples = Fixtures.createSamples(n_det, n_det, 0, PERIOD,
+			sample_type);
+		caches = new PeriodicSampleCache[n_det];
+		for (int i = 0; i < n_det; i++)
+			caches[i] = new PeriodicSampleCache(sample_type);
+		stamp = 0;
+		for (int p = 0; p < N_KEEP; p++)
+			add30Sec();
+	}
+
+	/** Add one 30-second sample to each cache and purge old samples */
+	@Benchmark
+	public int add30Sec() {
+		stamp += PERIOD_MS;
+		long before = stamp - N_KEEP * PERIOD_MS;
+		for (int i = 0; i < caches.length; i++) {
+			PeriodicSampleCache c = caches[i];
+			c.add(new PeriodicSample(stamp, PERIOD,
+				samples[i].value));
+			c.purge(before);
+		}
+		return caches.length;
+	}
+
+	/** Add 30-second samples with one missing, then a 5-minute sample
+	 * to each cache, which interpolates the missing sample */
+	@Benchmark
+	public int interpolate5Min() {
+		long start = stamp;
+		for (int p = 1; p < N_KEEP; p++) {
+			long s = start + p * PERIOD_MS;
+			for (int i = 0; i < caches.length; i++) {
+				caches[i].add(new PeriodicSample(s, PERIOD,
+					samples[i].value));
+			}
+		}
+		stamp = start + N_KEEP * PERIOD_MS;
+		long before = stamp - N_KEEP * PERIOD_MS;
+		int period = PERIOD * N_KEEP;
+		for (int i = 0; i < caches.length; i++) {
+			PeriodicSampleCache c = caches[i];
+			c.add(new PeriodicSample(stamp, period,
+				combine(samples[i].value)));
+			c.purge(before);
+		}
+		return caches.length;
+	}
+
+	/** Combine a 30-second value into a 5-minute value */
+	private int combine(int v) {
+		if (sample_type.aggregation == Aggregation.SUM)
+			return Math.min(v * N_KEEP, sample_type.max_value);
+		else
+			return v;
+	}
+}
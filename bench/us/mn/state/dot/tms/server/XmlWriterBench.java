@@ -0,0 +1,116 @@
+/*
+ * IRIS -- Intelligent Roadway Information System
+ * Copyright (C) 2016  Minnesota Department of Transportation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package us.mn.state.dot.tms.server;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import us.mn.state.dot.tms.Fixtures;
+import static us.mn.state.dot.tms.server.XmlWriter.createAttribute;
+
+/**
+ * XML writer benchmarks, writing detector elements for a network of
+ * detectors, like the detector section of the tms_config XML file.  Output
+ * is discarded, so only formatting (and optional compression) is measured.
+ *
+ * @author Douglas Lau
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class XmlWriterBench {
+
+	/** Output stream which discards all data */
+	static private class NullOutputStream extends OutputStream {
+		private long n_bytes;
+		public void write(int b) {
+			n_bytes++;
+		}
+		public void write(byte[] b, int off, int len) {
+			n_bytes += len;
+		}
+	}
+
+	/** XML writer for detector elements */
+	static private class DetectorXmlWriter extends XmlWriter {
+		private final String[] names;
+		private final String[] labels;
+		private final String[] ctrls;
+		private DetectorXmlWriter(int n_det) {
+			super("bench_det.xml", false);
+			names = new String[n_det];
+			labels = new String[n_det];
+			ctrls = new String[n_det];
+			for (int i = 0; i < n_det; i++) {
+				names[i] = Integer.toString(1000 + i);
+				labels[i] = "I-" + (i % 100) + "/Road " +
+					(i / 24) + " & <" + (i % 8) + ">";
+				ctrls[i] = "ctl_" + (i / 24) + "_" + (i % 24);
+			}
+		}
+		@Override
+		protected void write(Writer w) throws IOException {
+			w.write(XML_DECLARATION);
+			w.write("<detectors>\n");
+			for (int i = 0; i < names.length; i++) {
+				w.write("<detector");
+				w.write(createAttribute("name", names[i]));
+				w.write(createAttribute("label", labels[i]));
+				w.write(createAttribute("lane", (i % 4) + 1));
+				w.write(createAttribute("field", 22.5f));
+				w.write(createAttribute("controller",
+					ctrls[i]));
+				w.write("/>\n");
+			}
+			w.write("</detectors>\n");
+		}
+	}
+
+	/** Compress output with gzip */
+	@Param({ "false", "true" })
+	public boolean gzip;
+
+	private DetectorXmlWriter writer;
+
+	@Setup
+	public void setup() {
+		writer = new DetectorXmlWriter(Fixtures.NETWORK_DETECTORS);
+	}
+
+	/** Write all detector elements, as XmlWriter.write does */
+	@Benchmark
+	public long write() throws IOException {
+		NullOutputStream ns = new NullOutputStream();
+		OutputStream os = gzip ? new GZIPOutputStream(ns) : ns;
+		BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(
+			os));
+		writer.write(bw);
+		bw.flush();
+		os.close();
+		return ns.n_bytes;
+	}
+}
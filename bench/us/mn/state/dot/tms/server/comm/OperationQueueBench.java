@@ -0,0 +1,94 @@
+/*
+ * IRIS -- Intelligent Roadway Information System
+ * Copyright (C) 2016  Minnesota Department of Transportation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package us.mn.state.dot.tms.server.comm;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Operation queue benchmarks.  The largest queue size is like a DMS link
+ * after a query of every sign in the network.
+ *
+ * @author Douglas Lau
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class OperationQueueBench {
+
+	/** Operation which does nothing */
+	static private class BenchOp extends Operation<ControllerProperty> {
+		private BenchOp(PriorityLevel p) {
+			super(p);
+		}
+		protected Phase<ControllerProperty> phaseOne() {
+			return new Idle();
+		}
+		private class Idle extends Phase<ControllerProperty> {
+			protected Phase<ControllerProperty> poll(
+				CommMessage<ControllerProperty> mess)
+			{
+				return null;
+			}
+		}
+	}
+
+	/** Number of operations queued */
+	@Param({ "20", "500" })
+	public int n_ops;
+
+	private BenchOp[] ops;
+
+	private OperationQueue<ControllerProperty> full;
+
+	@Setup
+	public void setup() {
+		PriorityLevel[] levels = PriorityLevel.values();
+		ops = new BenchOp[n_ops];
+		for (int i = 0; i < n_ops; i++)
+			ops[i] = new BenchOp(levels[i % levels.length]);
+		full = new OperationQueue<ControllerProperty>();
+		for (BenchOp op: ops)
+			full.enqueue(op);
+	}
+
+	/** Enqueue all operations at mixed priorities, then drain them */
+	@Benchmark
+	public int enqueueDrain() {
+		OperationQueue<ControllerProperty> q =
+			new OperationQueue<ControllerProperty>();
+		for (BenchOp op: ops)
+			q.enqueue(op);
+		int n = 0;
+		while (q.hasNext()) {
+			q.next();
+			n++;
+		}
+		return n;
+	}
+
+	/** Try to enqueue an operation which is already queued */
+	@Benchmark
+	public boolean enqueueDuplicate() {
+		return full.enqueue(ops[n_ops - 1]);
+	}
+}
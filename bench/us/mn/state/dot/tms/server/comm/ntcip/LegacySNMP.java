@@ -0,0 +1,117 @@
+/*
+ * IRIS -- Intelligent Roadway Information System
+ * Copyright (C) 2016  Minnesota Department of Transportation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package us.mn.state.dot.tms.server.comm.ntcip;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.IOException;
+import java.util.List;
+import us.mn.state.dot.tms.server.comm.ParsingException;
+
+/**
+ * Legacy SNMP message codec, using the stream based BER encoder.  This is
+ * the encoding path SNMP used before BEREncoder / BERDecoder, kept only as
+ * a benchmark baseline.
+ *
+ * @author Douglas Lau
+ */
+public class LegacySNMP extends BER {
+
+	/** Get a tag that matches */
+	@Override
+	protected ASN1.Tag getTag(byte clazz, boolean constructed, int number){
+		ASN1.Tag tag = super.getTag(clazz, constructed, number);
+		if (tag != null)
+			return tag;
+		if (SNMP.Tag.GET_RESPONSE.number == number)
+			return SNMP.Tag.GET_RESPONSE;
+		if (SNMP.Tag.COUNTER.number == number)
+			return SNMP.Tag.COUNTER;
+		return null;
+	}
+
+	/** Encode an SNMP request message */
+	public byte[] encode(List<ASN1Object> mos, boolean set, ASN1.Tag tag,
+		int request_id, String community) throws IOException
+	{
+		ByteArrayOutputStream vb = new ByteArrayOutputStream();
+		for (ASN1Object mo: mos) {
+			encodeObjectIdentifier(mo.getOID());
+			if (set)
+				encodeValue(mo);
+			else
+				encodeNull();
+			encodeSequence(getEncodedData());
+			vb.write(getEncodedData());
+		}
+		encodeSequence(vb.toByteArray());
+		byte[] varBindList = getEncodedData();
+		encodeInteger(request_id);
+		encodeInteger(0);
+		encodeInteger(0);
+		encoder.write(varBindList);
+		byte[] buffer = getEncodedData();
+		encodeIdentifier(tag);
+		encodeLength(buffer.length);
+		encoder.write(buffer);
+		byte[] pdu = getEncodedData();
+		encodeInteger(SNMP.SNMP_VERSION);
+		encodeOctetString(community.getBytes());
+		encoder.write(pdu);
+		encodeSequence(getEncodedData());
+		return getEncodedData();
+	}
+
+	/** Encode the value of an MIB object */
+	private void encodeValue(ASN1Object mo) throws IOException {
+		if (mo instanceof ASN1Integer)
+			encodeInteger(((ASN1Integer)mo).getInteger());
+		else if (mo instanceof ASN1OctetString)
+			encodeOctetString(((ASN1OctetString)mo).getOctetString());
+		else
+			throw new IOException("UNKNOWN OBJECT TYPE");
+	}
+
+	/** Decode an SNMP response message */
+	public void decode(InputStream is, List<ASN1Object> mos,
+		String community) throws IOException
+	{
+		if (decodeSequence(is) > is.available())
+			throw new ParsingException("INVALID SNMP LENGTH");
+		if (decodeInteger(is) != 0)
+			throw new ParsingException("SNMP VERSION MISMATCH");
+		String c = new String(decodeOctetString(is));
+		if (!c.equals(community))
+			throw new ParsingException("SNMP COMMUNITY MISMATCH");
+		if (decodeIdentifier(is) != SNMP.Tag.GET_RESPONSE)
+			throw new ParsingException("!GET_RESPONSE TAG");
+		if (decodeLength(is) > is.available())
+			throw new ParsingException("INVALID PDU LEN");
+		decodeInteger(is);
+		decodeInteger(is);
+		decodeInteger(is);
+		decodeSequence(is);
+		for (ASN1Object mo: mos) {
+			decodeSequence(is);
+			decodeObjectIdentifier(is);
+			if (mo instanceof ASN1Integer) {
+				((ASN1Integer)mo).setInteger(decodeInteger(is));
+			} else if (mo instanceof ASN1OctetString) {
+				((ASN1OctetString)mo).setOctetString(
+					decodeOctetString(is));
+			}
+		}
+	}
+}
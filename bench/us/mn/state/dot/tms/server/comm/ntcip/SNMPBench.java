@@ -0,0 +1,128 @@
+/*
+ * IRIS -- Intelligent Roadway Information System
+ * Copyright (C) 2016  Minnesota Department of Transportation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package us.mn.state.dot.tms.server.comm.ntcip;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import us.mn.state.dot.tms.server.comm.ntcip.mib1203.CharacterBitmap;
+import us.mn.state.dot.tms.server.comm.ntcip.mib1203.CharacterWidth;
+import us.mn.state.dot.tms.server.comm.ntcip.mib1203.DmsMessageMemoryType;
+import us.mn.state.dot.tms.server.comm.ntcip.mib1203.DmsMessageMultiString;
+
+/**
+ * SNMP encode / decode benchmarks, comparing BEREncoder / BERDecoder with
+ * the legacy stream based BER classes.
+ *
+ * @author Douglas Lau
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SNMPBench {
+
+	/** Community name */
+	static private final String COMMUNITY = "Public";
+
+	/** Message fixture: a GET of 8 integers, a font glyph SET or a
+	 * 1000-byte MULTI string SET */
+	@Param({ "get", "glyphs", "multi" })
+	public String fixture;
+
+	private final SNMP snmp = new SNMP();
+
+	private final LegacySNMP legacy = new LegacySNMP();
+
+	private SNMP.Message msg;
+
+	private boolean set;
+
+	private SNMP.Tag tag;
+
+	private byte[] response;
+
+	@Setup
+	public void setup() throws IOException {
+		msg = snmp.new Message(new ByteArrayOutputStream(),
+			new ByteArrayInputStream(new byte[0]), COMMUNITY);
+		if ("get".equals(fixture)) {
+			for (int i = 0; i < 8; i++)
+				msg.add(new CharacterWidth(1, i + 32));
+			set = false;
+			tag = SNMP.Tag.GET_REQUEST;
+		} else if ("glyphs".equals(fixture)) {
+			for (int i = 0; i < 8; i++) {
+				CharacterBitmap cb = new CharacterBitmap(1,
+					i + 32);
+				cb.setOctetString(new byte[32]);
+				msg.add(cb);
+			}
+			set = true;
+			tag = SNMP.Tag.SET_REQUEST;
+		} else {
+			DmsMessageMultiString ms = new DmsMessageMultiString(
+				DmsMessageMemoryType.Enum.changeable, 1);
+			ms.setOctetString(new byte[1000]);
+			msg.add(ms);
+			set = true;
+			tag = SNMP.Tag.SET_REQUEST;
+		}
+		snmp.encoder.reset();
+		msg.encodeVarBindList(true);
+		msg.encodeRequestPDU(SNMP.Tag.GET_RESPONSE);
+		snmp.encodeSNMPMessage(msg.community);
+		response = snmp.encoder.toByteArray();
+	}
+
+	@Benchmark
+	public int encodeBER() throws IOException {
+		snmp.encoder.reset();
+		msg.encodeVarBindList(set);
+		msg.encodeRequestPDU(tag);
+		snmp.encodeSNMPMessage(msg.community);
+		return snmp.encoder.length();
+	}
+
+	@Benchmark
+	public byte[] encodeLegacy() throws IOException {
+		return legacy.encode(msg.mos, set, tag, msg.request_id,
+			COMMUNITY);
+	}
+
+	@Benchmark
+	public int decodeBER() throws IOException {
+		snmp.decodeSNMPMessage(new ByteArrayInputStream(response),
+			msg.community);
+		msg.decodeResponsePDU();
+		msg.decodeVarBindList();
+		return snmp.decoder.remaining();
+	}
+
+	@Benchmark
+	public int decodeLegacy() throws IOException {
+		ByteArrayInputStream is = new ByteArrayInputStream(response);
+		legacy.decode(is, msg.mos, COMMUNITY);
+		return is.available();
+	}
+}
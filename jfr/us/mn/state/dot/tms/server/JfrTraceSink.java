@@ -0,0 +1,186 @@
+/*
+ * IRIS -- Intelligent Roadway Information System
+ * Copyright (C) 2016  Minnesota Department of Transportation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package us.mn.state.dot.tms.server;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Trace sink which emits JDK Flight Recorder events, for viewing in JDK
+ * Mission Control.  This class is compiled only when the build JDK has
+ * jdk.jfr, and is loaded by TraceRecorder with reflection.  Events are
+ * committed only while a flight recording is running.
+ *
+ * @author Douglas Lau
+ */
+public class JfrTraceSink implements TraceRecorder.Sink {
+
+	/** Poll event */
+	@Name("iris.Poll")
+	@Label("Poll")
+	@Category("IRIS")
+	static class PollEvent extends Event {
+		@Label("Comm Link")
+		String link;
+
+		@Label("Controller")
+		String controller;
+
+		@Label("Operation")
+		String op;
+
+		@Label("Phase")
+		String phase;
+
+		@Label("Bytes Out")
+		@DataAmount
+		long bytesOut;
+
+		@Label("Bytes In")
+		@DataAmount
+		long bytesIn;
+
+		@Label("Elapsed")
+		@Timespan(Timespan.MICROSECONDS)
+		long elapsed;
+	}
+
+	/** SQL statement event */
+	@Name("iris.Sql")
+	@Label("SQL Statement")
+	@Category("IRIS")
+	static class SqlEvent extends Event {
+		@Label("Kind")
+		String kind;
+
+		@Label("Table")
+		String table;
+
+		@Label("Rows")
+		long rows;
+
+		@Label("Elapsed")
+		@Timespan(Timespan.MICROSECONDS)
+		long elapsed;
+	}
+
+	/** Metering stage event */
+	@Name("iris.Metering")
+	@Label("Metering Stage")
+	@Category("IRIS")
+	static class MeteringEvent extends Event {
+		@Label("Stage")
+		String stage;
+
+		@Label("Elapsed")
+		@Timespan(Timespan.MICROSECONDS)
+		long elapsed;
+	}
+
+	/** XML file event */
+	@Name("iris.Xml")
+	@Label("XML File")
+	@Category("IRIS")
+	static class XmlEvent extends Event {
+		@Label("File")
+		String file;
+
+		@Label("Elapsed")
+		@Timespan(Timespan.MICROSECONDS)
+		long elapsed;
+	}
+
+	/** Get a field value as a string */
+	static private String str(Object[] v, int i) {
+		return (i < v.length && v[i] != null) ? v[i].toString() : null;
+	}
+
+	/** Get a field value as a number */
+	static private long num(Object[] v, int i) {
+		return (i < v.length && v[i] instanceof Number)
+		      ? ((Number)v[i]).longValue()
+		      : 0;
+	}
+
+	/** Emit one event */
+	@Override
+	public void emit(TraceRecorder.Type t, long dur_us, Object[] v) {
+		switch (t) {
+		case POLL:
+			emitPoll(dur_us, v);
+			break;
+		case SQL:
+			emitSql(dur_us, v);
+			break;
+		case METERING:
+			emitMetering(dur_us, v);
+			break;
+		case XML:
+			emitXml(dur_us, v);
+			break;
+		}
+	}
+
+	/** Emit a poll event */
+	private void emitPoll(long dur_us, Object[] v) {
+		PollEvent e = new PollEvent();
+		if (e.isEnabled()) {
+			e.link = str(v, 0);
+			e.controller = str(v, 1);
+			e.op = str(v, 2);
+			e.phase = str(v, 3);
+			e.bytesOut = num(v, 4);
+			e.bytesIn = num(v, 5);
+			e.elapsed = dur_us;
+			e.commit();
+		}
+	}
+
+	/** Emit a SQL statement event */
+	private void emitSql(long dur_us, Object[] v) {
+		SqlEvent e = new SqlEvent();
+		if (e.isEnabled()) {
+			e.kind = str(v, 0);
+			e.table = str(v, 1);
+			e.rows = num(v, 2);
+			e.elapsed = dur_us;
+			e.commit();
+		}
+	}
+
+	/** Emit a metering stage event */
+	private void emitMetering(long dur_us, Object[] v) {
+		MeteringEvent e = new MeteringEvent();
+		if (e.isEnabled()) {
+			e.stage = str(v, 0);
+			e.elapsed = dur_us;
+			e.commit();
+		}
+	}
+
+	/** Emit an XML file event */
+	private void emitXml(long dur_us, Object[] v) {
+		XmlEvent e = new XmlEvent();
+		if (e.isEnabled()) {
+			e.file = str(v, 0);
+			e.elapsed = dur_us;
+			e.commit();
+		}
+	}
+}
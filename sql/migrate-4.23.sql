@@ -11,3 +11,11 @@ INSERT INTO iris.system_attribute (name, value)
 
 -- delete kml file enable system attribute
 DELETE FROM iris.system_attribute WHERE name = 'kml_file_enable';
+
+-- add DMS font PDU size system attribute
+INSERT INTO iris.system_attribute (name, value)
+     VALUES ('dms_font_pdu_size', 484);
+
+-- add comm breaker threshold system attribute
+INSERT INTO iris.system_attribute (name, value)
+     VALUES ('comm_breaker_threshold', 5);
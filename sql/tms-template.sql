@@ -2240,6 +2240,7 @@ camera_stream_controls_enable	false
 camera_util_panel_enable	false
 camera_wiper_precip_mm_hr	8
 client_units_si	true
+comm_breaker_threshold	5
 comm_event_purge_days	14
 database_version	4.23.0
 detector_auto_fail_enable	true
@@ -2251,6 +2252,7 @@ dms_composer_edit_mode	1
 dms_default_justification_line	3
 dms_default_justification_page	2
 dms_duration_enable	true
+dms_font_pdu_size	484
 dms_font_selection_enable	false
 dms_form	1
 dms_high_temp_cutoff	60
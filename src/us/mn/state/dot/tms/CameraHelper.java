@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2009-2015  Minnesota Department of Transportation
+ * Copyright (C) 2009-2016  Minnesota Department of Transportation
  * Copyright (C) 2014-2015  AHMCT, University of California
  *
  * This program is free software; you can redistribute it and/or modify
@@ -19,7 +19,6 @@ import java.util.Collection;
 import java.util.Iterator;
 import java.util.TreeMap;
 import us.mn.state.dot.geokit.Position;
-import us.mn.state.dot.tms.units.Distance;
 
 /**
  * Helper class for cameras.
@@ -60,16 +59,28 @@ public class CameraHelper extends BaseHelper {
 			return enc.trim();
 	}
 
+	/** Spatial index of cameras (set by client camera manager) */
+	static private volatile GeoIndex<Camera> index;
+
+	/** Set the spatial index of cameras.
+	 * @param gi Spatial index, or null to search all cameras. */
+	static public void setIndex(GeoIndex<Camera> gi) {
+		index = gi;
+	}
+
 	/** Find the nearest cameras to a position */
 	static public Collection<Camera> findNearest(Position pos, int n_count){
+		GeoIndex<Camera> gi = index;
+		if (gi != null)
+			return gi.findNearest(pos, n_count);
 		TreeMap<Double, Camera> cams = new TreeMap<Double, Camera>();
 		Iterator<Camera> it = iterator();
 		while(it.hasNext()) {
 			Camera cam = it.next();
 			GeoLoc loc = cam.getGeoLoc();
-			Distance d = GeoLocHelper.distanceTo(loc, pos);
-			if(d != null) {
-				cams.put(d.m(), cam);
+			double m = GeoLocHelper.distanceMeters(loc, pos);
+			if(!Double.isNaN(m)) {
+				cams.put(m, cam);
 				while(cams.size() > n_count)
 					cams.pollLastEntry();
 			}
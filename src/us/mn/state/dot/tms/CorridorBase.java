@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2007-2013  Minnesota Department of Transportation
+ * Copyright (C) 2007-2016  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -17,9 +17,11 @@ package us.mn.state.dot.tms;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
 import us.mn.state.dot.geokit.Position;
+import static us.mn.state.dot.tms.GeoLocHelper.distanceMeters;
 import static us.mn.state.dot.tms.GeoLocHelper.distanceTo;
 import us.mn.state.dot.tms.units.Distance;
 import static us.mn.state.dot.tms.units.Distance.Units.MILES;
@@ -49,6 +51,18 @@ public class CorridorBase implements Iterable<R_Node> {
 		return distanceTo(n.getGeoLoc(), l);
 	}
 
+	/** Calculate the distance between two roadway nodes.
+	 * @return Distance (meters), or NaN if a location is missing. */
+	static public double nodeMeters(R_Node a, R_Node b) {
+		return distanceMeters(a.getGeoLoc(), b.getGeoLoc());
+	}
+
+	/** Calculate the distance from a roadway node to a location.
+	 * @return Distance (meters), or NaN if a location is missing. */
+	static public double nodeMeters(R_Node n, GeoLoc l) {
+		return distanceMeters(n.getGeoLoc(), l);
+	}
+
 	/** Check if the r_node location is valid */
 	static protected boolean hasLocation(R_Node n) {
 		return !GeoLocHelper.isNull(n.getGeoLoc());
@@ -170,7 +184,7 @@ public class CorridorBase implements Iterable<R_Node> {
 	protected class NodeDistance {
 		protected final double meters;
 		protected final R_Node node;
-		public NodeDistance(Double m, R_Node n) {
+		public NodeDistance(double m, R_Node n) {
 			meters = m;
 			node = n;
 		}
@@ -178,13 +192,16 @@ public class CorridorBase implements Iterable<R_Node> {
 
 	/** Find the nearest unsorted node to the given node */
 	protected NodeDistance findNearest(R_Node end) {
-		NodeDistance near = null;
+		R_Node near = null;
+		double n_meters = 0;
 		for(R_Node r_node: unsorted) {
-			Distance m = nodeDistance(r_node, end);
-			if(m != null && (near == null || m.m() < near.meters))
-				near = new NodeDistance(m.m(), r_node);
+			double m = nodeMeters(r_node, end);
+			if(!Double.isNaN(m) && (near == null || m < n_meters)) {
+				near = r_node;
+				n_meters = m;
+			}
 		}
-		return near;
+		return (near != null) ? new NodeDistance(n_meters, near) : null;
 	}
 
 	/** Check if the roadway nodes are in reverse order */
@@ -234,10 +251,10 @@ public class CorridorBase implements Iterable<R_Node> {
 		R_Node previous = null;
 		for(R_Node n: r_nodes) {
 			if(previous != null) {
-				Distance m = nodeDistance(previous, n);
-				if(m == null)
+				double m = nodeMeters(previous, n);
+				if(Double.isNaN(m))
 					continue;
-				miles += m.asFloat(MILES);
+				miles += (float)(m / MILES.meters);
 			}
 			while(n_points.containsKey(miles))
 				miles += calculateEpsilon(miles);
@@ -256,11 +273,11 @@ public class CorridorBase implements Iterable<R_Node> {
 		R_Node n_after = null;
 		float n_mile = 0;
 		double n_meters = 0;
-		for(Float mile: n_points.keySet()) {
-			R_Node n = n_points.get(mile);
-			Distance m = nodeDistance(n, loc);
-			if(m != null) {
-				double ms = m.m();
+		for(Map.Entry<Float, R_Node> e: n_points.entrySet()) {
+			float mile = e.getKey();
+			R_Node n = e.getValue();
+			double ms = nodeMeters(n, loc);
+			if(!Double.isNaN(ms)) {
 				if(nearest == null || ms < n_meters) {
 					nearest = n;
 					n_after = n;
@@ -272,10 +289,10 @@ public class CorridorBase implements Iterable<R_Node> {
 		}
 		if(nearest == null || n_after == null)
 			return null;
-		float mi = new Distance(n_meters).asFloat(MILES);
-		Distance m0 = nodeDistance(n_after, nearest);
-		Distance m1 = nodeDistance(n_after, loc);
-		if(m0 != null && m1 != null && m0.m() > m1.m())
+		float mi = (float)(n_meters / MILES.meters);
+		double m0 = nodeMeters(n_after, nearest);
+		double m1 = nodeMeters(n_after, loc);
+		if(m0 > m1)
 			return n_mile + mi;
 		else
 			return n_mile - mi;
@@ -310,10 +327,10 @@ public class CorridorBase implements Iterable<R_Node> {
 		R_Node nearest = null;
 		double n_meters = 0;
 		for(R_Node n: r_nodes) {
-			Distance m = distanceTo(n.getGeoLoc(), pos);
-			if(m != null && (nearest == null || m.m() < n_meters)) {
+			double m = distanceMeters(n.getGeoLoc(), pos);
+			if(!Double.isNaN(m) && (nearest == null || m < n_meters)){
 				nearest = n;
-				n_meters = m.m();
+				n_meters = m;
 			}
 		}
 		return nearest;
@@ -326,10 +343,10 @@ public class CorridorBase implements Iterable<R_Node> {
 		for(R_Node n: r_nodes) {
 			if(n.getNodeType() != nt.ordinal())
 				continue;
-			Distance m = distanceTo(n.getGeoLoc(), pos);
-			if(m != null && (nearest == null || m.m() < n_meters)) {
+			double m = distanceMeters(n.getGeoLoc(), pos);
+			if(!Double.isNaN(m) && (nearest == null || m < n_meters)){
 				nearest = n;
-				n_meters = m.m();
+				n_meters = m;
 			}
 		}
 		return nearest;
@@ -342,9 +359,8 @@ public class CorridorBase implements Iterable<R_Node> {
 		R_Node n_after = null;
 		double n_meters = 0;
 		for(R_Node n: r_nodes) {
-			Distance m = distanceTo(n.getGeoLoc(), pos);
-			if(m != null) {
-				double ms = m.m();
+			double ms = distanceMeters(n.getGeoLoc(), pos);
+			if(!Double.isNaN(ms)) {
 				if(nearest == null || ms < n_meters) {
 					n_before = nearest;
 					nearest = n;
@@ -361,9 +377,9 @@ public class CorridorBase implements Iterable<R_Node> {
 		if(nearest == null)
 			return null;
 		GeoLoc ga = n_after.getGeoLoc();
-		Distance m0 = distanceTo(ga, nearest.getGeoLoc());
-		Distance m1 = distanceTo(ga, pos);
-		if(m0 != null && m1 != null && m0.m() > m1.m())
+		double m0 = distanceMeters(ga, nearest.getGeoLoc());
+		double m1 = distanceMeters(ga, pos);
+		if(m0 > m1)
 			return nearest;
 		else
 			return n_before;
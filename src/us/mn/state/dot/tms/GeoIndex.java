@@ -0,0 +1,341 @@
+/*
+ * IRIS -- Intelligent Roadway Information System
+ * Copyright (C) 2016  Minnesota Department of Transportation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package us.mn.state.dot.tms;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import us.mn.state.dot.geokit.Position;
+
+/**
+ * A geo index is a spatial index of objects by location.  Objects are kept
+ * in a grid of cells, each 0.01 degrees square.  Nearest neighbor queries
+ * search rings of cells outward from the query point, stopping once no
+ * unsearched cell can hold a closer object.  The index must be updated
+ * whenever an object is added or removed, or its location changes.
+ *
+ * @author Douglas Lau
+ */
+public class GeoIndex<T> {
+
+	/** Size of one grid cell (degrees) */
+	static private final double CELL_DEG = 0.01;
+
+	/** Meters per degree of latitude */
+	static private final double M_PER_DEG = GeoPoint.MEAN_RADIUS_M *
+		Math.PI / 180;
+
+	/** Maximum latitude for longitude scaling (degrees) */
+	static private final double LAT_MAX = 89;
+
+	/** Get the grid row (or column) for a coordinate */
+	static private int cellIndex(double deg) {
+		return (int)Math.floor(deg / CELL_DEG);
+	}
+
+	/** Get the grid cell key for a row and column */
+	static private long cellKey(int row, int col) {
+		return ((long)row << 32) | (col & 0xFFFFFFFFL);
+	}
+
+	/** Get the cosine of the highest latitude within a span */
+	static private double cosLatMax(double lat, double span) {
+		double lt = Math.min(Math.abs(lat) + span, LAT_MAX);
+		return Math.cos(Math.toRadians(lt));
+	}
+
+	/** Index entry for one object */
+	static private class Entry<T> {
+		private final T obj;
+		private final GeoLoc loc;
+		private boolean placed;
+		private double lat;
+		private double lon;
+		private int row;
+		private int col;
+		private Entry(T o, GeoLoc l) {
+			obj = o;
+			loc = l;
+		}
+	}
+
+	/** Candidate object found by a query */
+	static private class Candidate<T> implements Comparable<Candidate<T>> {
+		private final T obj;
+		private final double meters;
+		private Candidate(T o, double m) {
+			obj = o;
+			meters = m;
+		}
+		public int compareTo(Candidate<T> o) {
+			return Double.compare(meters, o.meters);
+		}
+	}
+
+	/** Get the objects from a list of candidates */
+	static private <T> List<T> objects(List<Candidate<T>> cands) {
+		ArrayList<T> objs = new ArrayList<T>(cands.size());
+		for (Candidate<T> c: cands)
+			objs.add(c.obj);
+		return objs;
+	}
+
+	/** Mapping of objects to entries */
+	private final HashMap<T, Entry<T>> entries =
+		new HashMap<T, Entry<T>>();
+
+	/** Mapping of locations to entries */
+	private final HashMap<GeoLoc, Entry<T>> loc_entries =
+		new HashMap<GeoLoc, Entry<T>>();
+
+	/** Mapping of grid cell keys to entries */
+	private final HashMap<Long, ArrayList<Entry<T>>> cells =
+		new HashMap<Long, ArrayList<Entry<T>>>();
+
+	/** Extent of occupied grid cells */
+	private int row_min = Integer.MAX_VALUE;
+	private int row_max = Integer.MIN_VALUE;
+	private int col_min = Integer.MAX_VALUE;
+	private int col_max = Integer.MIN_VALUE;
+
+	/** Get the number of objects in the index */
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	/** Clear all objects from the index */
+	public synchronized void clear() {
+		entries.clear();
+		loc_entries.clear();
+		cells.clear();
+		row_min = Integer.MAX_VALUE;
+		row_max = Integer.MIN_VALUE;
+		col_min = Integer.MAX_VALUE;
+		col_max = Integer.MIN_VALUE;
+	}
+
+	/** Put an object into the index.
+	 * @param obj Object to index.
+	 * @param loc Location of object. */
+	public synchronized void put(T obj, GeoLoc loc) {
+		Entry<T> e = entries.get(obj);
+		if (e != null) {
+			if (e.loc == loc) {
+				place(e);
+				return;
+			}
+			removeEntry(e);
+		}
+		e = new Entry<T>(obj, loc);
+		entries.put(obj, e);
+		loc_entries.put(loc, e);
+		place(e);
+	}
+
+	/** Remove an object from the index */
+	public synchronized void remove(T obj) {
+		Entry<T> e = entries.get(obj);
+		if (e != null)
+			removeEntry(e);
+	}
+
+	/** Update the index after a location has changed.
+	 * @param loc Location which changed.
+	 * @return true if the location is indexed. */
+	public synchronized boolean update(GeoLoc loc) {
+		Entry<T> e = loc_entries.get(loc);
+		if (e != null) {
+			place(e);
+			return true;
+		} else
+			return false;
+	}
+
+	/** Remove an entry from the index */
+	private void removeEntry(Entry<T> e) {
+		unplace(e);
+		entries.remove(e.obj);
+		loc_entries.remove(e.loc);
+	}
+
+	/** Place an entry into the grid cell for its location */
+	private void place(Entry<T> e) {
+		Double lat = GeoLocHelper.getLat(e.loc);
+		Double lon = GeoLocHelper.getLon(e.loc);
+		if (e.placed && lat != null && lon != null &&
+		    lat == e.lat && lon == e.lon)
+			return;
+		unplace(e);
+		if (lat != null && lon != null) {
+			e.lat = lat;
+			e.lon = lon;
+			e.row = cellIndex(lat);
+			e.col = cellIndex(lon);
+			Long key = cellKey(e.row, e.col);
+			ArrayList<Entry<T>> cell = cells.get(key);
+			if (cell == null) {
+				cell = new ArrayList<Entry<T>>(4);
+				cells.put(key, cell);
+			}
+			cell.add(e);
+			e.placed = true;
+			row_min = Math.min(row_min, e.row);
+			row_max = Math.max(row_max, e.row);
+			col_min = Math.min(col_min, e.col);
+			col_max = Math.max(col_max, e.col);
+		}
+	}
+
+	/** Remove an entry from its grid cell */
+	private void unplace(Entry<T> e) {
+		if (e.placed) {
+			Long key = cellKey(e.row, e.col);
+			ArrayList<Entry<T>> cell = cells.get(key);
+			if (cell != null) {
+				cell.remove(e);
+				if (cell.isEmpty())
+					cells.remove(key);
+			}
+			e.placed = false;
+		}
+	}
+
+	/** Find the nearest objects to a position.
+	 * @param pos Position to search from.
+	 * @param n_count Maximum number of objects to find.
+	 * @return List of objects, ordered by distance. */
+	public List<T> findNearest(Position pos, int n_count) {
+		return findNearest(pos.getLatitude(), pos.getLongitude(),
+			n_count);
+	}
+
+	/** Find the nearest objects to a coordinate.
+	 * @param lat Latitude (degrees).
+	 * @param lon Longitude (degrees).
+	 * @param n_count Maximum number of objects to find.
+	 * @return List of objects, ordered by distance. */
+	public synchronized List<T> findNearest(double lat, double lon,
+		int n_count)
+	{
+		ArrayList<Candidate<T>> cands = new ArrayList<Candidate<T>>();
+		if (n_count <= 0 || cells.isEmpty())
+			return objects(cands);
+		int row = cellIndex(lat);
+		int col = cellIndex(lon);
+		int r_max = Math.max(Math.max(row - row_min, row_max - row),
+			Math.max(col - col_min, col_max - col));
+		for (int r = 0; r <= r_max; r++) {
+			searchRing(lat, lon, row, col, r, n_count, cands);
+			if (cands.size() >= n_count) {
+				double far = cands.get(cands.size() - 1).meters;
+				if (far <= ringMeters(lat, r))
+					break;
+			}
+		}
+		return objects(cands);
+	}
+
+	/** Get a lower bound for the distance to any cell outside a ring */
+	private double ringMeters(double lat, int r) {
+		double span = r * CELL_DEG;
+		return span * M_PER_DEG * cosLatMax(lat, span + CELL_DEG);
+	}
+
+	/** Search all cells in one ring around a center cell */
+	private void searchRing(double lat, double lon, int row, int col,
+		int r, int n_count, ArrayList<Candidate<T>> cands)
+	{
+		if (r == 0) {
+			searchCell(lat, lon, row, col, n_count, cands);
+			return;
+		}
+		for (int c = col - r; c <= col + r; c++) {
+			searchCell(lat, lon, row - r, c, n_count, cands);
+			searchCell(lat, lon, row + r, c, n_count, cands);
+		}
+		for (int rw = row - r + 1; rw < row + r; rw++) {
+			searchCell(lat, lon, rw, col - r, n_count, cands);
+			searchCell(lat, lon, rw, col + r, n_count, cands);
+		}
+	}
+
+	/** Search one cell, keeping the nearest candidates */
+	private void searchCell(double lat, double lon, int row, int col,
+		int n_count, ArrayList<Candidate<T>> cands)
+	{
+		ArrayList<Entry<T>> cell = cells.get(cellKey(row, col));
+		if (cell == null)
+			return;
+		for (Entry<T> e: cell) {
+			double m = GeoPoint.distanceMeters(lat, lon, e.lat,
+				e.lon);
+			int n = cands.size();
+			if (n < n_count || m < cands.get(n - 1).meters) {
+				Candidate<T> c = new Candidate<T>(e.obj, m);
+				int i = Collections.binarySearch(cands, c);
+				cands.add((i < 0) ? -(i + 1) : i, c);
+				if (cands.size() > n_count)
+					cands.remove(cands.size() - 1);
+			}
+		}
+	}
+
+	/** Find all objects within a distance of a position.
+	 * @param pos Position to search from.
+	 * @param meters Search radius (meters).
+	 * @return List of objects, ordered by distance. */
+	public List<T> findWithin(Position pos, double meters) {
+		return findWithin(pos.getLatitude(), pos.getLongitude(),
+			meters);
+	}
+
+	/** Find all objects within a distance of a coordinate.
+	 * @param lat Latitude (degrees).
+	 * @param lon Longitude (degrees).
+	 * @param meters Search radius (meters).
+	 * @return List of objects, ordered by distance. */
+	public synchronized List<T> findWithin(double lat, double lon,
+		double meters)
+	{
+		ArrayList<Candidate<T>> cands = new ArrayList<Candidate<T>>();
+		if (cells.isEmpty())
+			return objects(cands);
+		double dlat = meters / M_PER_DEG;
+		double dlon = dlat / cosLatMax(lat, dlat);
+		int r0 = Math.max(cellIndex(lat - dlat), row_min);
+		int r1 = Math.min(cellIndex(lat + dlat), row_max);
+		int c0 = Math.max(cellIndex(lon - dlon), col_min);
+		int c1 = Math.min(cellIndex(lon + dlon), col_max);
+		for (int row = r0; row <= r1; row++) {
+			for (int col = c0; col <= c1; col++) {
+				ArrayList<Entry<T>> cell = cells.get(
+					cellKey(row, col));
+				if (cell == null)
+					continue;
+				for (Entry<T> e: cell) {
+					double m = GeoPoint.distanceMeters(lat,
+						lon, e.lat, e.lon);
+					if (m <= meters) {
+						cands.add(new Candidate<T>(
+							e.obj, m));
+					}
+				}
+			}
+		}
+		Collections.sort(cands);
+		return objects(cands);
+	}
+}
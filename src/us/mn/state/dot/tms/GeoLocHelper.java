@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2008-2013  Minnesota Department of Transportation
+ * Copyright (C) 2008-2016  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -254,23 +254,72 @@ public class GeoLocHelper extends BaseHelper {
 		return (getLat(l) == null) || (getLon(l) == null);
 	}
 
+	/** Lookup the geo point of a location.
+	 * @param l Location (may be null).
+	 * @return Geo point, or null if coordinates are not set. */
+	static public GeoPoint lookupGeoPoint(GeoLoc l) {
+		if (l instanceof GeoPoint.Cached)
+			return ((GeoPoint.Cached)l).lookupGeoPoint();
+		else
+			return GeoPoint.create(getLat(l), getLon(l));
+	}
+
+	/** Calculate the distance between two locations.
+	 * @return Distance (meters), or NaN if coordinates are not set. */
+	static public double distanceMeters(GeoLoc l0, GeoLoc l1) {
+		if (l0 instanceof GeoPoint.Cached &&
+		    l1 instanceof GeoPoint.Cached)
+		{
+			GeoPoint p0 = ((GeoPoint.Cached)l0).lookupGeoPoint();
+			GeoPoint p1 = ((GeoPoint.Cached)l1).lookupGeoPoint();
+			return (p0 != null && p1 != null)
+			      ? p0.distanceMeters(p1)
+			      : Double.NaN;
+		}
+		Double lt0 = getLat(l0);
+		Double ln0 = getLon(l0);
+		Double lt1 = getLat(l1);
+		Double ln1 = getLon(l1);
+		if (lt0 != null && ln0 != null && lt1 != null && ln1 != null)
+			return GeoPoint.distanceMeters(lt0, ln0, lt1, ln1);
+		else
+			return Double.NaN;
+	}
+
+	/** Calculate the distance between a location and a position.
+	 * @return Distance (meters), or NaN if coordinates are not set. */
+	static public double distanceMeters(GeoLoc l0, Position p1) {
+		if (p1 == null)
+			return Double.NaN;
+		double lt1 = p1.getLatitude();
+		double ln1 = p1.getLongitude();
+		if (l0 instanceof GeoPoint.Cached) {
+			GeoPoint p0 = ((GeoPoint.Cached)l0).lookupGeoPoint();
+			return (p0 != null)
+			      ? p0.distanceMeters(lt1, ln1)
+			      : Double.NaN;
+		}
+		Double lt0 = getLat(l0);
+		Double ln0 = getLon(l0);
+		if (lt0 != null && ln0 != null)
+			return GeoPoint.distanceMeters(lt0, ln0, lt1, ln1);
+		else
+			return Double.NaN;
+	}
+
+	/** Create a distance from meters, or null for NaN */
+	static private Distance createDistance(double m) {
+		return Double.isNaN(m) ? null : new Distance(m);
+	}
+
 	/** Calculate the distance between two locations */
 	static public Distance distanceTo(GeoLoc l0, GeoLoc l1) {
-		Position p0 = getWgs84Position(l0);
-		Position p1 = getWgs84Position(l1);
-		if(p0 != null && p1 != null)
-			return new Distance(p0.distanceHaversine(p1));
-		else
-			return null;
+		return createDistance(distanceMeters(l0, l1));
 	}
 
 	/** Calculate the distance between two locations */
 	static public Distance distanceTo(GeoLoc l0, Position p1) {
-		Position p0 = getWgs84Position(l0);
-		if(p0 != null && p1 != null)
-			return new Distance(p0.distanceHaversine(p1));
-		else
-			return null;
+		return createDistance(distanceMeters(l0, p1));
 	}
 
 	/** Test if another location matches */
@@ -343,6 +392,10 @@ public class GeoLocHelper extends BaseHelper {
 
 	/** Return GeoLoc as a Position in WGS84 */
 	static public Position getWgs84Position(GeoLoc p) {
+		if (p instanceof GeoPoint.Cached) {
+			GeoPoint gp = ((GeoPoint.Cached)p).lookupGeoPoint();
+			return (gp != null) ? gp.getWgs84Position() : null;
+		}
 		Double lat = getLat(p);
 		Double lon = getLon(p);
 		if(lat != null && lon != null)
@@ -353,6 +406,10 @@ public class GeoLocHelper extends BaseHelper {
 
 	/** Create a spherical mercator position */
 	static public SphericalMercatorPosition getPosition(GeoLoc p) {
+		if (p instanceof GeoPoint.Cached) {
+			GeoPoint gp = ((GeoPoint.Cached)p).lookupGeoPoint();
+			return (gp != null) ? gp.getPosition() : null;
+		}
 		Position pos = getWgs84Position(p);
 		if(pos != null)
 			return SphericalMercatorPosition.convert(pos);
@@ -418,17 +475,39 @@ public class GeoLocHelper extends BaseHelper {
 	static public double segmentDistance(GeoLoc l0, GeoLoc l1,
 		SphericalMercatorPosition smp)
 	{
-		SphericalMercatorPosition p0 = getPosition(l0);
-		SphericalMercatorPosition p1 = getPosition(l1);
+		GeoPoint p0 = lookupGeoPoint(l0);
+		GeoPoint p1 = lookupGeoPoint(l1);
 		if(p0 == null || p1 == null)
 			return Double.POSITIVE_INFINITY;
 		else {
-			MapLineSegment seg = new MapLineSegment(p0.getX(),
-				p0.getY(), p1.getX(), p1.getY());
-			return seg.distanceTo(smp.getX(), smp.getY());
+			return segmentDistance(p0.x, p0.y, p1.x, p1.y,
+				smp.getX(), smp.getY());
 		}
 	}
 
+	/** Calculate the distance from a point to a line segment.
+	 * @param x0 X coordinate of first end of segment.
+	 * @param y0 Y coordinate of first end of segment.
+	 * @param x1 X coordinate of second end of segment.
+	 * @param y1 Y coordinate of second end of segment.
+	 * @param x X coordinate of point.
+	 * @param y Y coordinate of point.
+	 * @return Distance from point to segment. */
+	static private double segmentDistance(double x0, double y0, double x1,
+		double y1, double x, double y)
+	{
+		double dx = x1 - x0;
+		double dy = y1 - y0;
+		double len2 = dx * dx + dy * dy;
+		double t = (len2 > 0)
+		         ? ((x - x0) * dx + (y - y0) * dy) / len2
+		         : 0;
+		t = Math.max(0, Math.min(1, t));
+		double ex = x0 + t * dx - x;
+		double ey = y0 + t * dy - y;
+		return Math.sqrt(ex * ex + ey * ey);
+	}
+
 	/** Snap a point to a line segment on the map.
 	 * @param l0 First end of line segment.
 	 * @param l1 Second end of line segment.
@@ -0,0 +1,144 @@
+/*
+ * IRIS -- Intelligent Roadway Information System
+ * Copyright (C) 2016  Minnesota Department of Transportation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package us.mn.state.dot.tms;
+
+import us.mn.state.dot.geokit.Position;
+import us.mn.state.dot.geokit.SphericalMercatorPosition;
+
+/**
+ * A geo point holds the coordinates of a location as primitives, along with
+ * values derived from them.  It is immutable, so it can be cached by a
+ * location and replaced whenever the latitude or longitude changes.
+ *
+ * @author Douglas Lau
+ */
+public final class GeoPoint {
+
+	/** A location which caches its geo point */
+	public interface Cached {
+
+		/** Lookup the geo point, or null if coordinates are not set */
+		GeoPoint lookupGeoPoint();
+	}
+
+	/** Mean radius of the Earth (meters) */
+	static public final double MEAN_RADIUS_M = 6371000;
+
+	/** Create a geo point for a location.
+	 * @param lat Latitude (degrees), or null.
+	 * @param lon Longitude (degrees), or null.
+	 * @return Geo point, or null if either coordinate is null. */
+	static public GeoPoint create(Double lat, Double lon) {
+		if (lat != null && lon != null)
+			return new GeoPoint(lat, lon);
+		else
+			return null;
+	}
+
+	/** Calculate the haversine distance between two coordinates.
+	 * @param lat0 Latitude of first point (degrees).
+	 * @param lon0 Longitude of first point (degrees).
+	 * @param lat1 Latitude of second point (degrees).
+	 * @param lon1 Longitude of second point (degrees).
+	 * @return Distance (meters). */
+	static public double distanceMeters(double lat0, double lon0,
+		double lat1, double lon1)
+	{
+		double r0 = Math.toRadians(lat0);
+		double r1 = Math.toRadians(lat1);
+		return haversine(r0, Math.cos(r0), r1, Math.cos(r1),
+			Math.toRadians(lon1 - lon0));
+	}
+
+	/** Calculate the haversine distance.
+	 * @param r0 Latitude of first point (radians).
+	 * @param c0 Cosine of first latitude.
+	 * @param r1 Latitude of second point (radians).
+	 * @param c1 Cosine of second latitude.
+	 * @param dlon Longitude difference (radians).
+	 * @return Distance (meters). */
+	static private double haversine(double r0, double c0, double r1,
+		double c1, double dlon)
+	{
+		double slat = Math.sin((r1 - r0) / 2);
+		double slon = Math.sin(dlon / 2);
+		double a = slat * slat + c0 * c1 * slon * slon;
+		return MEAN_RADIUS_M * 2 * Math.atan2(Math.sqrt(a),
+			Math.sqrt(1 - a));
+	}
+
+	/** Latitude (degrees) */
+	public final double lat;
+
+	/** Longitude (degrees) */
+	public final double lon;
+
+	/** Latitude (radians) */
+	private final double lat_rad;
+
+	/** Cosine of latitude */
+	private final double cos_lat;
+
+	/** WGS84 position */
+	private final Position wgs84;
+
+	/** Spherical mercator position */
+	private final SphericalMercatorPosition smp;
+
+	/** Spherical mercator X (meters) */
+	public final double x;
+
+	/** Spherical mercator Y (meters) */
+	public final double y;
+
+	/** Create a new geo point.
+	 * @param lt Latitude (degrees).
+	 * @param ln Longitude (degrees). */
+	public GeoPoint(double lt, double ln) {
+		lat = lt;
+		lon = ln;
+		lat_rad = Math.toRadians(lt);
+		cos_lat = Math.cos(lat_rad);
+		wgs84 = new Position(lt, ln);
+		smp = SphericalMercatorPosition.convert(wgs84);
+		x = smp.getX();
+		y = smp.getY();
+	}
+
+	/** Get the WGS84 position */
+	public Position getWgs84Position() {
+		return wgs84;
+	}
+
+	/** Get the spherical mercator position */
+	public SphericalMercatorPosition getPosition() {
+		return smp;
+	}
+
+	/** Calculate the distance to another point (meters) */
+	public double distanceMeters(GeoPoint o) {
+		return haversine(lat_rad, cos_lat, o.lat_rad, o.cos_lat,
+			Math.toRadians(o.lon - lon));
+	}
+
+	/** Calculate the distance to a coordinate (meters).
+	 * @param lt Latitude (degrees).
+	 * @param ln Longitude (degrees). */
+	public double distanceMeters(double lt, double ln) {
+		double r = Math.toRadians(lt);
+		return haversine(lat_rad, cos_lat, r, Math.cos(r),
+			Math.toRadians(ln - lon));
+	}
+}
@@ -42,6 +42,7 @@ public enum SystemAttrEnum {
 	CAMERA_UTIL_PANEL_ENABLE(false, Change.RESTART_CLIENT),
 	CAMERA_WIPER_PRECIP_MM_HR(8, 1, 100),
 	CLIENT_UNITS_SI(true),
+	COMM_BREAKER_THRESHOLD(5, 0, 100),
 	COMM_EVENT_PURGE_DAYS(14, 0, 1000),
 	DATABASE_VERSION(String.class, Change.RESTART_SERVER),
 	DETECTOR_AUTO_FAIL_ENABLE(true),
@@ -53,6 +54,7 @@ public enum SystemAttrEnum {
 	DMS_DEFAULT_JUSTIFICATION_LINE(3, 2, 5, Change.RESTART_CLIENT),
 	DMS_DEFAULT_JUSTIFICATION_PAGE(2, 2, 4, Change.RESTART_CLIENT),
 	DMS_DURATION_ENABLE(true),
+	DMS_FONT_PDU_SIZE(484, 0, 65507),
 	DMS_FONT_SELECTION_ENABLE(false, Change.RESTART_CLIENT),
 	DMS_FORM(1, 1, 2), 
 	DMS_HIGH_TEMP_CUTOFF(60, 35, 100),
@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2008-2015  Minnesota Department of Transportation
+ * Copyright (C) 2008-2016  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -23,6 +23,7 @@ import javax.swing.JLabel;
 import javax.swing.JPopupMenu;
 import us.mn.state.dot.sonar.client.TypeCache;
 import us.mn.state.dot.tms.Camera;
+import us.mn.state.dot.tms.CameraHelper;
 import us.mn.state.dot.tms.Controller;
 import us.mn.state.dot.tms.ControllerHelper;
 import us.mn.state.dot.tms.GeoLoc;
@@ -58,6 +59,20 @@ public class CameraManager extends ProxyManager<Camera> {
 		super(s, lm, ItemStyle.ACTIVE);
 	}
 
+	/** Initialize the camera manager */
+	@Override
+	public void initialize() {
+		super.initialize();
+		CameraHelper.setIndex(getGeoIndex());
+	}
+
+	/** Dispose of the camera manager */
+	@Override
+	public void dispose() {
+		CameraHelper.setIndex(null);
+		super.dispose();
+	}
+
 	/** Get the sonar type name */
 	@Override
 	public String getSonarType() {
@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2008-2014  Minnesota Department of Transportation
+ * Copyright (C) 2008-2016  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -14,10 +14,12 @@
  */
 package us.mn.state.dot.tms.client.proxy;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import us.mn.state.dot.sonar.client.TypeCache;
 import us.mn.state.dot.tms.CorridorBase;
 import static us.mn.state.dot.tms.CorridorBase.nodeDistance;
+import us.mn.state.dot.tms.GeoIndex;
 import us.mn.state.dot.tms.GeoLoc;
 import us.mn.state.dot.tms.R_Node;
 import us.mn.state.dot.tms.client.Session;
@@ -42,6 +44,10 @@ public class GeoLocManager {
 	private final HashMap<String, MapGeoLoc> proxies =
 		new HashMap<String, MapGeoLoc>();
 
+	/** Spatial indexes to update when a location changes */
+	private final ArrayList<GeoIndex<?>> indexes =
+		new ArrayList<GeoIndex<?>>();
+
 	/** Listener for proxy events */
 	private final SwingProxyAdapter<GeoLoc> listener =
 		new SwingProxyAdapter<GeoLoc>(true)
@@ -77,6 +83,30 @@ public class GeoLocManager {
 		getCache().removeProxyListener(listener);
 	}
 
+	/** Add a spatial index to update on location changes */
+	public void addIndex(GeoIndex<?> gi) {
+		synchronized (indexes) {
+			indexes.add(gi);
+		}
+	}
+
+	/** Remove a spatial index */
+	public void removeIndex(GeoIndex<?> gi) {
+		synchronized (indexes) {
+			indexes.remove(gi);
+		}
+	}
+
+	/** Update spatial indexes for a changed location */
+	private void updateIndexes(GeoLoc proxy) {
+		synchronized (indexes) {
+			for (GeoIndex<?> gi: indexes) {
+				if (gi.update(proxy))
+					break;
+			}
+		}
+	}
+
 	/** Add a new GeoLoc to the manager */
 	private void proxyAddedSwing(GeoLoc proxy) {
 		MapGeoLoc loc = new MapGeoLoc(proxy);
@@ -92,6 +122,7 @@ public class GeoLocManager {
 
 	/** Change a proxy in the model */
 	private void proxyChangedSwing(GeoLoc proxy, String attrib) {
+		updateIndexes(proxy);
 		MapGeoLoc loc = proxies.get(proxy.getName());
 		if (loc != null) {
 			loc.doUpdate();
@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2008-2014  Minnesota Department of Transportation
+ * Copyright (C) 2008-2016  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -79,8 +79,10 @@ public class MapGeoLoc implements MapObject {
 
 	/** Update the layer geometry */
 	public void updateGeometry() {
-		if (manager != null)
+		if (manager != null) {
+			manager.relocate(this);
 			manager.updateGeometry();
+		}
 	}
 
 	/** Get the default angle (radians) */
@@ -152,6 +154,11 @@ public class MapGeoLoc implements MapObject {
 		transform.rotate(getTangent());
 	}
 
+	/** Get the spherical mercator position, or null if not set */
+	public SphericalMercatorPosition getPosition() {
+		return pos;
+	}
+
 	/** Get the transform to render as a map object */
 	public AffineTransform getTransform() {
 		return transform;
@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2008-2015  Minnesota Department of Transportation
+ * Copyright (C) 2008-2016  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -16,6 +16,8 @@ package us.mn.state.dot.tms.client.proxy;
 
 import java.awt.event.InputEvent;
 import java.awt.event.MouseEvent;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
 import java.util.LinkedList;
 import java.util.Set;
 import us.mn.state.dot.map.LayerChange;
@@ -104,10 +106,50 @@ public class ProxyLayerState<T extends SonarObject> extends LayerState {
 			map.getModel().getZoomLevel().ordinal());
 	}
 
-	/** Iterate through all shapes in the layer */
+	/** Region to search, or null for the whole viewport.  This is
+	 * thread-local, in case searching and painting happen on different
+	 * threads. */
+	private final ThreadLocal<Rectangle2D> region =
+		new ThreadLocal<Rectangle2D>();
+
+	/** Iterate through all shapes in the layer.  Only shapes within the
+	 * search region (or viewport) are visited. */
 	@Override
 	public MapObject forEach(MapSearcher s) {
-		return manager.forEach(s, getScale());
+		Rectangle2D r = region.get();
+		if (r == null)
+			r = getViewport();
+		if (r != null)
+			return manager.forEach(s, getScale(), r);
+		else
+			return manager.forEach(s, getScale());
+	}
+
+	/** Get the current map viewport (spherical mercator) */
+	private Rectangle2D getViewport() {
+		Point2D c = map.getModel().getCenter();
+		int w = map.getWidth();
+		int h = map.getHeight();
+		if (c == null || w <= 0 || h <= 0)
+			return null;
+		double sc = getScale();
+		double hw = w * sc / 2;
+		double hh = h * sc / 2;
+		return new Rectangle2D.Double(c.getX() - hw, c.getY() - hh,
+			hw * 2, hh * 2);
+	}
+
+	/** Search the layer for a map object containing a point.  Only
+	 * shapes near the point are visited. */
+	@Override
+	public MapObject search(Point2D p) {
+		region.set(new Rectangle2D.Double(p.getX(), p.getY(), 0, 0));
+		try {
+			return super.search(p);
+		}
+		finally {
+			region.remove();
+		}
 	}
 
 	/** Do mouse click event processing */
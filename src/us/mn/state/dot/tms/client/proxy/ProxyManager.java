@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2008-2015  Minnesota Department of Transportation
+ * Copyright (C) 2008-2016  Minnesota Department of Transportation
  * Copyright (C) 2010  AHMCT, University of California
  *
  * This program is free software; you can redistribute it and/or modify
@@ -18,6 +18,7 @@ package us.mn.state.dot.tms.client.proxy;
 import java.awt.Shape;
 import java.awt.event.MouseEvent;
 import java.awt.geom.AffineTransform;
+import java.awt.geom.Rectangle2D;
 import java.util.Collection;
 import javax.swing.Box;
 import javax.swing.JLabel;
@@ -31,6 +32,7 @@ import us.mn.state.dot.map.MapSearcher;
 import us.mn.state.dot.map.Symbol;
 import us.mn.state.dot.sonar.SonarObject;
 import us.mn.state.dot.sonar.client.TypeCache;
+import us.mn.state.dot.tms.GeoIndex;
 import us.mn.state.dot.tms.GeoLoc;
 import us.mn.state.dot.tms.GeoLocHelper;
 import us.mn.state.dot.tms.ItemStyle;
@@ -112,6 +114,9 @@ abstract public class ProxyManager<T extends SonarObject> {
 	/** Cache of MapObject to proxy */
 	private final ProxyMapCache<T> map_cache = new ProxyMapCache<T>();
 
+	/** Spatial index of proxies */
+	private final GeoIndex<T> geo_index = new GeoIndex<T>();
+
 	/** Map layer for the proxy type */
 	private final ProxyLayer<T> layer;
 
@@ -135,6 +140,7 @@ abstract public class ProxyManager<T extends SonarObject> {
 	/** Initialize the proxy manager. This cannot be done in the constructor
 	 * because subclasses may not be fully constructed. */
 	public void initialize() {
+		loc_manager.addIndex(geo_index);
 		getCache().addProxyListener(listener);
 	}
 
@@ -143,6 +149,8 @@ abstract public class ProxyManager<T extends SonarObject> {
 		s_model.dispose();
 		map_cache.dispose();
 		getCache().removeProxyListener(listener);
+		loc_manager.removeIndex(geo_index);
+		geo_index.clear();
 	}
 
 	/** Create a layer for this proxy type */
@@ -155,6 +163,7 @@ abstract public class ProxyManager<T extends SonarObject> {
 		// NOTE: this also gets called when we "watch" an
 		//       object after it is selected.
 		cacheMapGeoLoc(proxy);
+		indexProxy(proxy);
 		updateGeometry();
 	}
 
@@ -174,6 +183,7 @@ abstract public class ProxyManager<T extends SonarObject> {
 			runQueued(new Invokable() {
 				public void invoke() {
 					cacheMapGeoLoc(p);
+					indexProxy(p);
 				}
 			});
 		}
@@ -183,9 +193,24 @@ abstract public class ProxyManager<T extends SonarObject> {
 	protected void proxyRemovedSwing(T proxy) {
 		s_model.removeSelected(proxy);
 		map_cache.remove(proxy);
+		geo_index.remove(proxy);
 		updateGeometry();
 	}
 
+	/** Put a proxy into the spatial index */
+	private void indexProxy(T proxy) {
+		GeoLoc loc = getGeoLoc(proxy);
+		if (loc != null)
+			geo_index.put(proxy, loc);
+		else
+			geo_index.remove(proxy);
+	}
+
+	/** Get the spatial index of proxies */
+	public GeoIndex<T> getGeoIndex() {
+		return geo_index;
+	}
+
 	/** Update layer geometry */
 	public final void updateGeometry() {
 		if (layer != null) {
@@ -215,6 +240,8 @@ abstract public class ProxyManager<T extends SonarObject> {
 
 	/** Called when a proxy has been changed */
 	protected void proxyChangedSwing(T proxy, String attr) {
+		if ("geoLoc".equals(attr))
+			indexProxy(proxy);
 		if (layer != null && isStyleAttrib(attr))
 			layer.updateStatus();
 	}
@@ -414,6 +441,50 @@ abstract public class ProxyManager<T extends SonarObject> {
 		return null;
 	}
 
+	/** Iterate through proxy objects within a region.
+	 * @param ms Map searcher callback.
+	 * @param scale Map scale in user coordinates per pixel.
+	 * @param r Region to search (spherical mercator).
+	 * @return Map object found, if any. */
+	public MapObject forEach(final MapSearcher ms, float scale,
+		Rectangle2D r)
+	{
+		float sc = adjustScale(scale);
+		AffineTransform at = new AffineTransform();
+		at.setToScale(sc, sc);
+		shape = getShape(at);
+		// Allow a couple of pixels for the outline
+		double m = getShapeRadius(shape) + 2 * sc;
+		QuadTree.Visitor<MapGeoLoc> vis =
+			new QuadTree.Visitor<MapGeoLoc>()
+		{
+			public boolean next(MapGeoLoc loc) {
+				return isLocationSet(loc) && ms.next(loc);
+			}
+		};
+		synchronized(map_cache) {
+			return map_cache.search(r.getMinX() - m, r.getMinY() - m,
+				r.getMaxX() + m, r.getMaxY() + m, vis);
+		}
+	}
+
+	/** Get the radius of a marker shape around its origin, including
+	 * any rotation */
+	static private double getShapeRadius(Shape s) {
+		if (s != null) {
+			Rectangle2D b = s.getBounds2D();
+			return Math.hypot(Math.max(Math.abs(b.getMinX()),
+				Math.abs(b.getMaxX())), Math.max(
+				Math.abs(b.getMinY()), Math.abs(b.getMaxY())));
+		} else
+			return 0;
+	}
+
+	/** Update the spatial index after a location has moved */
+	public void relocate(MapGeoLoc loc) {
+		map_cache.relocate(loc);
+	}
+
 	/** Check if the location is set */
 	static private boolean isLocationSet(MapGeoLoc loc) {
 		return loc != null && !GeoLocHelper.isNull(loc.getGeoLoc());
@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2008-2013  Minnesota Department of Transportation
+ * Copyright (C) 2008-2016  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -16,46 +16,113 @@ package us.mn.state.dot.tms.client.proxy;
 
 import java.util.HashMap;
 import java.util.Iterator;
-import java.util.Map;
+import us.mn.state.dot.geokit.SphericalMercatorPosition;
 import us.mn.state.dot.sonar.SonarObject;
 
 /**
  * A cache mapping from MapGeoLoc to proxy objects.  This cache
- * is an optimization to help ProxyManager.findProxy run fast.
+ * is an optimization to help ProxyManager.findProxy run fast.  It also
+ * keeps a spatial index of locations, so that map searches only need to
+ * visit locations within a region.
  *
  * @author Douglas Lau
  */
 public final class ProxyMapCache<T extends SonarObject>
 	implements Iterable<MapGeoLoc>
 {
+	/** Cache entry for one location */
+	static private class Entry<T> {
+		private final T proxy;
+		private boolean placed;
+		private double x;
+		private double y;
+		private Entry(T p) {
+			proxy = p;
+		}
+	}
+
 	/** Mapping from MapGeoLoc to proxy objects.  This is an optimization
 	 * cache to help findProxy run fast. */
-	private final HashMap<MapGeoLoc, T> map_proxies =
-		new HashMap<MapGeoLoc, T>();
+	private final HashMap<MapGeoLoc, Entry<T>> map_proxies =
+		new HashMap<MapGeoLoc, Entry<T>>();
+
+	/** Reverse mapping from proxy objects to MapGeoLoc */
+	private final HashMap<T, MapGeoLoc> proxy_locs =
+		new HashMap<T, MapGeoLoc>();
+
+	/** Spatial index of locations */
+	private final QuadTree<MapGeoLoc> tree = new QuadTree<MapGeoLoc>();
 
 	/** Dispose of the proxy map cache */
 	public synchronized void dispose() {
 		map_proxies.clear();
+		proxy_locs.clear();
+		tree.clear();
 	}
 
 	/** Put an entry into cache.
 	 * @param loc Map object to associate with proxy.
 	 * @param proxy Proxy to associate with map object. */
 	public synchronized void put(MapGeoLoc loc, T proxy) {
-		map_proxies.put(loc, proxy);
+		MapGeoLoc ol = proxy_locs.get(proxy);
+		if (ol != null && ol != loc)
+			removeLoc(ol);
+		Entry<T> e = map_proxies.get(loc);
+		if (e == null || e.proxy != proxy) {
+			if (e != null)
+				removeLoc(loc);
+			e = new Entry<T>(proxy);
+			map_proxies.put(loc, e);
+			proxy_locs.put(proxy, loc);
+		}
+		place(loc, e);
 	}
 
 	/** Remove an entry from cache.
 	 * @param proxy Proxy to remove from cache. */
 	public synchronized void remove(T proxy) {
-		Iterator<Map.Entry<MapGeoLoc, T>> it =
-			map_proxies.entrySet().iterator();
-		while(it.hasNext()) {
-			Map.Entry<MapGeoLoc, T> ent = it.next();
-			if(ent.getValue() == proxy) {
-				it.remove();
-				break;
-			}
+		MapGeoLoc loc = proxy_locs.get(proxy);
+		if (loc != null)
+			removeLoc(loc);
+	}
+
+	/** Remove a location from the cache */
+	private void removeLoc(MapGeoLoc loc) {
+		Entry<T> e = map_proxies.remove(loc);
+		if (e != null) {
+			unplace(loc, e);
+			proxy_locs.remove(e.proxy);
+		}
+	}
+
+	/** Update the spatial index after a location has moved.
+	 * @param loc Map object which moved. */
+	public synchronized void relocate(MapGeoLoc loc) {
+		Entry<T> e = map_proxies.get(loc);
+		if (e != null)
+			place(loc, e);
+	}
+
+	/** Place a location into the spatial index */
+	private void place(MapGeoLoc loc, Entry<T> e) {
+		SphericalMercatorPosition pos = loc.getPosition();
+		if (e.placed && pos != null && pos.getX() == e.x &&
+		    pos.getY() == e.y)
+			return;
+		unplace(loc, e);
+		if (pos != null) {
+			e.x = pos.getX();
+			e.y = pos.getY();
+			tree.insert(loc, e.x, e.y);
+			e.placed = true;
+		}
+	}
+
+	/** Remove a location from the spatial index */
+	private void unplace(MapGeoLoc loc, Entry<T> e) {
+		if (e.placed) {
+			tree.remove(loc, e.x, e.y);
+			e.placed = false;
 		}
 	}
 
@@ -63,11 +130,26 @@ public final class ProxyMapCache<T extends SonarObject>
 	 * @param loc Map object to find associated proxy.
 	 * @return Proxy associated with map object. */
 	public synchronized T lookup(MapGeoLoc loc) {
-		return map_proxies.get(loc);
+		Entry<T> e = map_proxies.get(loc);
+		return (e != null) ? e.proxy : null;
 	}
 
 	/** Get an iterator over the MapGeoLoc keys */
 	public Iterator<MapGeoLoc> iterator() {
 		return map_proxies.keySet().iterator();
 	}
+
+	/** Search locations within a region.  The caller must synchronize
+	 * on the cache while searching.
+	 * @param x0 Minimum X (spherical mercator).
+	 * @param y0 Minimum Y (spherical mercator).
+	 * @param x1 Maximum X (spherical mercator).
+	 * @param y1 Maximum Y (spherical mercator).
+	 * @param vis Visitor for each location.
+	 * @return Location where visitor stopped, or null. */
+	public MapGeoLoc search(double x0, double y0, double x1, double y1,
+		QuadTree.Visitor<MapGeoLoc> vis)
+	{
+		return tree.search(x0, y0, x1, y1, vis);
+	}
 }
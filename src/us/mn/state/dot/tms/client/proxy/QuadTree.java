@@ -0,0 +1,175 @@
+/*
+ * IRIS -- Intelligent Roadway Information System
+ * Copyright (C) 2016  Minnesota Department of Transportation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package us.mn.state.dot.tms.client.proxy;
+
+import java.util.ArrayList;
+
+/**
+ * A point quadtree for spherical mercator coordinates.  Each leaf holds a
+ * small bucket of values; when a bucket overflows, the leaf is split into
+ * four quadrants.  This class is not thread-safe.
+ *
+ * @author Douglas Lau
+ */
+public class QuadTree<V> {
+
+	/** Half the width of the spherical mercator world (meters) */
+	static private final double WORLD = 20037508.34;
+
+	/** Maximum number of values in a leaf bucket */
+	static private final int BUCKET_SIZE = 8;
+
+	/** Maximum depth of tree (cells about 1 meter wide) */
+	static private final int MAX_DEPTH = 26;
+
+	/** Visitor for values found in a region */
+	public interface Visitor<V> {
+
+		/** Visit one value.
+		 * @return true to stop searching. */
+		boolean next(V v);
+	}
+
+	/** Value with coordinates */
+	static private class Item<V> {
+		private final V value;
+		private final double x;
+		private final double y;
+		private Item(V v, double x, double y) {
+			value = v;
+			this.x = x;
+			this.y = y;
+		}
+	}
+
+	/** Tree node; either a leaf with a bucket, or a branch */
+	static private class Node<V> {
+		private final double cx;
+		private final double cy;
+		private final double half;
+		private ArrayList<Item<V>> bucket = new ArrayList<Item<V>>(4);
+		private Node<V>[] kids;
+		private Node(double cx, double cy, double half) {
+			this.cx = cx;
+			this.cy = cy;
+			this.half = half;
+		}
+		/** Get quadrant index for a point */
+		private int quadrant(double x, double y) {
+			return (x < cx ? 0 : 1) + (y < cy ? 0 : 2);
+		}
+		/** Split a leaf into four quadrants */
+		@SuppressWarnings("unchecked")
+		private void split() {
+			double h = half / 2;
+			kids = new Node[4];
+			kids[0] = new Node<V>(cx - h, cy - h, h);
+			kids[1] = new Node<V>(cx + h, cy - h, h);
+			kids[2] = new Node<V>(cx - h, cy + h, h);
+			kids[3] = new Node<V>(cx + h, cy + h, h);
+			for (Item<V> it: bucket)
+				kids[quadrant(it.x, it.y)].bucket.add(it);
+			bucket = null;
+		}
+		/** Check if node intersects a rectangle */
+		private boolean intersects(double x0, double y0, double x1,
+			double y1)
+		{
+			return x0 <= cx + half && x1 >= cx - half &&
+			       y0 <= cy + half && y1 >= cy - half;
+		}
+	}
+
+	/** Root node */
+	private Node<V> root = new Node<V>(0, 0, WORLD);
+
+	/** Number of values in tree */
+	private int n_values = 0;
+
+	/** Get the number of values in the tree */
+	public int size() {
+		return n_values;
+	}
+
+	/** Remove all values */
+	public void clear() {
+		root = new Node<V>(0, 0, WORLD);
+		n_values = 0;
+	}
+
+	/** Insert a value at a point */
+	public void insert(V v, double x, double y) {
+		Node<V> n = root;
+		int depth = 0;
+		while (n.kids != null) {
+			n = n.kids[n.quadrant(x, y)];
+			depth++;
+		}
+		n.bucket.add(new Item<V>(v, x, y));
+		n_values++;
+		while (n.bucket.size() > BUCKET_SIZE && depth < MAX_DEPTH) {
+			n.split();
+			n = n.kids[n.quadrant(x, y)];
+			depth++;
+		}
+	}
+
+	/** Remove a value which was inserted at a point.
+	 * @return true if the value was found. */
+	public boolean remove(V v, double x, double y) {
+		Node<V> n = root;
+		while (n.kids != null)
+			n = n.kids[n.quadrant(x, y)];
+		for (int i = 0; i < n.bucket.size(); i++) {
+			if (n.bucket.get(i).value.equals(v)) {
+				n.bucket.remove(i);
+				n_values--;
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/** Visit all values within a rectangle.
+	 * @return Value where visitor stopped, or null. */
+	public V search(double x0, double y0, double x1, double y1,
+		Visitor<V> vis)
+	{
+		return search(root, x0, y0, x1, y1, vis);
+	}
+
+	/** Visit all values of a node within a rectangle */
+	private V search(Node<V> n, double x0, double y0, double x1,
+		double y1, Visitor<V> vis)
+	{
+		if (!n.intersects(x0, y0, x1, y1))
+			return null;
+		if (n.kids != null) {
+			for (Node<V> k: n.kids) {
+				V v = search(k, x0, y0, x1, y1, vis);
+				if (v != null)
+					return v;
+			}
+		} else {
+			for (Item<V> it: n.bucket) {
+				if (it.x >= x0 && it.x <= x1 &&
+				    it.y >= y0 && it.y <= y1 &&
+				    vis.next(it.value))
+					return it.value;
+			}
+		}
+		return null;
+	}
+}
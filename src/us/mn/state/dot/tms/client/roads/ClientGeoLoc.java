@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2009-2012  Minnesota Department of Transportation
+ * Copyright (C) 2009-2016  Minnesota Department of Transportation
  * Copyright (C) 2014  AHMCT, University of California
  *
  * This program is free software; you can redistribute it and/or modify
@@ -16,6 +16,7 @@
 package us.mn.state.dot.tms.client.roads;
 
 import us.mn.state.dot.tms.GeoLoc;
+import us.mn.state.dot.tms.GeoPoint;
 import us.mn.state.dot.tms.Road;
 
 /**
@@ -24,7 +25,7 @@ import us.mn.state.dot.tms.Road;
  * @author Douglas Lau
  * @author Travis Swanston
  */
-public class ClientGeoLoc implements GeoLoc {
+public class ClientGeoLoc implements GeoLoc, GeoPoint.Cached {
 
 	/** Create a client location */
 	public ClientGeoLoc(Road road, short rd, float lt, float ln, double d) {
@@ -149,6 +150,17 @@ public class ClientGeoLoc implements GeoLoc {
 	/** Distance from selected point (in spherical mercator "meters") */
 	private final double distance;
 
+	/** Cached geo point */
+	private GeoPoint point;
+
+	/** Lookup the geo point */
+	@Override
+	public synchronized GeoPoint lookupGeoPoint() {
+		if (point == null)
+			point = new GeoPoint(lat, lon);
+		return point;
+	}
+
 	/** Get distance from selected point (in spherical mercator "meters") */
 	public double getDistance() {
 		return distance;
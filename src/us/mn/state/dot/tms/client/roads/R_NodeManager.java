@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2006-2015  Minnesota Department of Transportation
+ * Copyright (C) 2006-2016  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -71,6 +71,9 @@ public class R_NodeManager extends ProxyManager<R_Node> {
 	/** Background color for inactive nodes */
 	static public final Color COLOR_INACTIVE = Color.GRAY;
 
+	/** Radius to search for r_nodes near a point to snap (meters) */
+	static private final double SNAP_RADIUS_M = 3000;
+
 	/** Marker to draw r_nodes */
 	static private final R_NodeMarker MARKER = new R_NodeMarker();
 
@@ -119,6 +122,22 @@ public class R_NodeManager extends ProxyManager<R_Node> {
 	/** Currently selected corridor */
 	private CorridorBase corridor;
 
+	/** Length of longest segment on any corridor (meters) */
+	private double longest_seg_m = 0;
+
+	/** Update the length of the longest segment */
+	private synchronized void updateLongestSegment(double m) {
+		if (m > longest_seg_m)
+			longest_seg_m = m;
+	}
+
+	/** Get the radius to search for r_nodes of candidate corridors.
+	 * Any segment within the snap radius has an end node within the
+	 * snap radius plus half the segment length. */
+	private synchronized double getSearchRadius() {
+		return SNAP_RADIUS_M + longest_seg_m / 2;
+	}
+
 	/** Select a new roadway corridor */
 	public void setCorridor(CorridorBase c) {
 		corridor = c;
@@ -246,6 +265,29 @@ public class R_NodeManager extends ProxyManager<R_Node> {
 	private void arrangeCorridor(CorridorBase c) {
 		c.arrangeNodes();
 		setTangentAngles(c);
+		updateLongestSegment(calcLongestSegment(c));
+	}
+
+	/** Calculate the length of the longest segment in a corridor.
+	 * @param c Corridor.
+	 * @return Length of longest segment (meters). */
+	private double calcLongestSegment(CorridorBase c) {
+		double longest = 0;
+		R_Node n_prev = null;
+		for (R_Node n: c) {
+			if (isContinuityBreak(n)) {
+				n_prev = null;
+				continue;
+			}
+			if (n_prev != null) {
+				double m = GeoLocHelper.distanceMeters(
+					n_prev.getGeoLoc(), n.getGeoLoc());
+				if (m > longest)
+					longest = m;
+			}
+			n_prev = n;
+		}
+		return longest;
 	}
 
 	/** Arrange the segments for all corridors */
@@ -467,13 +509,44 @@ public class R_NodeManager extends ProxyManager<R_Node> {
 		return proxy.getGeoLoc();
 	}
 
-	/** Create a GeoLoc snapped to nearest corridor */
+	/** Create a GeoLoc snapped to nearest corridor.  Only corridors
+	 * with r_nodes near the point are checked, widening the search by
+	 * half the longest segment so long segments are not missed.  If
+	 * none of them snap within the snap radius, all corridors are
+	 * checked. */
 	public GeoLoc createGeoLoc(SphericalMercatorPosition smp,
 		boolean cd_road)
 	{
-		GeoLoc loc = null;
+		ClientGeoLoc loc = createGeoLoc(smp, cd_road,
+			findNearCorridors(smp));
+		return (loc != null && loc.getDistance() <= SNAP_RADIUS_M)
+		      ? loc
+		      : createGeoLoc(smp, cd_road, corridors.values());
+	}
+
+	/** Find corridors which could have a segment within the snap
+	 * radius of a point, using the spatial index. */
+	private Collection<CorridorBase> findNearCorridors(
+		SphericalMercatorPosition smp)
+	{
+		HashSet<CorridorBase> near = new HashSet<CorridorBase>();
+		Position pos = smp.getPosition();
+		double r = getSearchRadius();
+		for (R_Node n: getGeoIndex().findWithin(pos, r)) {
+			CorridorBase c = lookupCorridor(n.getGeoLoc());
+			if (c != null)
+				near.add(c);
+		}
+		return near;
+	}
+
+	/** Create a GeoLoc snapped to the nearest of some corridors */
+	private ClientGeoLoc createGeoLoc(SphericalMercatorPosition smp,
+		boolean cd_road, Collection<CorridorBase> cors)
+	{
+		ClientGeoLoc loc = null;
 		double distance = Double.POSITIVE_INFINITY;
-		for (CorridorBase c: corridors.values()) {
+		for (CorridorBase c: cors) {
 			boolean cd = RoadClass.fromOrdinal(
 				c.getRoadway().getRClass()) ==RoadClass.CD_ROAD;
 			if ((cd_road && !cd) || (cd && !cd_road))
@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2012  Minnesota Department of Transportation
+ * Copyright (C) 2012-2016  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -14,8 +14,6 @@
  */
 package us.mn.state.dot.tms.server;
 
-import us.mn.state.dot.sched.Job;
-import us.mn.state.dot.sched.Scheduler;
 import us.mn.state.dot.sonar.server.AccessMonitor;
 import us.mn.state.dot.tms.EventType;
 import us.mn.state.dot.tms.TMSException;
@@ -28,11 +26,11 @@ import us.mn.state.dot.tms.server.event.ClientEvent;
  */
 public class AccessLogger implements AccessMonitor {
 
-	/** FLUSH Scheduler for I/O jobs */
-	private final Scheduler flush;
+	/** Job monitor for event storage jobs */
+	private final JobMonitor flush;
 
 	/** Create a new access logger */
-	public AccessLogger(Scheduler f) {
+	public AccessLogger(JobMonitor f) {
 		flush = f;
 	}
 
@@ -59,8 +57,8 @@ public class AccessLogger implements AccessMonitor {
 	/** Log an event */
 	private void log_event(EventType event, String hostport, String user) {
 		final ClientEvent ev = new ClientEvent(event, hostport, user);
-		flush.addJob(new Job() {
-			public void perform() throws TMSException {
+		flush.addJob(new TimedJob() {
+			protected void doPerform() throws TMSException {
 				ev.doStore();
 			}
 		});
@@ -16,25 +16,14 @@ package us.mn.state.dot.tms.server;
 
 import java.sql.ResultSet;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArraySet;
 import us.mn.state.dot.sched.TimeSteward;
 import us.mn.state.dot.sonar.Namespace;
 import us.mn.state.dot.tms.ActionPlan;
 import us.mn.state.dot.tms.Beacon;
-import us.mn.state.dot.tms.BeaconAction;
-import us.mn.state.dot.tms.BeaconActionHelper;
 import us.mn.state.dot.tms.ChangeVetoException;
-import us.mn.state.dot.tms.DMS;
-import us.mn.state.dot.tms.DmsAction;
-import us.mn.state.dot.tms.DmsActionHelper;
-import us.mn.state.dot.tms.DmsSignGroup;
-import us.mn.state.dot.tms.DmsSignGroupHelper;
-import us.mn.state.dot.tms.LaneAction;
-import us.mn.state.dot.tms.LaneActionHelper;
 import us.mn.state.dot.tms.LaneMarking;
-import us.mn.state.dot.tms.MeterAction;
-import us.mn.state.dot.tms.MeterActionHelper;
 import us.mn.state.dot.tms.PlanPhase;
 import us.mn.state.dot.tms.RampMeter;
 import us.mn.state.dot.tms.SignGroup;
@@ -189,6 +178,7 @@ public class ActionPlanImpl extends BaseObjectImpl implements ActionPlan {
 	/** Set the active status */
 	public void setActive(boolean a) {
 		active = a;
+		setDirty();
 	}
 
 	/** Set the active status */
@@ -237,6 +227,7 @@ public class ActionPlanImpl extends BaseObjectImpl implements ActionPlan {
 	public void setPhase(PlanPhase p) {
 		phase = p;
 		phase_time = TimeSteward.currentTimeMillis();
+		setDirty();
 	}
 
 	/**
@@ -279,10 +270,8 @@ public class ActionPlanImpl extends BaseObjectImpl implements ActionPlan {
 	 * ActionPlan is not deployable.
 	 */
 	private void validateDmsActions() throws ChangeVetoException {
-		Iterator<DmsAction> it = DmsActionHelper.iterator();
-		while(it.hasNext()) {
-			DmsAction da = it.next();
-			if(da.getActionPlan() == this && !isDeployable(da)) {
+		for(DmsActionImpl da: dms_actions) {
+			if(!isDeployable(da)) {
 				throw new ChangeVetoException("DMS action " +
 					da.getName() + " not deployable");
 			}
@@ -290,17 +279,12 @@ public class ActionPlanImpl extends BaseObjectImpl implements ActionPlan {
 	}
 
 	/** Check if a DMS action is deployable */
-	private boolean isDeployable(DmsAction da) {
+	private boolean isDeployable(DmsActionImpl da) {
 		SignGroup sg = da.getSignGroup();
-		Iterator<DmsSignGroup> it = DmsSignGroupHelper.iterator();
-		while(it.hasNext()) {
-			DmsSignGroup dsg = it.next();
-			if(dsg.getSignGroup() == sg) {
-				DMS dms = dsg.getDms();
-				if(dms instanceof DMSImpl) {
-					if(!((DMSImpl)dms).isDeployable(da))
-						return false;
-				}
+		if(sg instanceof SignGroupImpl) {
+			for(DMSImpl dms: ((SignGroupImpl)sg).getSigns()) {
+				if(!dms.isDeployable(da))
+					return false;
 			}
 		}
 		return true;
@@ -311,10 +295,8 @@ public class ActionPlanImpl extends BaseObjectImpl implements ActionPlan {
 	 * @throws ChangeVetoException
 	 */
 	private void validateBeaconActions() throws ChangeVetoException {
-		Iterator<BeaconAction> it = BeaconActionHelper.iterator();
-		while(it.hasNext()) {
-			BeaconAction ba = it.next();
-			if(ba.getActionPlan() == this && !isDeployable(ba)) {
+		for(BeaconActionImpl ba: beacon_actions) {
+			if(!isDeployable(ba)) {
 				throw new ChangeVetoException("Beacon action " +
 					ba.getName() + " not deployable");
 			}
@@ -322,7 +304,7 @@ public class ActionPlanImpl extends BaseObjectImpl implements ActionPlan {
 	}
 
 	/** Check if a beacon action is deployable */
-	private boolean isDeployable(BeaconAction ba) {
+	private boolean isDeployable(BeaconActionImpl ba) {
 		Beacon b = ba.getBeacon();
 		if(b instanceof BeaconImpl)
 			return !((BeaconImpl)b).isFailed();
@@ -336,10 +318,8 @@ public class ActionPlanImpl extends BaseObjectImpl implements ActionPlan {
 	 * deployable.
 	 */
 	private void validateLaneActions() throws ChangeVetoException {
-		Iterator<LaneAction> it = LaneActionHelper.iterator();
-		while(it.hasNext()) {
-			LaneAction la = it.next();
-			if(la.getActionPlan() == this && !isDeployable(la)) {
+		for(LaneActionImpl la: lane_actions) {
+			if(!isDeployable(la)) {
 				throw new ChangeVetoException("Lane action " +
 					la.getName() + " not deployable");
 			}
@@ -347,7 +327,7 @@ public class ActionPlanImpl extends BaseObjectImpl implements ActionPlan {
 	}
 
 	/** Check if a lane action is deployable */
-	private boolean isDeployable(LaneAction la) {
+	private boolean isDeployable(LaneActionImpl la) {
 		LaneMarking lm = la.getLaneMarking();
 		if(lm instanceof LaneMarkingImpl)
 			return !((LaneMarkingImpl)lm).isFailed();
@@ -360,10 +340,8 @@ public class ActionPlanImpl extends BaseObjectImpl implements ActionPlan {
 	 * @throws ChangeVetoException
 	 */
 	private void validateMeterActions() throws ChangeVetoException {
-		Iterator<MeterAction> it = MeterActionHelper.iterator();
-		while(it.hasNext()) {
-			MeterAction ma = it.next();
-			if(ma.getActionPlan() == this && !isDeployable(ma)) {
+		for(MeterActionImpl ma: meter_actions) {
+			if(!isDeployable(ma)) {
 				throw new ChangeVetoException("Meter action " +
 					ma.getName() + " not deployable");
 			}
@@ -371,7 +349,7 @@ public class ActionPlanImpl extends BaseObjectImpl implements ActionPlan {
 	}
 
 	/** Check if a meter action is deployable */
-	private boolean isDeployable(MeterAction ma) {
+	private boolean isDeployable(MeterActionImpl ma) {
 		RampMeter rm = ma.getRampMeter();
 		if(rm instanceof RampMeterImpl)
 			return !((RampMeterImpl)rm).isFailed();
@@ -394,4 +372,104 @@ public class ActionPlanImpl extends BaseObjectImpl implements ActionPlan {
 		long elapsed = TimeSteward.currentTimeMillis() - phase_time;
 		return (int)(elapsed / 1000);
 	}
+
+	/** Flag indicating the plan has changed since it was last checked */
+	private transient boolean dirty = true;
+
+	/** Mark the plan as changed (phase, active, or actions) */
+	public synchronized void setDirty() {
+		dirty = true;
+	}
+
+	/** Check if the plan has changed, and clear the dirty flag.
+	 * @return true if the plan has changed since the last check. */
+	public synchronized boolean checkDirty() {
+		boolean d = dirty;
+		dirty = false;
+		return d;
+	}
+
+	/** DMS actions for this plan, maintained by DmsActionImpl */
+	private transient final CopyOnWriteArraySet<DmsActionImpl> dms_actions
+		= new CopyOnWriteArraySet<DmsActionImpl>();
+
+	/** Add a DMS action to the plan */
+	public void addAction(DmsActionImpl da) {
+		dms_actions.add(da);
+		setDirty();
+	}
+
+	/** Remove a DMS action from the plan */
+	public void removeAction(DmsActionImpl da) {
+		dms_actions.remove(da);
+		setDirty();
+	}
+
+	/** Get the DMS actions for the plan */
+	public Iterable<DmsActionImpl> getDmsActions() {
+		return dms_actions;
+	}
+
+	/** Beacon actions for this plan, maintained by BeaconActionImpl */
+	private transient final CopyOnWriteArraySet<BeaconActionImpl>
+		beacon_actions = new CopyOnWriteArraySet<BeaconActionImpl>();
+
+	/** Add a beacon action to the plan */
+	public void addAction(BeaconActionImpl ba) {
+		beacon_actions.add(ba);
+		setDirty();
+	}
+
+	/** Remove a beacon action from the plan */
+	public void removeAction(BeaconActionImpl ba) {
+		beacon_actions.remove(ba);
+		setDirty();
+	}
+
+	/** Get the beacon actions for the plan */
+	public Iterable<BeaconActionImpl> getBeaconActions() {
+		return beacon_actions;
+	}
+
+	/** Lane actions for this plan, maintained by LaneActionImpl */
+	private transient final CopyOnWriteArraySet<LaneActionImpl>
+		lane_actions = new CopyOnWriteArraySet<LaneActionImpl>();
+
+	/** Add a lane action to the plan */
+	public void addAction(LaneActionImpl la) {
+		lane_actions.add(la);
+		setDirty();
+	}
+
+	/** Remove a lane action from the plan */
+	public void removeAction(LaneActionImpl la) {
+		lane_actions.remove(la);
+		setDirty();
+	}
+
+	/** Get the lane actions for the plan */
+	public Iterable<LaneActionImpl> getLaneActions() {
+		return lane_actions;
+	}
+
+	/** Meter actions for this plan, maintained by MeterActionImpl */
+	private transient final CopyOnWriteArraySet<MeterActionImpl>
+		meter_actions = new CopyOnWriteArraySet<MeterActionImpl>();
+
+	/** Add a meter action to the plan */
+	public void addAction(MeterActionImpl ma) {
+		meter_actions.add(ma);
+		setDirty();
+	}
+
+	/** Remove a meter action from the plan */
+	public void removeAction(MeterActionImpl ma) {
+		meter_actions.remove(ma);
+		setDirty();
+	}
+
+	/** Get the meter actions for the plan */
+	public Iterable<MeterActionImpl> getMeterActions() {
+		return meter_actions;
+	}
 }
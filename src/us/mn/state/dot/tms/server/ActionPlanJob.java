@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2009-2014  Minnesota Department of Transportation
+ * Copyright (C) 2009-2016  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -14,28 +14,19 @@
  */
 package us.mn.state.dot.tms.server;
 
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
-import us.mn.state.dot.sched.Job;
 import us.mn.state.dot.sched.TimeSteward;
 import us.mn.state.dot.tms.ActionPlan;
 import us.mn.state.dot.tms.ActionPlanHelper;
 import us.mn.state.dot.tms.Beacon;
-import us.mn.state.dot.tms.BeaconAction;
-import us.mn.state.dot.tms.BeaconActionHelper;
 import us.mn.state.dot.tms.DMS;
 import us.mn.state.dot.tms.DMSHelper;
-import us.mn.state.dot.tms.DmsAction;
-import us.mn.state.dot.tms.DmsActionHelper;
-import us.mn.state.dot.tms.DmsSignGroup;
-import us.mn.state.dot.tms.DmsSignGroupHelper;
-import us.mn.state.dot.tms.LaneAction;
-import us.mn.state.dot.tms.LaneActionHelper;
 import us.mn.state.dot.tms.LaneMarking;
-import us.mn.state.dot.tms.MeterAction;
-import us.mn.state.dot.tms.MeterActionHelper;
 import us.mn.state.dot.tms.PlanPhase;
 import us.mn.state.dot.tms.RampMeter;
 import us.mn.state.dot.tms.SignGroup;
@@ -44,33 +35,62 @@ import us.mn.state.dot.tms.TimeActionHelper;
 import us.mn.state.dot.tms.TMSException;
 
 /**
- * Job to update action plans
+ * Job to update action plans.
+ *
+ * DMS actions are performed on every active plan each cycle, using the sign
+ * group and plan action indexes.  Beacon, lane and meter actions are only
+ * performed for plans which have changed (phase, active status or actions),
+ * except for a periodic refresh of all plans.
  *
  * @author Douglas Lau
  */
-public class ActionPlanJob extends Job {
+public class ActionPlanJob extends TimedJob {
 
 	/** Seconds to offset each poll from start of interval */
 	static protected final int OFFSET_SECS = 29;
 
+	/** Number of cycles between full refreshes of all plans (5 minutes).
+	 * This makes sure devices which missed a command are corrected. */
+	static private final int REFRESH_CYCLES = 10;
+
 	/** Mapping of ramp meter operating states */
 	private final HashMap<RampMeterImpl, Boolean> meters =
 		new HashMap<RampMeterImpl, Boolean>();
 
+	/** Active plans for the current cycle */
+	private final ArrayList<ActionPlanImpl> active =
+		new ArrayList<ActionPlanImpl>();
+
+	/** Active plans which have changed since the last cycle */
+	private final ArrayList<ActionPlanImpl> changed =
+		new ArrayList<ActionPlanImpl>();
+
+	/** Signs which need their scheduled message updated.  This includes
+	 * all signs with a DMS action performed this cycle, plus signs which
+	 * still have a scheduled message from a previous cycle. */
+	private final HashSet<DMSImpl> sched_signs = new HashSet<DMSImpl>();
+
+	/** Cycle counter for full refreshes */
+	private int cycle = 0;
+
 	/** Create a new action plan job */
 	public ActionPlanJob() {
 		super(Calendar.SECOND, 30, Calendar.SECOND, OFFSET_SECS);
 	}
 
 	/** Perform the action plan job */
-	public void perform() throws TMSException {
+	protected void doPerform() throws TMSException {
+		boolean refresh = (cycle == 0);
+		cycle = (cycle + 1) % REFRESH_CYCLES;
 		updateActionPlanPhases();
 		performTimeActions();
+		findActivePlans(refresh);
 		performDmsActions();
-		updateDmsMessages();
+		updateDmsMessages(refresh);
 		performBeaconActions();
 		performLaneActions();
-		performMeterActions();
+		if(!changed.isEmpty())
+			performMeterActions();
 	}
 
 	/** Update the action plan phases */
@@ -99,99 +119,123 @@ public class ActionPlanJob extends Job {
 		}
 	}
 
+	/** Find all active plans, and which of them have changed.
+	 * @param refresh Treat all active plans as changed. */
+	private void findActivePlans(boolean refresh) {
+		active.clear();
+		changed.clear();
+		Iterator<ActionPlan> it = ActionPlanHelper.iterator();
+		while(it.hasNext()) {
+			ActionPlan ap = it.next();
+			if(ap instanceof ActionPlanImpl) {
+				ActionPlanImpl api = (ActionPlanImpl)ap;
+				boolean dirty = api.checkDirty();
+				if(api.getActive()) {
+					active.add(api);
+					if(dirty || refresh)
+						changed.add(api);
+				}
+			}
+		}
+	}
+
 	/** Perform DMS actions */
 	private void performDmsActions() {
-		Iterator<DmsAction> it = DmsActionHelper.iterator();
-		while(it.hasNext()) {
-			DmsAction da = it.next();
-			ActionPlan ap = da.getActionPlan();
-			if(ap.getActive()) {
-				if(ap.getPhase() == da.getPhase())
+		for(ActionPlanImpl ap: active) {
+			PlanPhase phase = ap.getPhase();
+			for(DmsActionImpl da: ap.getDmsActions()) {
+				if(phase == da.getPhase())
 					performDmsAction(da);
 			}
 		}
 	}
 
 	/** Perform a DMS action */
-	private void performDmsAction(DmsAction da) {
+	private void performDmsAction(DmsActionImpl da) {
 		SignGroup sg = da.getSignGroup();
-		Iterator<DmsSignGroup> it = DmsSignGroupHelper.iterator();
-		while(it.hasNext()) {
-			DmsSignGroup dsg = it.next();
-			if(dsg.getSignGroup() == sg) {
-				DMS dms = dsg.getDms();
-				if(dms instanceof DMSImpl) {
-					DMSImpl dmsi = (DMSImpl)dms;
-					dmsi.performAction(da);
-				}
+		if(sg instanceof SignGroupImpl) {
+			for(DMSImpl dms: ((SignGroupImpl)sg).getSigns()) {
+				dms.performAction(da);
+				sched_signs.add(dms);
 			}
 		}
 	}
 
-	/** Update the DMS messages */
-	private void updateDmsMessages() {
+	/** Update the DMS messages.
+	 * @param refresh Update all signs, not only scheduled signs. */
+	private void updateDmsMessages(boolean refresh) {
+		if(refresh)
+			addAllSigns();
+		Iterator<DMSImpl> it = sched_signs.iterator();
+		while(it.hasNext()) {
+			DMSImpl dms = it.next();
+			if(DMSHelper.lookup(dms.getName()) == dms) {
+				dms.updateScheduledMessage();
+				if(dms.getMessageSched() == null)
+					it.remove();
+			} else
+				it.remove();
+		}
+	}
+
+	/** Add all signs to the scheduled sign set */
+	private void addAllSigns() {
 		Iterator<DMS> it = DMSHelper.iterator();
 		while(it.hasNext()) {
 			DMS dms = it.next();
-			if(dms instanceof DMSImpl) {
-				DMSImpl dmsi = (DMSImpl)dms;
-				dmsi.updateScheduledMessage();
-			}
+			if(dms instanceof DMSImpl)
+				sched_signs.add((DMSImpl)dms);
 		}
 	}
 
-	/** Perform all beacon actions */
+	/** Perform beacon actions for all changed plans */
 	private void performBeaconActions() {
-		Iterator<BeaconAction> it = BeaconActionHelper.iterator();
-		while(it.hasNext()) {
-			BeaconAction ba = it.next();
-			ActionPlan ap = ba.getActionPlan();
-			if(ap.getActive())
-				performBeaconAction(ba, ap.getPhase());
+		for(ActionPlanImpl ap: changed) {
+			PlanPhase phase = ap.getPhase();
+			for(BeaconActionImpl ba: ap.getBeaconActions())
+				performBeaconAction(ba, phase);
 		}
 	}
 
 	/** Perform a beacon action */
-	private void performBeaconAction(BeaconAction ba, PlanPhase phase) {
+	private void performBeaconAction(BeaconActionImpl ba, PlanPhase phase){
 		Beacon b = ba.getBeacon();
 		if(b != null)
 			b.setFlashing(phase == ba.getPhase());
 	}
 
-	/** Perform all lane actions */
+	/** Perform lane actions for all changed plans */
 	private void performLaneActions() {
-		Iterator<LaneAction> it = LaneActionHelper.iterator();
-		while(it.hasNext()) {
-			LaneAction la = it.next();
-			ActionPlan ap = la.getActionPlan();
-			if(ap.getActive())
-				performLaneAction(la, ap.getPhase());
+		for(ActionPlanImpl ap: changed) {
+			PlanPhase phase = ap.getPhase();
+			for(LaneActionImpl la: ap.getLaneActions())
+				performLaneAction(la, phase);
 		}
 	}
 
 	/** Perform a lane action */
-	private void performLaneAction(LaneAction la, PlanPhase phase) {
+	private void performLaneAction(LaneActionImpl la, PlanPhase phase) {
 		LaneMarking lm = la.getLaneMarking();
 		if(lm != null)
 			lm.setDeployed(phase == la.getPhase());
 	}
 
-	/** Perform all meter actions */
+	/** Perform meter actions for all active plans.  A meter can be
+	 * controlled by more than one plan, so all active plans must be
+	 * checked whenever any plan changes. */
 	private void performMeterActions() {
 		meters.clear();
-		Iterator<MeterAction> it = MeterActionHelper.iterator();
-		while(it.hasNext()) {
-			MeterAction ma = it.next();
-			ActionPlan ap = ma.getActionPlan();
-			if(ap.getActive())
-				updateMeterMap(ma, ap.getPhase());
+		for(ActionPlanImpl ap: active) {
+			PlanPhase phase = ap.getPhase();
+			for(MeterActionImpl ma: ap.getMeterActions())
+				updateMeterMap(ma, phase);
 		}
 		for(Map.Entry<RampMeterImpl, Boolean> e: meters.entrySet())
 			e.getKey().setOperating(e.getValue());
 	}
 
 	/** Update the meter action map */
-	private void updateMeterMap(MeterAction ma, PlanPhase phase) {
+	private void updateMeterMap(MeterActionImpl ma, PlanPhase phase) {
 		RampMeter rm = ma.getRampMeter();
 		if(rm instanceof RampMeterImpl) {
 			RampMeterImpl meter = (RampMeterImpl)rm;
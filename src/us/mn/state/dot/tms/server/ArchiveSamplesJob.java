@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2010-2013  Minnesota Department of Transportation
+ * Copyright (C) 2010-2016  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -28,7 +28,6 @@ import java.util.Enumeration;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 import java.util.zip.ZipOutputStream;
-import us.mn.state.dot.sched.Job;
 import us.mn.state.dot.sched.TimeSteward;
 
 /**
@@ -36,7 +35,7 @@ import us.mn.state.dot.sched.TimeSteward;
  *
  * @author Douglas Lau
  */
-public class ArchiveSamplesJob extends Job {
+public class ArchiveSamplesJob extends TimedJob {
 
 	/** Buffer for reading sample data files */
 	protected final byte[] buffer = new byte[8192];
@@ -53,7 +52,7 @@ public class ArchiveSamplesJob extends Job {
 	}
 
 	/** Perform the archive samples job */
-	public void perform() throws IOException {
+	protected void doPerform() throws IOException {
 		archiveSamples();
 	}
 
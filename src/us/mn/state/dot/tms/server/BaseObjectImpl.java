@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2007-2014  Minnesota Department of Transportation
+ * Copyright (C) 2007-2016  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -38,58 +38,346 @@ abstract public class BaseObjectImpl implements Storable, SonarObject {
 	/** Corridor manager */
 	static public final CorridorManager corridors = new CorridorManager();
 
-	/** Load all objects from the database into the SONAR Namespace */
-	static void loadAll(SQLConnection s, ServerNamespace ns)
-		throws TMSException
+	/** Traffic data store */
+	static public final TrafficStore traffic = new TrafficStore();
+
+	/** Load all objects from the database into the SONAR Namespace.
+	 * @param s SQL connection.
+	 * @param ns SONAR namespace.
+	 * @param n_threads Number of loader threads.
+	 * @param ready Action to run once comm links and controllers are
+	 *              loaded, or null. */
+	static void loadAll(SQLConnection s, ServerNamespace ns, int n_threads,
+		Runnable ready) throws TMSException
 	{
 		store = s;
 		namespace = ns;
-		SystemAttributeImpl.loadAll();
-		GraphicImpl.loadAll();
-		FontImpl.loadAll();
-		GlyphImpl.loadAll();
-		VideoMonitorImpl.loadAll();
-		RoadImpl.loadAll();
-		GeoLocImpl.loadAll();
-		MapExtentImpl.loadAll();
-		IncidentDetailImpl.loadAll();
-		CommLinkImpl.loadAll();
-		ModemImpl.loadAll();
-		CabinetStyleImpl.loadAll();
-		CabinetImpl.loadAll();
-		ControllerImpl.loadAll();
-		R_NodeImpl.loadAll();
-		AlarmImpl.loadAll();
-		DetectorImpl.loadAll();
-		CameraImpl.loadAll();
-		CameraPresetImpl.loadAll();
-		BeaconImpl.loadAll();
-		WeatherSensorImpl.loadAll();
-		TagReaderImpl.loadAll();
-		RampMeterImpl.loadAll();
-		SignMessageImpl.loadAll();
-		DMSImpl.loadAll();
-		SignGroupImpl.loadAll();
-		DmsSignGroupImpl.loadAll();
-		QuickMessageImpl.loadAll();
-		SignTextImpl.loadAll();
-		GateArmArrayImpl.loadAll();
-		GateArmImpl.loadAll();
-		LaneMarkingImpl.loadAll();
-		LCSArrayImpl.loadAll();
-		LCSImpl.loadAll();
-		LCSIndicationImpl.loadAll();
-		LaneUseMultiImpl.loadAll();
-		IncidentImpl.loadAll();
-		HolidayImpl.loadAll();
-		DayPlanImpl.loadAll();
-		PlanPhaseImpl.loadAll();
-		ActionPlanImpl.loadAll();
-		TimeActionImpl.loadAll();
-		DmsActionImpl.loadAll();
-		BeaconActionImpl.loadAll();
-		LaneActionImpl.loadAll();
-		MeterActionImpl.loadAll();
+		TypeLoader tl = new TypeLoader(ns, s, n_threads);
+		TypeLoader.Task system_attribute = tl.add(new TypeLoader.Task(
+			SystemAttributeImpl.SONAR_TYPE)
+		{
+			protected void load() throws TMSException {
+				SystemAttributeImpl.loadAll();
+			}
+		});
+		TypeLoader.Task graphic = tl.add(new TypeLoader.Task(
+			GraphicImpl.SONAR_TYPE, system_attribute)
+		{
+			protected void load() throws TMSException {
+				GraphicImpl.loadAll();
+			}
+		});
+		TypeLoader.Task font = tl.add(new TypeLoader.Task(
+			FontImpl.SONAR_TYPE, system_attribute)
+		{
+			protected void load() throws TMSException {
+				FontImpl.loadAll();
+			}
+		});
+		tl.add(new TypeLoader.Task(
+			GlyphImpl.SONAR_TYPE, font, graphic)
+		{
+			protected void load() throws TMSException {
+				GlyphImpl.loadAll();
+			}
+		});
+		tl.add(new TypeLoader.Task(
+			VideoMonitorImpl.SONAR_TYPE, system_attribute)
+		{
+			protected void load() throws TMSException {
+				VideoMonitorImpl.loadAll();
+			}
+		});
+		TypeLoader.Task road = tl.add(new TypeLoader.Task(
+			RoadImpl.SONAR_TYPE, system_attribute)
+		{
+			protected void load() throws TMSException {
+				RoadImpl.loadAll();
+			}
+		});
+		TypeLoader.Task geo_loc = tl.add(new TypeLoader.Task(
+			GeoLocImpl.SONAR_TYPE, road)
+		{
+			protected void load() throws TMSException {
+				GeoLocImpl.loadAll();
+			}
+		});
+		tl.add(new TypeLoader.Task(
+			MapExtentImpl.SONAR_TYPE, system_attribute)
+		{
+			protected void load() throws TMSException {
+				MapExtentImpl.loadAll();
+			}
+		});
+		TypeLoader.Task incident_detail = tl.add(new TypeLoader.Task(
+			IncidentDetailImpl.SONAR_TYPE, system_attribute)
+		{
+			protected void load() throws TMSException {
+				IncidentDetailImpl.loadAll();
+			}
+		});
+		TypeLoader.Task comm_link = tl.add(new TypeLoader.Task(
+			CommLinkImpl.SONAR_TYPE, system_attribute)
+		{
+			protected void load() throws TMSException {
+				CommLinkImpl.loadAll();
+			}
+		});
+		tl.add(new TypeLoader.Task(
+			ModemImpl.SONAR_TYPE, system_attribute)
+		{
+			protected void load() throws TMSException {
+				ModemImpl.loadAll();
+			}
+		});
+		TypeLoader.Task cabinet_style = tl.add(new TypeLoader.Task(
+			CabinetStyleImpl.SONAR_TYPE, system_attribute)
+		{
+			protected void load() throws TMSException {
+				CabinetStyleImpl.loadAll();
+			}
+		});
+		TypeLoader.Task cabinet = tl.add(new TypeLoader.Task(
+			CabinetImpl.SONAR_TYPE, cabinet_style, geo_loc)
+		{
+			protected void load() throws TMSException {
+				CabinetImpl.loadAll();
+			}
+		});
+		TypeLoader.Task controller = tl.add(new TypeLoader.Task(
+			ControllerImpl.SONAR_TYPE, cabinet, comm_link)
+		{
+			protected void load() throws TMSException {
+				ControllerImpl.loadAll();
+			}
+		});
+		TypeLoader.Task r_node = tl.add(new TypeLoader.Task(
+			R_NodeImpl.SONAR_TYPE, geo_loc)
+		{
+			protected void load() throws TMSException {
+				R_NodeImpl.loadAll();
+			}
+		});
+		tl.add(new TypeLoader.Task(
+			AlarmImpl.SONAR_TYPE, controller)
+		{
+			protected void load() throws TMSException {
+				AlarmImpl.loadAll();
+			}
+		});
+		TypeLoader.Task detector = tl.add(new TypeLoader.Task(
+			DetectorImpl.SONAR_TYPE, controller, r_node)
+		{
+			protected void load() throws TMSException {
+				DetectorImpl.loadAll();
+			}
+		});
+		TypeLoader.Task camera = tl.add(new TypeLoader.Task(
+			CameraImpl.SONAR_TYPE, controller)
+		{
+			protected void load() throws TMSException {
+				CameraImpl.loadAll();
+			}
+		});
+		TypeLoader.Task camera_preset = tl.add(new TypeLoader.Task(
+			CameraPresetImpl.SONAR_TYPE, camera)
+		{
+			protected void load() throws TMSException {
+				CameraPresetImpl.loadAll();
+			}
+		});
+		TypeLoader.Task beacon = tl.add(new TypeLoader.Task(
+			BeaconImpl.SONAR_TYPE, camera_preset)
+		{
+			protected void load() throws TMSException {
+				BeaconImpl.loadAll();
+			}
+		});
+		tl.add(new TypeLoader.Task(
+			WeatherSensorImpl.SONAR_TYPE, controller)
+		{
+			protected void load() throws TMSException {
+				WeatherSensorImpl.loadAll();
+			}
+		});
+		tl.add(new TypeLoader.Task(
+			TagReaderImpl.SONAR_TYPE, controller)
+		{
+			protected void load() throws TMSException {
+				TagReaderImpl.loadAll();
+			}
+		});
+		TypeLoader.Task ramp_meter = tl.add(new TypeLoader.Task(
+			RampMeterImpl.SONAR_TYPE, beacon, detector)
+		{
+			protected void load() throws TMSException {
+				RampMeterImpl.loadAll();
+			}
+		});
+		TypeLoader.Task sign_message = tl.add(new TypeLoader.Task(
+			SignMessageImpl.SONAR_TYPE, system_attribute)
+		{
+			protected void load() throws TMSException {
+				SignMessageImpl.loadAll();
+			}
+		});
+		TypeLoader.Task dms = tl.add(new TypeLoader.Task(
+			DMSImpl.SONAR_TYPE, font, beacon, sign_message)
+		{
+			protected void load() throws TMSException {
+				DMSImpl.loadAll();
+			}
+		});
+		TypeLoader.Task sign_group = tl.add(new TypeLoader.Task(
+			SignGroupImpl.SONAR_TYPE, system_attribute)
+		{
+			protected void load() throws TMSException {
+				SignGroupImpl.loadAll();
+			}
+		});
+		tl.add(new TypeLoader.Task(
+			DmsSignGroupImpl.SONAR_TYPE, dms, sign_group)
+		{
+			protected void load() throws TMSException {
+				DmsSignGroupImpl.loadAll();
+			}
+		});
+		TypeLoader.Task quick_message = tl.add(new TypeLoader.Task(
+			QuickMessageImpl.SONAR_TYPE, sign_group)
+		{
+			protected void load() throws TMSException {
+				QuickMessageImpl.loadAll();
+			}
+		});
+		tl.add(new TypeLoader.Task(
+			SignTextImpl.SONAR_TYPE, sign_group)
+		{
+			protected void load() throws TMSException {
+				SignTextImpl.loadAll();
+			}
+		});
+		TypeLoader.Task gate_arm_array = tl.add(new TypeLoader.Task(
+			GateArmArrayImpl.SONAR_TYPE, dms, quick_message)
+		{
+			protected void load() throws TMSException {
+				GateArmArrayImpl.loadAll();
+			}
+		});
+		tl.add(new TypeLoader.Task(
+			GateArmImpl.SONAR_TYPE, gate_arm_array)
+		{
+			protected void load() throws TMSException {
+				GateArmImpl.loadAll();
+			}
+		});
+		TypeLoader.Task lane_marking = tl.add(new TypeLoader.Task(
+			LaneMarkingImpl.SONAR_TYPE, controller)
+		{
+			protected void load() throws TMSException {
+				LaneMarkingImpl.loadAll();
+			}
+		});
+		TypeLoader.Task lcs_array = tl.add(new TypeLoader.Task(
+			LCSArrayImpl.SONAR_TYPE, controller)
+		{
+			protected void load() throws TMSException {
+				LCSArrayImpl.loadAll();
+			}
+		});
+		TypeLoader.Task lcs = tl.add(new TypeLoader.Task(
+			LCSImpl.SONAR_TYPE, dms, lcs_array)
+		{
+			protected void load() throws TMSException {
+				LCSImpl.loadAll();
+			}
+		});
+		tl.add(new TypeLoader.Task(
+			LCSIndicationImpl.SONAR_TYPE, lcs)
+		{
+			protected void load() throws TMSException {
+				LCSIndicationImpl.loadAll();
+			}
+		});
+		tl.add(new TypeLoader.Task(
+			LaneUseMultiImpl.SONAR_TYPE, quick_message)
+		{
+			protected void load() throws TMSException {
+				LaneUseMultiImpl.loadAll();
+			}
+		});
+		tl.add(new TypeLoader.Task(
+			IncidentImpl.SONAR_TYPE, incident_detail, camera)
+		{
+			protected void load() throws TMSException {
+				IncidentImpl.loadAll();
+			}
+		});
+		TypeLoader.Task holiday = tl.add(new TypeLoader.Task(
+			HolidayImpl.SONAR_TYPE, system_attribute)
+		{
+			protected void load() throws TMSException {
+				HolidayImpl.loadAll();
+			}
+		});
+		TypeLoader.Task day_plan = tl.add(new TypeLoader.Task(
+			DayPlanImpl.SONAR_TYPE, holiday)
+		{
+			protected void load() throws TMSException {
+				DayPlanImpl.loadAll();
+			}
+		});
+		TypeLoader.Task plan_phase = tl.add(new TypeLoader.Task(
+			PlanPhaseImpl.SONAR_TYPE, system_attribute)
+		{
+			protected void load() throws TMSException {
+				PlanPhaseImpl.loadAll();
+			}
+		});
+		TypeLoader.Task action_plan = tl.add(new TypeLoader.Task(
+			ActionPlanImpl.SONAR_TYPE, plan_phase)
+		{
+			protected void load() throws TMSException {
+				ActionPlanImpl.loadAll();
+			}
+		});
+		tl.add(new TypeLoader.Task(
+			TimeActionImpl.SONAR_TYPE, action_plan, day_plan)
+		{
+			protected void load() throws TMSException {
+				TimeActionImpl.loadAll();
+			}
+		});
+		tl.add(new TypeLoader.Task(
+			DmsActionImpl.SONAR_TYPE, action_plan, quick_message)
+		{
+			protected void load() throws TMSException {
+				DmsActionImpl.loadAll();
+			}
+		});
+		tl.add(new TypeLoader.Task(
+			BeaconActionImpl.SONAR_TYPE, action_plan, beacon)
+		{
+			protected void load() throws TMSException {
+				BeaconActionImpl.loadAll();
+			}
+		});
+		tl.add(new TypeLoader.Task(
+			LaneActionImpl.SONAR_TYPE, action_plan, lane_marking)
+		{
+			protected void load() throws TMSException {
+				LaneActionImpl.loadAll();
+			}
+		});
+		tl.add(new TypeLoader.Task(
+			MeterActionImpl.SONAR_TYPE, action_plan, ramp_meter)
+		{
+			protected void load() throws TMSException {
+				MeterActionImpl.loadAll();
+			}
+		});
+		if (ready != null)
+			tl.setReadyAction(ready, comm_link, controller);
+		tl.loadAll();
 	}
 
 	/** Get the time as a time stamp */
@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2009-2012  Minnesota Department of Transportation
+ * Copyright (C) 2009-2016  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -16,7 +16,6 @@ package us.mn.state.dot.tms.server;
 
 import java.util.Calendar;
 import java.util.Iterator;
-import us.mn.state.dot.sched.Job;
 import us.mn.state.dot.tms.Camera;
 import us.mn.state.dot.tms.CameraHelper;
 
@@ -25,7 +24,7 @@ import us.mn.state.dot.tms.CameraHelper;
  *
  * @author Douglas Lau
  */
-public class CameraNoFailJob extends Job {
+public class CameraNoFailJob extends TimedJob {
 
 	/** Seconds to offset each poll from start of interval */
 	static private final int OFFSET_SECS = 10;
@@ -36,7 +35,7 @@ public class CameraNoFailJob extends Job {
 	}
 
 	/** Perform the camera no-fail job */
-	public void perform() {
+	protected void doPerform() {
 		Iterator<Camera> it = CameraHelper.iterator();
 		while(it.hasNext()) {
 			Camera c = it.next();
@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2014-2015  Minnesota Department of Transportation
+ * Copyright (C) 2014-2016  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -18,7 +18,6 @@ import java.util.Calendar;
 import java.util.Iterator;
 import java.util.HashSet;
 import java.util.Set;
-import us.mn.state.dot.sched.Job;
 import us.mn.state.dot.tms.Camera;
 import us.mn.state.dot.tms.CameraHelper;
 import us.mn.state.dot.tms.DeviceRequest;
@@ -34,7 +33,7 @@ import us.mn.state.dot.tms.units.Distance;
  *
  * @author Douglas Lau
  */
-public class CameraWiperJob extends Job {
+public class CameraWiperJob extends TimedJob {
 
 	/** Seconds to offset each poll from start of interval */
 	static private final int OFFSET_SECS = 22;
@@ -57,7 +56,7 @@ public class CameraWiperJob extends Job {
 	}
 
 	/** Perform the camera wiper job */
-	public void perform() {
+	protected void doPerform() {
 		Set<GeoLoc> locs = precipLocations();
 		if (locs.size() > 0)
 			activateWipers(locs);
@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2000-2014  Minnesota Department of Transportation
+ * Copyright (C) 2000-2016  Minnesota Department of Transportation
  * Copyright (C) 2011  Berkeley Transportation Systems Inc.
  *
  * This program is free software; you can redistribute it and/or modify
@@ -23,6 +23,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import us.mn.state.dot.geokit.Position;
 import us.mn.state.dot.sched.TimeSteward;
 import us.mn.state.dot.sonar.SonarException;
@@ -41,6 +42,7 @@ import us.mn.state.dot.tms.TMSException;
 import us.mn.state.dot.tms.VehLengthClass;
 import static us.mn.state.dot.tms.server.Constants.MISSING_DATA;
 import static us.mn.state.dot.tms.server.XmlWriter.createAttribute;
+import us.mn.state.dot.tms.server.comm.CircuitBreaker;
 import us.mn.state.dot.tms.server.comm.DevicePoller;
 import us.mn.state.dot.tms.server.comm.SamplePoller;
 import us.mn.state.dot.tms.server.comm.WeatherPoller;
@@ -357,17 +359,47 @@ public class ControllerImpl extends BaseObjectImpl implements Controller {
 			io_pins.put(pin, io);
 		else
 			io_pins.remove(pin);
+		updateDetectorPins();
+	}
+
+	/** Empty detector array */
+	static private final DetectorImpl[] NO_DETECTORS = new DetectorImpl[0];
+
+	/** Pin-indexed detector array.  This is replaced whenever io_pins
+	 * changes, and never modified, so it can be read without locking. */
+	private transient volatile DetectorImpl[] det_pins = NO_DETECTORS;
+
+	/** Flag indicating a ramp meter is assigned to a pin */
+	private transient volatile boolean has_meter = false;
+
+	/** Update the pin-indexed detector array */
+	private void updateDetectorPins() {
+		int n_pins = 0;
+		boolean meter = false;
+		for (Map.Entry<Integer, ControllerIO> e: io_pins.entrySet()) {
+			ControllerIO io = e.getValue();
+			int pin = e.getKey();
+			if (io instanceof DetectorImpl && pin >= 0)
+				n_pins = Math.max(n_pins, pin + 1);
+			if (io instanceof RampMeterImpl)
+				meter = true;
+		}
+		DetectorImpl[] dets = (n_pins > 0)
+		                    ? new DetectorImpl[n_pins]
+		                    : NO_DETECTORS;
+		for (Map.Entry<Integer, ControllerIO> e: io_pins.entrySet()) {
+			ControllerIO io = e.getValue();
+			int pin = e.getKey();
+			if (io instanceof DetectorImpl && pin >= 0)
+				dets[pin] = (DetectorImpl)io;
+		}
+		det_pins = dets;
+		has_meter = meter;
 	}
 
 	/** Determine whether this controller has an active ramp meter */
-	public synchronized boolean hasActiveMeter() {
-		if (isActive()) {
-			for (ControllerIO io: io_pins.values()) {
-				if (io instanceof RampMeterImpl)
-					return true;
-			}
-		}
-		return false;
+	public boolean hasActiveMeter() {
+		return has_meter && isActive();
 	}
 
 	/** Get an active beacon for the controller */
@@ -381,36 +413,15 @@ public class ControllerImpl extends BaseObjectImpl implements Controller {
 		return null;
 	}
 
-	/** Get a map of pins to detectors */
-	protected synchronized HashMap<Integer, DetectorImpl> getDetectors() {
-		HashMap<Integer, DetectorImpl> dets =
-			new HashMap<Integer, DetectorImpl>();
-		for(Integer pin: io_pins.keySet()) {
-			ControllerIO io = io_pins.get(pin);
-			if(io instanceof DetectorImpl)
-				dets.put(pin, (DetectorImpl)io);
-		}
-		return dets;
-	}
-
 	/** Get a detector by its I/O pin number */
 	public DetectorImpl getDetectorAtPin(int pin) {
-		ControllerIO io = getIO(pin);
-		if(io instanceof DetectorImpl)
-			return (DetectorImpl)io;
-		else
-			return null;
+		DetectorImpl[] dets = det_pins;
+		return (pin >= 0 && pin < dets.length) ? dets[pin] : null;
 	}
 
 	/** Check whether this controller has any active detectors */
-	public synchronized boolean hasActiveDetector() {
-		if (isActive()) {
-			for (ControllerIO io: io_pins.values()) {
-				if (io instanceof DetectorImpl)
-					return true;
-			}
-		}
-		return false;
+	public boolean hasActiveDetector() {
+		return det_pins.length > 0 && isActive();
 	}
 
 	/** Find a matching detector for the specified input */
@@ -422,10 +433,11 @@ public class ControllerImpl extends BaseObjectImpl implements Controller {
 	}
 
 	/** Find a matching detector for the specified velocity detector */
-	protected synchronized int getSpeedPair(DetectorImpl v) {
-		for(Map.Entry<Integer, ControllerIO> e: io_pins.entrySet()) {
-			if(v.isSpeedPair(e.getValue()))
-				return e.getKey();
+	protected int getSpeedPair(DetectorImpl v) {
+		DetectorImpl[] dets = det_pins;
+		for (int pin = 0; pin < dets.length; pin++) {
+			if (dets[pin] != null && v.isSpeedPair(dets[pin]))
+				return pin;
 		}
 		return 0;
 	}
@@ -460,6 +472,23 @@ public class ControllerImpl extends BaseObjectImpl implements Controller {
 			return MISSING_DATA;
 	}
 
+	/** Time sample data was last stored, by sample period (sec) */
+	private final Map<Integer, Long> sample_times =
+		new ConcurrentHashMap<Integer, Long>();
+
+	/** Get the time sample data was last stored.
+	 * @param period Sampling period in seconds.
+	 * @return Time last stored, or 0 if never stored. */
+	public long getSampleTime(int period) {
+		Long t = sample_times.get(period);
+		return (t != null) ? t : 0;
+	}
+
+	/** Set the time sample data was last stored */
+	private void setSampleTime(int period) {
+		sample_times.put(period, TimeSteward.currentTimeMillis());
+	}
+
 	/** Store volume sample data.
 	 * @param stamp Timestamp in milliseconds since epoch.
 	 * @param period Sampling period in seconds.
@@ -480,11 +509,14 @@ public class ControllerImpl extends BaseObjectImpl implements Controller {
 	public void storeVolume(long stamp, int period, int start_pin,
 		int[] volume, VehLengthClass vc)
 	{
-		HashMap<Integer, DetectorImpl> dets = getDetectors();
-		for(Integer pin: dets.keySet()) {
-			DetectorImpl det = dets.get(pin);
-			int i = pin - start_pin;
-			int v = sampleValue(volume, i);
+		if (volume != null)
+			setSampleTime(period);
+		DetectorImpl[] dets = det_pins;
+		for (int pin = 0; pin < dets.length; pin++) {
+			DetectorImpl det = dets[pin];
+			if (det == null)
+				continue;
+			int v = sampleValue(volume, pin - start_pin);
 			if(v >= 0) {
 				det.storeVolume(new PeriodicSample(stamp,
 					period, v), vc);
@@ -501,11 +533,14 @@ public class ControllerImpl extends BaseObjectImpl implements Controller {
 	public void storeOccupancy(long stamp, int period, int start_pin,
 		int[] scans, int max_scans)
 	{
-		HashMap<Integer, DetectorImpl> dets = getDetectors();
-		for(Integer pin: dets.keySet()) {
-			DetectorImpl det = dets.get(pin);
-			int i = pin - start_pin;
-			int n_scans = sampleValue(scans, i);
+		if (scans != null)
+			setSampleTime(period);
+		DetectorImpl[] dets = det_pins;
+		for (int pin = 0; pin < dets.length; pin++) {
+			DetectorImpl det = dets[pin];
+			if (det == null)
+				continue;
+			int n_scans = sampleValue(scans, pin - start_pin);
 			if(n_scans >= 0) {
 				det.storeOccupancy(new OccupancySample(stamp,
 					period, n_scans, max_scans));
@@ -521,11 +556,12 @@ public class ControllerImpl extends BaseObjectImpl implements Controller {
 	public void storeSpeed(long stamp, int period, int start_pin,
 		int[] speed)
 	{
-		HashMap<Integer, DetectorImpl> dets = getDetectors();
-		for(Integer pin: dets.keySet()) {
-			DetectorImpl det = dets.get(pin);
-			int i = pin - start_pin;
-			int s = sampleValue(speed, i);
+		DetectorImpl[] dets = det_pins;
+		for (int pin = 0; pin < dets.length; pin++) {
+			DetectorImpl det = dets[pin];
+			if (det == null)
+				continue;
+			int s = sampleValue(speed, pin - start_pin);
 			if(s > 0) {
 				det.storeSpeed(new PeriodicSample(stamp,
 					period, s));
@@ -534,10 +570,11 @@ public class ControllerImpl extends BaseObjectImpl implements Controller {
 	}
 
 	/** Bin 30-second sample data */
-	public synchronized void binEventSamples() {
-		for(ControllerIO io: io_pins.values()) {
-			if(io instanceof DetectorImpl)
-				((DetectorImpl)io).binEventSamples();
+	public void binEventSamples() {
+		setSampleTime(30);
+		for (DetectorImpl det: det_pins) {
+			if (det != null)
+				det.binEventSamples();
 		}
 	}
 
@@ -574,10 +611,29 @@ public class ControllerImpl extends BaseObjectImpl implements Controller {
 
 	/** Get the controller error status */
 	public String getStatus() {
-		if(isFailed())
-			return commStatus;
-		else
-			return errorStatus; 
+		String s = isFailed() ? commStatus : errorStatus;
+		String b = breaker.getStatus();
+		if (b != null)
+			s = (s.length() > 0) ? (s + ", " + b) : b;
+		int e = getExpiredOps();
+		if (e > 0) {
+			String x = e + " EXPIRED";
+			s = (s.length() > 0) ? (s + ", " + x) : x;
+		}
+		return s;
+	}
+
+	/** Circuit breaker for polling */
+	private final transient CircuitBreaker breaker = new CircuitBreaker();
+
+	/** Check if the circuit breaker is open */
+	public boolean isBreakerOpen() {
+		return breaker.isOpen();
+	}
+
+	/** Check if the circuit breaker allows an operation */
+	public boolean isOperationAllowed() {
+		return breaker.allowOperation(TimeSteward.currentTimeMillis());
 	}
 
 	/** Set the controller communication status */
@@ -591,6 +647,9 @@ public class ControllerImpl extends BaseObjectImpl implements Controller {
 	/** Log a comm event */
 	public void logCommEvent(EventType et, String id, String message) {
 		incrementCommCounter(et);
+		if (et == EventType.POLL_TIMEOUT_ERROR &&
+		    breaker.recordTimeout(TimeSteward.currentTimeMillis()))
+			notifyAttribute("status");
 		setCommStatus(message);
 		if(!isFailed())
 			logCommEvent(et, id);
@@ -800,6 +859,8 @@ public class ControllerImpl extends BaseObjectImpl implements Controller {
 			failedOps = 0;
 			notifyAttribute("failedOps");
 		}
+		if (resetExpiredOps())
+			notifyAttribute("status");
 	}
 
 	/** Log a comm event */
@@ -817,6 +878,8 @@ public class ControllerImpl extends BaseObjectImpl implements Controller {
 
 	/** Complete a controller operation */
 	public void completeOperation(String id, boolean success) {
+		if (success && breaker.recordSuccess())
+			notifyAttribute("status");
 		if(success)
 			incrementSuccessOps();
 		else
@@ -824,6 +887,32 @@ public class ControllerImpl extends BaseObjectImpl implements Controller {
 		setFailed(!success, id);
 	}
 
+	/** Count of operations expired past their deadline */
+	private int expired_ops;
+
+	/** Get the count of operations expired past their deadline */
+	public synchronized int getExpiredOps() {
+		return expired_ops;
+	}
+
+	/** Reset the count of expired operations.
+	 * @return true if the count was changed. */
+	private synchronized boolean resetExpiredOps() {
+		boolean c = expired_ops != 0;
+		expired_ops = 0;
+		return c;
+	}
+
+	/** Expire an operation which was not performed before its deadline.
+	 * This is not a failure, since the controller was never polled.
+	 * The count of expired operations is reported in the status. */
+	public void expireOperation() {
+		synchronized (this) {
+			expired_ops++;
+		}
+		notifyAttribute("status");
+	}
+
 	/** Get the device poller */
 	public DevicePoller getPoller() {
 		if (isActive()) {
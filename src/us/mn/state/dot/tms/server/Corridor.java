@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2007-2015  Minnesota Department of Transportation
+ * Copyright (C) 2007-2016  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -16,6 +16,7 @@ package us.mn.state.dot.tms.server;
 
 import java.io.IOException;
 import java.io.Writer;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
@@ -34,6 +35,27 @@ import us.mn.state.dot.tms.R_NodeHelper;
  */
 public class Corridor extends CorridorBase {
 
+	/** Nodes ordered by mile point, for bottleneck detection */
+	private R_NodeImpl[] b_nodes = new R_NodeImpl[0];
+
+	/** Mile points of bottleneck detection nodes */
+	private float[] b_miles = new float[0];
+
+	/** Stations checked at each node in the last interval */
+	private StationImpl[] b_stations = new StationImpl[0];
+
+	/** Bottleneck state at each node in the last interval */
+	private boolean[] b_state = new boolean[0];
+
+	/** Upstream stations with valid speed (reused each interval) */
+	private StationImpl[] up_stations = new StationImpl[0];
+
+	/** Mile points of upstream stations (reused each interval) */
+	private float[] up_miles = new float[0];
+
+	/** Station profile for the current interval */
+	private volatile CorridorProfile profile;
+
 	/** Create a new corridor */
 	public Corridor(GeoLoc loc) {
 		super(loc);
@@ -44,6 +66,24 @@ public class Corridor extends CorridorBase {
 	public void arrangeNodes() {
 		super.arrangeNodes();
 		linkDownstream();
+		createBottleneckArrays();
+	}
+
+	/** Create arrays for bottleneck detection */
+	private void createBottleneckArrays() {
+		int n = n_points.size();
+		b_nodes = new R_NodeImpl[n];
+		b_miles = new float[n];
+		b_stations = new StationImpl[n];
+		b_state = new boolean[n];
+		up_stations = new StationImpl[n];
+		up_miles = new float[n];
+		int i = 0;
+		for (Map.Entry<Float, R_Node> e: n_points.entrySet()) {
+			b_nodes[i] = (R_NodeImpl)e.getValue();
+			b_miles[i] = e.getKey();
+			i++;
+		}
 	}
 
 	/** Link each node with the next downstream node in the corridor */
@@ -175,18 +215,56 @@ public class Corridor extends CorridorBase {
 
 	/** Find the current bottlenecks on the corridor */
 	public void findBottlenecks() {
-		final TreeMap<Float, StationImpl> upstream =
-			new TreeMap<Float, StationImpl>();
-		findStation(new StationFinder() {
-			public boolean check(Float m, StationImpl s) {
+		int n_up = 0;
+		for (int i = 0; i < b_nodes.length; i++) {
+			R_NodeImpl n = b_nodes[i];
+			boolean st = n.getActive() && R_NodeHelper.isStation(n);
+			StationImpl s = st ? n.getStation() : null;
+			b_stations[i] = s;
+			if (s != null) {
+				float m = b_miles[i];
 				if (s.getRollingAverageSpeed() > 0) {
-					s.calculateBottleneck(m, upstream);
-					upstream.put(m, s);
+					s.calculateBottleneck(m, up_stations,
+						up_miles, n_up);
+					up_stations[n_up] = s;
+					up_miles[n_up] = m;
+					n_up++;
 				} else
 					s.clearBottleneck();
 				s.debug();
-				return false;
 			}
-		});
+		}
+		Arrays.fill(up_stations, 0, n_up, null);
+		logBottlenecks();
+	}
+
+	/** Log bottleneck transitions */
+	private void logBottlenecks() {
+		for (int i = 0; i < b_nodes.length; i++) {
+			StationImpl s = b_stations[i];
+			boolean b = (s != null) && s.isBottleneck();
+			if (b != b_state[i]) {
+				b_state[i] = b;
+				StationImpl st = (s != null) ? s
+				               : b_nodes[i].getStation();
+				if (st != null)
+					st.logBottleneck(b_miles[i], b);
+			}
+		}
+	}
+
+	/** Update the station profile for the current interval */
+	public void updateProfile() {
+		profile = new CorridorProfile(this, createStationMap());
+	}
+
+	/** Get the station profile for the current interval */
+	public CorridorProfile getProfile() {
+		CorridorProfile p = profile;
+		if (p == null) {
+			p = new CorridorProfile(this, createStationMap());
+			profile = p;
+		}
+		return p;
 	}
 }
@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2007-2013  Minnesota Department of Transportation
+ * Copyright (C) 2007-2016  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -23,7 +23,6 @@ import java.util.Map;
 import java.util.TreeMap;
 import us.mn.state.dot.tms.R_Node;
 import us.mn.state.dot.tms.R_NodeHelper;
-import us.mn.state.dot.tms.units.Distance;
 
 /**
  * This is a class to manage roadway network corridors.
@@ -95,12 +94,14 @@ public class CorridorManager {
 		List<R_NodeImpl> others)
 	{
 		R_NodeImpl nearest = null;
-		Distance d = new Distance(0);
+		double n_meters = 0;
 		for(R_NodeImpl other: others) {
-			Distance m = Corridor.nodeDistance(r_node, other);
-			if(m != null && (nearest == null || m.m() < d.m())) {
+			double m = Corridor.nodeMeters(r_node, other);
+			if(!Double.isNaN(m) &&
+			   (nearest == null || m < n_meters))
+			{
 				nearest = other;
-				d = m;
+				n_meters = m;
 			}
 		}
 		return nearest;
@@ -137,9 +138,13 @@ public class CorridorManager {
 			c.writeXml(w, m_nodes);
 	}
 
-	/** Find the current bottlenecks for all corridors */
+	/** Find the current bottlenecks and update profiles for all
+	 * corridors.  Bottleneck transitions are logged; speed advisories and
+	 * slow traffic warnings read the updated corridor profiles. */
 	public synchronized void findBottlenecks() {
-		for(Corridor c: corridors.values())
+		for(Corridor c: corridors.values()) {
 			c.findBottlenecks();
+			c.updateProfile();
+		}
 	}
 }
@@ -0,0 +1,230 @@
+/*
+ * IRIS -- Intelligent Roadway Information System
+ * Copyright (C) 2016  Minnesota Department of Transportation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package us.mn.state.dot.tms.server;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.TreeMap;
+import us.mn.state.dot.tms.GeoLoc;
+import us.mn.state.dot.tms.SystemAttrEnum;
+
+/**
+ * A corridor profile is a snapshot of station data for one corridor, taken
+ * once per interval after bottlenecks are found.  Stations are ordered by
+ * mile point, so speed advisory and slow warning lookups can use binary
+ * searches instead of walking the corridor for every sign.  A profile is
+ * immutable, except for its cache of sign mile points.
+ *
+ * @author Douglas Lau
+ */
+public class CorridorProfile {
+
+	/** Marker for a location with no mile point */
+	static private final Float NO_MILE_POINT = Float.NaN;
+
+	/** Corridor */
+	private final Corridor corridor;
+
+	/** Stations, ordered by mile point */
+	private final StationImpl[] stations;
+
+	/** Station mile points */
+	private final float[] mile;
+
+	/** Rolling average speed at each station (mph) */
+	private final float[] speed;
+
+	/** Speed limit at each station (mph) */
+	private final int[] limit;
+
+	/** Indices of bottleneck stations, ordered by mile point */
+	private final int[] bottlenecks;
+
+	/** Upstream extent of each bottleneck (miles) */
+	private final float[] b_up;
+
+	/** Downstream extent of bottlenecks (miles) */
+	private final float b_down;
+
+	/** Control deceleration threshold (positive, mph per mile) */
+	private final int ctl_threshold;
+
+	/** Cache of mile points for sign locations */
+	private final HashMap<GeoLoc, Float> mile_points =
+		new HashMap<GeoLoc, Float>();
+
+	/** Create a new corridor profile.
+	 * @param c Corridor.
+	 * @param sm Mapping of mile points to stations. */
+	public CorridorProfile(Corridor c, TreeMap<Float, StationImpl> sm) {
+		corridor = c;
+		int n = sm.size();
+		stations = new StationImpl[n];
+		mile = new float[n];
+		speed = new float[n];
+		limit = new int[n];
+		ArrayList<Integer> bn = new ArrayList<Integer>();
+		int i = 0;
+		for (Float m: sm.keySet()) {
+			StationImpl s = sm.get(m);
+			stations[i] = s;
+			mile[i] = m;
+			speed[i] = s.getRollingAverageSpeed();
+			limit[i] = s.getSpeedLimit();
+			if (s.isBottleneck())
+				bn.add(i);
+			i++;
+		}
+		bottlenecks = new int[bn.size()];
+		b_up = new float[bn.size()];
+		for (int b = 0; b < bottlenecks.length; b++) {
+			StationImpl s = stations[bn.get(b)];
+			bottlenecks[b] = bn.get(b);
+			b_up[b] = s.getUpstreamDistance();
+		}
+		b_down = SystemAttrEnum.VSA_DOWNSTREAM_MILES.getFloat();
+		ctl_threshold = SystemAttrEnum.VSA_CONTROL_THRESHOLD.getInt();
+	}
+
+	/** Get the number of stations */
+	public int size() {
+		return stations.length;
+	}
+
+	/** Lookup the mile point of a location.
+	 * @param loc Location on corridor.
+	 * @return Mile point, or null if location is not on corridor. */
+	public Float lookupMilePoint(GeoLoc loc) {
+		synchronized (mile_points) {
+			Float m = mile_points.get(loc);
+			if (m == null) {
+				m = corridor.calculateMilePoint(loc);
+				if (m == null)
+					m = NO_MILE_POINT;
+				mile_points.put(loc, m);
+			}
+			return m.isNaN() ? null : m;
+		}
+	}
+
+	/** Find the index of the first station at or downstream of a mile
+	 * point.  If there is none, the number of stations is returned. */
+	private int ceilingIndex(float m) {
+		int lo = 0;
+		int hi = mile.length;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (mile[mid] < m)
+				lo = mid + 1;
+			else
+				hi = mid;
+		}
+		return lo;
+	}
+
+	/** Get the speed limit at a mile point.
+	 * @param ma Mile point.
+	 * @return Lowest speed limit of adjacent stations, or null. */
+	public Integer getSpeedLimit(float ma) {
+		int d = ceilingIndex(ma);
+		int u = d - 1;
+		boolean hu = u >= 0;
+		boolean hd = d < mile.length;
+		if (hu && hd)
+			return Math.min(limit[u], limit[d]);
+		else if (hu)
+			return limit[u];
+		else if (hd)
+			return limit[d];
+		else
+			return null;
+	}
+
+	/** Find the variable speed advisory start station (VSS) for a mile
+	 * point.  This is the first bottleneck within range.
+	 * @param ma Mile point.
+	 * @return Station index, or -1 if not found. */
+	private int findVSS(float ma) {
+		for (int b = 0; b < bottlenecks.length; b++) {
+			int i = bottlenecks[b];
+			float d = mile[i] - ma;
+			if ((d > 0) ? (d < b_up[b]) : (-d < b_down))
+				return i;
+		}
+		return -1;
+	}
+
+	/** Calculate the speed advisory at a mile point.
+	 * @param ma Mile point.
+	 * @return Advisory speed (mph), or null for no advisory. */
+	public Float calculateSpeedAdvisory(float ma) {
+		int i = findVSS(ma);
+		if (i >= 0) {
+			float spd = speed[i];
+			if (spd > 0)
+				return calculateSpeedAdvisory(spd, mile[i] - ma);
+		}
+		return null;
+	}
+
+	/** Calculate a speed advisory.
+	 * @param spd Average speed at VSS.
+	 * @param d Distance upstream of station.
+	 * @return Speed advisory. */
+	private float calculateSpeedAdvisory(float spd, float d) {
+		if (d > 0) {
+			int acc = -ctl_threshold;
+			double s2 = spd * spd + 2.0 * acc * d;
+			assert s2 > 0;
+			return (float)Math.sqrt(s2);
+		} else
+			return spd;
+	}
+
+	/** Get a debug message for a speed advisory */
+	public String debugAdvisory(float ma) {
+		int d = ceilingIndex(ma);
+		int v = findVSS(ma);
+		return "adv: " + calculateSpeedAdvisory(ma) +
+		       ", upstream: " + ((d > 0) ? stations[d - 1] : null) +
+		       ", downstream: " +
+		       ((d < stations.length) ? stations[d] : null) +
+		       ", vss: " + ((v >= 0) ? stations[v] : null) +
+		       ", limit: " + getSpeedLimit(ma);
+	}
+
+	/** Find the mile point of a mainline backup.
+	 * @param ma Mile point to start from.
+	 * @param blimit_mi Distance limit to backup (negative indicates
+	 *                  upstream).
+	 * @param thresh_mph Speed threshold to indicate backup.
+	 * @return Mile point of first station in range with speed below
+	 *         threshold, or null for no backup. */
+	public Float findBackup(float ma, float blimit_mi, int thresh_mph) {
+		float m0 = (blimit_mi > 0) ? ma : ma + blimit_mi;
+		float m1 = (blimit_mi > 0) ? ma + blimit_mi : ma;
+		for (int i = ceilingIndex(m0); i < mile.length; i++) {
+			float m = mile[i];
+			if (m >= m1)
+				break;
+			if (m > m0) {
+				float spd = speed[i];
+				if (spd > 0 && spd < thresh_mph)
+					return m;
+			}
+		}
+		return null;
+	}
+}
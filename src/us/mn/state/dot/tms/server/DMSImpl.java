@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2000-2015  Minnesota Department of Transportation
+ * Copyright (C) 2000-2016  Minnesota Department of Transportation
  * Copyright (C) 2010 AHMCT, University of California
  * Copyright (C) 2012  Iteris Inc.
  *
@@ -25,7 +25,6 @@ import java.util.HashMap;
 import java.util.Map;
 import us.mn.state.dot.geokit.Position;
 import us.mn.state.dot.sched.DebugLog;
-import us.mn.state.dot.sched.Job;
 import us.mn.state.dot.sched.TimeSteward;
 import us.mn.state.dot.sonar.Namespace;
 import us.mn.state.dot.sonar.SonarException;
@@ -59,7 +58,7 @@ import us.mn.state.dot.tms.SignMessage;
 import us.mn.state.dot.tms.SignMessageHelper;
 import us.mn.state.dot.tms.SystemAttrEnum;
 import us.mn.state.dot.tms.TMSException;
-import static us.mn.state.dot.tms.server.MainServer.FLUSH;
+import static us.mn.state.dot.tms.server.MainServer.EVENT_LANE;
 import static us.mn.state.dot.tms.server.XmlWriter.createAttribute;
 import us.mn.state.dot.tms.server.comm.DevicePoller;
 import us.mn.state.dot.tms.server.comm.DMSPoller;
@@ -189,6 +188,11 @@ public class DMSImpl extends DeviceImpl implements DMS {
 		super.doDestroy();
 		setPreset(null);
 		geo_loc.notifyRemove();
+		synchronized(msg_refs) {
+			removeReference(messageCurrent);
+			removeReference(messageNext);
+			removeReference(messageSched);
+		}
 	}
 
 	/** Set the controller to which this DMS is assigned */
@@ -883,7 +887,11 @@ public class DMSImpl extends DeviceImpl implements DMS {
 	 * a sign.
 	 * @see DeviceImpl.acquire */
 	public void setMessageNext(SignMessage sm) {
-		messageNext = sm;
+		synchronized(msg_refs) {
+			sm = addReference(sm);
+			removeReference(messageNext);
+			messageNext = sm;
+		}
 	}
 
 	/** Set the next sign message.  This is called by SONAR when the
@@ -931,11 +939,35 @@ public class DMSImpl extends DeviceImpl implements DMS {
 		p.sendMessage(this, smn, o);
 	}
 
-	/** Check if the sign has a reference to a sign message */
-	public boolean hasReference(SignMessage sm) {
-		return sm == messageCurrent ||
-		       sm == messageSched ||
-		       sm == messageNext;
+	/** Lock for updating sign message references */
+	private final transient Object msg_refs = new Object();
+
+	/** Add a reference to a sign message.  If the message has already
+	 * been reaped, an equivalent message is created and referenced.
+	 * @param sm Sign message (may be null).
+	 * @return Referenced sign message. */
+	private SignMessage addReference(SignMessage sm) {
+		SignMessage rsm = sm;
+		while(rsm instanceof SignMessageImpl) {
+			if(((SignMessageImpl)rsm).addReference())
+				return rsm;
+			rsm = createMessageC(rsm.getMulti(),
+				rsm.getBeaconEnabled(), rsm.getBitmaps(),
+				DMSMessagePriority.fromOrdinal(
+				rsm.getActivationPriority()),
+				DMSMessagePriority.fromOrdinal(
+				rsm.getRunTimePriority()),
+				rsm.getScheduled(), rsm.getDuration());
+		}
+		return (rsm != null) ? rsm : sm;
+	}
+
+	/** Remove a reference to a sign message.  When the last reference is
+	 * removed, the message is queued for reaping.
+	 * @see ReaperJob */
+	static private void removeReference(SignMessage sm) {
+		if(sm instanceof SignMessageImpl)
+			((SignMessageImpl)sm).removeReference();
 	}
 
 	/** Validate a sign message to send.
@@ -1107,7 +1139,8 @@ public class DMSImpl extends DeviceImpl implements DMS {
 	}
 
 	/** Current message (Shall not be null) */
-	protected transient SignMessage messageCurrent = createBlankMessage();
+	protected transient SignMessage messageCurrent =
+		addReference(createBlankMessage());
 
 	/**
 	 * Set the current message.
@@ -1118,7 +1151,11 @@ public class DMSImpl extends DeviceImpl implements DMS {
 		if (!isMessageCurrentEquivalent(sm)) {
 			logMessage(sm, o);
 			setDeployTime();
-			messageCurrent = sm;
+			synchronized(msg_refs) {
+				sm = addReference(sm);
+				removeReference(messageCurrent);
+				messageCurrent = sm;
+			}
 			notifyAttribute("messageCurrent");
 			ownerCurrent = o;
 			notifyAttribute("ownerCurrent");
@@ -1167,8 +1204,8 @@ public class DMSImpl extends DeviceImpl implements DMS {
 
 	/** Log a sign status event */
 	private void logEvent(final SignStatusEvent ev) {
-		FLUSH.addJob(new Job() {
-			public void perform() throws TMSException {
+		EVENT_LANE.addJob(new TimedJob() {
+			protected void doPerform() throws TMSException {
 				ev.doStore();
 			}
 		});
@@ -1268,8 +1305,8 @@ public class DMSImpl extends DeviceImpl implements DMS {
 
 	/** Log a brightness sample */
 	private void logBrightnessSample(final BrightnessSample bs) {
-		FLUSH.addJob(new Job() {
-			public void perform() throws TMSException {
+		EVENT_LANE.addJob(new TimedJob() {
+			protected void doPerform() throws TMSException {
 				bs.purgeConflicting();
 				bs.doStore();
 			}
@@ -1481,7 +1518,11 @@ public class DMSImpl extends DeviceImpl implements DMS {
 	 * @param sm New scheduled sign message */
 	private void setMessageSched(SignMessage sm) {
 		if(!SignMessageHelper.isEquivalent(messageSched, sm)) {
-			messageSched = sm;
+			synchronized(msg_refs) {
+				sm = addReference(sm);
+				removeReference(messageSched);
+				messageSched = sm;
+			}
 			notifyAttribute("messageSched");
 		}
 	}
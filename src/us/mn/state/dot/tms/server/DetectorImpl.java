@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2000-2014  Minnesota Department of Transportation
+ * Copyright (C) 2000-2016  Minnesota Department of Transportation
  * Copyright (C) 2011  Berkeley Transportation Systems Inc.
  *
  * This program is free software; you can redistribute it and/or modify
@@ -861,22 +861,20 @@ public class DetectorImpl extends DeviceImpl implements Detector {
 		w.write("/>\n");
 	}
 
-	/** Print the current sample as an XML element */
-	public void writeSampleXml(Writer w) throws IOException {
-		if(abandoned || !isSampling())
-			return;
-		int flow = getFlowRaw();
-		int speed = Math.round(getSpeed());
-		float occ = getOccupancy();
-		w.write("\t<sample");
-		w.write(createAttribute("sensor", name));
-		if(flow != MISSING_DATA)
-			w.write(createAttribute("flow", flow));
-		if(isMainline() && speed > 0)
-			w.write(createAttribute("speed", speed));
-		if(occ >= 0) {
-			w.write(createAttribute("occ", formatFloat(occ, 2)));
-		}
-		w.write("/>\n");
+	/** Add the current sample to traffic snapshot columns.
+	 * @param c Detector columns to fill.
+	 * @return Detector id within columns. */
+	public int addSnapshot(TrafficSnapshot.Columns c) {
+		int f = 0;
+		if(!abandoned && isSampling())
+			f |= TrafficSnapshot.SAMPLING;
+		if(isMainline())
+			f |= TrafficSnapshot.MAINLINE;
+		if(isStationOrCD())
+			f |= TrafficSnapshot.STATION;
+		if(getFlowRaw() == MISSING_DATA)
+			f |= TrafficSnapshot.FAKE_FLOW;
+		return c.add(name, f, getVolume(), getOccupancy(), getFlow(),
+			getDensity(), getSpeed());
 	}
 }
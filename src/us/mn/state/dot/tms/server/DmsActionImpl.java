@@ -108,6 +108,24 @@ public class DmsActionImpl extends BaseObjectImpl implements DmsAction {
 		beacon_enabled = be;
 		a_priority = ap;
 		r_priority = rp;
+		initTransients();
+	}
+
+	/** Initialize the transient fields */
+	@Override
+	protected void initTransients() {
+		ActionPlanImpl ap = getActionPlanImpl();
+		if(ap != null)
+			ap.addAction(this);
+	}
+
+	/** Destroy an object */
+	@Override
+	public void doDestroy() throws TMSException {
+		super.doDestroy();
+		ActionPlanImpl ap = getActionPlanImpl();
+		if(ap != null)
+			ap.removeAction(this);
 	}
 
 	/** Action plan */
@@ -118,6 +136,12 @@ public class DmsActionImpl extends BaseObjectImpl implements DmsAction {
 		return action_plan;
 	}
 
+	/** Get the action plan implementation */
+	private ActionPlanImpl getActionPlanImpl() {
+		ActionPlan ap = action_plan;
+		return (ap instanceof ActionPlanImpl) ? (ActionPlanImpl)ap : null;
+	}
+
 	/** Sign group */
 	protected SignGroup sign_group;
 
@@ -132,6 +156,9 @@ public class DmsActionImpl extends BaseObjectImpl implements DmsAction {
 	/** Set the plan phase to perform action */
 	public void setPhase(PlanPhase p) {
 		phase = p;
+		ActionPlanImpl ap = getActionPlanImpl();
+		if(ap != null)
+			ap.setDirty();
 	}
 
 	/** Set the plan phase to perform action */
@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2009-2012  Minnesota Department of Transportation
+ * Copyright (C) 2009-2016  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -17,22 +17,23 @@ package us.mn.state.dot.tms.server;
 import java.util.Calendar;
 import java.util.Iterator;
 import java.util.LinkedList;
-import us.mn.state.dot.sched.Job;
 import us.mn.state.dot.sched.TimeSteward;
 import us.mn.state.dot.tms.DeviceRequest;
 import us.mn.state.dot.tms.DMS;
 import us.mn.state.dot.tms.DMSHelper;
 import us.mn.state.dot.tms.SystemAttrEnum;
+import us.mn.state.dot.tms.server.comm.ModemScheduler;
 
 /**
  * Job to periodically query all dial-up DMS.  It fires every 2 minutes,
  * and if the period has expired, all dialup signs are put on a list.
- * Every time the job fires, one sign is taken off the list and queried.
- * This is to allow a single modem to service all signs.
+ * Every time the job fires, one sign is taken off the list and queried,
+ * plus one more for each other modem which is available.  This allows a
+ * small modem pool to service all signs.
  *
  * @author Douglas Lau
  */
-public class DmsQueryDialupJob extends Job {
+public class DmsQueryDialupJob extends TimedJob {
 
 	/** Seconds to offset each poll from start of interval */
 	static protected final int OFFSET_SECS = 10;
@@ -50,12 +51,18 @@ public class DmsQueryDialupJob extends Job {
 	}
 
 	/** Perform the DMS query dialup job */
-	public void perform() {
+	protected void doPerform() {
 		if(isNewPeriod() && signs.isEmpty())
 			queueAllDialupSigns();
-		DMSImpl dms = signs.poll();
-		if(dms != null)
-			querySign(dms);
+		int n = Math.max(1, ModemScheduler.getInstance()
+			.getAvailableCount());
+		for(int i = 0; i < n; i++) {
+			DMSImpl dms = signs.poll();
+			if(dms != null)
+				querySign(dms);
+			else
+				break;
+		}
 	}
 
 	/** Is this a new polling period? */
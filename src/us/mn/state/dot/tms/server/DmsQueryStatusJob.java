@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2009-2012  Minnesota Department of Transportation
+ * Copyright (C) 2009-2016  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -16,7 +16,6 @@ package us.mn.state.dot.tms.server;
 
 import java.util.Calendar;
 import java.util.Iterator;
-import us.mn.state.dot.sched.Job;
 import us.mn.state.dot.tms.DeviceRequest;
 import us.mn.state.dot.tms.DMS;
 import us.mn.state.dot.tms.DMSHelper;
@@ -26,7 +25,7 @@ import us.mn.state.dot.tms.DMSHelper;
  *
  * @author Douglas Lau
  */
-public class DmsQueryStatusJob extends Job {
+public class DmsQueryStatusJob extends TimedJob {
 
 	/** Seconds to offset each poll from start of interval */
 	static private final int OFFSET_SECS = 2;
@@ -37,7 +36,7 @@ public class DmsQueryStatusJob extends Job {
 	}
 
 	/** Perform the DMS query status job */
-	public void perform() {
+	protected void doPerform() {
 		int req = DeviceRequest.QUERY_STATUS.ordinal();
 		Iterator<DMS> it = DMSHelper.iterator();
 		while(it.hasNext()) {
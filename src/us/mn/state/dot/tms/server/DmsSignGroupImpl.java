@@ -85,6 +85,26 @@ public class DmsSignGroupImpl extends BaseObjectImpl implements DmsSignGroup {
 	{
 		this(n, (DMS)ns.lookupObject(DMS.SONAR_TYPE, d),
 		     (SignGroup)ns.lookupObject(SignGroup.SONAR_TYPE, g));
+		initTransients();
+	}
+
+	/** Initialize the transient fields */
+	@Override
+	protected void initTransients() {
+		SignGroup sg = sign_group;
+		DMS d = dms;
+		if(sg instanceof SignGroupImpl && d instanceof DMSImpl)
+			((SignGroupImpl)sg).addSign((DMSImpl)d);
+	}
+
+	/** Destroy an object */
+	@Override
+	public void doDestroy() throws TMSException {
+		super.doDestroy();
+		SignGroup sg = sign_group;
+		DMS d = dms;
+		if(sg instanceof SignGroupImpl && d instanceof DMSImpl)
+			((SignGroupImpl)sg).removeSign((DMSImpl)d);
 	}
 
 	/** DMS name */
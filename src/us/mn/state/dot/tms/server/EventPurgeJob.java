@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2014  Minnesota Department of Transportation
+ * Copyright (C) 2014-2016  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -15,7 +15,6 @@
 package us.mn.state.dot.tms.server;
 
 import java.util.Calendar;
-import us.mn.state.dot.sched.Job;
 import us.mn.state.dot.tms.TMSException;
 import us.mn.state.dot.tms.server.event.CommEvent;
 import us.mn.state.dot.tms.server.event.MeterEvent;
@@ -25,7 +24,7 @@ import us.mn.state.dot.tms.server.event.MeterEvent;
  *
  * @author Douglas Lau
  */
-public class EventPurgeJob extends Job {
+public class EventPurgeJob extends TimedJob {
 
 	/** Create a new job to purge database events */
 	public EventPurgeJob() {
@@ -33,7 +32,7 @@ public class EventPurgeJob extends Job {
 	}
 
 	/** Perform the event purge job */
-	public void perform() throws TMSException {
+	protected void doPerform() throws TMSException {
 		CommEvent.purgeRecords();
 		MeterEvent.purgeRecords();
 	}
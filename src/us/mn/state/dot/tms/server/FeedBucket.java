@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2011  Minnesota Department of Transportation
+ * Copyright (C) 2011-2016  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -14,58 +14,104 @@
  */
 package us.mn.state.dot.tms.server;
 
-import java.util.Date;
-import java.util.HashMap;
-import java.util.Iterator;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * Feed bucket for storing feed messages.
+ * Feed bucket for storing feed messages.  Each feed has a concurrent map
+ * of DMS names to messages, so adding and looking up messages does not
+ * need a global lock.  Messages are also kept in a queue ordered by
+ * expire time, so purging only touches expired messages.
  *
  * @author Douglas Lau
  */
 public class FeedBucket {
 
-	/** Bucket hash map */
-	static private final HashMap<String, HashMap<String, FeedMsg>> bucket =
-		new HashMap<String, HashMap<String, FeedMsg>>();
+	/** Comparator for expire time of feed messages */
+	static private final Comparator<FeedMsg> EXPIRE_COMPARATOR =
+		new Comparator<FeedMsg>()
+	{
+		public int compare(FeedMsg m0, FeedMsg m1) {
+			long e0 = m0.getExpireTime();
+			long e1 = m1.getExpireTime();
+			return (e0 < e1) ? -1 : ((e0 > e1) ? 1 : 0);
+		}
+	};
+
+	/** Bucket of feeds, each mapping DMS names to messages */
+	static private final ConcurrentHashMap<String,
+		ConcurrentHashMap<String, FeedMsg>> bucket =
+		new ConcurrentHashMap<String,
+		ConcurrentHashMap<String, FeedMsg>>();
+
+	/** Queue of messages ordered by expire time */
+	static private final PriorityQueue<FeedMsg> expiry =
+		new PriorityQueue<FeedMsg>(64, EXPIRE_COMPARATOR);
 
-	/** Add a feed message to the bucket */
-	static public synchronized void add(FeedMsg msg) {
-		HashMap<String, FeedMsg> feed = getFeed(msg.getFeed());
-		feed.put(msg.getDms(), msg);
+	/** Add a feed message to the bucket.  If another thread replaces
+	 * the message for the same DMS concurrently, the check is retried. */
+	static public void add(FeedMsg msg) {
+		ConcurrentHashMap<String, FeedMsg> feed =
+			getFeed(msg.getFeed());
+		String dms = msg.getDms();
+		while(true) {
+			FeedMsg old = feed.get(dms);
+			if(msg.isSame(old))
+				return;
+			boolean added = (old != null)
+			              ? feed.replace(dms, old, msg)
+			              : (feed.putIfAbsent(dms, msg) == null);
+			if(added)
+				break;
+		}
+		synchronized(expiry) {
+			expiry.add(msg);
+		}
 	}
 
 	/** Get a feed message from the bucket */
-	static public synchronized FeedMsg getMessage(String fid, String dms) {
-		HashMap<String, FeedMsg> feed = getFeed(fid);
-		return feed.get(dms);
+	static public FeedMsg getMessage(String fid, String dms) {
+		ConcurrentHashMap<String, FeedMsg> feed = bucket.get(fid);
+		return (feed != null) ? feed.get(dms) : null;
 	}
 
 	/** Get the specified feed */
-	static private HashMap<String, FeedMsg> getFeed(String fid) {
-		if(bucket.containsKey(fid))
-			return bucket.get(fid);
-		else {
-			HashMap<String, FeedMsg> feed =
-				new HashMap<String, FeedMsg>();
-			bucket.put(fid, feed);
-			return feed;
+	static private ConcurrentHashMap<String, FeedMsg> getFeed(
+		String fid)
+	{
+		ConcurrentHashMap<String, FeedMsg> feed = bucket.get(fid);
+		if(feed == null) {
+			feed = new ConcurrentHashMap<String, FeedMsg>();
+			ConcurrentHashMap<String, FeedMsg> f =
+				bucket.putIfAbsent(fid, feed);
+			if(f != null)
+				feed = f;
 		}
+		return feed;
 	}
 
 	/** Purge all expired feed messages */
-	static public synchronized void purgeExpired() {
-		for(HashMap<String, FeedMsg> feed: bucket.values())
-			purgeExpired(feed);
+	static public void purgeExpired() {
+		FeedMsg msg = pollExpired();
+		while(msg != null) {
+			ConcurrentHashMap<String, FeedMsg> feed =
+				bucket.get(msg.getFeed());
+			// Only remove if it has not been replaced
+			if(feed != null)
+				feed.remove(msg.getDms(), msg);
+			msg = pollExpired();
+		}
 	}
 
-	/** Purge expired messages in the given feed */
-	static private void purgeExpired(HashMap<String, FeedMsg> feed) {
-		Iterator<String> it = feed.keySet().iterator();
-		while(it.hasNext()) {
-			FeedMsg msg = feed.get(it.next());
-			if(msg.hasExpired())
-				it.remove();
+	/** Poll the queue for the next expired message */
+	static private FeedMsg pollExpired() {
+		synchronized(expiry) {
+			FeedMsg msg = expiry.peek();
+			if(msg != null && msg.hasExpired())
+				return expiry.poll();
+			else
+				return null;
 		}
 	}
 }
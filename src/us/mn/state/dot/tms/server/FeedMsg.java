@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2011  Minnesota Department of Transportation
+ * Copyright (C) 2011-2016  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -106,4 +106,28 @@ public class FeedMsg {
 	public boolean hasExpired() {
 		return expire == null || expire.before(new Date());
 	}
+
+	/** Get the expire time (ms), or 0 if not set */
+	public long getExpireTime() {
+		Date e = expire;
+		return (e != null) ? e.getTime() : 0;
+	}
+
+	/** Check if another message has the same content and expire time */
+	public boolean isSame(FeedMsg o) {
+		return o != null &&
+		       stringEquals(dms, o.dms) &&
+		       stringEquals(toString(multi), toString(o.multi)) &&
+		       getExpireTime() == o.getExpireTime();
+	}
+
+	/** Get a string or null */
+	static private String toString(Object o) {
+		return (o != null) ? o.toString() : null;
+	}
+
+	/** Compare two strings for equality (either may be null) */
+	static private boolean stringEquals(String s0, String s1) {
+		return (s0 != null) ? s0.equals(s1) : s1 == null;
+	}
 }
@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2009-2013  Minnesota Department of Transportation
+ * Copyright (C) 2009-2016  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -17,7 +17,6 @@ package us.mn.state.dot.tms.server;
 import java.io.IOException;
 import java.util.Calendar;
 import java.util.Iterator;
-import us.mn.state.dot.sched.Job;
 import us.mn.state.dot.sched.TimeSteward;
 import us.mn.state.dot.tms.Detector;
 import us.mn.state.dot.tms.DetectorHelper;
@@ -31,7 +30,7 @@ import us.mn.state.dot.tms.units.Interval;
  *
  * @author Douglas Lau
  */
-public class FlushSamplesJob extends Job {
+public class FlushSamplesJob extends TimedJob {
 
 	/** Is archiving enabled? */
 	static private boolean isArchiveEnabled() {
@@ -57,7 +56,7 @@ public class FlushSamplesJob extends Job {
 	}
 
 	/** Perform the flush samples job */
-	public void perform() throws IOException {
+	protected void doPerform() throws IOException {
 		long before = calculatePurgeStamp();
 		flushDetectorSamples(before);
 		flushWeatherSamples(before);
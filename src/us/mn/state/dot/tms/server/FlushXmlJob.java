@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2009-2014  Minnesota Department of Transportation
+ * Copyright (C) 2009-2016  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -16,18 +16,14 @@ package us.mn.state.dot.tms.server;
 
 import java.io.IOException;
 import java.io.Writer;
-import java.util.Iterator;
-import us.mn.state.dot.sched.Job;
 import us.mn.state.dot.sched.TimeSteward;
-import us.mn.state.dot.tms.Detector;
-import us.mn.state.dot.tms.DetectorHelper;
 
 /**
  * Job to flush XML sample data
  *
  * @author Douglas Lau
  */
-public class FlushXmlJob extends Job {
+public class FlushXmlJob extends TimedJob {
 
 	/** Detector sample file */
 	static private final String SAMPLE_XML = "det_sample.xml";
@@ -41,19 +37,22 @@ public class FlushXmlJob extends Job {
 	}
 
 	/** Perform flush XML data to disk */
-	public void perform() throws IOException {
-		writeSampleXml();
-		station_manager.writeSampleXml();
+	protected void doPerform() throws IOException {
+		TrafficSnapshot snap = BaseObjectImpl.traffic.getSnapshot();
+		writeSampleXml(snap);
+		station_manager.writeSampleXml(snap);
 	}
 
 	/** Write the sample data out as XML */
-	private void writeSampleXml() throws IOException {
+	private void writeSampleXml(final TrafficSnapshot snap)
+		throws IOException
+	{
 		XmlWriter w = new XmlWriter(SAMPLE_XML, true) {
 			@Override protected void write(Writer w)
 				throws IOException
 			{
 				writeSampleXmlHead(w);
-				writeSampleXmlBody(w);
+				snap.detectors.writeSampleXml(w);
 				writeSampleXmlTail(w);
 			}
 		};
@@ -83,19 +82,6 @@ public class FlushXmlJob extends Job {
 		w.write("]>\n");
 	}
 
-	/** Write the body of the detector sample XML file */
-	private void writeSampleXmlBody(Writer w) throws IOException {
-		Iterator<Detector> it = DetectorHelper.iterator();
-		while(it.hasNext()) {
-			Detector d = it.next();
-			if(d instanceof DetectorImpl) {
-				DetectorImpl det = (DetectorImpl)d;
-				det.calculateFakeData();
-				det.writeSampleXml(w);
-			}
-		}
-	}
-
 	/** Write the tail of the detector sample XML file */
 	private void writeSampleXmlTail(Writer w) throws IOException {
 		w.write("</traffic_sample>\n");
@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2013-2014  Minnesota Department of Transportation
+ * Copyright (C) 2013-2016  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -144,10 +144,18 @@ public class GateArmArrayImpl extends DeviceImpl implements GateArmArray {
 		     (QuickMessage)ns.lookupObject(QuickMessage.SONAR_TYPE,cm));
 	}
 
+	/** Initialize the transient fields */
+	@Override
+	public void initTransients() {
+		GateArmSystem.addArray(this);
+		super.initTransients();
+	}
+
 	/** Destroy an object */
 	@Override
 	public void doDestroy() throws TMSException {
 		super.doDestroy();
+		GateArmSystem.removeArray(this);
 		geo_loc.notifyRemove();
 		GateArmSystem.disable(name + ": destroy array");
 	}
@@ -180,7 +188,9 @@ public class GateArmArrayImpl extends DeviceImpl implements GateArmArray {
 	@Override
 	public void setPrereq(String pr) {
 		GateArmSystem.disable(name + ": prereq");
+		String opr = prereq;
 		prereq = pr;
+		GateArmSystem.updatePrereq(this, opr);
 	}
 
 	/** Set the prerequisite gate arm array */
@@ -198,7 +208,7 @@ public class GateArmArrayImpl extends DeviceImpl implements GateArmArray {
 	}
 
 	/** Get prerequisite gate arm array */
-	private GateArmArrayImpl getPrerequisite() {
+	public GateArmArrayImpl getPrerequisite() {
 		return (GateArmArrayImpl)GateArmArrayHelper.lookup(prereq);
 	}
 
@@ -576,8 +586,8 @@ public class GateArmArrayImpl extends DeviceImpl implements GateArmArray {
 	@Override
 	public void updateStyles() {
 		setStyles(calculateStyles());
-		GateArmSystem.checkInterlocks(getRoad());
-		GateArmSystem.updateDependants();
+		GateArmSystem.checkInterlocks(this);
+		GateArmSystem.updateDependants(this);
 		setSystemEnable(checkEnabled());
 		setOpenConflict(lock_state.isOpenDenied() &&
 			(isOpen() || isTimeout()));
@@ -622,7 +632,7 @@ public class GateArmArrayImpl extends DeviceImpl implements GateArmArray {
 	}
 
 	/** Check open/close state of prerequisite gate arm array */
-	private void checkPrerequisite() {
+	public void checkPrerequisite() {
 		GateArmArrayImpl pr = getPrerequisite();
 		setPrereqClosed(pr != null && !pr.isFullyOpen());
 	}
@@ -633,29 +643,8 @@ public class GateArmArrayImpl extends DeviceImpl implements GateArmArray {
 			setInterlockNotify();
 	}
 
-	/** Dependant open flag */
-	private transient boolean dep_open = false;
-
-	/** Clear dependant open flag */
-	public void clearDependant() {
-		dep_open = false;
-	}
-
-	/** Check open/close state of dependant gate arm array */
-	public void checkDependant() {
-		GateArmArrayImpl pr = getPrerequisite();
-		if (pr != null)
-			pr.dep_open = (pr.dep_open || isPossiblyOpen());
-	}
-
-	/** Set dependant open state */
-	public void setDependant() {
-		setDependantOpen(dep_open);
-		checkPrerequisite();
-	}
-
 	/** Set flag to indicate dependant gate arm open */
-	private void setDependantOpen(boolean o) {
+	public void setDependantOpen(boolean o) {
 		if (lock_state.setDependantOpen(o))
 			setInterlockNotify();
 	}
@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2013-2014  Minnesota Department of Transportation
+ * Copyright (C) 2013-2016  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -15,9 +15,10 @@
 package us.mn.state.dot.tms.server;
 
 import java.io.File;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import javax.mail.MessagingException;
-import us.mn.state.dot.sched.Job;
 import us.mn.state.dot.sched.TimeSteward;
 import us.mn.state.dot.sonar.User;
 import us.mn.state.dot.tms.DeviceRequest;
@@ -28,7 +29,7 @@ import us.mn.state.dot.tms.GeoLoc;
 import us.mn.state.dot.tms.Road;
 import us.mn.state.dot.tms.SystemAttrEnum;
 import us.mn.state.dot.tms.TMSException;
-import static us.mn.state.dot.tms.server.MainServer.FLUSH;
+import static us.mn.state.dot.tms.server.MainServer.EVENT_LANE;
 import us.mn.state.dot.tms.server.event.GateArmEvent;
 import us.mn.state.dot.tms.utils.Emailer;
 
@@ -130,8 +131,8 @@ public class GateArmSystem {
 	static public void logEvent(GateArmState gas, String name, User o) {
 		String owner = o != null ? o.getName() : null;
 		final GateArmEvent ev = new GateArmEvent(gas, name, owner);
-		FLUSH.addJob(new Job() {
-			public void perform() throws TMSException {
+		EVENT_LANE.addJob(new TimedJob() {
+			protected void doPerform() throws TMSException {
 				ev.doStore();
 			}
 		});
@@ -165,110 +166,197 @@ public class GateArmSystem {
 		}
 	}
 
-	/** Check all gate arm open interlocks for one road.
-	 * @param r Road to check. */
-	static public void checkInterlocks(Road r) {
-		int d = openGateDirection(r);
-		Iterator<GateArmArray> it = GateArmArrayHelper.iterator();
-		while(it.hasNext()) {
-			GateArmArray g = it.next();
-			if(g instanceof GateArmArrayImpl) {
-				GateArmArrayImpl ga = (GateArmArrayImpl)g;
-				Road gr = ga.getRoad();
-				if(gr == r)
-					ga.setOpenDirection(d);
-			}
+	/** Mapping of roads to gate arm arrays */
+	static private final HashMap<Road, HashSet<GateArmArrayImpl>>
+		ROAD_ARRAYS = new HashMap<Road, HashSet<GateArmArrayImpl>>();
+
+	/** Mapping of gate arm arrays to indexed roads */
+	static private final HashMap<GateArmArrayImpl, Road> ARRAY_ROADS =
+		new HashMap<GateArmArrayImpl, Road>();
+
+	/** Mapping of prerequisite names to dependant gate arm arrays */
+	static private final HashMap<String, HashSet<GateArmArrayImpl>>
+		DEPENDANTS = new HashMap<String, HashSet<GateArmArrayImpl>>();
+
+	/** Mapping of gate arm arrays to indexed prerequisite names */
+	static private final HashMap<GateArmArrayImpl, String> ARRAY_PREREQS =
+		new HashMap<GateArmArrayImpl, String>();
+
+	/** Mapping of locations to gate arm arrays */
+	static private final HashMap<GeoLoc, GateArmArrayImpl> LOC_ARRAYS =
+		new HashMap<GeoLoc, GateArmArrayImpl>();
+
+	/** Empty array of gate arm arrays */
+	static private final GateArmArrayImpl[] NO_ARRAYS =
+		new GateArmArrayImpl[0];
+
+	/** Add a gate arm array to the indexes */
+	static public synchronized void addArray(GateArmArrayImpl ga) {
+		indexRoad(ga, ga.getRoad());
+		indexPrereq(ga, ga.getPrereq());
+		LOC_ARRAYS.put(ga.getGeoLoc(), ga);
+	}
+
+	/** Remove a gate arm array from the indexes */
+	static public synchronized void removeArray(GateArmArrayImpl ga) {
+		removeIndex(ROAD_ARRAYS, ARRAY_ROADS.remove(ga), ga);
+		removeIndex(DEPENDANTS, ARRAY_PREREQS.remove(ga), ga);
+		LOC_ARRAYS.remove(ga.getGeoLoc());
+	}
+
+	/** Update the prerequisite of a gate arm array.  The index is
+	 * updated, then interlocks are checked for the array, its old
+	 * prerequisite and its new prerequisite.
+	 * @param ga Gate arm array which has changed.
+	 * @param opr Name of old prerequisite (may be null). */
+	static public void updatePrereq(GateArmArrayImpl ga, String opr) {
+		synchronized(GateArmSystem.class) {
+			indexPrereq(ga, ga.getPrereq());
+		}
+		if(opr != null) {
+			GateArmArrayImpl old = (GateArmArrayImpl)
+				GateArmArrayHelper.lookup(opr);
+			if(old != null)
+				checkDependantOpen(old);
 		}
+		updateDependants(ga);
 	}
 
-	/** Get valid gate open direction for the specified road.  If gates are
-	 * open in more than one direction, then no direction is valid.
-	 * @param r Road to check.
-	 * @return Ordinal of valid gate Direction; 0 for any, -1 for none. */
-	static private int openGateDirection(Road r) {
-		int d = 0;
-		boolean found = false;
-		Iterator<GateArmArray> it = GateArmArrayHelper.iterator();
-		while(it.hasNext()) {
-			GateArmArray g = it.next();
-			if(g instanceof GateArmArrayImpl) {
-				GateArmArrayImpl ga = (GateArmArrayImpl)g;
-				if(ga.isPossiblyOpen()) {
-					Road gr = ga.getRoad();
-					if(gr == r) {
-						int gd = ga.getRoadDir();
-						if(found && d != gd)
-							return -1;
-						else {
-							found = true;
-							d = gd;
-						}
-					}
-				}
-			}
+	/** Update the road index for a location change.  Interlocks are
+	 * checked for both the old and new roads of the array (if any).
+	 * @param loc GeoLoc which has changed. */
+	static public void updateRoad(GeoLoc loc) {
+		GateArmArrayImpl ga;
+		synchronized(GateArmSystem.class) {
+			ga = LOC_ARRAYS.get(loc);
 		}
-		return d;
+		if(ga != null)
+			checkInterlocks(ga);
 	}
 
-	/** Update all dependant gate arm arrays.  NOTE: this does three
-	 * linear scans of all gate arm arrays -- it doesn't scale very well. */
-	static public void updateDependants() {
-		clearDependants();
-		checkDependants();
-		setDependants();
+	/** Index the road of a gate arm array.
+	 * @return Previously indexed road. */
+	static private Road indexRoad(GateArmArrayImpl ga, Road r) {
+		Road or = ARRAY_ROADS.put(ga, r);
+		removeIndex(ROAD_ARRAYS, or, ga);
+		addIndex(ROAD_ARRAYS, r, ga);
+		return or;
 	}
 
-	/** Clear dependant open flags for all gate arm arrays */
-	static private void clearDependants() {
-		Iterator<GateArmArray> it = GateArmArrayHelper.iterator();
-		while(it.hasNext()) {
-			GateArmArray g = it.next();
-			if(g instanceof GateArmArrayImpl) {
-				GateArmArrayImpl ga = (GateArmArrayImpl)g;
-				ga.clearDependant();
-			}
+	/** Index the prerequisite of a gate arm array */
+	static private void indexPrereq(GateArmArrayImpl ga, String pr) {
+		removeIndex(DEPENDANTS, ARRAY_PREREQS.put(ga, pr), ga);
+		if(pr != null)
+			addIndex(DEPENDANTS, pr, ga);
+	}
+
+	/** Add a gate arm array to an index */
+	static private <K> void addIndex(HashMap<K, HashSet<GateArmArrayImpl>>
+		idx, K key, GateArmArrayImpl ga)
+	{
+		HashSet<GateArmArrayImpl> set = idx.get(key);
+		if(set == null) {
+			set = new HashSet<GateArmArrayImpl>();
+			idx.put(key, set);
 		}
+		set.add(ga);
 	}
 
-	/** Check dependant open flags for all gate arm arrays */
-	static private void checkDependants() {
-		Iterator<GateArmArray> it = GateArmArrayHelper.iterator();
-		while(it.hasNext()) {
-			GateArmArray g = it.next();
-			if(g instanceof GateArmArrayImpl) {
-				GateArmArrayImpl ga = (GateArmArrayImpl)g;
-				ga.checkDependant();
-			}
+	/** Remove a gate arm array from an index */
+	static private <K> void removeIndex(HashMap<K,HashSet<GateArmArrayImpl>>
+		idx, K key, GateArmArrayImpl ga)
+	{
+		HashSet<GateArmArrayImpl> set = idx.get(key);
+		if(set != null) {
+			set.remove(ga);
+			if(set.isEmpty())
+				idx.remove(key);
 		}
 	}
 
-	/** Set dependant open flags for all gate arm arrays */
-	static private void setDependants() {
-		Iterator<GateArmArray> it = GateArmArrayHelper.iterator();
-		while(it.hasNext()) {
-			GateArmArray g = it.next();
-			if(g instanceof GateArmArrayImpl) {
-				GateArmArrayImpl ga = (GateArmArrayImpl)g;
-				ga.setDependant();
+	/** Get a copy of the gate arm arrays for an index key */
+	static private synchronized <K> GateArmArrayImpl[] lookupIndex(
+		HashMap<K, HashSet<GateArmArrayImpl>> idx, K key)
+	{
+		HashSet<GateArmArrayImpl> set = idx.get(key);
+		return (set != null) ? set.toArray(NO_ARRAYS) : NO_ARRAYS;
+	}
+
+	/** Check gate arm open interlocks for the road of one array.  If the
+	 * array has moved to a different road, the old road is also checked.
+	 * @param ga Gate arm array which has changed. */
+	static public void checkInterlocks(GateArmArrayImpl ga) {
+		Road r = ga.getRoad();
+		Road or;
+		synchronized(GateArmSystem.class) {
+			or = indexRoad(ga, r);
+		}
+		if(or != r)
+			checkInterlocks(or);
+		checkInterlocks(r);
+	}
+
+	/** Check all gate arm open interlocks for one road.
+	 * @param r Road to check. */
+	static private void checkInterlocks(Road r) {
+		GateArmArrayImpl[] arrays = lookupIndex(ROAD_ARRAYS, r);
+		int d = openGateDirection(arrays);
+		for(GateArmArrayImpl ga: arrays)
+			ga.setOpenDirection(d);
+	}
+
+	/** Get valid gate open direction for the arrays on one road.  If gates
+	 * are open in more than one direction, then no direction is valid.
+	 * @param arrays Gate arm arrays on the road.
+	 * @return Ordinal of valid gate Direction; 0 for any, -1 for none. */
+	static private int openGateDirection(GateArmArrayImpl[] arrays) {
+		int d = 0;
+		boolean found = false;
+		for(GateArmArrayImpl ga: arrays) {
+			if(ga.isPossiblyOpen()) {
+				int gd = ga.getRoadDir();
+				if(found && d != gd)
+					return -1;
+				else {
+					found = true;
+					d = gd;
+				}
 			}
 		}
+		return d;
+	}
+
+	/** Update dependant interlocks affected by a change to one array.
+	 * This checks the array's prerequisite, the array itself, and all of
+	 * its dependants.
+	 * @param ga Gate arm array which has changed. */
+	static public void updateDependants(GateArmArrayImpl ga) {
+		GateArmArrayImpl pr = ga.getPrerequisite();
+		if(pr != null)
+			checkDependantOpen(pr);
+		checkDependantOpen(ga);
+		ga.checkPrerequisite();
+		for(GateArmArrayImpl dep: lookupIndex(DEPENDANTS, ga.getName()))
+			dep.checkPrerequisite();
 	}
 
-	/** Check all gate arm arrays for a GeoLoc change.  This needs to be
-	 * fast, but the current algorithm is a linear scan...
+	/** Check whether any dependants of a gate arm array are open */
+	static private void checkDependantOpen(GateArmArrayImpl ga) {
+		boolean o = false;
+		for(GateArmArrayImpl dep: lookupIndex(DEPENDANTS, ga.getName()))
+			o |= dep.isPossiblyOpen();
+		ga.setDependantOpen(o);
+	}
+
+	/** Check all gate arm arrays for a GeoLoc change.
 	 * @param loc GeoLoc to check.
 	 * @param reason Reason for check. */
 	static public void checkDisable(GeoLoc loc, String reason) {
-		Iterator<GateArmArray> it = GateArmArrayHelper.iterator();
-		while(it.hasNext()) {
-			GateArmArray g = it.next();
-			if(g instanceof GateArmArrayImpl) {
-				GateArmArrayImpl ga = (GateArmArrayImpl)g;
-				if(loc == ga.getGeoLoc()) {
-					disable("geo_loc " + reason);
-					break;
-				}
-			}
+		GateArmArrayImpl ga;
+		synchronized(GateArmSystem.class) {
+			ga = LOC_ARRAYS.get(loc);
 		}
+		if(ga != null)
+			disable("geo_loc " + reason);
 	}
 }
@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2005-2013  Minnesota Department of Transportation
+ * Copyright (C) 2005-2016  Minnesota Department of Transportation
  * Copyright (C) 2014  AHMCT, University of California
  *
  * This program is free software; you can redistribute it and/or modify
@@ -22,6 +22,7 @@ import us.mn.state.dot.sonar.Namespace;
 import us.mn.state.dot.tms.ChangeVetoException;
 import us.mn.state.dot.tms.Direction;
 import us.mn.state.dot.tms.GeoLoc;
+import us.mn.state.dot.tms.GeoPoint;
 import us.mn.state.dot.tms.LocModifier;
 import us.mn.state.dot.tms.Road;
 import us.mn.state.dot.tms.TMSException;
@@ -32,7 +33,9 @@ import us.mn.state.dot.tms.TMSException;
  * @author Douglas Lau
  * @author Travis Swanston
  */
-public class GeoLocImpl extends BaseObjectImpl implements GeoLoc {
+public class GeoLocImpl extends BaseObjectImpl implements GeoLoc,
+	GeoPoint.Cached
+{
 
 	/** Load all the geo locations */
 	static protected void loadAll() throws TMSException {
@@ -119,6 +122,7 @@ public class GeoLocImpl extends BaseObjectImpl implements GeoLoc {
 	public void setRoadway(Road r) {
 		GateArmSystem.checkDisable(this, "roadway");
 		roadway = r;
+		GateArmSystem.updateRoad(this);
 	}
 
 	/** Set the roadway road */
@@ -141,6 +145,7 @@ public class GeoLocImpl extends BaseObjectImpl implements GeoLoc {
 	public void setRoadDir(short d) {
 		GateArmSystem.checkDisable(this, "road_dir");
 		road_dir = d;
+		GateArmSystem.updateRoad(this);
 	}
 
 	/** Set the roadway direction */
@@ -231,6 +236,7 @@ public class GeoLocImpl extends BaseObjectImpl implements GeoLoc {
 	/** Set the latitude */
 	public void setLat(Double lt) {
 		lat = lt;
+		point = null;
 	}
 
 	/** Set the latitude */
@@ -254,6 +260,7 @@ public class GeoLocImpl extends BaseObjectImpl implements GeoLoc {
 	/** Set the longitude */
 	public void setLon(Double ln) {
 		lon = ln;
+		point = null;
 	}
 
 	/** Set the longitude */
@@ -271,6 +278,23 @@ public class GeoLocImpl extends BaseObjectImpl implements GeoLoc {
 		return lon;
 	}
 
+	/** Cached geo point (null if not created or invalidated) */
+	private transient volatile GeoPoint point;
+
+	/** Lookup the geo point */
+	@Override
+	public GeoPoint lookupGeoPoint() {
+		GeoPoint p = point;
+		Double lt = lat;
+		Double ln = lon;
+		if (p != null && lt != null && ln != null && p.lat == lt &&
+		    p.lon == ln)
+			return p;
+		p = GeoPoint.create(lt, ln);
+		point = p;
+		return p;
+	}
+
 	/** Milepoint */
 	private String milepoint;
 
@@ -0,0 +1,391 @@
+/*
+ * IRIS -- Intelligent Roadway Information System
+ * Copyright (C) 2016  Minnesota Department of Transportation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package us.mn.state.dot.tms.server;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import us.mn.state.dot.sched.DebugLog;
+import us.mn.state.dot.sched.Job;
+import us.mn.state.dot.sched.Scheduler;
+import us.mn.state.dot.sched.TimeSteward;
+
+/**
+ * A job monitor registers jobs with a scheduler and records how long each
+ * job waits in the queue and how long it runs.  Statistics are kept by job
+ * name, so one-shot jobs which are created repeatedly share a record.
+ * The number of one-shot timed jobs waiting in the queue can be limited;
+ * jobs added past the limit are dropped and counted.  A limit must only be
+ * used for idempotent jobs, such as publishing XML files.  Jobs which store
+ * events or samples must never be dropped, so their lanes are unlimited.
+ *
+ * @author Douglas Lau
+ */
+public class JobMonitor {
+
+	/** Job debug log */
+	static private final DebugLog JOB_LOG = new DebugLog("job");
+
+	/** Job status XML file */
+	static private final String JOB_XML = "job_status.xml";
+
+	/** Upper bounds of run time histogram buckets (ms) */
+	static private final long[] BUCKETS = {
+		10, 100, 1000, 10000, 30000, 60000, 300000, Long.MAX_VALUE
+	};
+
+	/** All job monitors */
+	static private final List<JobMonitor> ALL =
+		new CopyOnWriteArrayList<JobMonitor>();
+
+	/** Statistics for one job */
+	static private final class Stats {
+
+		/** Job name */
+		private final String name;
+
+		/** Repeat interval (ms) */
+		private long interval;
+
+		/** Count of runs */
+		private int n_runs;
+
+		/** Count of runs which took longer than the interval */
+		private int n_overruns;
+
+		/** Count of skipped cycles */
+		private int n_skipped;
+
+		/** Total run time (ms) */
+		private long run_ms;
+
+		/** Maximum run time (ms) */
+		private long run_max;
+
+		/** Total queue wait (ms) */
+		private long wait_ms;
+
+		/** Maximum queue wait (ms) */
+		private long wait_max;
+
+		/** Run time histogram */
+		private final int[] hist = new int[BUCKETS.length];
+
+		/** Create new job statistics */
+		private Stats(String n) {
+			name = n;
+		}
+
+		/** Record one run of the job */
+		private void record(long iv, long sched, long start, long end) {
+			long run = end - start;
+			long wait = start - sched;
+			interval = iv;
+			n_runs++;
+			run_ms += run;
+			run_max = Math.max(run_max, run);
+			wait_ms += wait;
+			wait_max = Math.max(wait_max, wait);
+			for (int b = 0; b < BUCKETS.length; b++) {
+				if (run < BUCKETS[b]) {
+					hist[b]++;
+					break;
+				}
+			}
+			if (iv > 0) {
+				if (run > iv)
+					n_overruns++;
+				n_skipped += wait / iv;
+			}
+		}
+
+		/** Get a debug string */
+		@Override
+		public String toString() {
+			return name + ": runs " + n_runs + ", avg " +
+				(run_ms / Math.max(n_runs, 1)) + " ms, max " +
+				run_max + " ms, wait max " + wait_max +
+				" ms, overruns " + n_overruns + ", skipped " +
+				n_skipped;
+		}
+
+		/** Write the statistics as an XML element */
+		private void writeXml(Writer w) throws IOException {
+			int n = Math.max(n_runs, 1);
+			StringBuilder h = new StringBuilder();
+			for (int c: hist) {
+				if (h.length() > 0)
+					h.append(' ');
+				h.append(c);
+			}
+			StringBuilder sb = new StringBuilder("  <job");
+			sb.append(XmlWriter.createAttribute("name", name));
+			sb.append(XmlWriter.createAttribute("interval",
+				interval));
+			sb.append(XmlWriter.createAttribute("runs", n_runs));
+			sb.append(XmlWriter.createAttribute("run_avg",
+				run_ms / n));
+			sb.append(XmlWriter.createAttribute("run_max",
+				run_max));
+			sb.append(XmlWriter.createAttribute("wait_avg",
+				wait_ms / n));
+			sb.append(XmlWriter.createAttribute("wait_max",
+				wait_max));
+			sb.append(XmlWriter.createAttribute("overruns",
+				n_overruns));
+			sb.append(XmlWriter.createAttribute("skipped",
+				n_skipped));
+			sb.append(XmlWriter.createAttribute("hist", h));
+			sb.append("/>\n");
+			w.write(sb.toString());
+		}
+	}
+
+	/** Get all job monitors */
+	static public Iterable<JobMonitor> getAll() {
+		return ALL;
+	}
+
+	/** Write the job status XML file */
+	static public void writeXml() throws IOException {
+		XmlWriter w = new XmlWriter(JOB_XML, false) {
+			@Override protected void write(Writer w)
+				throws IOException
+			{
+				w.write(XML_DECLARATION);
+				w.write("<job_status" +
+					createAttribute("time_stamp",
+					TimeSteward.getDateInstance()) + ">\n");
+				for (JobMonitor m: ALL)
+					m.writeXml(w);
+				SampleDispatcher.writeXmlAll(w);
+				w.write("</job_status>\n");
+			}
+		};
+		w.write();
+	}
+
+	/** Scheduler name */
+	private final String name;
+
+	/** Scheduler for jobs */
+	private final Scheduler scheduler;
+
+	/** Queue wait at which a backlog is reported (ms) */
+	private final long backlog_threshold;
+
+	/** Maximum number of pending one-shot jobs */
+	private final int queue_limit;
+
+	/** Pending one-shot jobs */
+	private final Set<TimedJob> pending = Collections.newSetFromMap(
+		new IdentityHashMap<TimedJob, Boolean>());
+
+	/** Count of jobs dropped because the queue was full */
+	private int n_dropped;
+
+	/** Statistics for all jobs, by name */
+	private final TreeMap<String, Stats> stats =
+		new TreeMap<String, Stats>();
+
+	/** Queue wait of most recently started job (ms) */
+	private long backlog;
+
+	/** Flag indicating the scheduler is backlogged */
+	private boolean backlogged;
+
+	/** Create a new job monitor.
+	 * @param n Scheduler name.
+	 * @param s Scheduler.
+	 * @param bt Backlog threshold (ms).
+	 * @param ql Queue limit for one-shot jobs. */
+	public JobMonitor(String n, Scheduler s, long bt, int ql) {
+		name = n;
+		scheduler = s;
+		backlog_threshold = bt;
+		queue_limit = ql;
+		ALL.add(this);
+	}
+
+	/** Create a new job monitor with an unlimited queue.
+	 * @param n Scheduler name.
+	 * @param s Scheduler.
+	 * @param bt Backlog threshold (ms). */
+	public JobMonitor(String n, Scheduler s, long bt) {
+		this(n, s, bt, Integer.MAX_VALUE);
+	}
+
+	/** Create a new job monitor with its own scheduler.
+	 * @param n Scheduler name.
+	 * @param bt Backlog threshold (ms).
+	 * @param ql Queue limit for one-shot jobs. */
+	public JobMonitor(String n, long bt, int ql) {
+		this(n, new Scheduler(n), bt, ql);
+	}
+
+	/** Create a new job monitor with its own scheduler and an unlimited
+	 * queue.
+	 * @param n Scheduler name.
+	 * @param bt Backlog threshold (ms). */
+	public JobMonitor(String n, long bt) {
+		this(n, new Scheduler(n), bt, Integer.MAX_VALUE);
+	}
+
+	/** Get the scheduler */
+	public Scheduler getScheduler() {
+		return scheduler;
+	}
+
+	/** Add a job to the scheduler.  Only timed jobs are recorded.  A
+	 * one-shot timed job which is already pending is not added again.
+	 * @return true if the job was added, false if it was dropped. */
+	public boolean addJob(Job j) {
+		if (j instanceof TimedJob) {
+			TimedJob tj = (TimedJob)j;
+			if (tj.getIntervalMillis() == 0 && !addPending(tj))
+				return false;
+			tj.setQueued(this, TimeSteward.currentTimeMillis());
+		}
+		scheduler.addJob(j);
+		return true;
+	}
+
+	/** Add a one-shot job to the pending set */
+	private boolean addPending(TimedJob j) {
+		synchronized (pending) {
+			if (pending.contains(j))
+				return false;
+			if (pending.size() >= queue_limit) {
+				n_dropped++;
+				if (n_dropped == 1 || n_dropped % 1000 == 0)
+					logDropped(j);
+				return false;
+			}
+			pending.add(j);
+			return true;
+		}
+	}
+
+	/** Log a dropped job */
+	private void logDropped(TimedJob j) {
+		System.err.println(TimeSteward.currentDateTimeString(true) +
+			" Scheduler " + name + " queue full: dropped " +
+			j.getJobName() + " (" + n_dropped + " total)");
+	}
+
+	/** Get the number of pending one-shot jobs */
+	public int getPendingCount() {
+		synchronized (pending) {
+			return pending.size();
+		}
+	}
+
+	/** Get the count of jobs dropped because the queue was full */
+	public int getDroppedCount() {
+		synchronized (pending) {
+			return n_dropped;
+		}
+	}
+
+	/** Mark a job as started */
+	void started(TimedJob j) {
+		if (j.getIntervalMillis() == 0) {
+			synchronized (pending) {
+				pending.remove(j);
+			}
+		}
+	}
+
+	/** Record one run of a job */
+	void record(TimedJob j, long start, long end) {
+		long sched = j.nextScheduledTime(start);
+		synchronized (stats) {
+			String jn = j.getJobName();
+			Stats s = stats.get(jn);
+			if (s == null) {
+				s = new Stats(jn);
+				stats.put(jn, s);
+			}
+			s.record(j.getIntervalMillis(), sched, start, end);
+			backlog = start - sched;
+			checkBacklog(jn);
+		}
+		if (JOB_LOG.isOpen()) {
+			JOB_LOG.log(name + " " + j.getJobName() + ": wait " +
+				(start - sched) + " ms, run " + (end - start) +
+				" ms");
+		}
+	}
+
+	/** Check if the scheduler is backlogged */
+	private void checkBacklog(String jn) {
+		boolean b = backlog >= backlog_threshold;
+		if (b != backlogged) {
+			backlogged = b;
+			if (b) {
+				System.err.println(
+					TimeSteward.currentDateTimeString(true)
+					+ " Scheduler " + name +
+					" backlogged: " + jn + " waited " +
+					backlog + " ms");
+			}
+		}
+	}
+
+	/** Check if the scheduler is backlogged */
+	public boolean isBacklogged() {
+		synchronized (stats) {
+			return backlogged;
+		}
+	}
+
+	/** Get debug strings for all jobs */
+	public List<String> getDebugLines() {
+		ArrayList<String> lines = new ArrayList<String>();
+		synchronized (stats) {
+			lines.add(name + ": backlog " + backlog + " ms, " +
+				"pending " + getPendingCount() + ", dropped " +
+				getDroppedCount() +
+				(backlogged ? " (BACKLOGGED)" : ""));
+			for (Stats s: stats.values())
+				lines.add("  " + s);
+		}
+		return lines;
+	}
+
+	/** Write the monitor status as XML */
+	private void writeXml(Writer w) throws IOException {
+		synchronized (stats) {
+			w.write(" <scheduler" +
+				XmlWriter.createAttribute("name", name) +
+				XmlWriter.createAttribute("backlog", backlog) +
+				XmlWriter.createAttribute("pending",
+					getPendingCount()) +
+				XmlWriter.createAttribute("dropped",
+					getDroppedCount()) +
+				XmlWriter.createAttribute("alert", backlogged) +
+				">\n");
+			for (Stats s: stats.values())
+				s.writeXml(w);
+			w.write(" </scheduler>\n");
+		}
+	}
+}
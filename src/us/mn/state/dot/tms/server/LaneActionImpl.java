@@ -92,6 +92,24 @@ public class LaneActionImpl extends BaseObjectImpl implements LaneAction {
 		action_plan = a;
 		lane_marking = lm;
 		phase = p;
+		initTransients();
+	}
+
+	/** Initialize the transient fields */
+	@Override
+	protected void initTransients() {
+		ActionPlanImpl ap = getActionPlanImpl();
+		if(ap != null)
+			ap.addAction(this);
+	}
+
+	/** Destroy an object */
+	@Override
+	public void doDestroy() throws TMSException {
+		super.doDestroy();
+		ActionPlanImpl ap = getActionPlanImpl();
+		if(ap != null)
+			ap.removeAction(this);
 	}
 
 	/** Action plan */
@@ -102,6 +120,12 @@ public class LaneActionImpl extends BaseObjectImpl implements LaneAction {
 		return action_plan;
 	}
 
+	/** Get the action plan implementation */
+	private ActionPlanImpl getActionPlanImpl() {
+		ActionPlan ap = action_plan;
+		return (ap instanceof ActionPlanImpl) ? (ActionPlanImpl)ap : null;
+	}
+
 	/** Lane marking */
 	protected LaneMarking lane_marking;
 
@@ -116,6 +140,9 @@ public class LaneActionImpl extends BaseObjectImpl implements LaneAction {
 	/** Set the plan phase to perform action */
 	public void setPhase(PlanPhase p) {
 		phase = p;
+		ActionPlanImpl ap = getActionPlanImpl();
+		if(ap != null)
+			ap.setDirty();
 	}
 
 	/** Set the plan phase to perform action */
@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2009-2012  Minnesota Department of Transportation
+ * Copyright (C) 2009-2016  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -16,7 +16,6 @@ package us.mn.state.dot.tms.server;
 
 import java.util.Calendar;
 import java.util.Iterator;
-import us.mn.state.dot.sched.Job;
 import us.mn.state.dot.tms.DeviceRequest;
 import us.mn.state.dot.tms.LCSArray;
 import us.mn.state.dot.tms.LCSArrayHelper;
@@ -26,7 +25,7 @@ import us.mn.state.dot.tms.LCSArrayHelper;
  *
  * @author Douglas Lau
  */
-public class LcsQueryMsgJob extends Job {
+public class LcsQueryMsgJob extends TimedJob {
 
 	/** Seconds to offset each poll from start of interval */
 	static private final int OFFSET_SECS = 19;
@@ -37,7 +36,7 @@ public class LcsQueryMsgJob extends Job {
 	}
 
 	/** Perform the LCS query messages job */
-	public void perform() {
+	protected void doPerform() {
 		int req = DeviceRequest.QUERY_MESSAGE.ordinal();
 		Iterator<LCSArray> it = LCSArrayHelper.iterator();
 		while(it.hasNext()) {
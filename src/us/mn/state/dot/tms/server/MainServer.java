@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2000-2015  Minnesota Department of Transportation
+ * Copyright (C) 2000-2016  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -60,8 +60,31 @@ public class MainServer {
 	/** Timer thread for repeating jobs */
 	static private final Scheduler TIMER = new Scheduler("timer");
 
-	/** Flush thread for disk writing jobs */
-	static public final Scheduler FLUSH = new Scheduler("flush");
+	/** Queue wait at which a scheduler is considered backlogged (ms) */
+	static private final long BACKLOG_MS = 30000;
+
+	/** Job monitor for TIMER thread */
+	static private final JobMonitor TIMER_JOBS =
+		new JobMonitor("timer", TIMER, BACKLOG_MS);
+
+	/** Sample I/O lane for sample flushing and vehicle event logs.
+	 * The queue is not limited, since vehicle events must not be lost. */
+	static public final JobMonitor SAMPLE_LANE =
+		new JobMonitor("sample", BACKLOG_MS);
+
+	/** Event lane for storing events in the database.  The queue is not
+	 * limited, since events are an audit trail. */
+	static public final JobMonitor EVENT_LANE =
+		new JobMonitor("event", BACKLOG_MS);
+
+	/** XML lane for publishing XML files.  Each file is rewritten from
+	 * current state, so jobs past the queue limit can be dropped. */
+	static public final JobMonitor XML_LANE =
+		new JobMonitor("xml", BACKLOG_MS, 100);
+
+	/** Maintenance lane for archiving and other nightly jobs */
+	static public final JobMonitor MAINT_LANE =
+		new JobMonitor("maint", 60 * 60 * 1000, 100);
 
 	/** Sample archive factory */
 	static public final SampleArchiveFactoryImpl a_factory =
@@ -91,6 +114,7 @@ public class MainServer {
 			Properties props = PropertyLoader.load(PROP_FILE);
 			district = props.getProperty("district", "tms");
 			initProxySelector(props);
+			initTracing(props);
 			store = createStore(props);
 			BaseEvent.store = store;
 			I18N.initialize(props);
@@ -99,10 +123,10 @@ public class MainServer {
 			IrisPrivilegeImpl.lookup(store, ns);
 			IrisRoleImpl.lookup(store, ns);
 			IrisUserImpl.lookup(store, ns);
-			BaseObjectImpl.loadAll(store, ns);
-			scheduleTimerJobs();
+			loadAll(props, ns);
 			scheduleFlushJobs();
-			server = new Server(ns, props, new AccessLogger(FLUSH));
+			server = new Server(ns, props,
+				new AccessLogger(EVENT_LANE));
 			auth_provider = new IrisProvider();
 			server.addProvider(auth_provider);
 			System.err.println("IRIS Server active");
@@ -113,6 +137,18 @@ public class MainServer {
 		}
 	}
 
+	/** Initialize tracing */
+	static private void initTracing(Properties props) {
+		TraceRecorder.enable(Integer.parseInt(props.getProperty(
+			"trace.events", "0")), new File(LOG_FILE_DIR));
+		if (Boolean.parseBoolean(props.getProperty("trace.jfr",
+			"false")))
+		{
+			if (!TraceRecorder.enableJfr())
+				System.err.println("JFR tracing not available");
+		}
+	}
+
 	/** Initialize the server process */
 	static private void initialize() throws IOException {
 		redirectStdStreams();
@@ -163,7 +199,9 @@ public class MainServer {
 		return new SQLConnection(
 			props.getProperty("db.url"),
 			props.getProperty("db.user"),
-			props.getProperty("db.password")
+			props.getProperty("db.password"),
+			Integer.parseInt(props.getProperty("db.connections",
+				"1"))
 		);
 	}
 
@@ -178,35 +216,62 @@ public class MainServer {
 		return ns;
 	}
 
-	/** Schedule jobs on TIMER thread */
-	static private void scheduleTimerJobs() {
+	/** Load all objects from the database.  If early polling is
+	 * enabled, device polling jobs are scheduled as soon as comm links
+	 * and controllers are loaded; otherwise, after all objects.  Other
+	 * TIMER jobs are always scheduled after all objects are loaded. */
+	static private void loadAll(Properties props, WhitelistNamespace ns)
+		throws TMSException
+	{
+		int n_threads = Integer.parseInt(props.getProperty(
+			"db.load.threads", "1"));
+		boolean early = Boolean.parseBoolean(props.getProperty(
+			"startup.early.poll", "false"));
+		Runnable ready = new Runnable() {
+			public void run() {
+				schedulePollJobs();
+			}
+		};
+		BaseObjectImpl.loadAll(store, ns, n_threads,
+			early ? ready : null);
+		if (!early)
+			schedulePollJobs();
+		scheduleTimerJobs();
+	}
+
+	/** Schedule device polling jobs on TIMER thread */
+	static private void schedulePollJobs() {
 		int secs = SystemAttrEnum.LCS_POLL_PERIOD_SECS.getInt();
 		if (secs > 5)
-			TIMER.addJob(new LcsQueryMsgJob(secs));
-		TIMER.addJob(new DmsQueryStatusJob());
-		TIMER.addJob(new DmsQueryDialupJob());
-		TIMER.addJob(new MeteringJob(FLUSH));
-		TIMER.addJob(new MeterQueryJob());
-		TIMER.addJob(new SampleQuery30SecJob());
-		TIMER.addJob(new SampleQuery5MinJob());
-		TIMER.addJob(new ActionPlanJob());
-		TIMER.addJob(new CameraNoFailJob());
-		TIMER.addJob(new CameraWiperJob());
-		TIMER.addJob(new SendSettingsJob());
-		TIMER.addJob(new SendSettingsJob(500));
-		TIMER.addJob(new ReaperJob());
-		TIMER.addJob(new MsgFeedQueryJob());
+			TIMER_JOBS.addJob(new LcsQueryMsgJob(secs));
+		TIMER_JOBS.addJob(new DmsQueryStatusJob());
+		TIMER_JOBS.addJob(new DmsQueryDialupJob());
+		TIMER_JOBS.addJob(new MeterQueryJob());
+		TIMER_JOBS.addJob(new SampleQuery30SecJob(TIMER_JOBS));
+		TIMER_JOBS.addJob(new SampleQuery5MinJob(TIMER_JOBS));
+		TIMER_JOBS.addJob(new MsgFeedQueryJob());
+	}
+
+	/** Schedule jobs on TIMER thread which need all objects loaded */
+	static private void scheduleTimerJobs() {
+		TIMER_JOBS.addJob(new MeteringJob(XML_LANE));
+		TIMER_JOBS.addJob(new ActionPlanJob());
+		TIMER_JOBS.addJob(new CameraNoFailJob());
+		TIMER_JOBS.addJob(new CameraWiperJob());
+		TIMER_JOBS.addJob(new SendSettingsJob());
+		TIMER_JOBS.addJob(new SendSettingsJob(500));
+		TIMER_JOBS.addJob(new ReaperJob());
 	}
 
-	/** Schedule jobs on FLUSH thread */
+	/** Schedule jobs on flush lanes */
 	static private void scheduleFlushJobs() {
-		FLUSH.addJob(new FlushSamplesJob(a_factory));
-		FLUSH.addJob(new ArchiveSamplesJob(a_factory));
-		FLUSH.addJob(new ProfilingJob());
-		FLUSH.addJob(new XmlConfigJob());
-		FLUSH.addJob(new XmlConfigJob(1000));
-		FLUSH.addJob(new SignMessageXmlJob());
-		FLUSH.addJob(new IncidentXmlJob());
-		FLUSH.addJob(new EventPurgeJob());
+		SAMPLE_LANE.addJob(new FlushSamplesJob(a_factory));
+		XML_LANE.addJob(new ProfilingJob());
+		XML_LANE.addJob(new SignMessageXmlJob());
+		XML_LANE.addJob(new IncidentXmlJob());
+		MAINT_LANE.addJob(new ArchiveSamplesJob(a_factory));
+		MAINT_LANE.addJob(new XmlConfigJob());
+		MAINT_LANE.addJob(new XmlConfigJob(1000));
+		MAINT_LANE.addJob(new EventPurgeJob());
 	}
 }
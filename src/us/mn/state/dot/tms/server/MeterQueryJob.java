@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2014  Minnesota Department of Transportation
+ * Copyright (C) 2014-2016  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -16,7 +16,6 @@ package us.mn.state.dot.tms.server;
 
 import java.util.Calendar;
 import java.util.Iterator;
-import us.mn.state.dot.sched.Job;
 import us.mn.state.dot.tms.DeviceRequest;
 import us.mn.state.dot.tms.RampMeter;
 import us.mn.state.dot.tms.RampMeterHelper;
@@ -27,7 +26,7 @@ import static us.mn.state.dot.tms.server.SampleQuery30SecJob.OFFSET_SECS;
  *
  * @author Douglas Lau
  */
-public class MeterQueryJob extends Job {
+public class MeterQueryJob extends TimedJob {
 
 	/** Create a new ramp meter status query job */
 	public MeterQueryJob() {
@@ -36,7 +35,7 @@ public class MeterQueryJob extends Job {
 
 	/** Perform the job */
 	@Override
-	public void perform() {
+	protected void doPerform() {
 		queryMeterStatus();
 	}
 
@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2009-2014  Minnesota Department of Transportation
+ * Copyright (C) 2009-2016  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -16,8 +16,6 @@ package us.mn.state.dot.tms.server;
 
 import java.util.Calendar;
 import java.util.Iterator;
-import us.mn.state.dot.sched.Job;
-import us.mn.state.dot.sched.Scheduler;
 import us.mn.state.dot.tms.RampMeter;
 import us.mn.state.dot.tms.RampMeterHelper;
 
@@ -26,13 +24,13 @@ import us.mn.state.dot.tms.RampMeterHelper;
  *
  * @author Douglas Lau
  */
-public class MeteringJob extends Job {
+public class MeteringJob extends TimedJob {
 
 	/** Seconds to offset each poll from start of interval */
-	static private final int OFFSET_SECS = 29;
+	static protected final int OFFSET_SECS = 29;
 
-	/** FLUSH Scheduler for writing XML (I/O to disk) */
-	private final Scheduler flush;
+	/** XML lane for writing XML (I/O to disk) */
+	private final JobMonitor flush;
 
 	/** Station manager */
 	private final StationManager station_manager;
@@ -41,20 +39,32 @@ public class MeteringJob extends Job {
 	private final FlushXmlJob flush_job;
 
 	/** Create a new metering job */
-	public MeteringJob(Scheduler f) {
+	public MeteringJob(JobMonitor f) {
 		super(Calendar.SECOND, 30, Calendar.SECOND, OFFSET_SECS);
 		flush = f;
 		station_manager = new StationManager();
 		flush_job = new FlushXmlJob(station_manager);
 	}
 
+	/** Record a trace event for a metering stage */
+	static private void trace(long start, String stage) {
+		if(TraceRecorder.isEnabled()) {
+			TraceRecorder.record(TraceRecorder.Type.METERING,
+				start, stage);
+		}
+	}
+
 	/** Perform the metering job */
-	public void perform() {
+	protected void doPerform() {
 		try {
-			station_manager.calculateData();
+			long start = TraceRecorder.start();
+			BaseObjectImpl.traffic.update();
+			trace(start, "traffic");
 			// Perform flush job after station data calculated
 			flush.addJob(flush_job);
+			start = TraceRecorder.start();
 			BaseObjectImpl.corridors.findBottlenecks();
+			trace(start, "bottlenecks");
 		}
 		finally {
 			validateMetering();
@@ -63,7 +73,10 @@ public class MeteringJob extends Job {
 
 	/** Validate all metering algorithms */
 	private void validateMetering() {
+		long start = TraceRecorder.start();
 		KAdaptiveAlgorithm.processAllStates();
+		trace(start, "kadaptive");
+		start = TraceRecorder.start();
 		Iterator<RampMeter> it = RampMeterHelper.iterator();
 		while(it.hasNext()) {
 			RampMeter rm = it.next();
@@ -72,7 +85,11 @@ public class MeteringJob extends Job {
 				meter.validateAlgorithm();
 			}
 		}
+		trace(start, "validate");
+		start = TraceRecorder.start();
 		StratifiedAlgorithm.processAllStates();
+		trace(start, "stratified");
+		start = TraceRecorder.start();
 		it = RampMeterHelper.iterator();
 		while(it.hasNext()) {
 			RampMeter rm = it.next();
@@ -82,5 +99,6 @@ public class MeteringJob extends Job {
 				meter.updateRatePlanned();
 			}
 		}
+		trace(start, "rates");
 	}
 }
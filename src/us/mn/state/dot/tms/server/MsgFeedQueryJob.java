@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2011-2014  Minnesota Department of Transportation
+ * Copyright (C) 2011-2016  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -16,7 +16,6 @@ package us.mn.state.dot.tms.server;
 
 import java.util.Calendar;
 import java.util.Iterator;
-import us.mn.state.dot.sched.Job;
 import us.mn.state.dot.tms.Controller;
 import us.mn.state.dot.tms.ControllerHelper;
 import us.mn.state.dot.tms.server.comm.DevicePoller;
@@ -27,7 +26,7 @@ import us.mn.state.dot.tms.server.comm.msgfeed.MsgFeedPoller;
  *
  * @author Douglas Lau
  */
-public class MsgFeedQueryJob extends Job {
+public class MsgFeedQueryJob extends TimedJob {
 
 	/** Seconds to offset each poll from start of interval.  This should be
 	 * 5 seconds before performing the ActionPlanJob. */
@@ -40,7 +39,7 @@ public class MsgFeedQueryJob extends Job {
 	}
 
 	/** Perform the message feed query job */
-	public void perform() {
+	protected void doPerform() {
 		FeedBucket.purgeExpired();
 		Iterator<Controller> it = ControllerHelper.iterator();
 		while(it.hasNext()) {
@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2010-2012  Minnesota Department of Transportation
+ * Copyright (C) 2010-2016  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -27,7 +27,7 @@ import static us.mn.state.dot.tms.server.Constants.MISSING_DATA;
 /**
  * A writer for periodic sample data.  This is needed so that threads which are
  * collecting sample data do not have to wait for file I/O to store the data.
- * A dedicated FLUSH thread uses a writer to force the cached data to be
+ * A dedicated sample I/O thread uses a writer to force the cached data to be
  * written to files at regular intervals.
  *
  * Sample files are binary with a fixed number of bytes per sample.
@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2000-2014  Minnesota Department of Transportation
+ * Copyright (C) 2000-2016  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -131,6 +131,16 @@ public class Profiler {
 		PROFILE_LOG.log(sb.toString());
 	}
 
+	/** Debug job profiling information for all job monitors */
+	public void debugJobs() {
+		if (PROFILE_LOG.isOpen()) {
+			for (JobMonitor m: JobMonitor.getAll()) {
+				for (String line: m.getDebugLines())
+					PROFILE_LOG.log(line);
+			}
+		}
+	}
+
 	/** Append to uptime log file */
 	public void appendUptimeLog() throws IOException {
 		FileWriter fw = new FileWriter(UPTIME_LOG_FILE, true);
@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2009  Minnesota Department of Transportation
+ * Copyright (C) 2009-2016  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -16,7 +16,6 @@ package us.mn.state.dot.tms.server;
 
 import java.io.IOException;
 import java.util.Calendar;
-import us.mn.state.dot.sched.Job;
 import us.mn.state.dot.tms.SystemAttrEnum;
 
 /**
@@ -24,7 +23,7 @@ import us.mn.state.dot.tms.SystemAttrEnum;
  *
  * @author Douglas Lau
  */
-public class ProfilingJob extends Job {
+public class ProfilingJob extends TimedJob {
 
 	/** Seconds to offset each poll from start of interval */
 	static protected final int OFFSET_SECS = 1;
@@ -38,9 +37,12 @@ public class ProfilingJob extends Job {
 	}
 
 	/** Perform the profiling job */
-	public void perform() throws IOException {
+	protected void doPerform() throws IOException {
 		profiler.debugMemory();
 		profiler.debugThreads();
+		profiler.debugJobs();
+		JobMonitor.writeXml();
+		TraceRecorder.writeXml();
 		if(SystemAttrEnum.UPTIME_LOG_ENABLE.getBoolean())
 			profiler.appendUptimeLog();
 	}
@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2009-2013  Minnesota Department of Transportation
+ * Copyright (C) 2009-2016  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -16,15 +16,9 @@ package us.mn.state.dot.tms.server;
 
 import java.util.Calendar;
 import java.util.Iterator;
-import java.util.LinkedList;
-import us.mn.state.dot.sched.Job;
 import us.mn.state.dot.sched.TimeSteward;
-import us.mn.state.dot.tms.DMS;
-import us.mn.state.dot.tms.DMSHelper;
 import us.mn.state.dot.tms.Incident;
 import us.mn.state.dot.tms.IncidentHelper;
-import us.mn.state.dot.tms.SignMessage;
-import us.mn.state.dot.tms.SignMessageHelper;
 import us.mn.state.dot.tms.SystemAttrEnum;
 
 /**
@@ -32,22 +26,21 @@ import us.mn.state.dot.tms.SystemAttrEnum;
  *
  * @author Douglas Lau
  */
-public class ReaperJob extends Job {
+public class ReaperJob extends TimedJob {
 
 	/** Seconds to offset each poll from start of interval */
 	static protected final int OFFSET_SECS = 27;
 
-	/** List of reapable sign messages */
-	private final LinkedList<SignMessageImpl> reapable;
+	/** Time (ms) a sign message must be unreferenced before reaping */
+	static private final long MSG_REAP_DELAY_MS = 60 * 1000;
 
 	/** Create a new job to reap dead stuff */
 	public ReaperJob() {
 		super(Calendar.MINUTE, 1, Calendar.SECOND, OFFSET_SECS);
-		reapable = new LinkedList<SignMessageImpl>();
 	}
 
 	/** Perform the reaper job */
-	public void perform() {
+	protected void doPerform() {
 		reapIncidents();
 		reapSignMessages();
 	}
@@ -79,63 +72,7 @@ public class ReaperJob extends Job {
 
 	/** Reap sign messages which have been unused for awhile */
 	private void reapSignMessages() {
-		// NOTE: there is a small race where a client could send a
-		// message to a DMS just after isReferenced is called.  It can
-		// only happen during a very short window about one minute
-		// after the message loses its last reference.  Is it worth
-		// making a fix for this unlikely scenario?
-		if(reapable.isEmpty()) {
-			findReapableMessages();
-			removeReferencedMessages();
-		} else {
-			for(SignMessageImpl sm: reapable)
-				reapMessage(sm);
-			reapable.clear();
-		}
-	}
-
-	/** Reap one sign message */
-	private void reapMessage(SignMessageImpl sm) {
-		// Make sure the message has not already been
-		// reaped by looking it up in the namespace.
-		// This is needed because objects are removed
-		// asynchronously from the namespace.
-		SignMessage m = SignMessageHelper.lookup(sm.getName());
-		if((m == sm) && !isReferenced(m))
-			sm.notifyRemove();
-	}
-
-	/** Find all reapable sign messages */
-	private void findReapableMessages() {
-		Iterator<SignMessage> it = SignMessageHelper.iterator();
-		while(it.hasNext()) {
-			SignMessage sm = it.next();
-			if(sm instanceof SignMessageImpl)
-				reapable.add((SignMessageImpl)sm);
-		}
-	}
-
-	/** Remove referenced sign messages */
-	private void removeReferencedMessages() {
-		Iterator<SignMessageImpl> it = reapable.iterator();
-		while(it.hasNext()) {
-			SignMessage sm = it.next();
-			if(isReferenced(sm))
-				it.remove();
-		}
-	}
-
-	/** Check if a sign message is referenced by any DMS */
-	private boolean isReferenced(SignMessage sm) {
-		Iterator<DMS> it = DMSHelper.iterator();
-		while(it.hasNext()) {
-			DMS dms = it.next();
-			if(dms instanceof DMSImpl) {
-				DMSImpl dmsi = (DMSImpl)dms;
-				if(dmsi.hasReference(sm))
-					return true;
-			}
-		}
-		return false;
+		SignMessageImpl.reapUnreferenced(TimeSteward.currentTimeMillis()
+			- MSG_REAP_DELAY_MS);
 	}
 }
@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2005-2012  Minnesota Department of Transportation
+ * Copyright (C) 2005-2016  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -19,8 +19,10 @@ import java.sql.DriverManager;
 import java.sql.ResultSet;
 import java.sql.Statement;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.regex.Pattern;
 import java.util.regex.Matcher;
 import us.mn.state.dot.sched.DebugLog;
@@ -63,6 +65,26 @@ public class SQLConnection {
 			throw new ChangeVetoException("Invalid SQL value: " +v);
 	}
 
+	/** Pattern to match the kind of a SQL statement */
+	static private final Pattern SQL_KIND = Pattern.compile("\\s*(\\w+)");
+
+	/** Pattern to match the table of a SQL statement */
+	static private final Pattern SQL_TABLE = Pattern.compile(
+		"(?is)\\s*(?:update\\s+|insert\\s+into\\s+|" +
+		"delete\\s+from\\s+|select\\s.*?\\sfrom\\s+)([\\w.]+)");
+
+	/** Get the kind of a SQL statement, such as UPDATE */
+	static private String statementKind(String sql) {
+		Matcher m = SQL_KIND.matcher(sql);
+		return m.lookingAt() ? m.group(1).toUpperCase() : null;
+	}
+
+	/** Get the table of a SQL statement, or null */
+	static private String statementTable(String sql) {
+		Matcher m = SQL_TABLE.matcher(sql);
+		return m.lookingAt() ? m.group(1) : null;
+	}
+
 	/** Escape a string constant value for SQL */
 	static private String escapeValue(Object value) {   
 		return value.toString().replace("'", "''").replace("\\","\\\\");
@@ -77,15 +99,25 @@ public class SQLConnection {
 	/** Password to log into database server */
 	protected final String password;
 
-	/** Connection to the SQL database */
-	protected Connection connection = null;
+	/** Connections to the SQL database */
+	protected final Connection[] connections;
 
-	/** Available SQL statements */
-	protected final LinkedList<Statement> statements =
-		new LinkedList<Statement>();
+	/** Lock to release while waiting for query results */
+	private volatile ReentrantLock query_lock;
 
-	/** Create a new SQL connection */
-	public SQLConnection(String url, String usr, String pswd)
+	/** Available SQL statements for each connection */
+	private final ArrayList<LinkedList<Statement>> statements =
+		new ArrayList<LinkedList<Statement>>();
+
+	/** Number of statements in use on each connection */
+	private final int[] n_used;
+
+	/** Create a new SQL connection.
+	 * @param url Database URL.
+	 * @param usr Database user.
+	 * @param pswd Database password.
+	 * @param n_conn Number of database connections to use. */
+	public SQLConnection(String url, String usr, String pswd, int n_conn)
 		throws TMSException
 	{
 		try {
@@ -97,45 +129,73 @@ public class SQLConnection {
 		location = url;
 		user = usr;
 		password = pswd;
+		connections = new Connection[Math.max(n_conn, 1)];
+		n_used = new int[connections.length];
+		for (int i = 0; i < connections.length; i++)
+			statements.add(new LinkedList<Statement>());
 	}
 
-	/** Close the current database connection */
-	protected void close() throws SQLException {
-		statements.clear();
-		if(connection != null) {
-			try {
-				connection.close();
-			}
-			finally {
-				connection = null;
+	/** Create a new SQL connection with one database connection */
+	public SQLConnection(String url, String usr, String pswd)
+		throws TMSException
+	{
+		this(url, usr, pswd, 1);
+	}
+
+	/** Set a lock to release while waiting for query results.  This
+	 * allows threads which hold the lock to wait for the database
+	 * concurrently. */
+	public void setQueryLock(ReentrantLock l) {
+		query_lock = l;
+	}
+
+	/** Close all database connections */
+	protected synchronized void close() throws SQLException {
+		SQLException ex = null;
+		for (int i = 0; i < connections.length; i++) {
+			statements.get(i).clear();
+			n_used[i] = 0;
+			if (connections[i] != null) {
+				try {
+					connections[i].close();
+				}
+				catch (SQLException e) {
+					ex = e;
+				}
+				finally {
+					connections[i] = null;
+				}
 			}
 		}
+		if (ex != null)
+			throw ex;
 	}
 
 	/** Open a new database connection */
-	protected void open() throws SQLException {
-		connection = DriverManager.getConnection(location, user,
+	protected Connection open() throws SQLException {
+		Connection c = DriverManager.getConnection(location, user,
 			password);
-		connection.setAutoCommit(true);
+		c.setAutoCommit(true);
+		return c;
 	}
 
-	/** Create a database statement */
-	protected Statement _createStatement() throws SQLException {
-		if(connection == null)
-			open();
-		return connection.createStatement();
+	/** Create a database statement on one connection */
+	protected Statement _createStatement(int i) throws SQLException {
+		if (connections[i] == null)
+			connections[i] = open();
+		return connections[i].createStatement();
 	}
 
-	/** Create a database statement */
-	protected Statement createStatement() throws TMSException {
+	/** Create a database statement on one connection */
+	protected Statement createStatement(int i) throws TMSException {
 		try {
-			return _createStatement();
+			return _createStatement(i);
 		}
 		catch(SQLException e) {
 			SQL_LOG.log("createStatement -> " + e);
 			try {
 				close();
-				return _createStatement();
+				return _createStatement(i);
 			}
 			catch(SQLException e2) {
 				SQL_LOG.log("createStatement.2 -> " + e2);
@@ -144,49 +204,135 @@ public class SQLConnection {
 		}
 	}
 
-	/** Get an available statement */
+	/** Get an available statement.  It is taken from the connection
+	 * with the fewest statements in use, so concurrent statements are
+	 * spread across all connections. */
 	protected synchronized Statement getStatement() throws TMSException {
-		if(statements.isEmpty())
-			return createStatement();
-		else
-			return statements.removeLast();
+		int i = leastUsedConnection();
+		LinkedList<Statement> avail = statements.get(i);
+		Statement s = avail.isEmpty()
+		            ? createStatement(i)
+		            : avail.removeLast();
+		n_used[i]++;
+		return s;
+	}
+
+	/** Find the connection with the fewest statements in use */
+	private int leastUsedConnection() {
+		int c = 0;
+		for (int i = 1; i < n_used.length; i++) {
+			if (n_used[i] < n_used[c])
+				c = i;
+		}
+		return c;
 	}
 
-	/** Put a statement back after using it */
+	/** Find the index of the connection for a statement.
+	 * @return Connection index, or -1 if it has been closed. */
+	private int connectionIndex(Statement s) {
+		try {
+			Connection c = s.getConnection();
+			for (int i = 0; i < connections.length; i++) {
+				if (c != null && c == connections[i])
+					return i;
+			}
+		}
+		catch (SQLException e) {
+			// statement closed
+		}
+		return -1;
+	}
+
+	/** Put a statement back on its connection after using it */
 	protected synchronized void putStatement(Statement s) {
-		statements.add(s);
+		int i = connectionIndex(s);
+		if (i >= 0) {
+			n_used[i]--;
+			statements.get(i).add(s);
+		}
+	}
+
+	/** Drop a statement after an error */
+	protected synchronized void dropStatement(Statement s) {
+		int i = connectionIndex(s);
+		if (i >= 0)
+			n_used[i]--;
+		try {
+			s.close();
+		}
+		catch (SQLException e) {
+			SQL_LOG.log("dropStatement -> " + e);
+		}
 	}
 
 	/** Query the database and call a factory for each result */
 	public void query(String sql, ResultFactory factory)
 		throws TMSException
 	{
+		long start = TraceRecorder.start();
 		Statement s = getStatement();
 		try {
-			ResultSet set = s.executeQuery(sql);
+			int rows = 0;
+			ResultSet set = executeQuery(s, sql);
 			try {
-				while(set.next())
+				while(set.next()) {
 					factory.create(set);
+					rows++;
+				}
 			}
 			finally {
 				set.close();
 			}
 			putStatement(s);
+			trace(start, sql, rows);
 		}
 		catch(Exception e) {
+			dropStatement(s);
 			throw new TMSException(e);
 		}
 	}
 
+	/** Execute a query, releasing the query lock while waiting */
+	private ResultSet executeQuery(Statement s, String sql)
+		throws SQLException
+	{
+		ReentrantLock l = query_lock;
+		if (l != null && l.isHeldByCurrentThread()) {
+			int holds = l.getHoldCount();
+			for (int i = 0; i < holds; i++)
+				l.unlock();
+			try {
+				return s.executeQuery(sql);
+			}
+			finally {
+				for (int i = 0; i < holds; i++)
+					l.lock();
+			}
+		} else
+			return s.executeQuery(sql);
+	}
+
+	/** Record a trace event for a statement.  Only the statement kind
+	 * and table are recorded, since values can contain passwords. */
+	private void trace(long start, String sql, int rows) {
+		if(TraceRecorder.isEnabled()) {
+			TraceRecorder.record(TraceRecorder.Type.SQL, start,
+				statementKind(sql), statementTable(sql), rows);
+		}
+	}
+
 	/** Update the database with the given SQL command */
 	public void update(String sql) throws TMSException {
+		long start = TraceRecorder.start();
 		Statement s = getStatement();
 		try {
-			s.executeUpdate(sql);
+			int rows = s.executeUpdate(sql);
 			putStatement(s);
+			trace(start, sql, rows);
 		}
 		catch(SQLException e) {
 			SQL_LOG.log(sql + " -> " + e);
+			dropStatement(s);
 			throw new TMSException(e);
 		}
 	}
@@ -254,20 +400,25 @@ public class SQLConnection {
 
 	/** Update the database with a batch of SQL commands */
 	public void batch(BatchFactory f) throws TMSException {
+		long start = TraceRecorder.start();
 		Statement s = getStatement();
 		try {
+			int n = 0;
 			while(true) {
 				String sql = f.next();
 				if(sql == null)
 					break;
 				s.addBatch(sql);
+				n++;
 			}
 			s.executeBatch();
 			s.clearBatch();
 			putStatement(s);
+			trace(start, "BATCH", n);
 		}
 		catch(SQLException e) {
 			SQL_LOG.log("batch -> " + e);
+			dropStatement(s);
 			throw new TMSException(e);
 		}
 	}
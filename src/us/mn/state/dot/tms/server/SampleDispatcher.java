@@ -0,0 +1,260 @@
+/*
+ * IRIS -- Intelligent Roadway Information System
+ * Copyright (C) 2016  Minnesota Department of Transportation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package us.mn.state.dot.tms.server;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import us.mn.state.dot.sched.DebugLog;
+import us.mn.state.dot.sched.TimeSteward;
+import us.mn.state.dot.tms.CommLink;
+import us.mn.state.dot.tms.Controller;
+import us.mn.state.dot.tms.ControllerHelper;
+import us.mn.state.dot.tms.server.comm.DevicePoller;
+import us.mn.state.dot.tms.server.comm.SamplePoller;
+
+/**
+ * Sample dispatcher spreads sample queries across an interval, one comm link
+ * at a time.  The time needed for each link is estimated from the number of
+ * drops and the measured poll latency.  Links are staggered evenly, but each
+ * one starts early enough to finish before the deadline.
+ *
+ * @author Douglas Lau
+ */
+abstract public class SampleDispatcher {
+
+	/** Sample dispatch debug log */
+	static private final DebugLog DISPATCH_LOG =
+		new DebugLog("sample_dispatch");
+
+	/** Margin before deadline (ms) */
+	static private final long MARGIN_MS = 1500;
+
+	/** Default poll latency when none has been measured (ms) */
+	static private final long DEFAULT_LATENCY_MS = 250;
+
+	/** All sample dispatchers */
+	static private final List<SampleDispatcher> ALL =
+		new CopyOnWriteArrayList<SampleDispatcher>();
+
+	/** Write the status of all sample dispatchers as XML */
+	static public void writeXmlAll(Writer w) throws IOException {
+		for (SampleDispatcher d: ALL)
+			d.writeXml(w);
+	}
+
+	/** Samples queued for one comm link */
+	static private class LinkBatch implements Comparable<LinkBatch> {
+		private final CommLink link;
+		private final ArrayList<ControllerImpl> ctrls =
+			new ArrayList<ControllerImpl>();
+		private final ArrayList<ControllerImpl> queried =
+			new ArrayList<ControllerImpl>();
+		private long estimate;
+		private LinkBatch(CommLink cl) {
+			link = cl;
+		}
+		/** Compare for longest estimate first */
+		public int compareTo(LinkBatch o) {
+			if (estimate != o.estimate)
+				return (estimate > o.estimate) ? -1 : 1;
+			return link.getName().compareTo(o.link.getName());
+		}
+	}
+
+	/** Job monitor for dispatch jobs */
+	private final JobMonitor jobs;
+
+	/** Sample period (sec) */
+	private final int period;
+
+	/** Deadline offset from start of period (sec) */
+	private final int deadline_secs;
+
+	/** Count of controllers which missed the deadline on last period */
+	private int missed = 0;
+
+	/** Total count of missed deadlines */
+	private long total_missed = 0;
+
+	/** Create a new sample dispatcher.
+	 * @param j Job monitor for dispatch jobs.
+	 * @param p Sample period (sec).
+	 * @param d Deadline offset from start of period (sec). */
+	protected SampleDispatcher(JobMonitor j, int p, int d) {
+		jobs = j;
+		period = p;
+		deadline_secs = d;
+		ALL.add(this);
+	}
+
+	/** Get the count of controllers which missed the last deadline */
+	public synchronized int getMissed() {
+		return missed;
+	}
+
+	/** Get the total count of missed deadlines */
+	public synchronized long getTotalMissed() {
+		return total_missed;
+	}
+
+	/** Write the dispatcher status as an XML element */
+	private void writeXml(Writer w) throws IOException {
+		w.write(" <sample_dispatch" +
+			XmlWriter.createAttribute("period", period) +
+			XmlWriter.createAttribute("missed", getMissed()) +
+			XmlWriter.createAttribute("total_missed",
+				getTotalMissed()) + "/>\n");
+	}
+
+	/** Check if a controller should be queried */
+	abstract protected boolean isQueried(ControllerImpl c);
+
+	/** Dispatch sample queries for all controllers */
+	public void dispatch() {
+		long now = TimeSteward.currentTimeMillis();
+		long per_ms = period * 1000L;
+		long deadline = now - (now % per_ms) + deadline_secs * 1000L -
+			MARGIN_MS;
+		long window = Math.max(deadline - now, 0);
+		ArrayList<LinkBatch> batches = createBatches();
+		int n = batches.size();
+		for (int i = 0; i < n; i++) {
+			LinkBatch b = batches.get(i);
+			long slack = Math.max(window - b.estimate, 0);
+			long delay = Math.min(slack, window * i / n);
+			jobs.addJob(new QueryJob(b, (int)delay));
+		}
+		jobs.addJob(new DeadlineJob(batches, now, (int)window));
+	}
+
+	/** Create batches of controllers for each comm link */
+	private ArrayList<LinkBatch> createBatches() {
+		HashMap<CommLink, LinkBatch> links =
+			new HashMap<CommLink, LinkBatch>();
+		Iterator<Controller> it = ControllerHelper.iterator();
+		while (it.hasNext()) {
+			Controller c = it.next();
+			if (c instanceof ControllerImpl) {
+				ControllerImpl ci = (ControllerImpl)c;
+				CommLink cl = ci.getCommLink();
+				if (cl != null && isQueried(ci)) {
+					LinkBatch b = links.get(cl);
+					if (b == null) {
+						b = new LinkBatch(cl);
+						links.put(cl, b);
+					}
+					b.ctrls.add(ci);
+				}
+			}
+		}
+		ArrayList<LinkBatch> batches = new ArrayList<LinkBatch>(
+			links.values());
+		for (LinkBatch b: batches)
+			b.estimate = estimateTime(b);
+		Collections.sort(batches);
+		return batches;
+	}
+
+	/** Estimate the time to query all controllers in a batch */
+	private long estimateTime(LinkBatch b) {
+		DevicePoller dp = b.ctrls.get(0).getPoller();
+		long lat = (dp != null) ? dp.getPollLatency() : 0;
+		if (lat <= 0)
+			lat = DEFAULT_LATENCY_MS;
+		return lat * b.ctrls.size();
+	}
+
+	/** Query samples from one controller.
+	 * @return true if samples for the period will be stored. */
+	private boolean querySamples(ControllerImpl c) {
+		DevicePoller dp = c.getPoller();
+		return (dp instanceof SamplePoller) &&
+		       ((SamplePoller)dp).querySamples(c, period);
+	}
+
+	/** Job to query samples for one comm link */
+	private class QueryJob extends TimedJob {
+		private final LinkBatch batch;
+		private QueryJob(LinkBatch b, int delay) {
+			super(delay);
+			batch = b;
+		}
+		@Override
+		public String getJobName() {
+			return super.getJobName() + period;
+		}
+		@Override
+		protected void doPerform() {
+			for (ControllerImpl c: batch.ctrls) {
+				if (querySamples(c))
+					batch.queried.add(c);
+			}
+		}
+	}
+
+	/** Job to check for controllers which missed the deadline */
+	private class DeadlineJob extends TimedJob {
+		private final ArrayList<LinkBatch> batches;
+		private final long start;
+		private DeadlineJob(ArrayList<LinkBatch> b, long s, int delay) {
+			super(delay);
+			batches = b;
+			start = s;
+		}
+		@Override
+		public String getJobName() {
+			return super.getJobName() + period;
+		}
+		@Override
+		protected void doPerform() {
+			checkDeadline(batches, start);
+		}
+	}
+
+	/** Count controllers which missed the deadline.  Only controllers
+	 * with a sample query for the period are checked; some protocols
+	 * only collect 30-second samples. */
+	private void checkDeadline(ArrayList<LinkBatch> batches, long start) {
+		int n_missed = 0;
+		for (LinkBatch b: batches) {
+			int m = 0;
+			for (ControllerImpl c: b.queried) {
+				if (c.getSampleTime(period) < start)
+					m++;
+			}
+			if (m > 0 && DISPATCH_LOG.isOpen()) {
+				DISPATCH_LOG.log(b.link.getName() + ": " + m +
+					" of " + b.queried.size() + " missed " +
+					period + "s deadline, estimate " +
+					b.estimate + " ms");
+			}
+			n_missed += m;
+		}
+		synchronized (this) {
+			missed = n_missed;
+			total_missed += n_missed;
+		}
+		if (DISPATCH_LOG.isOpen()) {
+			DISPATCH_LOG.log(period + "s: " + n_missed +
+				" controllers missed deadline");
+		}
+	}
+}
@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2009-2014  Minnesota Department of Transportation
+ * Copyright (C) 2009-2016  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -15,51 +15,35 @@
 package us.mn.state.dot.tms.server;
 
 import java.util.Calendar;
-import java.util.Iterator;
-import us.mn.state.dot.sched.Job;
-import us.mn.state.dot.tms.Controller;
-import us.mn.state.dot.tms.ControllerHelper;
-import us.mn.state.dot.tms.server.comm.DevicePoller;
-import us.mn.state.dot.tms.server.comm.SamplePoller;
 
 /**
- * Job to query 30-second sample data
+ * Job to query 30-second sample data.  Queries are spread across the
+ * interval by comm link, finishing before the metering job.
  *
  * @author Douglas Lau
  */
-public class SampleQuery30SecJob extends Job {
+public class SampleQuery30SecJob extends TimedJob {
 
 	/** Seconds to offset each poll from start of interval */
 	static public final int OFFSET_SECS = 8;
 
+	/** Sample dispatcher */
+	private final SampleDispatcher dispatcher;
+
 	/** Create a new 30-second timer job */
-	public SampleQuery30SecJob() {
+	public SampleQuery30SecJob(JobMonitor j) {
 		super(Calendar.SECOND, 30, Calendar.SECOND, OFFSET_SECS);
+		dispatcher = new SampleDispatcher(j, 30,
+			MeteringJob.OFFSET_SECS)
+		{
+			protected boolean isQueried(ControllerImpl c) {
+				return c.hasActiveDetector();
+			}
+		};
 	}
 
 	/** Perform the 30-second timer job */
-	public void perform() {
-		querySample30Sec();
-	}
-
-	/** Poll all sampling controllers 30-second interval */
-	private void querySample30Sec() {
-		Iterator<Controller> it = ControllerHelper.iterator();
-		while(it.hasNext()) {
-			Controller c = it.next();
-			if(c instanceof ControllerImpl)
-				querySample30Sec((ControllerImpl)c);
-		}
-	}
-
-	/** Query 30-second sample data from one controller */
-	private void querySample30Sec(ControllerImpl c) {
-		if (c.hasActiveDetector()) {
-			DevicePoller dp = c.getPoller();
-			if (dp instanceof SamplePoller) {
-				SamplePoller sp = (SamplePoller)dp;
-				sp.querySamples(c, 30);
-			}
-		}
+	protected void doPerform() {
+		dispatcher.dispatch();
 	}
 }
@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2009-2014  Minnesota Department of Transportation
+ * Copyright (C) 2009-2016  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -15,52 +15,38 @@
 package us.mn.state.dot.tms.server;
 
 import java.util.Calendar;
-import java.util.Iterator;
-import us.mn.state.dot.sched.Job;
-import us.mn.state.dot.tms.Controller;
-import us.mn.state.dot.tms.ControllerHelper;
-import us.mn.state.dot.tms.server.comm.DevicePoller;
-import us.mn.state.dot.tms.server.comm.SamplePoller;
 
 /**
- * Job to query 5-minute sample data
+ * Job to query 5-minute sample data.  Queries are spread across the
+ * interval by comm link, finishing before the metering job.
  *
  * @author Douglas Lau
  */
-public class SampleQuery5MinJob extends Job {
+public class SampleQuery5MinJob extends TimedJob {
 
 	/** Seconds to offset each poll from start of interval */
 	static protected final int OFFSET_SECS = 12;
 
+	/** Sample dispatcher */
+	private final SampleDispatcher dispatcher;
+
 	/** Create a new 5-minute timer job */
-	public SampleQuery5MinJob() {
+	public SampleQuery5MinJob(JobMonitor j) {
 		super(Calendar.MINUTE, 5, Calendar.SECOND, OFFSET_SECS);
+		dispatcher = new SampleDispatcher(j, 300,
+			MeteringJob.OFFSET_SECS)
+		{
+			protected boolean isQueried(ControllerImpl c) {
+				// Must check hasActiveMeter for green counts
+				// (mndot protocol)
+				return c.hasActiveDetector() ||
+				       c.hasActiveMeter();
+			}
+		};
 	}
 
 	/** Perform the 5-minute timer job */
-	public void perform() {
-		querySample5Min();
-	}
-
-	/** Poll all controllers 5 minute interval */
-	private void querySample5Min() {
-		Iterator<Controller> it = ControllerHelper.iterator();
-		while(it.hasNext()) {
-			Controller c = it.next();
-			if(c instanceof ControllerImpl)
-				querySample5Min((ControllerImpl)c);
-		}
-	}
-
-	/** Query 5-minute sample data from one controller */
-	private void querySample5Min(ControllerImpl c) {
-		// Must check hasActiveMeter for green counts (mndot protocol)
-		if (c.hasActiveDetector() || c.hasActiveMeter()) {
-			DevicePoller dp = c.getPoller();
-			if (dp instanceof SamplePoller) {
-				SamplePoller sp = (SamplePoller)dp;
-				sp.querySamples(c, 300);
-			}
-		}
+	protected void doPerform() {
+		dispatcher.dispatch();
 	}
 }
@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2009-2014  Minnesota Department of Transportation
+ * Copyright (C) 2009-2016  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -16,7 +16,6 @@ package us.mn.state.dot.tms.server;
 
 import java.util.Calendar;
 import java.util.Iterator;
-import us.mn.state.dot.sched.Job;
 import us.mn.state.dot.tms.Beacon;
 import us.mn.state.dot.tms.BeaconHelper;
 import us.mn.state.dot.tms.Controller;
@@ -34,7 +33,7 @@ import us.mn.state.dot.tms.RampMeterHelper;
  *
  * @author Douglas Lau
  */
-public class SendSettingsJob extends Job {
+public class SendSettingsJob extends TimedJob {
 
 	/** Create a new send settings job */
 	public SendSettingsJob() {
@@ -47,7 +46,7 @@ public class SendSettingsJob extends Job {
 	}
 
 	/** Perform the send settings job */
-	public void perform() {
+	protected void doPerform() {
 		sendSettings();
 	}
 
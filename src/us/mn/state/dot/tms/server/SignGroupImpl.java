@@ -17,6 +17,7 @@ package us.mn.state.dot.tms.server;
 import java.sql.ResultSet;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArraySet;
 import us.mn.state.dot.tms.SignGroup;
 import us.mn.state.dot.tms.TMSException;
 
@@ -78,4 +79,23 @@ public class SignGroupImpl extends BaseObjectImpl implements SignGroup {
 	public boolean getLocal() {
 		return local;
 	}
+
+	/** Set of all DMS in the group, maintained by DmsSignGroupImpl */
+	private transient final CopyOnWriteArraySet<DMSImpl> signs =
+		new CopyOnWriteArraySet<DMSImpl>();
+
+	/** Add a DMS to the group */
+	public void addSign(DMSImpl dms) {
+		signs.add(dms);
+	}
+
+	/** Remove a DMS from the group */
+	public void removeSign(DMSImpl dms) {
+		signs.remove(dms);
+	}
+
+	/** Get the DMS in the group */
+	public Iterable<DMSImpl> getSigns() {
+		return signs;
+	}
 }
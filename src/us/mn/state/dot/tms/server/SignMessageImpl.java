@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2000-2014  Minnesota Department of Transportation
+ * Copyright (C) 2000-2016  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -18,7 +18,10 @@ import java.io.IOException;
 import java.io.Writer;
 import java.sql.ResultSet;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import us.mn.state.dot.sched.TimeSteward;
 import us.mn.state.dot.tms.DMSHelper;
 import us.mn.state.dot.tms.DMSMessagePriority;
 import us.mn.state.dot.tms.SignMessage;
@@ -55,6 +58,23 @@ public class SignMessageImpl extends BaseObjectImpl implements SignMessage {
 		return "system_" + last_id;
 	}
 
+	/** Queue of sign messages which have no DMS references.  Messages are
+	 * added when created and whenever their last reference is removed. */
+	static private final ConcurrentLinkedQueue<SignMessageImpl> UNREFERENCED
+		= new ConcurrentLinkedQueue<SignMessageImpl>();
+
+	/** Reap all queued sign messages which have been unreferenced since
+	 * before a given time.
+	 * @param stale Time stamp (ms) before which messages are stale. */
+	static public void reapUnreferenced(long stale) {
+		Iterator<SignMessageImpl> it = UNREFERENCED.iterator();
+		while(it.hasNext()) {
+			SignMessageImpl sm = it.next();
+			if(sm.reapIfStale(stale))
+				it.remove();
+		}
+	}
+
 	/** Load all the sign messages */
 	static protected void loadAll() throws TMSException {
 		namespace.registerType(SONAR_TYPE, SignMessageImpl.class);
@@ -104,6 +124,7 @@ public class SignMessageImpl extends BaseObjectImpl implements SignMessage {
 	/** Create a new sign message (by SONAR clients) */
 	public SignMessageImpl(String n) {
 		super(n);
+		queueUnreferenced();
 	}
 
 	/** Create a sign message */
@@ -117,7 +138,8 @@ public class SignMessageImpl extends BaseObjectImpl implements SignMessage {
 		activationPriority = ap;
 		runTimePriority = rp;
 		scheduled = s;
-		duration = d;		
+		duration = d;
+		queueUnreferenced();
 	}
 
 	/** Create a new sign message (by IRIS) */
@@ -133,6 +155,67 @@ public class SignMessageImpl extends BaseObjectImpl implements SignMessage {
 		runTimePriority = rp.ordinal();
 		scheduled = s;
 		duration = d;
+		queueUnreferenced();
+	}
+
+	/** Number of DMS references (current, next or scheduled) */
+	private transient int ref_count = 0;
+
+	/** Time stamp (ms) when the message lost its last reference */
+	private transient long unref_time;
+
+	/** Flag indicating the message is in the unreferenced queue */
+	private transient boolean queued = false;
+
+	/** Flag indicating the message has been reaped */
+	private transient boolean reaped = false;
+
+	/** Add a DMS reference to the message.
+	 * @return true if the reference was added, or false if the message
+	 *         has already been reaped (and must be created again). */
+	public synchronized boolean addReference() {
+		if(reaped)
+			return false;
+		ref_count++;
+		return true;
+	}
+
+	/** Remove a DMS reference from the message */
+	public synchronized void removeReference() {
+		if(ref_count > 0)
+			ref_count--;
+		if(ref_count == 0)
+			queueUnreferenced();
+	}
+
+	/** Add the message to the unreferenced queue */
+	private synchronized void queueUnreferenced() {
+		unref_time = TimeSteward.currentTimeMillis();
+		if(!queued) {
+			queued = true;
+			UNREFERENCED.add(this);
+		}
+	}
+
+	/** Reap the message if it has been unreferenced since before a given
+	 * time.  The reference check and removal happen while holding the
+	 * message lock, and a reaped message refuses new references, so a
+	 * DMS can never reference a removed message.
+	 * @param stale Time stamp (ms) before which messages are stale.
+	 * @return true if the message should be dequeued. */
+	private synchronized boolean reapIfStale(long stale) {
+		if(ref_count == 0 && unref_time > stale)
+			return false;
+		queued = false;
+		if(ref_count == 0) {
+			reaped = true;
+			// Make sure the message has not already been removed
+			// by looking it up in the namespace.  This is needed
+			// because objects are removed asynchronously.
+			if(SignMessageHelper.lookup(name) == this)
+				notifyRemove();
+		}
+		return true;
 	}
 
 	/** Message MULTI string, contains message text for all pages */
@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2009-2012  Minnesota Department of Transportation
+ * Copyright (C) 2009-2016  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -16,14 +16,13 @@ package us.mn.state.dot.tms.server;
 
 import java.io.IOException;
 import java.util.Calendar;
-import us.mn.state.dot.sched.Job;
 
 /**
  * Job to write out sign message XML file.
  *
  * @author Douglas Lau
  */
-public class SignMessageXmlJob extends Job {
+public class SignMessageXmlJob extends TimedJob {
 
 	/** Seconds to offset each poll from start of interval */
 	static protected final int OFFSET_SECS = 20;
@@ -34,7 +33,7 @@ public class SignMessageXmlJob extends Job {
 	}
 
 	/** Perform the sign message XML job */
-	public void perform() throws IOException {
+	protected void doPerform() throws IOException {
 		SignMessageXmlWriter writer = new SignMessageXmlWriter();
 		writer.write();
 	}
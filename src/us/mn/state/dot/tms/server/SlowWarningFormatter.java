@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2013  Minnesota Department of Transportation
+ * Copyright (C) 2013-2016  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -20,7 +20,9 @@ import us.mn.state.dot.tms.GeoLocHelper;
 import us.mn.state.dot.tms.MultiParser;
 import us.mn.state.dot.tms.MultiString;
 import us.mn.state.dot.tms.units.Distance;
+import static us.mn.state.dot.tms.units.Distance.Units.MILES;
 import us.mn.state.dot.tms.units.Speed;
+import static us.mn.state.dot.tms.units.Speed.Units.MPH;
 
 /**
  * Slow Warning Formatter
@@ -38,7 +40,7 @@ public class SlowWarningFormatter {
 	}
 
 	/** Log a debug message */
-	public void log(String msg) {
+	private void log(String msg) {
 		SLOW_LOG.log(loc.getName() + ": " + msg);
 	}
 
@@ -133,28 +135,36 @@ public class SlowWarningFormatter {
 	private Distance slowWarningDistance(Corridor cor, Speed as,
 		Distance bd)
 	{
-		Float m = cor.calculateMilePoint(loc);
+		CorridorProfile p = cor.getProfile();
+		Float m = p.lookupMilePoint(loc);
 		if(isLogging())
 			log("mp " + m);
 		if(m != null)
-			return slowWarningDistance(cor, as, bd, m);
+			return slowWarningDistance(p, as, bd, m);
 		else
 			return null;
 	}
 
 	/** Estimate the distance to backup.
-	 * @param cor Freeway corridor.
+	 * @param p Corridor profile.
 	 * @param as Speed to activate slow warning.
 	 * @param bd Distance limit to backup (negative indicates upstream).
 	 * @param m Milepoint to start from.
 	 * @return Distance to congestion backup, or null. */
-	private Distance slowWarningDistance(Corridor cor, Speed as,
+	private Distance slowWarningDistance(CorridorProfile p, Speed as,
 		Distance bd, float m)
 	{
-		BackupFinder backup_finder = new BackupFinder(as, bd, m);
-		cor.findStation(backup_finder);
-		if(isLogging())
-			backup_finder.debug(this);
-		return backup_finder.backupDistance();
+		float blimit_mi = bd.asFloat(MILES);
+		Float back_mp = p.findBackup(m, blimit_mi, as.round(MPH));
+		Distance d = (back_mp != null)
+		           ? new Distance(back_mp - m, MILES)
+		           : null;
+		if(isLogging()) {
+			log("spd_thresh: " + as +
+			    ", blimit_mi: " + blimit_mi +
+			    ", ma: " + m +
+			    ", backup: " + d);
+		}
+		return d;
 	}
 }
@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2010-2013  Minnesota Department of Transportation
+ * Copyright (C) 2010-2016  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -92,33 +92,28 @@ public class SpeedAdvisoryCalculator {
 	private Integer calculateSpeedAdvisory(String c) {
 		Corridor cor = BaseObjectImpl.corridors.getCorridor(c);
 		if(cor != null) {
-			Float m = cor.calculateMilePoint(loc);
+			CorridorProfile p = cor.getProfile();
+			Float m = p.lookupMilePoint(loc);
 			if(VSA_LOG.isOpen())
 				VSA_LOG.log(loc.getName() + ", mp: " + m);
 			if(m != null)
-				return calculateSpeedAdvisory(cor, m);
+				return calculateSpeedAdvisory(p, m);
 		}
 		return null;
 	}
 
 	/** Calculate the speed advisory */
-	private Integer calculateSpeedAdvisory(Corridor cor, float m) {
-		VSStationFinder vss_finder = new VSStationFinder(m);
-		cor.findStation(vss_finder);
+	private Integer calculateSpeedAdvisory(CorridorProfile p, float m) {
 		if(VSA_LOG.isOpen())
-			vss_finder.debug(VSA_LOG);
-		if(vss_finder.foundVSS()) {
-			Integer lim = vss_finder.getSpeedLimit();
+			VSA_LOG.log(p.debugAdvisory(m));
+		Float a = p.calculateSpeedAdvisory(m);
+		if(a != null) {
+			Integer lim = p.getSpeedLimit(m);
 			if(lim != null) {
-				Float a = vss_finder.calculateSpeedAdvisory();
-				if(a != null) {
-					a = Math.max(a, getMinDisplay());
-					int sa = round5Mph(a);
-					if(sa < lim && sa <= getMaxDisplay())
-						return sa;
-					else
-						return null;
-				}
+				a = Math.max(a, getMinDisplay());
+				int sa = round5Mph(a);
+				if(sa < lim && sa <= getMaxDisplay())
+					return sa;
 			}
 		}
 		return null;
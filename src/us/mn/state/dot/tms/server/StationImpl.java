@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2004-2014  Minnesota Department of Transportation
+ * Copyright (C) 2004-2016  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -14,17 +14,12 @@
  */
 package us.mn.state.dot.tms.server;
 
-import java.io.IOException;
-import java.io.Writer;
-import java.util.Map;
-import java.util.NavigableMap;
 import us.mn.state.dot.sched.DebugLog;
 import us.mn.state.dot.sonar.server.Server;
 import us.mn.state.dot.tms.R_Node;
 import us.mn.state.dot.tms.Station;
 import us.mn.state.dot.tms.SystemAttrEnum;
 import static us.mn.state.dot.tms.server.Constants.MISSING_DATA;
-import static us.mn.state.dot.tms.server.XmlWriter.createAttribute;
 
 /**
  * A station is a group of related detectors.
@@ -332,8 +327,12 @@ public class StationImpl implements Station {
 		return averageSpeed(low_speed);
 	}
 
-	/** Calculate the current station data */
-	public void calculateData() {
+	/** Calculate the current station data.
+	 * @param dets Detector columns for the interval.
+	 * @param c Station columns to fill. */
+	public void calculateData(TrafficSnapshot.Columns dets,
+		TrafficSnapshot.Columns c)
+	{
 		updateRollingSamples();
 		float low = MISSING_DATA;
 		float t_volume = 0;
@@ -346,31 +345,36 @@ public class StationImpl implements Station {
 		int n_density = 0;
 		float t_speed = 0;
 		int n_speed = 0;
+		boolean active = false;
 		for(DetectorImpl det: r_node.getDetectors()) {
-			if(det.getAbandoned() || !det.isStationOrCD() ||
-			   !det.isSampling())
+			if(!det.getAbandoned())
+				active = true;
+			int i = dets.lookup(det.getName());
+			if(i < 0 ||
+			   !dets.hasFlag(i, TrafficSnapshot.SAMPLING) ||
+			   !dets.hasFlag(i, TrafficSnapshot.STATION))
 				continue;
-			float f = det.getVolume();
+			float f = dets.getVolume(i);
 			if(f != MISSING_DATA) {
 				t_volume += f;
 				n_volume++;
 			}
-			f = det.getOccupancy();
+			f = dets.getOccupancy(i);
 			if(f != MISSING_DATA) {
 				t_occ += f;
 				n_occ++;
 			}
-			f = det.getFlow();
+			f = dets.getFlow(i);
 			if(f != MISSING_DATA) {
 				t_flow += f;
 				n_flow++;
 			}
-			f = det.getDensity();
+			f = dets.getDensity(i);
 			if(f != MISSING_DATA) {
 				t_density += f;
 				n_density++;
 			}
-			f = det.getSpeed();
+			f = dets.getSpeed(i);
 			if(f > 0) {
 				t_speed += f;
 				n_speed++;
@@ -388,26 +392,10 @@ public class StationImpl implements Station {
 		updateRollingSpeed(speed);
 		updateAvgSpeed(speed);
 		updateLowSpeed(low);
-	}
-
-	/** Write the current sample as an XML element */
-	public void writeSampleXml(Writer w) throws IOException {
-		if(!getActive())
-			return;
-		int f = getFlow();
-		int s = Math.round(getSpeed());
-		float o = occupancy;
-		w.write("\t<sample");
-		w.write(createAttribute("sensor", name));
-		if(f > MISSING_DATA)
-			w.write(createAttribute("flow", f));
-		if(s > 0)
-			w.write(createAttribute("speed", s));
-		if(o >= 0) {
-			w.write(createAttribute("occ",
-				BaseObjectImpl.formatFloat(o, 2)));
-		}
-		w.write("/>\n");
+		int fl = TrafficSnapshot.MAINLINE | TrafficSnapshot.STATION;
+		if(active)
+			fl |= TrafficSnapshot.SAMPLING;
+		c.add(name, fl, volume, occupancy, flow, density, speed);
 	}
 
 	/** Get the station index */
@@ -439,26 +427,29 @@ public class StationImpl implements Station {
 
 	/** Calculate whether the station is a bottleneck.
 	 * @param m Mile point of this station.
-	 * @param upstream Mapping of mile points to upstream stations. */
-	public void calculateBottleneck(float m,
-		NavigableMap<Float, StationImpl> upstream)
+	 * @param up Upstream stations, ordered by mile point.
+	 * @param up_m Mile points of upstream stations.
+	 * @param n_up Number of upstream stations. */
+	public void calculateBottleneck(float m, StationImpl[] up,
+		float[] up_m, int n_up)
 	{
-		Float mp = upstream.lowerKey(m);
-		while(mp != null && isTooClose(m - mp))
-			mp = upstream.lowerKey(mp);
-		if(mp != null) {
-			StationImpl sp = upstream.get(mp);
-			float d = m - mp;
+		int i = n_up - 1;
+		while(i >= 0 && isTooClose(m - up_m[i]))
+			i--;
+		if(i >= 0) {
+			StationImpl sp = up[i];
+			float d = m - up_m[i];
 			acceleration = calculateAcceleration(sp, d);
 			checkCandidate();
 			if(isAboveBottleneckSpeed())
 				setBottleneck(false);
 			else if(isBeforeStartCount()) {
 				setBottleneck(false);
-				adjustDownstream(upstream);
+				if(n_up > 0)
+					adjustDownstream(up[n_up - 1]);
 			} else {
 				setBottleneck(true);
-				adjustUpstream(upstream);
+				adjustUpstream(up, n_up);
 			}
 		} else
 			clearBottleneck();
@@ -563,16 +554,6 @@ public class StationImpl implements Station {
 			SystemAttrEnum.VSA_BOTTLENECK_ID_MPH.getInt();
 	}
 
-	/** Adjust a bottleneck downstream if necessary.  Check the immediately
-	 * upstream station for bottleneck.
-	 * @param upstream Map of upstream stations. */
-	private void adjustDownstream(NavigableMap<Float, StationImpl> upstream)
-	{
-		Map.Entry<Float, StationImpl> entry = upstream.lastEntry();
-		if(entry != null)
-			adjustDownstream(entry.getValue());
-	}
-
 	/** Adjust the bottleneck downstream if necessary.
 	 * @param sp Immediately upstream station */
 	private void adjustDownstream(StationImpl sp) {
@@ -584,19 +565,18 @@ public class StationImpl implements Station {
 
 	/** Adjust the bottleneck upstream if necessary.  Check if bottleneck
 	 * should be moved upstream from current station.
-	 * @param upstream Map of upstream stations. */
-	private void adjustUpstream(NavigableMap<Float, StationImpl> upstream) {
+	 * @param up Upstream stations, ordered by mile point.
+	 * @param n_up Number of upstream stations. */
+	private void adjustUpstream(StationImpl[] up, int n_up) {
 		StationImpl s = this;
-		Map.Entry<Float, StationImpl> entry = upstream.lastEntry();
-		while(entry != null) {
-			StationImpl sp = entry.getValue();
+		for(int i = n_up - 1; i >= 0; i--) {
+			StationImpl sp = up[i];
 			Float ap = sp.acceleration;
 			Float a = s.acceleration;
 			if(a == null || ap == null || a <= ap)
 				break;
 			s.moveBottleneck(sp);
 			s = sp;
-			entry = upstream.lowerEntry(entry.getKey());
 		}
 	}
 
@@ -628,21 +608,23 @@ public class StationImpl implements Station {
 		}
 	}
 
-	/** Check if the station is a bottleneck for the given distance */
-	public boolean isBottleneckFor(float d) {
-		return bottleneck && isBottleneckInRange(d);
+	/** Check if the station is a bottleneck */
+	boolean isBottleneck() {
+		return bottleneck;
 	}
 
-	/** Check if the (bottleneck) station is in range */
-	private boolean isBottleneckInRange(float d) {
-		if(d > 0)
-			return d < getUpstreamDistance();
-		else
-			return -d < getDownstreamDistance();
+	/** Log a bottleneck transition.
+	 * @param m Mile point of station.
+	 * @param b New bottleneck state. */
+	void logBottleneck(float m, boolean b) {
+		if(BOTTLENECK_LOG.isOpen()) {
+			BOTTLENECK_LOG.log(name + " @ " + m + ": bottleneck " +
+				(b ? "started" : "cleared"));
+		}
 	}
 
 	/** Get the upstream bottleneck distance */
-	private float getUpstreamDistance() {
+	float getUpstreamDistance() {
 		float lim = getSpeedLimit();
 		float sp = getRollingAverageSpeed();
 		if(sp > 0 && sp < lim) {
@@ -657,11 +639,6 @@ public class StationImpl implements Station {
 		return SystemAttrEnum.VSA_CONTROL_THRESHOLD.getInt();
 	}
 
-	/** Get the downstream bottleneck distance */
-	private float getDownstreamDistance() {
-		return SystemAttrEnum.VSA_DOWNSTREAM_MILES.getFloat();
-	}
-
 	/** Notify SONAR clients of an object removed */
 	public void notifyRemove() {
 		Server s = MainServer.server;
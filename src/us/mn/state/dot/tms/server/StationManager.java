@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2004-2014  Minnesota Department of Transportation
+ * Copyright (C) 2004-2016  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -16,10 +16,7 @@ package us.mn.state.dot.tms.server;
 
 import java.io.IOException;
 import java.io.Writer;
-import java.util.Iterator;
 import us.mn.state.dot.sched.TimeSteward;
-import us.mn.state.dot.tms.Station;
-import us.mn.state.dot.tms.StationHelper;
 
 /**
  * This class writes out station XML files.
@@ -31,26 +28,16 @@ class StationManager {
 	/** Location of station sample XML file */
 	static private final String SAMPLE_XML = "stat_sample.xml";
 
-	/** Calculate the current data for all stations */
-	public void calculateData() {
-		Iterator<Station> it = StationHelper.iterator();
-		while(it.hasNext()) {
-			Station s = it.next();
-			if(s instanceof StationImpl) {
-				StationImpl si = (StationImpl)s;
-				si.calculateData();
-			}
-		}
-	}
-
 	/** Write the station sample data out as XML */
-	public void writeSampleXml() throws IOException {
+	public void writeSampleXml(final TrafficSnapshot snap)
+		throws IOException
+	{
 		XmlWriter w = new XmlWriter(SAMPLE_XML, true) {
 			@Override protected void write(Writer w)
 				throws IOException
 			{
 				writeSampleXmlHead(w);
-				writeSampleXmlBody(w);
+				snap.stations.writeSampleXml(w);
 				writeSampleXmlTail(w);
 			}
 		};
@@ -80,18 +67,6 @@ class StationManager {
 		w.write("]>\n");
 	}
 
-	/** Print the body of the station sample XML file */
-	private void writeSampleXmlBody(Writer w) throws IOException {
-		Iterator<Station> it = StationHelper.iterator();
-		while(it.hasNext()) {
-			Station s = it.next();
-			if(s instanceof StationImpl) {
-				StationImpl si = (StationImpl)s;
-				si.writeSampleXml(w);
-			}
-		}
-	}
-
 	/** Print the tail of the station sample XML file */
 	private void writeSampleXmlTail(Writer w) throws IOException {
 		w.write("</traffic_sample>\n");
@@ -0,0 +1,165 @@
+/*
+ * IRIS -- Intelligent Roadway Information System
+ * Copyright (C) 2016  Minnesota Department of Transportation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package us.mn.state.dot.tms.server;
+
+import java.util.Calendar;
+import java.util.TimeZone;
+import us.mn.state.dot.sched.Job;
+import us.mn.state.dot.sched.TimeSteward;
+
+/**
+ * A timed job is a server job which reports its run time to a job monitor.
+ * The time it was expected to start is tracked from its interval and
+ * offset, so queue wait and skipped cycles can be measured.
+ *
+ * @author Douglas Lau
+ */
+abstract public class TimedJob extends Job {
+
+	/** Get the number of milliseconds in a calendar field */
+	static private long fieldMillis(int f) {
+		switch (f) {
+		case Calendar.MILLISECOND:
+			return 1;
+		case Calendar.SECOND:
+			return 1000;
+		case Calendar.MINUTE:
+			return 60 * 1000;
+		case Calendar.HOUR:
+		case Calendar.HOUR_OF_DAY:
+			return 60 * 60 * 1000;
+		case Calendar.DATE:
+			return 24 * 60 * 60 * 1000;
+		default:
+			return 0;
+		}
+	}
+
+	/** Repeat interval (ms), or 0 for a one-shot job */
+	private final long interval;
+
+	/** Offset from start of interval (ms), or delay for a one-shot job */
+	private final long offset;
+
+	/** Job monitor */
+	private JobMonitor monitor;
+
+	/** Time the job was added to a monitor */
+	private long queued;
+
+	/** Expected time of next run for a repeating job (ms), or 0 if it
+	 * has not been queued */
+	private long expected;
+
+	/** Create a new repeating timed job.
+	 * @param iField Calendar field for interval.
+	 * @param i Interval value.
+	 * @param oField Calendar field for offset.
+	 * @param o Offset value. */
+	protected TimedJob(int iField, int i, int oField, int o) {
+		super(iField, i, oField, o);
+		interval = fieldMillis(iField) * i;
+		offset = fieldMillis(oField) * o;
+	}
+
+	/** Create a new repeating timed job with no offset */
+	protected TimedJob(int iField, int i) {
+		super(iField, i);
+		interval = fieldMillis(iField) * i;
+		offset = 0;
+	}
+
+	/** Create a new one-shot timed job with a delay.
+	 * @param ms Delay (ms). */
+	protected TimedJob(int ms) {
+		super(ms);
+		interval = 0;
+		offset = ms;
+	}
+
+	/** Create a new one-shot timed job */
+	protected TimedJob() {
+		interval = 0;
+		offset = 0;
+	}
+
+	/** Get the job name.  Anonymous jobs are named by their binary
+	 * class name, without the package. */
+	public String getJobName() {
+		String n = getClass().getName();
+		return n.substring(n.lastIndexOf('.') + 1);
+	}
+
+	/** Get the repeat interval (ms), or 0 for a one-shot job */
+	public long getIntervalMillis() {
+		return interval;
+	}
+
+	/** Set the monitor and queued time.  This is called by the monitor
+	 * just before adding the job to its scheduler. */
+	void setQueued(JobMonitor m, long now) {
+		monitor = m;
+		queued = now;
+		if (interval > 0) {
+			long s = lastSlot(now);
+			expected = (s < now) ? s + interval : s;
+		}
+	}
+
+	/** Get the latest interval slot at or before a time */
+	private long lastSlot(long t) {
+		long tz = TimeZone.getDefault().getOffset(t);
+		long r = t + tz - offset;
+		return t - (((r % interval) + interval) % interval);
+	}
+
+	/** Get the time the job was expected to start, and advance the
+	 * expected time of the next run.  For a repeating job, this is the
+	 * slot after the one covered by the previous run, so a job which
+	 * starts more than one interval late reports the full wait.  The
+	 * scheduler skips slots which have passed, so the next run is
+	 * expected one interval after the latest slot before this start.
+	 * @param start Actual start time.
+	 * @return Expected start time, no later than actual start. */
+	long nextScheduledTime(long start) {
+		if (interval > 0) {
+			long e = Math.min(expected, start);
+			expected = lastSlot(start) + interval;
+			return e;
+		} else
+			return Math.min(queued + offset, start);
+	}
+
+	/** Perform the job, recording run time with the monitor */
+	@Override
+	public final void perform() throws Exception {
+		long start = TimeSteward.currentTimeMillis();
+		JobMonitor m = monitor;
+		if (m != null)
+			m.started(this);
+		try {
+			doPerform();
+		}
+		finally {
+			if (m != null) {
+				m.record(this, start,
+					TimeSteward.currentTimeMillis());
+			}
+		}
+	}
+
+	/** Actually perform the job */
+	abstract protected void doPerform() throws Exception;
+}
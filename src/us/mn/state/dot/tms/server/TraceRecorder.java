@@ -0,0 +1,271 @@
+/*
+ * IRIS -- Intelligent Roadway Information System
+ * Copyright (C) 2016  Minnesota Department of Transportation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package us.mn.state.dot.tms.server;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import us.mn.state.dot.sched.TimeSteward;
+
+/**
+ * A trace recorder keeps a ring buffer of recent timed events, such as
+ * polls, SQL statements, metering stages and XML files written.  Recording
+ * an event only fills a preallocated slot, so tracing can be left on in
+ * production, unlike debug logs, which format and write a line of text for
+ * each message.  The buffer is written to an XML file in the log directory
+ * once per minute.  SQL events record only the statement kind and table,
+ * never values.
+ *
+ * Events can also be emitted to JDK Flight Recorder, for viewing in JDK
+ * Mission Control.  The JFR sink is compiled separately, only when the
+ * build JDK has jdk.jfr, and is loaded only if it is present at run time.
+ * When tracing is disabled, callers only check a static field.
+ *
+ * @author Douglas Lau
+ */
+public class TraceRecorder {
+
+	/** Trace event types, with names of their fields */
+	static public enum Type {
+		POLL("link", "controller", "op", "phase", "bytes_out",
+			"bytes_in"),
+		SQL("kind", "table", "rows"),
+		METERING("stage"),
+		XML("file");
+
+		/** Field names */
+		private final String[] fields;
+
+		/** Create a new trace event type */
+		private Type(String... f) {
+			fields = f;
+		}
+	}
+
+	/** A sink for trace events, other than the ring buffer */
+	static public interface Sink {
+
+		/** Emit one event.
+		 * @param t Event type.
+		 * @param dur_us Duration (microseconds).
+		 * @param v Field values, in the order of the type's field
+		 *          names. */
+		void emit(Type t, long dur_us, Object[] v);
+	}
+
+	/** Name of JDK Flight Recorder sink class */
+	static private final String JFR_SINK =
+		"us.mn.state.dot.tms.server.JfrTraceSink";
+
+	/** Trace XML file */
+	static private final String TRACE_XML = "trace.xml";
+
+	/** Maximum length of a field value */
+	static private final int MAX_VALUE_LEN = 120;
+
+	/** Recorder, or null if the ring buffer is disabled */
+	static private volatile TraceRecorder recorder = null;
+
+	/** Sink for events, or null */
+	static private volatile Sink sink = null;
+
+	/** Flag indicating tracing is enabled */
+	static private volatile boolean enabled = false;
+
+	/** Enable tracing to a ring buffer.
+	 * @param size Number of recent events to keep (0 to disable).
+	 * @param dir Directory to write trace XML file. */
+	static public void enable(int size, File dir) {
+		recorder = (size > 0) ? new TraceRecorder(size, dir) : null;
+		enabled = (recorder != null) || (sink != null);
+	}
+
+	/** Enable tracing to JDK Flight Recorder, if available.
+	 * @return true if the JFR sink was loaded. */
+	static public boolean enableJfr() {
+		sink = loadJfrSink();
+		enabled = (recorder != null) || (sink != null);
+		return sink != null;
+	}
+
+	/** Load the JDK Flight Recorder sink */
+	static private Sink loadJfrSink() {
+		try {
+			return (Sink)Class.forName(JFR_SINK).newInstance();
+		}
+		catch(Exception e) {
+			// JFR sink was not built
+			return null;
+		}
+		catch(LinkageError e) {
+			// jdk.jfr is not available in this JVM
+			return null;
+		}
+	}
+
+	/** Check if tracing is enabled */
+	static public boolean isEnabled() {
+		return enabled;
+	}
+
+	/** Get a start time for an event (ns) */
+	static public long start() {
+		return System.nanoTime();
+	}
+
+	/** Record an event.  Callers should check isEnabled first, to avoid
+	 * creating the field values when tracing is disabled.
+	 * @param t Event type.
+	 * @param st Start time (from start()).
+	 * @param v Field values, in the order of the type's field names. */
+	static public void record(Type t, long st, Object... v) {
+		long dur_us = (System.nanoTime() - st) / 1000;
+		TraceRecorder r = recorder;
+		if (r != null)
+			r.add(t, dur_us, v);
+		Sink s = sink;
+		if (s != null)
+			s.emit(t, dur_us, v);
+	}
+
+	/** Write the trace XML file, if tracing is enabled */
+	static public void writeXml() throws IOException {
+		TraceRecorder r = recorder;
+		if (r != null)
+			r.writeTrace();
+	}
+
+	/** One recorded event */
+	static private final class Entry {
+		private Type type;
+		private String thread;
+		private long stamp;
+		private long dur_us;
+		private Object[] values;
+
+		/** Copy another entry */
+		private void copy(Entry e) {
+			type = e.type;
+			thread = e.thread;
+			stamp = e.stamp;
+			dur_us = e.dur_us;
+			values = e.values;
+		}
+
+		/** Write the entry as an XML element */
+		private void writeXml(Writer w) throws IOException {
+			StringBuilder sb = new StringBuilder("  <event");
+			sb.append(XmlWriter.createAttribute("type",
+				type.toString().toLowerCase()));
+			sb.append(XmlWriter.createAttribute("thread", thread));
+			sb.append(XmlWriter.createAttribute("start", stamp));
+			sb.append(XmlWriter.createAttribute("dur_us", dur_us));
+			int n = Math.min(values.length, type.fields.length);
+			for (int i = 0; i < n; i++) {
+				sb.append(XmlWriter.createAttribute(
+					type.fields[i], truncate(values[i])));
+			}
+			sb.append("/>\n");
+			w.write(sb.toString());
+		}
+	}
+
+	/** Truncate a field value */
+	static private String truncate(Object v) {
+		if (v != null) {
+			String s = v.toString();
+			return (s.length() > MAX_VALUE_LEN)
+			      ? s.substring(0, MAX_VALUE_LEN)
+			      : s;
+		} else
+			return null;
+	}
+
+	/** Directory to write trace XML file */
+	private final File dir;
+
+	/** Ring buffer of entries */
+	private final Entry[] entries;
+
+	/** Index of next entry to fill */
+	private int head = 0;
+
+	/** Total number of events recorded */
+	private long n_events = 0;
+
+	/** Create a new trace recorder */
+	private TraceRecorder(int size, File d) {
+		dir = d;
+		entries = new Entry[size];
+		for (int i = 0; i < size; i++)
+			entries[i] = new Entry();
+	}
+
+	/** Add an event to the ring buffer */
+	private void add(Type t, long dur_us, Object[] v) {
+		long stamp = TimeSteward.currentTimeMillis() - dur_us / 1000;
+		String thread = Thread.currentThread().getName();
+		synchronized (this) {
+			Entry e = entries[head];
+			e.type = t;
+			e.thread = thread;
+			e.stamp = stamp;
+			e.dur_us = dur_us;
+			e.values = v;
+			head = (head + 1) % entries.length;
+			n_events++;
+		}
+	}
+
+	/** Copy recorded entries, oldest first */
+	private synchronized Entry[] copyEntries() {
+		int n = (int)Math.min(n_events, entries.length);
+		Entry[] copy = new Entry[n];
+		int first = (head - n + entries.length) % entries.length;
+		for (int i = 0; i < n; i++) {
+			copy[i] = new Entry();
+			copy[i].copy(entries[(first + i) % entries.length]);
+		}
+		return copy;
+	}
+
+	/** Get the total number of events recorded */
+	private synchronized long getEventCount() {
+		return n_events;
+	}
+
+	/** Write recorded entries to the trace XML file */
+	private void writeTrace() throws IOException {
+		final long n = getEventCount();
+		final Entry[] copy = copyEntries();
+		XmlWriter w = new XmlWriter(dir, TRACE_XML, false) {
+			@Override protected void write(Writer w)
+				throws IOException
+			{
+				w.write(XML_DECLARATION);
+				w.write("<trace" +
+					createAttribute("time_stamp",
+					TimeSteward.getDateInstance()) +
+					createAttribute("events", n) +
+					createAttribute("kept", copy.length) +
+					">\n");
+				for (Entry e: copy)
+					e.writeXml(w);
+				w.write("</trace>\n");
+			}
+		};
+		w.write();
+	}
+}
@@ -0,0 +1,225 @@
+/*
+ * IRIS -- Intelligent Roadway Information System
+ * Copyright (C) 2016  Minnesota Department of Transportation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package us.mn.state.dot.tms.server;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.HashMap;
+import static us.mn.state.dot.tms.server.Constants.MISSING_DATA;
+import static us.mn.state.dot.tms.server.XmlWriter.createAttribute;
+
+/**
+ * A traffic snapshot holds the data for one 30-second interval, for all
+ * detectors and stations.  Data is stored in parallel arrays (columns),
+ * indexed by a dense integer id for each detector or station.  A snapshot
+ * is filled by the traffic store, and is never modified after it has
+ * been published.
+ *
+ * @author Douglas Lau
+ */
+public final class TrafficSnapshot {
+
+	/** Flag for sampling (and not abandoned) */
+	static public final int SAMPLING = 1 << 0;
+
+	/** Flag for mainline (speed is reported) */
+	static public final int MAINLINE = 1 << 1;
+
+	/** Flag for station or collector/distributor lane type */
+	static public final int STATION = 1 << 2;
+
+	/** Flag for flow from a fake detector */
+	static public final int FAKE_FLOW = 1 << 3;
+
+	/** Columns of traffic data for one kind of sensor */
+	static public final class Columns {
+
+		/** Initial capacity of columns */
+		static private final int INITIAL_CAPACITY = 256;
+
+		/** Mapping of names to ids */
+		private final HashMap<String, Integer> ids =
+			new HashMap<String, Integer>();
+
+		/** Number of sensors */
+		private int size = 0;
+
+		/** Sensor names */
+		private String[] names;
+
+		/** Sensor flags */
+		private byte[] flags;
+
+		/** Volume (vehicles per interval) */
+		private float[] volume;
+
+		/** Occupancy (percent) */
+		private float[] occupancy;
+
+		/** Flow rate (vehicles per hour) */
+		private float[] flow;
+
+		/** Density (vehicles per mile) */
+		private float[] density;
+
+		/** Speed (miles per hour) */
+		private float[] speed;
+
+		/** Create new columns.
+		 * @param n Expected number of sensors. */
+		private Columns(int n) {
+			int c = Math.max(n, INITIAL_CAPACITY);
+			names = new String[c];
+			flags = new byte[c];
+			volume = new float[c];
+			occupancy = new float[c];
+			flow = new float[c];
+			density = new float[c];
+			speed = new float[c];
+		}
+
+		/** Get the number of sensors */
+		public int size() {
+			return size;
+		}
+
+		/** Lookup the id of a sensor.
+		 * @param n Sensor name.
+		 * @return Sensor id, or -1 if not found. */
+		public int lookup(String n) {
+			Integer i = ids.get(n);
+			return (i != null) ? i : -1;
+		}
+
+		/** Get the name of a sensor */
+		public String getName(int i) {
+			return names[i];
+		}
+
+		/** Check if a sensor has a flag */
+		public boolean hasFlag(int i, int f) {
+			return (flags[i] & f) != 0;
+		}
+
+		/** Get the volume of a sensor */
+		public float getVolume(int i) {
+			return volume[i];
+		}
+
+		/** Get the occupancy of a sensor */
+		public float getOccupancy(int i) {
+			return occupancy[i];
+		}
+
+		/** Get the flow rate of a sensor */
+		public float getFlow(int i) {
+			return flow[i];
+		}
+
+		/** Get the density of a sensor */
+		public float getDensity(int i) {
+			return density[i];
+		}
+
+		/** Get the speed of a sensor */
+		public float getSpeed(int i) {
+			return speed[i];
+		}
+
+		/** Set the data for the next sensor.
+		 * @return Id of sensor. */
+		int add(String n, int f, float v, float o, float q, float k,
+			float s)
+		{
+			int i = size;
+			if (i == names.length)
+				grow();
+			names[i] = n;
+			ids.put(n, i);
+			flags[i] = (byte)f;
+			volume[i] = v;
+			occupancy[i] = o;
+			flow[i] = q;
+			density[i] = k;
+			speed[i] = s;
+			size++;
+			return i;
+		}
+
+		/** Grow the columns */
+		private void grow() {
+			int n = names.length * 2;
+			names = Arrays.copyOf(names, n);
+			flags = Arrays.copyOf(flags, n);
+			volume = Arrays.copyOf(volume, n);
+			occupancy = Arrays.copyOf(occupancy, n);
+			flow = Arrays.copyOf(flow, n);
+			density = Arrays.copyOf(density, n);
+			speed = Arrays.copyOf(speed, n);
+		}
+
+		/** Write one sample as an XML element */
+		public void writeSampleXml(Writer w, int i) throws IOException {
+			if (!hasFlag(i, SAMPLING))
+				return;
+			int q = Math.round(flow[i]);
+			int s = Math.round(speed[i]);
+			float o = occupancy[i];
+			w.write("\t<sample");
+			w.write(createAttribute("sensor", names[i]));
+			if (q > MISSING_DATA && !hasFlag(i, FAKE_FLOW))
+				w.write(createAttribute("flow", q));
+			if (s > 0 && hasFlag(i, MAINLINE))
+				w.write(createAttribute("speed", s));
+			if (o >= 0) {
+				w.write(createAttribute("occ",
+					BaseObjectImpl.formatFloat(o, 2)));
+			}
+			w.write("/>\n");
+		}
+
+		/** Write all samples as XML elements */
+		public void writeSampleXml(Writer w) throws IOException {
+			for (int i = 0; i < size; i++)
+				writeSampleXml(w, i);
+		}
+	}
+
+	/** Detector columns */
+	public final Columns detectors;
+
+	/** Station columns */
+	public final Columns stations;
+
+	/** Time stamp at end of interval */
+	private final long stamp;
+
+	/** Create a new traffic snapshot.
+	 * @param st Time stamp at end of interval.
+	 * @param prev Previous snapshot, used to size the columns. */
+	TrafficSnapshot(long st, TrafficSnapshot prev) {
+		stamp = st;
+		detectors = new Columns(prev != null
+			? prev.detectors.size() : 0);
+		stations = new Columns(prev != null
+			? prev.stations.size() : 0);
+	}
+
+	/** Get the time stamp at end of interval */
+	public long getStamp() {
+		return stamp;
+	}
+}
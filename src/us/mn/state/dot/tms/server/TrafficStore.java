@@ -0,0 +1,86 @@
+/*
+ * IRIS -- Intelligent Roadway Information System
+ * Copyright (C) 2016  Minnesota Department of Transportation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package us.mn.state.dot.tms.server;
+
+import java.util.Iterator;
+import us.mn.state.dot.sched.TimeSteward;
+import us.mn.state.dot.tms.Detector;
+import us.mn.state.dot.tms.DetectorHelper;
+import us.mn.state.dot.tms.Station;
+import us.mn.state.dot.tms.StationHelper;
+
+/**
+ * The traffic store holds the current traffic snapshot.  At the close of
+ * each 30-second interval, a new snapshot is filled with detector and
+ * station data, then published by replacing the current snapshot.  A
+ * published snapshot is never modified, so readers get consistent data
+ * without locking, and may keep a snapshot as long as needed.
+ *
+ * @author Douglas Lau
+ */
+public class TrafficStore {
+
+	/** Current (published) snapshot */
+	private volatile TrafficSnapshot current = new TrafficSnapshot(0,
+		null);
+
+	/** Get the current traffic snapshot */
+	public TrafficSnapshot getSnapshot() {
+		return current;
+	}
+
+	/** Fill a new snapshot for the interval just closed, then publish
+	 * it.  This must only be called from one thread. */
+	public void update() {
+		TrafficSnapshot s = new TrafficSnapshot(
+			TimeSteward.currentTimeMillis(), current);
+		calculateFakeData();
+		fillDetectors(s.detectors);
+		fillStations(s.detectors, s.stations);
+		current = s;
+	}
+
+	/** Calculate fake data for all detectors */
+	private void calculateFakeData() {
+		Iterator<Detector> it = DetectorHelper.iterator();
+		while (it.hasNext()) {
+			Detector d = it.next();
+			if (d instanceof DetectorImpl)
+				((DetectorImpl)d).calculateFakeData();
+		}
+	}
+
+	/** Fill detector columns */
+	private void fillDetectors(TrafficSnapshot.Columns dets) {
+		Iterator<Detector> it = DetectorHelper.iterator();
+		while (it.hasNext()) {
+			Detector d = it.next();
+			if (d instanceof DetectorImpl)
+				((DetectorImpl)d).addSnapshot(dets);
+		}
+	}
+
+	/** Calculate station data and fill station columns */
+	private void fillStations(TrafficSnapshot.Columns dets,
+		TrafficSnapshot.Columns stats)
+	{
+		Iterator<Station> it = StationHelper.iterator();
+		while (it.hasNext()) {
+			Station s = it.next();
+			if (s instanceof StationImpl)
+				((StationImpl)s).calculateData(dets, stats);
+		}
+	}
+}
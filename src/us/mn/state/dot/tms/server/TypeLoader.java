@@ -0,0 +1,278 @@
+/*
+ * IRIS -- Intelligent Roadway Information System
+ * Copyright (C) 2016  Minnesota Department of Transportation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package us.mn.state.dot.tms.server;
+
+import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReentrantLock;
+import us.mn.state.dot.sched.TimeSteward;
+import us.mn.state.dot.sonar.server.ServerNamespace;
+import us.mn.state.dot.tms.TMSException;
+
+/**
+ * A type loader loads SONAR object types from the database at startup.
+ * Types are arranged in a dependency graph, so that independent types can
+ * be queried concurrently on separate database connections.  Each load
+ * holds a lock which is only released while waiting for query results, so
+ * objects are still created one at a time, and constructors which look up
+ * other objects need no extra synchronization.
+ *
+ * @author Douglas Lau
+ */
+public class TypeLoader {
+
+	/** One object type to load */
+	static abstract public class Task {
+
+		/** SONAR type name */
+		private final String type;
+
+		/** Tasks which must be loaded first */
+		private final Task[] deps;
+
+		/** Tasks which depend on this task */
+		private final ArrayList<Task> dependents =
+			new ArrayList<Task>();
+
+		/** Number of dependencies not yet loaded */
+		private int n_waiting;
+
+		/** Time to load (ms) */
+		private long elapsed;
+
+		/** Number of objects loaded */
+		private int count;
+
+		/** Flag indicating task has been loaded */
+		private boolean done;
+
+		/** Create a new load task.
+		 * @param t SONAR type name.
+		 * @param d Tasks which must be loaded first. */
+		public Task(String t, Task... d) {
+			type = t;
+			deps = d;
+		}
+
+		/** Load all objects of the type */
+		abstract protected void load() throws TMSException;
+	}
+
+	/** SONAR namespace */
+	private final ServerNamespace namespace;
+
+	/** SQL connection */
+	private final SQLConnection store;
+
+	/** Number of loader threads */
+	private final int n_threads;
+
+	/** Tasks to load, in a valid sequential order */
+	private final ArrayList<Task> tasks = new ArrayList<Task>();
+
+	/** Lock held while loading a task */
+	private final ReentrantLock lock = new ReentrantLock();
+
+	/** Tasks which must be loaded before the ready action */
+	private Task[] ready_tasks = new Task[0];
+
+	/** Action to run when ready tasks have been loaded */
+	private Runnable ready_action;
+
+	/** Number of tasks loaded */
+	private int n_done;
+
+	/** Exception (or error) from a failed task */
+	private Throwable error;
+
+	/** Create a new type loader.
+	 * @param ns SONAR namespace.
+	 * @param s SQL connection.
+	 * @param n Number of loader threads. */
+	public TypeLoader(ServerNamespace ns, SQLConnection s, int n) {
+		namespace = ns;
+		store = s;
+		n_threads = Math.max(n, 1);
+	}
+
+	/** Add a task.  Tasks must be added after their dependencies. */
+	public Task add(Task t) {
+		for (Task d: t.deps) {
+			if (!tasks.contains(d)) {
+				throw new IllegalArgumentException(t.type +
+					" added before " + d.type);
+			}
+			d.dependents.add(t);
+		}
+		t.n_waiting = t.deps.length;
+		tasks.add(t);
+		return t;
+	}
+
+	/** Set an action to run as soon as some tasks have been loaded.
+	 * @param r Action to run (from a loader thread).
+	 * @param ts Tasks which must be loaded first. */
+	public void setReadyAction(Runnable r, Task... ts) {
+		ready_action = r;
+		ready_tasks = ts;
+	}
+
+	/** Load all tasks */
+	public void loadAll() throws TMSException {
+		long start = TimeSteward.currentTimeMillis();
+		if (n_threads > 1)
+			loadConcurrent();
+		else
+			loadSequential();
+		printReport(TimeSteward.currentTimeMillis() - start);
+	}
+
+	/** Load all tasks sequentially */
+	private void loadSequential() throws TMSException {
+		for (Task t: tasks) {
+			runTask(t);
+			throwError();
+			checkReady();
+		}
+	}
+
+	/** Load all tasks concurrently, following dependencies */
+	private void loadConcurrent() throws TMSException {
+		ExecutorService pool = Executors.newFixedThreadPool(n_threads);
+		store.setQueryLock(lock);
+		try {
+			synchronized (this) {
+				for (Task t: tasks) {
+					if (t.n_waiting == 0)
+						submit(pool, t);
+				}
+				while (n_done < tasks.size() && error == null)
+					wait();
+			}
+		}
+		catch (InterruptedException e) {
+			throw new TMSException(e);
+		}
+		finally {
+			pool.shutdown();
+			store.setQueryLock(null);
+		}
+		throwError();
+	}
+
+	/** Submit a task to a thread pool */
+	private void submit(final ExecutorService pool, final Task t) {
+		pool.execute(new Runnable() {
+			public void run() {
+				try {
+					runTask(t);
+				}
+				catch (Throwable e) {
+					setError(e);
+				}
+				finally {
+					taskDone(pool, t);
+				}
+			}
+		});
+	}
+
+	/** Run one task, recording its load time and object count */
+	private void runTask(Task t) {
+		long start = TimeSteward.currentTimeMillis();
+		lock.lock();
+		try {
+			t.load();
+			t.count = namespace.getCount(t.type);
+		}
+		catch (Throwable e) {
+			setError(e);
+		}
+		finally {
+			lock.unlock();
+			t.elapsed = TimeSteward.currentTimeMillis() - start;
+			synchronized (this) {
+				t.done = true;
+			}
+		}
+	}
+
+	/** Record a task error, and wake up the waiting thread */
+	private synchronized void setError(Throwable e) {
+		if (error == null)
+			error = e;
+		notifyAll();
+	}
+
+	/** Throw the error from a failed task, if any.  An Error is thrown
+	 * as is; an unchecked exception is wrapped in a TMSException. */
+	private synchronized void throwError() throws TMSException {
+		Throwable e = error;
+		if (e instanceof TMSException)
+			throw (TMSException)e;
+		else if (e instanceof Error)
+			throw (Error)e;
+		else if (e != null)
+			throw new TMSException(e);
+	}
+
+	/** Mark a task as done and submit any dependents which are ready */
+	private void taskDone(ExecutorService pool, Task t) {
+		synchronized (this) {
+			n_done++;
+			if (error == null) {
+				for (Task d: t.dependents) {
+					d.n_waiting--;
+					if (d.n_waiting == 0)
+						submit(pool, d);
+				}
+			}
+			notifyAll();
+		}
+		try {
+			checkReady();
+		}
+		catch (Throwable e) {
+			setError(e);
+		}
+	}
+
+	/** Run the ready action if all ready tasks have been loaded */
+	private void checkReady() {
+		Runnable r;
+		synchronized (this) {
+			if (ready_action == null || error != null)
+				return;
+			for (Task t: ready_tasks) {
+				if (!t.done)
+					return;
+			}
+			r = ready_action;
+			ready_action = null;
+		}
+		r.run();
+	}
+
+	/** Print a report of load times and object counts */
+	private void printReport(long total) {
+		for (Task t: tasks) {
+			System.err.println("Loaded " + t.count + " " + t.type +
+				" in " + t.elapsed + " ms");
+		}
+		System.err.println("Loaded " + tasks.size() + " types in " +
+			total + " ms (" + n_threads + " threads)");
+	}
+}
@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2006-2014  Minnesota Department of Transportation
+ * Copyright (C) 2006-2016  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -18,12 +18,11 @@ import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.util.Calendar;
-import us.mn.state.dot.sched.Job;
 import us.mn.state.dot.sched.TimeSteward;
 import us.mn.state.dot.tms.SystemAttrEnum;
 import static us.mn.state.dot.tms.server.Constants.MISSING_DATA;
 import static us.mn.state.dot.tms.server.DetectorImpl.SAMPLE_PERIOD_SEC;
-import static us.mn.state.dot.tms.server.MainServer.FLUSH;
+import static us.mn.state.dot.tms.server.MainServer.SAMPLE_LANE;
 
 /**
  * The vehicle event log records vehicle detection events.
@@ -85,8 +84,8 @@ public class VehicleEventLog {
 			ev_speed += speed;
 		}
 		if (isArchiveEnabled()) {
-			FLUSH.addJob(new Job() {
-				public void perform() throws IOException {
+			SAMPLE_LANE.addJob(new TimedJob() {
+				protected void doPerform() throws IOException {
 					appendEvent(stamp, formatEvent(stamp,
 						duration, headway, speed));
 				}
@@ -115,8 +114,8 @@ public class VehicleEventLog {
 	public void logGap() {
 		p_stamp = null;
 		if (isArchiveEnabled()) {
-			FLUSH.addJob(new Job() {
-				public void perform() throws IOException {
+			SAMPLE_LANE.addJob(new TimedJob() {
+				protected void doPerform() throws IOException {
 					appendEvent(null, "*\n");
 				}
 			});
@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2009-2013  Minnesota Department of Transportation
+ * Copyright (C) 2009-2016  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -16,14 +16,13 @@ package us.mn.state.dot.tms.server;
 
 import java.io.IOException;
 import java.util.Calendar;
-import us.mn.state.dot.sched.Job;
 
 /**
  * Job to write out XML configuration files.
  *
  * @author Douglas Lau
  */
-public class XmlConfigJob extends Job {
+public class XmlConfigJob extends TimedJob {
 
 	/** Create a new XML config writer job */
 	public XmlConfigJob() {
@@ -36,7 +35,7 @@ public class XmlConfigJob extends Job {
 	}
 
 	/** Perform the XML config job */
-	public void perform() throws IOException {
+	protected void doPerform() throws IOException {
 		writeXmlConfiguration();
 	}
 
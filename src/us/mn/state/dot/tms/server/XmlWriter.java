@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2005-2014  Minnesota Department of Transportation
+ * Copyright (C) 2005-2016  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -80,15 +80,23 @@ abstract public class XmlWriter {
 	/** Should the XML data be compressed? */
 	protected final boolean gzip;
 
-	/** Create a new XML writer */
-	public XmlWriter(String f, boolean gz) {
+	/** Create a new XML writer.
+	 * @param dir Directory to write file.
+	 * @param f File name.
+	 * @param gz Flag to compress file. */
+	public XmlWriter(File dir, String f, boolean gz) {
 		if(gz)
 			f = f + ".gz";
-		file = new File(XML_OUTPUT_DIRECTORY, f);
+		file = new File(dir, f);
 		temp = new File(file.getAbsolutePath() + "~");
 		gzip = gz;
 	}
 
+	/** Create a new XML writer in the XML output directory */
+	public XmlWriter(String f, boolean gz) {
+		this(XML_OUTPUT_DIRECTORY, f, gz);
+	}
+
 	/** Create the underlying output stream */
 	private OutputStream createOutputStream() throws IOException {
 		OutputStream os = new FileOutputStream(temp);
@@ -100,6 +108,7 @@ abstract public class XmlWriter {
 
 	/** Write the XML file */
 	public void write() throws IOException {
+		long start = TraceRecorder.start();
 		OutputStream os = createOutputStream();
 		try {
 			BufferedWriter bw = new BufferedWriter(
@@ -112,6 +121,10 @@ abstract public class XmlWriter {
 		}
 		if(!temp.renameTo(file))
 			throw new IOException("Rename failed: " + file);
+		if(TraceRecorder.isEnabled()) {
+			TraceRecorder.record(TraceRecorder.Type.XML, start,
+				file.getName());
+		}
 	}
 
 	/** Write the XML to a writer */
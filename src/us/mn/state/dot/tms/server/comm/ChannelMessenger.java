@@ -0,0 +1,369 @@
+/*
+ * IRIS -- Intelligent Roadway Information System
+ * Copyright (C) 2016  Minnesota Department of Transportation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package us.mn.state.dot.tms.server.comm;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ConnectException;
+import java.net.SocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.ConcurrentHashMap;
+import us.mn.state.dot.sched.DebugLog;
+import us.mn.state.dot.sched.TimeSteward;
+
+/**
+ * A ChannelMessenger polls a field controller using a non-blocking TCP
+ * socket channel.  Connects, reads and writes wait on the shared channel
+ * selector.  After a failed connect, the address is in backoff for an
+ * exponentially increasing time, and attempts to open fail immediately
+ * without tying up the poller thread.
+ *
+ * @author Douglas Lau
+ */
+public class ChannelMessenger extends Messenger {
+
+	/** Channel debug log */
+	static private final DebugLog CHANNEL_LOG = new DebugLog("channel");
+
+	/** Minimum backoff time after a failed connect (ms) */
+	static private final long BACKOFF_MIN_MS = 1000;
+
+	/** Maximum backoff time after a failed connect (ms) */
+	static private final long BACKOFF_MAX_MS = 5 * 60 * 1000;
+
+	/** Size of input and output buffers */
+	static private final int BUFFER_SIZE = 4096;
+
+	/** Connection state for one address.  This must outlive a messenger,
+	 * since pollers are recreated after a failed open. */
+	static public class ConnectState {
+
+		/** Count of consecutive connect failures */
+		private int failures;
+
+		/** Total count of connect failures */
+		private int total_failures;
+
+		/** Latency of last successful connect (ms) */
+		private long latency;
+
+		/** Time of next allowed connect attempt */
+		private long next_attempt;
+
+		/** Get the count of consecutive connect failures */
+		public synchronized int getFailures() {
+			return failures;
+		}
+
+		/** Get the total count of connect failures */
+		public synchronized int getTotalFailures() {
+			return total_failures;
+		}
+
+		/** Get the latency of the last successful connect (ms) */
+		public synchronized long getLatency() {
+			return latency;
+		}
+
+		/** Get the connection status.
+		 * @return Status message, or null if not failing. */
+		public synchronized String getStatus() {
+			if (failures > 0) {
+				return "CONNECT FAILED " + failures +
+					" TIMES (" + total_failures + " TOTAL)";
+			} else
+				return null;
+		}
+
+		/** Check if a connect attempt is allowed */
+		private synchronized void checkBackoff() throws IOException {
+			long now = TimeSteward.currentTimeMillis();
+			long wait = next_attempt - now;
+			if (wait > 0) {
+				throw new ConnectException("BACKOFF " +
+					(wait + 999) / 1000 + " SEC (" +
+					failures + " FAILURES)");
+			}
+		}
+
+		/** Record a successful connect */
+		private synchronized void connected(long lat) {
+			failures = 0;
+			latency = lat;
+			next_attempt = 0;
+		}
+
+		/** Record a failed connect.
+		 * @return Backoff time (ms). */
+		private synchronized long connectFailed() {
+			failures++;
+			total_failures++;
+			int sh = Math.min(failures - 1, 16);
+			long backoff = Math.min(BACKOFF_MIN_MS << sh,
+				BACKOFF_MAX_MS);
+			long now = TimeSteward.currentTimeMillis();
+			next_attempt = now + backoff;
+			return backoff;
+		}
+	}
+
+	/** Mapping of addresses to connection states */
+	static private final ConcurrentHashMap<SocketAddress, ConnectState>
+		STATES = new ConcurrentHashMap<SocketAddress, ConnectState>();
+
+	/** Get the connection state for an address */
+	static public ConnectState getConnectState(SocketAddress a) {
+		ConnectState cs = STATES.get(a);
+		if (cs == null) {
+			cs = new ConnectState();
+			ConnectState s = STATES.putIfAbsent(a, cs);
+			if (s != null)
+				cs = s;
+		}
+		return cs;
+	}
+
+	/** Address to connect */
+	private final SocketAddress address;
+
+	/** Connection state */
+	private final ConnectState state;
+
+	/** Socket channel */
+	private SocketChannel channel;
+
+	/** Receive timeout (ms) */
+	private int timeout = 750;
+
+	/** Create a new channel messenger */
+	public ChannelMessenger(SocketAddress a) {
+		address = a;
+		state = getConnectState(a);
+	}
+
+	/** Set the receive timeout */
+	@Override
+	public void setTimeout(int t) throws IOException {
+		timeout = t;
+	}
+
+	/** Get the connection state */
+	public ConnectState getConnectState() {
+		return state;
+	}
+
+	/** Get the connection status */
+	@Override
+	public String getConnectStatus() {
+		return state.getStatus();
+	}
+
+	/** Open the channel messenger */
+	@Override
+	public void open() throws IOException {
+		state.checkBackoff();
+		long start = TimeSteward.currentTimeMillis();
+		SocketChannel ch = SocketChannel.open();
+		try {
+			ch.configureBlocking(false);
+			if (!ch.connect(address))
+				finishConnect(ch);
+		}
+		catch (IOException e) {
+			ch.close();
+			long backoff = state.connectFailed();
+			if (CHANNEL_LOG.isOpen()) {
+				CHANNEL_LOG.log(address + " connect failed: " +
+					e.getMessage() + ", backoff " +
+					backoff + " ms");
+			}
+			throw e;
+		}
+		long lat = TimeSteward.currentTimeMillis() - start;
+		state.connected(lat);
+		if (CHANNEL_LOG.isOpen()) {
+			CHANNEL_LOG.log(address + " connected in " + lat +
+				" ms");
+		}
+		channel = ch;
+		input = new ChannelInputStream(ch);
+		output = new ChannelOutputStream(ch);
+	}
+
+	/** Finish connecting a channel */
+	private void finishConnect(SocketChannel ch) throws IOException {
+		ChannelSelector cs = ChannelSelector.getInstance();
+		if (!cs.await(ch, SelectionKey.OP_CONNECT, timeout))
+			throw new SocketTimeoutException("CONNECT TIMEOUT");
+		if (!ch.finishConnect())
+			throw new SocketTimeoutException("CONNECT TIMEOUT");
+	}
+
+	/** Close the channel messenger */
+	@Override
+	public void close() {
+		closeInput();
+		closeOutput();
+		SocketChannel ch = channel;
+		if (ch != null) {
+			try {
+				ch.close();
+			}
+			catch (IOException e) {
+				// Ignore
+			}
+		}
+		channel = null;
+	}
+
+	/** Wait for a channel to be ready for an operation */
+	private void await(SocketChannel ch, int ops, String msg)
+		throws IOException
+	{
+		ChannelSelector cs = ChannelSelector.getInstance();
+		if (!cs.await(ch, ops, timeout))
+			throw new SocketTimeoutException(msg);
+	}
+
+	/** Input stream for a socket channel */
+	private class ChannelInputStream extends InputStream {
+
+		/** Socket channel */
+		private final SocketChannel ch;
+
+		/** Buffer for received data */
+		private final ByteBuffer buffer =
+			ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+		/** Create a new channel input stream */
+		private ChannelInputStream(SocketChannel c) {
+			ch = c;
+			buffer.limit(0);
+		}
+
+		/** Fill the buffer, waiting for data if necessary.
+		 * @return false on end of stream. */
+		private boolean fill() throws IOException {
+			while (!buffer.hasRemaining()) {
+				buffer.clear();
+				int n = ch.read(buffer);
+				buffer.flip();
+				if (n < 0)
+					return false;
+				if (n == 0) {
+					await(ch, SelectionKey.OP_READ,
+						"READ TIMEOUT");
+				}
+			}
+			return true;
+		}
+
+		/** Read a byte */
+		@Override
+		public int read() throws IOException {
+			return fill() ? (buffer.get() & 0xFF) : -1;
+		}
+
+		/** Read bytes into an array */
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (len == 0)
+				return 0;
+			if (!fill())
+				return -1;
+			int n = Math.min(len, buffer.remaining());
+			buffer.get(b, off, n);
+			return n;
+		}
+
+		/** Get the number of bytes available without waiting */
+		@Override
+		public int available() throws IOException {
+			if (!buffer.hasRemaining()) {
+				buffer.clear();
+				ch.read(buffer);
+				buffer.flip();
+			}
+			return buffer.remaining();
+		}
+
+		/** Skip bytes which have been received */
+		@Override
+		public long skip(long n) throws IOException {
+			int s = (int)Math.min(n, available());
+			buffer.position(buffer.position() + s);
+			return s;
+		}
+	}
+
+	/** Output stream for a socket channel.  Like a socket output stream,
+	 * data is written through to the channel without waiting for a
+	 * flush. */
+	private class ChannelOutputStream extends OutputStream {
+
+		/** Socket channel */
+		private final SocketChannel ch;
+
+		/** Buffer for sending data */
+		private final ByteBuffer buffer =
+			ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+		/** Create a new channel output stream */
+		private ChannelOutputStream(SocketChannel c) {
+			ch = c;
+		}
+
+		/** Write a byte */
+		@Override
+		public void write(int b) throws IOException {
+			buffer.put((byte)b);
+			send();
+		}
+
+		/** Write bytes from an array */
+		@Override
+		public void write(byte[] b, int off, int len)
+			throws IOException
+		{
+			while (len > 0) {
+				int n = Math.min(len, buffer.remaining());
+				buffer.put(b, off, n);
+				send();
+				off += n;
+				len -= n;
+			}
+		}
+
+		/** Send all buffered data */
+		private void send() throws IOException {
+			buffer.flip();
+			try {
+				while (buffer.hasRemaining()) {
+					if (ch.write(buffer) == 0) {
+						await(ch, SelectionKey.OP_WRITE,
+							"WRITE TIMEOUT");
+					}
+				}
+			}
+			finally {
+				buffer.clear();
+			}
+		}
+	}
+}
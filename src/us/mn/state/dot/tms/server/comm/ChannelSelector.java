@@ -0,0 +1,214 @@
+/*
+ * IRIS -- Intelligent Roadway Information System
+ * Copyright (C) 2016  Minnesota Department of Transportation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package us.mn.state.dot.tms.server.comm;
+
+import java.io.IOException;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import us.mn.state.dot.sched.DebugLog;
+import us.mn.state.dot.sched.TimeSteward;
+
+/**
+ * A channel selector shares one selector thread between all non-blocking
+ * channel messengers.  Threads wait for a channel to become ready for
+ * connect, read or write, without blocking in a socket call.
+ *
+ * @author Douglas Lau
+ */
+public class ChannelSelector {
+
+	/** Channel selector debug log */
+	static private final DebugLog CHANNEL_LOG = new DebugLog("channel");
+
+	/** Singleton channel selector */
+	static private ChannelSelector sel;
+
+	/** Get the channel selector, creating it if necessary */
+	static public synchronized ChannelSelector getInstance()
+		throws IOException
+	{
+		if (sel == null)
+			sel = new ChannelSelector();
+		return sel;
+	}
+
+	/** A waiter for a channel to become ready */
+	static private class Waiter {
+
+		/** Flag indicating channel is ready */
+		private boolean ready;
+
+		/** Signal that the channel is ready */
+		private synchronized void signal() {
+			ready = true;
+			notifyAll();
+		}
+
+		/** Wait for the channel to become ready.
+		 * @param timeout Maximum time to wait (ms).
+		 * @return true if channel is ready. */
+		private synchronized boolean await(int timeout) {
+			long end = TimeSteward.currentTimeMillis() + timeout;
+			while (!ready) {
+				long w = end - TimeSteward.currentTimeMillis();
+				if (w <= 0)
+					break;
+				try {
+					wait(w);
+				}
+				catch (InterruptedException e) {
+					break;
+				}
+			}
+			return ready;
+		}
+	}
+
+	/** Selector for all channels */
+	private final Selector selector;
+
+	/** Pending changes to channel registrations.  These must be done
+	 * on the selector thread to avoid blocking in register. */
+	private final ConcurrentLinkedQueue<Runnable> pending =
+		new ConcurrentLinkedQueue<Runnable>();
+
+	/** Create a new channel selector */
+	private ChannelSelector() throws IOException {
+		selector = Selector.open();
+		Thread t = new Thread("channel_selector") {
+			@Override public void run() {
+				runSelector();
+			}
+		};
+		t.setDaemon(true);
+		t.start();
+	}
+
+	/** Run the selector loop */
+	private void runSelector() {
+		while (true) {
+			try {
+				selector.select();
+				runPending();
+				Set<SelectionKey> keys =
+					selector.selectedKeys();
+				for (SelectionKey key: keys) {
+					try {
+						signalReady(key);
+					}
+					catch (RuntimeException e) {
+						logError("key", e);
+					}
+				}
+				keys.clear();
+			}
+			catch (IOException e) {
+				CHANNEL_LOG.log("select: " + e.getMessage());
+			}
+			catch (RuntimeException e) {
+				logError("select", e);
+			}
+		}
+	}
+
+	/** Log an unexpected error, which must not stop the selector loop */
+	private void logError(String msg, RuntimeException e) {
+		CHANNEL_LOG.log(msg + ": " + e);
+		e.printStackTrace();
+	}
+
+	/** Run all pending registration changes */
+	private void runPending() {
+		Runnable r = pending.poll();
+		while (r != null) {
+			try {
+				r.run();
+			}
+			catch (RuntimeException e) {
+				logError("register", e);
+			}
+			r = pending.poll();
+		}
+	}
+
+	/** Signal a waiter that its channel is ready */
+	private void signalReady(SelectionKey key) {
+		try {
+			key.interestOps(0);
+		}
+		catch (CancelledKeyException e) {
+			// channel was closed; signal waiter anyway
+		}
+		Object w = key.attachment();
+		if (w instanceof Waiter)
+			((Waiter)w).signal();
+	}
+
+	/** Queue a registration change and wake up the selector */
+	private void queue(Runnable r) {
+		pending.add(r);
+		selector.wakeup();
+	}
+
+	/** Wait for a channel to become ready for an operation.
+	 * @param ch Non-blocking channel.
+	 * @param ops Interest operations (SelectionKey.OP_*).
+	 * @param timeout Maximum time to wait (ms).
+	 * @return true if the channel is ready, false on timeout. */
+	public boolean await(final SelectableChannel ch, final int ops,
+		int timeout)
+	{
+		final Waiter w = new Waiter();
+		queue(new Runnable() {
+			public void run() {
+				register(ch, ops, w);
+			}
+		});
+		boolean ready = w.await(timeout);
+		if (!ready) {
+			queue(new Runnable() {
+				public void run() {
+					register(ch, 0, null);
+				}
+			});
+		}
+		return ready;
+	}
+
+	/** Register interest for a channel (on selector thread) */
+	private void register(SelectableChannel ch, int ops, Waiter w) {
+		try {
+			SelectionKey key = ch.keyFor(selector);
+			if (key != null) {
+				key.attach(w);
+				key.interestOps(ops);
+			} else if (ops != 0)
+				ch.register(selector, ops, w);
+		}
+		catch (ClosedChannelException e) {
+			if (w != null)
+				w.signal();
+		}
+		catch (CancelledKeyException e) {
+			if (w != null)
+				w.signal();
+		}
+	}
+}
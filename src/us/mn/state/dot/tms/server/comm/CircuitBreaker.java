@@ -0,0 +1,111 @@
+/*
+ * IRIS -- Intelligent Roadway Information System
+ * Copyright (C) 2016  Minnesota Department of Transportation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package us.mn.state.dot.tms.server.comm;
+
+import us.mn.state.dot.tms.SystemAttrEnum;
+
+/**
+ * A circuit breaker for polling one controller.  After a number of
+ * consecutive poll timeouts, the breaker opens and periodic polls are
+ * dropped instead of queued.  Commands are still queued, but are not
+ * retried.  While open, a single probe operation is allowed at an
+ * exponentially increasing interval.  A successful operation closes it.
+ *
+ * @author Douglas Lau
+ */
+public class CircuitBreaker {
+
+	/** Minimum interval between probes (ms) */
+	static private final long PROBE_MIN_MS = 15 * 1000;
+
+	/** Maximum interval between probes (ms) */
+	static private final long PROBE_MAX_MS = 10 * 60 * 1000;
+
+	/** Get the number of timeouts to open the breaker (0 to disable) */
+	static private int getThreshold() {
+		return SystemAttrEnum.COMM_BREAKER_THRESHOLD.getInt();
+	}
+
+	/** Count of consecutive poll timeouts */
+	private int timeouts = 0;
+
+	/** Interval between probes (ms), or 0 if breaker is closed */
+	private long probe_interval = 0;
+
+	/** Time of next probe (ms since epoch) */
+	private long next_probe = 0;
+
+	/** Count of operations dropped while open */
+	private int dropped = 0;
+
+	/** Check if the breaker is open */
+	public synchronized boolean isOpen() {
+		return probe_interval > 0;
+	}
+
+	/** Get the count of operations dropped while open */
+	public synchronized int getDropped() {
+		return dropped;
+	}
+
+	/** Record a poll timeout.
+	 * @param now Current time (ms since epoch).
+	 * @return true if the breaker opened. */
+	public synchronized boolean recordTimeout(long now) {
+		timeouts++;
+		int n = getThreshold();
+		if (n <= 0 || timeouts < n)
+			return false;
+		boolean opened = (probe_interval == 0);
+		probe_interval = opened
+		               ? PROBE_MIN_MS
+		               : Math.min(probe_interval * 2, PROBE_MAX_MS);
+		next_probe = now + probe_interval;
+		return opened;
+	}
+
+	/** Record a successful operation.
+	 * @return true if the breaker closed. */
+	public synchronized boolean recordSuccess() {
+		boolean closed = (probe_interval > 0);
+		timeouts = 0;
+		probe_interval = 0;
+		next_probe = 0;
+		return closed;
+	}
+
+	/** Check if an operation is allowed.  While open, one probe is allowed
+	 * per interval.
+	 * @param now Current time (ms since epoch). */
+	public synchronized boolean allowOperation(long now) {
+		if (probe_interval == 0)
+			return true;
+		if (now >= next_probe) {
+			next_probe = now + probe_interval;
+			return true;
+		}
+		dropped++;
+		return false;
+	}
+
+	/** Get the breaker status, or null if closed */
+	public synchronized String getStatus() {
+		if (probe_interval > 0) {
+			return "breaker open, " + timeouts + " timeouts, probe " +
+				probe_interval / 1000 + " s";
+		} else
+			return null;
+	}
+}
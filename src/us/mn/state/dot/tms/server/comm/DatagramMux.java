@@ -0,0 +1,330 @@
+/*
+ * IRIS -- Intelligent Roadway Information System
+ * Copyright (C) 2016  Minnesota Department of Transportation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package us.mn.state.dot.tms.server.comm;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.LinkedList;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import us.mn.state.dot.sched.DebugLog;
+import us.mn.state.dot.sched.TimeSteward;
+
+/**
+ * A datagram multiplexer shares a few UDP channels between all datagram
+ * links.  One selector thread receives all datagrams and dispatches them
+ * to endpoints by remote address (and request ID, if the protocol has a
+ * request ID parser).  Receive timeouts are handled by a timer wheel.
+ *
+ * @author Douglas Lau
+ */
+public class DatagramMux {
+
+	/** Datagram mux debug log */
+	static private final DebugLog MUX_LOG = new DebugLog("datagram_mux");
+
+	/** Number of shared channels */
+	static private final int CHANNELS = 4;
+
+	/** Timer wheel tick (ms) */
+	static private final long TICK_MS = 20;
+
+	/** Number of timer wheel slots */
+	static private final int WHEEL_SLOTS = 512;
+
+	/** Maximum datagram size */
+	static private final int MAX_DATAGRAM = 65536;
+
+	/** Maximum number of undelivered datagrams per endpoint */
+	static private final int MAX_PENDING = 8;
+
+	/** Parser for protocol request IDs */
+	public interface RequestIdParser {
+
+		/** Parse the request ID from a datagram.
+		 * @param b Buffer containing datagram.
+		 * @param len Length of datagram.
+		 * @return Request ID, or null if it could not be parsed. */
+		Integer parseRequestId(byte[] b, int len);
+	}
+
+	/** Singleton datagram mux */
+	static private DatagramMux mux;
+
+	/** Get the datagram mux, creating it if necessary */
+	static public synchronized DatagramMux getInstance()
+		throws IOException
+	{
+		if (mux == null)
+			mux = new DatagramMux();
+		return mux;
+	}
+
+	/** Channel selector */
+	private final Selector selector;
+
+	/** Shared datagram channels */
+	private final DatagramChannel[] channels;
+
+	/** Mapping of remote addresses to endpoints */
+	private final ConcurrentHashMap<SocketAddress,
+		CopyOnWriteArrayList<Endpoint>> endpoints =
+		new ConcurrentHashMap<SocketAddress,
+		CopyOnWriteArrayList<Endpoint>>();
+
+	/** Timer wheel for receive timeouts */
+	private final TimerWheel wheel;
+
+	/** Buffer for received datagrams */
+	private final ByteBuffer rx = ByteBuffer.allocate(MAX_DATAGRAM);
+
+	/** Create a new datagram mux */
+	private DatagramMux() throws IOException {
+		selector = Selector.open();
+		channels = new DatagramChannel[CHANNELS];
+		for (int i = 0; i < CHANNELS; i++) {
+			DatagramChannel dc = DatagramChannel.open();
+			dc.socket().bind(new InetSocketAddress(0));
+			dc.configureBlocking(false);
+			dc.register(selector, SelectionKey.OP_READ);
+			channels[i] = dc;
+		}
+		wheel = new TimerWheel(TICK_MS, WHEEL_SLOTS,
+			TimeSteward.currentTimeMillis());
+		Thread t = new Thread("datagram_mux") {
+			@Override public void run() {
+				runSelector();
+			}
+		};
+		t.setDaemon(true);
+		t.start();
+	}
+
+	/** Run the selector loop */
+	private void runSelector() {
+		while (true) {
+			try {
+				selector.select(TICK_MS);
+				selector.selectedKeys().clear();
+				for (DatagramChannel dc: channels)
+					receiveAll(dc);
+			}
+			catch (IOException e) {
+				MUX_LOG.log("select: " + e.getMessage());
+			}
+			catch (RuntimeException e) {
+				logError("select", e);
+			}
+			try {
+				wheel.advance(TimeSteward.currentTimeMillis());
+			}
+			catch (RuntimeException e) {
+				logError("timer", e);
+			}
+		}
+	}
+
+	/** Log an unexpected error, which must not stop the selector loop */
+	private void logError(String msg, RuntimeException e) {
+		MUX_LOG.log(msg + ": " + e);
+		e.printStackTrace();
+	}
+
+	/** Receive all available datagrams on a channel */
+	private void receiveAll(DatagramChannel dc) throws IOException {
+		while (true) {
+			rx.clear();
+			SocketAddress src = dc.receive(rx);
+			if (src == null)
+				return;
+			dispatch(src, rx.array(), rx.position());
+		}
+	}
+
+	/** Dispatch a datagram to an endpoint */
+	private void dispatch(SocketAddress src, byte[] b, int len) {
+		CopyOnWriteArrayList<Endpoint> eps = endpoints.get(src);
+		if (eps != null) {
+			for (Endpoint ep: eps) {
+				if (ep.deliver(b, len))
+					return;
+			}
+		}
+		if (MUX_LOG.isOpen())
+			MUX_LOG.log("dropped " + len + " bytes from " + src);
+	}
+
+	/** Register a new endpoint.
+	 * @param a Remote address.
+	 * @param p Request ID parser (may be null).
+	 * @return Endpoint for sending / receiving datagrams. */
+	public Endpoint register(SocketAddress a, RequestIdParser p) {
+		Endpoint ep = new Endpoint(a, p);
+		CopyOnWriteArrayList<Endpoint> eps = endpoints.get(a);
+		if (eps == null) {
+			eps = new CopyOnWriteArrayList<Endpoint>();
+			CopyOnWriteArrayList<Endpoint> e =
+				endpoints.putIfAbsent(a, eps);
+			if (e != null)
+				eps = e;
+		}
+		eps.add(ep);
+		return ep;
+	}
+
+	/** Unregister an endpoint */
+	private void unregister(Endpoint ep) {
+		CopyOnWriteArrayList<Endpoint> eps = endpoints.get(ep.address);
+		if (eps != null)
+			eps.remove(ep);
+	}
+
+	/** Endpoint for one remote address */
+	public class Endpoint {
+
+		/** Remote address */
+		private final SocketAddress address;
+
+		/** Request ID parser */
+		private final RequestIdParser parser;
+
+		/** Channel for sending datagrams */
+		private final DatagramChannel channel;
+
+		/** Received datagrams not yet read */
+		private final LinkedList<byte[]> received =
+			new LinkedList<byte[]>();
+
+		/** Receive timeout (ms) */
+		private int timeout = 750;
+
+		/** Request ID of last sent datagram */
+		private Integer request_id;
+
+		/** Sequence number of current deadline */
+		private long seq;
+
+		/** Flag indicating a receive deadline is active */
+		private boolean armed;
+
+		/** Flag indicating endpoint is open */
+		private boolean open = true;
+
+		/** Create a new endpoint */
+		private Endpoint(SocketAddress a, RequestIdParser p) {
+			address = a;
+			parser = p;
+			int h = a.hashCode() & Integer.MAX_VALUE;
+			channel = channels[h % channels.length];
+		}
+
+		/** Set the receive timeout (ms) */
+		public synchronized void setTimeout(int t) {
+			timeout = t;
+		}
+
+		/** Send a datagram */
+		public void send(byte[] b, int len) throws IOException {
+			if (len <= 0)
+				return;
+			synchronized (this) {
+				received.clear();
+				request_id = (parser != null)
+				           ? parser.parseRequestId(b, len)
+				           : null;
+				arm();
+			}
+			channel.send(ByteBuffer.wrap(b, 0, len), address);
+		}
+
+		/** Arm a new receive deadline */
+		private void arm() {
+			final long s = ++seq;
+			armed = true;
+			wheel.schedule(new TimerWheel.Timeout() {
+				@Override protected void expire() {
+					disarm(s);
+				}
+			}, TimeSteward.currentTimeMillis() + timeout);
+		}
+
+		/** Disarm a receive deadline */
+		private synchronized void disarm(long s) {
+			if (s == seq && armed) {
+				armed = false;
+				notifyAll();
+			}
+		}
+
+		/** Deliver a received datagram.
+		 * @return true if the datagram was accepted. */
+		private boolean deliver(byte[] b, int len) {
+			Integer rid = (parser != null)
+			            ? parser.parseRequestId(b, len)
+			            : null;
+			synchronized (this) {
+				if (!open)
+					return false;
+				if (request_id != null &&
+				   !request_id.equals(rid))
+					return false;
+				if (received.size() >= MAX_PENDING)
+					received.removeFirst();
+				byte[] d = new byte[len];
+				System.arraycopy(b, 0, d, 0, len);
+				received.add(d);
+				notifyAll();
+				return true;
+			}
+		}
+
+		/** Receive a datagram, waiting until the deadline.
+		 * @return Received datagram.
+		 * @throws SocketTimeoutException if deadline expires. */
+		public synchronized byte[] receive() throws IOException {
+			if (!armed)
+				arm();
+			while (received.isEmpty() && armed && open) {
+				try {
+					wait();
+				}
+				catch (InterruptedException e) {
+					break;
+				}
+			}
+			if (!received.isEmpty())
+				return received.removeFirst();
+			if (!open)
+				throw new SocketTimeoutException("CLOSED");
+			throw new SocketTimeoutException("TIMEOUT");
+		}
+
+		/** Close the endpoint */
+		public void close() {
+			unregister(this);
+			synchronized (this) {
+				open = false;
+				received.clear();
+				notifyAll();
+			}
+		}
+	}
+}
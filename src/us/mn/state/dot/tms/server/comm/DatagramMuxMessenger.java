@@ -0,0 +1,176 @@
+/*
+ * IRIS -- Intelligent Roadway Information System
+ * Copyright (C) 2016  Minnesota Department of Transportation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package us.mn.state.dot.tms.server.comm;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+
+/**
+ * A DatagramMuxMessenger polls a field controller using a UDP channel
+ * shared with other links through the datagram mux.  No socket is owned by
+ * the messenger, and receive timeouts are handled by the mux timer wheel.
+ *
+ * @author Douglas Lau
+ */
+public class DatagramMuxMessenger extends Messenger {
+
+	/** Address to connect */
+	private final SocketAddress address;
+
+	/** Request ID parser (may be null) */
+	private final DatagramMux.RequestIdParser parser;
+
+	/** Endpoint on datagram mux */
+	private DatagramMux.Endpoint endpoint;
+
+	/** Receive timeout (ms) */
+	private int timeout = 750;
+
+	/** Create a new datagram mux messenger */
+	public DatagramMuxMessenger(SocketAddress a,
+		DatagramMux.RequestIdParser p)
+	{
+		address = a;
+		parser = p;
+	}
+
+	/** Set the receive timeout */
+	@Override
+	public void setTimeout(int t) throws IOException {
+		timeout = t;
+		DatagramMux.Endpoint ep = endpoint;
+		if (ep != null)
+			ep.setTimeout(t);
+	}
+
+	/** Open the messenger */
+	@Override
+	public void open() throws IOException {
+		endpoint = DatagramMux.getInstance().register(address, parser);
+		endpoint.setTimeout(timeout);
+		input = new MuxInputStream();
+		output = new MuxOutputStream();
+	}
+
+	/** Close the messenger */
+	@Override
+	public void close() {
+		DatagramMux.Endpoint ep = endpoint;
+		if (ep != null) {
+			ep.close();
+			endpoint = null;
+		}
+		input = null;
+		output = null;
+	}
+
+	/** Get the endpoint, or throw an exception if closed */
+	private DatagramMux.Endpoint getEndpoint() throws IOException {
+		DatagramMux.Endpoint ep = endpoint;
+		if (ep != null)
+			return ep;
+		else
+			throw new IOException("MESSENGER CLOSED");
+	}
+
+	/** Output stream for sending datagrams */
+	private class MuxOutputStream extends OutputStream {
+
+		/** Buffer for assembling datagrams to send */
+		private ByteBuffer buffer = ByteBuffer.allocate(1024);
+
+		/** Make sure there is room for more bytes in the buffer */
+		private void ensureCapacity(int n) {
+			if (n > buffer.remaining()) {
+				int size = Math.max(buffer.capacity() * 2,
+					buffer.position() + n);
+				ByteBuffer b = ByteBuffer.allocate(size);
+				buffer.flip();
+				b.put(buffer);
+				buffer = b;
+			}
+		}
+
+		/** Write a byte to the buffer */
+		@Override
+		public void write(int b) {
+			ensureCapacity(1);
+			buffer.put((byte)b);
+		}
+
+		/** Write an array of bytes to the buffer */
+		@Override
+		public void write(byte[] b, int off, int len) {
+			ensureCapacity(len);
+			buffer.put(b, off, len);
+		}
+
+		/** Flush buffer to a datagram */
+		@Override
+		public void flush() throws IOException {
+			int len = buffer.position();
+			buffer.clear();
+			getEndpoint().send(buffer.array(), len);
+		}
+	}
+
+	/** Input stream for receiving datagrams */
+	private class MuxInputStream extends InputStream {
+
+		/** Buffer for received datagram */
+		private ByteBuffer buffer = ByteBuffer.allocate(0);
+
+		/** Make sure a datagram is available */
+		private void fill() throws IOException {
+			while (!buffer.hasRemaining())
+				buffer = ByteBuffer.wrap(getEndpoint().receive());
+		}
+
+		/** Read a byte from a received datagram */
+		@Override
+		public int read() throws IOException {
+			fill();
+			return buffer.get() & 0xFF;
+		}
+
+		/** Read bytes from a received datagram */
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (len == 0)
+				return 0;
+			fill();
+			int n = Math.min(len, buffer.remaining());
+			buffer.get(b, off, n);
+			return n;
+		}
+
+		/** Get the number of available bytes */
+		@Override
+		public int available() {
+			return buffer.remaining();
+		}
+
+		/** Skip the given number of bytes in the input stream */
+		@Override
+		public long skip(long n) {
+			int s = (int)Math.min(n, buffer.remaining());
+			buffer.position(buffer.position() + s);
+			return s;
+		}
+	}
+}
@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2014  Minnesota Department of Transportation
+ * Copyright (C) 2014-2016  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -35,6 +35,9 @@ public interface DevicePoller {
 	/** Check if the poller was hung up */
 	boolean wasHungUp();
 
+	/** Get the average poll latency (ms) */
+	long getPollLatency();
+
 	/** Set the receive timeout */
 	void setTimeout(int t) throws IOException;
 
@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2011-2014  Minnesota Department of Transportation
+ * Copyright (C) 2011-2016  Minnesota Department of Transportation
  * Copyright (C) 2012  Iteris Inc.
  * Copyright (C) 2014  AHMCT, University of California
  *
@@ -22,7 +22,6 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
 import us.mn.state.dot.tms.CommProtocol;
-import us.mn.state.dot.tms.server.ModemImpl;
 import us.mn.state.dot.tms.server.comm.axisptz.AxisPTZPoller;
 import us.mn.state.dot.tms.server.comm.canoga.CanogaPoller;
 import us.mn.state.dot.tms.server.comm.cohuptz.CohuPTZPoller;
@@ -35,6 +34,7 @@ import us.mn.state.dot.tms.server.comm.mndot.MndotPoller;
 import us.mn.state.dot.tms.server.comm.msgfeed.MsgFeedPoller;
 import us.mn.state.dot.tms.server.comm.ntcip.HDLCMessenger;
 import us.mn.state.dot.tms.server.comm.ntcip.NtcipPoller;
+import us.mn.state.dot.tms.server.comm.ntcip.SNMP;
 import us.mn.state.dot.tms.server.comm.org815.Org815Poller;
 import us.mn.state.dot.tms.server.comm.pelco.PelcoPoller;
 import us.mn.state.dot.tms.server.comm.pelcod.PelcoDPoller;
@@ -143,8 +143,12 @@ public class DevicePollerFactory {
 			URI u = createURI(d_uri);
 			if ("tcp".equals(u.getScheme()))
 				return createStreamMessenger(u);
+			else if ("tcpnio".equals(u.getScheme()))
+				return createChannelMessenger(u);
 			else if ("udp".equals(u.getScheme()))
 				return createDatagramMessenger(u);
+			else if ("udpmux".equals(u.getScheme()))
+				return createDatagramMuxMessenger(u);
 			else if ("modem".equals(u.getScheme()))
 				return createModemMessenger(u);
 			else
@@ -177,11 +181,33 @@ public class DevicePollerFactory {
 		return new StreamMessenger(createSocketAddress(u));
 	}
 
+	/** Create a non-blocking TCP channel messenger */
+	private Messenger createChannelMessenger(URI u) throws IOException {
+		return new ChannelMessenger(createSocketAddress(u));
+	}
+
 	/** Create a UDP datagram messenger */
 	private Messenger createDatagramMessenger(URI u) throws IOException {
 		return new DatagramMessenger(createSocketAddress(u));
 	}
 
+	/** Create a UDP datagram mux messenger */
+	private Messenger createDatagramMuxMessenger(URI u) throws IOException {
+		return new DatagramMuxMessenger(createSocketAddress(u),
+			createRequestIdParser());
+	}
+
+	/** Create a request ID parser for the protocol */
+	private DatagramMux.RequestIdParser createRequestIdParser() {
+		switch (protocol) {
+		case NTCIP_A:
+		case NTCIP_C:
+			return SNMP.REQUEST_ID_PARSER;
+		default:
+			return null;
+		}
+	}
+
 	/** Create an inet socket address */
 	private InetSocketAddress createSocketAddress(URI u) throws IOException{
 		String host = u.getHost();
@@ -194,25 +220,10 @@ public class DevicePollerFactory {
 		}
 	}
 
-	/** Create a modem messenger */
+	/** Create a modem messenger.  The modem is acquired from the modem
+	 * scheduler when the messenger is opened. */
 	private Messenger createModemMessenger(URI u) throws IOException {
-		ModemImpl modem = ModemMessenger.getModem();
-		if (modem != null) {
-			return new ModemMessenger(new StreamMessenger(
-				createSocketAddress(createModemURI(modem))),
-				modem, u.getHost());
-		} else
-			throw new IOException("No modem available");
-	}
-
-	/** Create a URI for the modem */
-	private URI createModemURI(ModemImpl modem) throws IOException {
-		try {
-			return modem.createURI();
-		}
-		catch (URISyntaxException e) {
-			throw new IOException("INVALID MODEM URI");
-		}
+		return new ModemMessenger(name, u.getHost());
 	}
 
 	/** Create an http file messenger */
@@ -275,7 +286,9 @@ public class DevicePollerFactory {
 
 	/** Create a MSG FEED poller */
 	private DevicePoller createMsgFeedPoller() throws IOException {
-		return new MsgFeedPoller(name, createHttpFileMessenger());
+		HttpFileMessenger m = createHttpFileMessenger();
+		m.setConditional(true);
+		return new MsgFeedPoller(name, m);
 	}
 
 	/** Create a Pelco video switch poller */
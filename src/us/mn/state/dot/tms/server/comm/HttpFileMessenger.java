@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2007-2014  Minnesota Department of Transportation
+ * Copyright (C) 2007-2016  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -14,12 +14,15 @@
  */
 package us.mn.state.dot.tms.server.comm;
 
+import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLConnection;
+import java.util.HashMap;
 import us.mn.state.dot.tms.Base64;
 import us.mn.state.dot.tms.server.ControllerImpl;
 
@@ -51,6 +54,23 @@ public class HttpFileMessenger extends Messenger {
 	/** URL connection */
 	private URLConnection connection = null;
 
+	/** Flag to make conditional requests */
+	private boolean conditional = false;
+
+	/** Cache validators (ETag, Last-Modified) for each URL */
+	private final HashMap<String, String[]> validators =
+		new HashMap<String, String[]>();
+
+	/** URL of last conditional request */
+	private String cond_key = null;
+
+	/** Validators of last response, not yet stored.  They are only
+	 * stored after the response has been decoded successfully. */
+	private String[] pending = null;
+
+	/** Flag indicating the last response was "not modified" */
+	private boolean not_modified = false;
+
 	/** Create a new HTTP file messenger.
 	 * @param url The URL of the file to read. */
 	public HttpFileMessenger(URL url) {
@@ -69,6 +89,47 @@ public class HttpFileMessenger extends Messenger {
 		}
 	}
 
+	/** Enable or disable conditional requests.  When enabled, the
+	 * ETag and Last-Modified headers of each decoded response are
+	 * remembered.  If the next response for the same URL is "304 Not
+	 * Modified", an empty input stream is returned instead of the file.
+	 * @see #storeValidators
+	 * @see #clearValidators */
+	public void setConditional(boolean c) {
+		conditional = c;
+		if(!c)
+			validators.clear();
+	}
+
+	/** Store the validators of the last response.  This must be called
+	 * only after the response has been decoded successfully. */
+	public void storeValidators() {
+		String key = cond_key;
+		String[] v = pending;
+		if(key != null && v != null) {
+			if(v[0] != null || v[1] != null)
+				validators.put(key, v);
+			else
+				validators.remove(key);
+		}
+		pending = null;
+	}
+
+	/** Clear the validators of the last request, after an error reading
+	 * or decoding the response.  The next request will not be
+	 * conditional, so the file is read again. */
+	public void clearValidators() {
+		String key = cond_key;
+		if(key != null)
+			validators.remove(key);
+		pending = null;
+	}
+
+	/** Check if the last response was "not modified" */
+	public boolean isNotModified() {
+		return not_modified;
+	}
+
 	/** Open the messenger */
 	public void open() throws IOException {
 		open(null);
@@ -84,10 +145,41 @@ public class HttpFileMessenger extends Messenger {
 		}
 		c.setConnectTimeout(timeout);
 		c.setReadTimeout(timeout);
-		input = c.getInputStream();
+		not_modified = false;
+		pending = null;
+		if(conditional && c instanceof HttpURLConnection)
+			input = openConditional((HttpURLConnection)c);
+		else
+			input = c.getInputStream();
 		connection = c;
 	}
 
+	/** Open a conditional request on an HTTP connection */
+	private InputStream openConditional(HttpURLConnection c)
+		throws IOException
+	{
+		String key = c.getURL().toString();
+		cond_key = key;
+		String[] v = validators.get(key);
+		if(v != null) {
+			if(v[0] != null)
+				c.setRequestProperty("If-None-Match", v[0]);
+			if(v[1] != null)
+				c.setRequestProperty("If-Modified-Since", v[1]);
+		}
+		int code = c.getResponseCode();
+		if(code == HttpURLConnection.HTTP_NOT_MODIFIED) {
+			not_modified = true;
+			c.disconnect();
+			return new ByteArrayInputStream(new byte[0]);
+		}
+		InputStream is = c.getInputStream();
+		String etag = c.getHeaderField("ETag");
+		String lm = c.getHeaderField("Last-Modified");
+		pending = new String[] { etag, lm };
+		return is;
+	}
+
 	/** Close the messenger */
 	public void close() {
 		InputStream in = input;
@@ -123,7 +215,7 @@ public class HttpFileMessenger extends Messenger {
 		// make a new HTTP connection each time called
 		close();
 		open(c.getPassword());
-		return input;
+		return countInput(input);
 	}
 
 	/** Get an output stream for the specified controller */
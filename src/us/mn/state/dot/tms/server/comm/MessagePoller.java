@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2000-2014  Minnesota Department of Transportation
+ * Copyright (C) 2000-2016  Minnesota Department of Transportation
  * Copyright (C) 2014-2015  AHMCT, University of California
  *
  * This program is free software; you can redistribute it and/or modify
@@ -25,6 +25,7 @@ import us.mn.state.dot.sched.TimeSteward;
 import us.mn.state.dot.tms.CommProtocol;
 import us.mn.state.dot.tms.EventType;
 import us.mn.state.dot.tms.server.ControllerImpl;
+import us.mn.state.dot.tms.server.TraceRecorder;
 
 /**
  * MessagePoller is an abstract class which represents a communication channel 
@@ -78,6 +79,9 @@ abstract public class MessagePoller<T extends ControllerProperty>
 			POLL_LOG.log(thread.getName() + " " + msg);
 	}
 
+	/** Comm link name */
+	private final String link;
+
 	/** Thread to poll operations */
 	private final Thread thread;
 
@@ -106,7 +110,10 @@ abstract public class MessagePoller<T extends ControllerProperty>
 		if (s != null)
 			return s;
 		ThreadState ts = state;
-		return (ts == ThreadState.RUNNING) ? "" : ts.toString();
+		if (ts != ThreadState.RUNNING)
+			return ts.toString();
+		String cs = messenger.getConnectStatus();
+		return (cs != null) ? cs : "";
 	}
 
 	/** Check if ready for operation */
@@ -134,6 +141,21 @@ abstract public class MessagePoller<T extends ControllerProperty>
 		}
 	}
 
+	/** Average poll latency (ms) */
+	private long poll_latency = 0;
+
+	/** Get the average poll latency (ms) */
+	@Override
+	public long getPollLatency() {
+		return poll_latency;
+	}
+
+	/** Update the average poll latency */
+	private void updatePollLatency(long elapsed) {
+		long pl = poll_latency;
+		poll_latency = (pl > 0) ? (pl * 7 + elapsed) / 8 : elapsed;
+	}
+
 	/** Hung up flag */
 	private boolean hung_up = false;
 
@@ -171,6 +193,7 @@ abstract public class MessagePoller<T extends ControllerProperty>
 	 * @param idle max idle time (sec) to use for conn mode AUTO
 	 */
 	protected MessagePoller(String n, Messenger m, ConnMode cm, int idle) {
+		link = n;
 		conn_mode = cm;
 		max_idle = idle;
 		closer_job = new CloserJob();
@@ -202,10 +225,46 @@ abstract public class MessagePoller<T extends ControllerProperty>
 
 	/** Add an operation to the message poller */
 	protected void addOperation(Operation<T> op) {
-		if(queue.enqueue(op))
+		queueOperation(op);
+	}
+
+	/** Queue an operation.
+	 * @return true if the operation was queued. */
+	private boolean queueOperation(Operation<T> op) {
+		if (!isOperationAllowed(op)) {
+			plog("BREAKER OPEN " + op);
+			return false;
+		} else if(queue.enqueue(op)) {
 			ensureStarted();
-		else
+			return true;
+		} else {
 			plog("DROPPING " + op);
+			return false;
+		}
+	}
+
+	/** Check if the controller circuit breaker allows an operation.
+	 * Only periodic polls are gated by the breaker; commands and
+	 * downloads are always queued, and fail without retries while the
+	 * breaker is open. */
+	private boolean isOperationAllowed(Operation<T> op) {
+		return !(op instanceof OpController) ||
+		       !isPeriodic(op.getPriority()) ||
+		       ((OpController<T>)op).getController()
+		                            .isOperationAllowed();
+	}
+
+	/** Check if a priority level is used for periodic polls */
+	static private boolean isPeriodic(PriorityLevel p) {
+		switch (p) {
+		case DATA_30_SEC:
+		case DATA_5_MIN:
+		case DEVICE_DATA:
+		case DIAGNOSTIC:
+			return true;
+		default:
+			return false;
+		}
 	}
 
 	/** Ensure the thread is started */
@@ -226,15 +285,42 @@ abstract public class MessagePoller<T extends ControllerProperty>
 	/** Destroy the poller */
 	@Override
 	public final void destroy() {
-		if (isConnected())
+		if (isConnected()) {
 			addOperation(new KillThread<T>());
+			interruptPrepare();
+		}
+	}
+
+	/** Lock for preparing flag */
+	private final Object prepare_lock = new Object();
+
+	/** Flag indicating poller thread is waiting in prepare */
+	private boolean preparing = false;
+
+	/** Set the preparing flag.  When cleared, any interrupt from
+	 * interruptPrepare is also cleared. */
+	private void setPreparing(boolean p) {
+		synchronized (prepare_lock) {
+			preparing = p;
+			if (!p)
+				Thread.interrupted();
+		}
+	}
+
+	/** Interrupt the poller thread if it is waiting in prepare.  Other
+	 * waits are not interrupted, since that could close a channel. */
+	private void interruptPrepare() {
+		synchronized (prepare_lock) {
+			if (preparing)
+				thread.interrupt();
+		}
 	}
 
 	/** Open messenger and perform operations */
 	private void operationLoop() {
 		try {
 			if (conn_mode == ConnMode.PERSIST)
-				ensureOpen();
+				openMessenger();
 			else if (conn_mode == ConnMode.AUTO)
 				CLOSER.addJob(closer_job);
 			setThreadState(ThreadState.RUNNING);
@@ -266,6 +352,28 @@ abstract public class MessagePoller<T extends ControllerProperty>
 	/** Timestamp of last activity */
 	private long last_activity = 0;
 
+	/** Open the messenger, first waiting (without holding the poller
+	 * lock) for any shared resource it needs */
+	private void openMessenger() throws IOException {
+		if (!isMessengerOpen()) {
+			PriorityLevel p = queue.getPriority();
+			setPreparing(true);
+			try {
+				messenger.prepare((p != null) ? p
+					: PriorityLevel.DEVICE_DATA);
+			}
+			finally {
+				setPreparing(false);
+			}
+		}
+		ensureOpen();
+	}
+
+	/** Check if the messenger is open */
+	private synchronized boolean isMessengerOpen() {
+		return messenger_open;
+	}
+
 	private synchronized void ensureOpen() throws IOException {
 		if (messenger_open)
 			return;
@@ -311,13 +419,17 @@ abstract public class MessagePoller<T extends ControllerProperty>
 	private void performOperations() throws IOException {
 		while(true) {
 			Operation<T> o = queue.next();
+			if (o.isExpired()) {
+				expireOperation(o);
+				continue;
+			}
 			boolean acquire = (o.getPhase() instanceof
 				OpDevice.AcquireDevice);
 			// bump before poll to prevent closure during poll
 			bump();
-			ensureOpen();
 			if(o instanceof KillThread)
 				break;
+			openMessenger();
 			if(o instanceof OpController)
 				doPoll((OpController<T>)o);
 			// final bump when poll complete
@@ -328,10 +440,32 @@ abstract public class MessagePoller<T extends ControllerProperty>
 		}
 	}
 
+	/** Expire an operation which is past its deadline */
+	private void expireOperation(Operation<T> o) {
+		plog("EXPIRED " + o);
+		o.cleanup();
+	}
+
+	/** Add a sample data operation, which expires if it is not complete
+	 * before the end of the current sample period.  This is the
+	 * boundary after which the next period's query is dispatched.
+	 * @param op Sample operation.
+	 * @param p Sample period (sec).
+	 * @return true if the operation was queued. */
+	protected boolean addSampleOperation(Operation<T> op, int p) {
+		long now = TimeSteward.currentTimeMillis();
+		long per_ms = p * 1000L;
+		op.setDeadline(now - (now % per_ms) + per_ms);
+		return queueOperation(op);
+	}
+
 	/** Perform one poll for an operation */
 	private void doPoll(final OpController<T> o) throws IOException {
 		final String oname = o.toString();
 		long start = TimeSteward.currentTimeMillis();
+		long t_start = TraceRecorder.start();
+		long b_out = messenger.getBytesOut();
+		long b_in = messenger.getBytesIn();
 		try {
 			o.poll(createCommMessage(o));
 		}
@@ -364,9 +498,16 @@ abstract public class MessagePoller<T extends ControllerProperty>
 		finally {
 			if(o.isDone() || !requeueOperation(o))
 				o.cleanup();
-			if(POLL_LOG.isOpen()) {
-				plog(oname + " elapsed: " +
-					calculate_elapsed(start));
+			long elapsed = calculate_elapsed(start);
+			updatePollLatency(elapsed);
+			if(POLL_LOG.isOpen())
+				plog(oname + " elapsed: " + elapsed);
+			if(TraceRecorder.isEnabled()) {
+				TraceRecorder.record(TraceRecorder.Type.POLL,
+					t_start, link, o.getController(),
+					o.getOpName(), oname,
+					messenger.getBytesOut() - b_out,
+					messenger.getBytesIn() - b_in);
 			}
 		}
 	}
@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2007-2014  Minnesota Department of Transportation
+ * Copyright (C) 2007-2016  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -15,10 +15,13 @@
 package us.mn.state.dot.tms.server.comm;
 
 import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import us.mn.state.dot.tms.server.ControllerImpl;
+import us.mn.state.dot.tms.server.TraceRecorder;
 
 /**
  * A Messenger is a class which can poll a field controller and get the
@@ -34,12 +37,96 @@ abstract public class Messenger {
 	/** Output stream */
 	protected OutputStream output;
 
+	/** Count of bytes read (only while tracing) */
+	private long bytes_in = 0;
+
+	/** Get the count of bytes read (only while tracing) */
+	public long getBytesIn() {
+		return bytes_in;
+	}
+
+	/** Count of bytes written (only while tracing) */
+	private long bytes_out = 0;
+
+	/** Get the count of bytes written (only while tracing) */
+	public long getBytesOut() {
+		return bytes_out;
+	}
+
+	/** Input stream which counts bytes read */
+	private class CountingInputStream extends FilterInputStream {
+		private CountingInputStream(InputStream is) {
+			super(is);
+		}
+		@Override public int read() throws IOException {
+			int b = in.read();
+			if (b >= 0)
+				bytes_in++;
+			return b;
+		}
+		@Override public int read(byte[] b, int off, int len)
+			throws IOException
+		{
+			int n = in.read(b, off, len);
+			if (n > 0)
+				bytes_in += n;
+			return n;
+		}
+	}
+
+	/** Output stream which counts bytes written */
+	private class CountingOutputStream extends FilterOutputStream {
+		private CountingOutputStream(OutputStream os) {
+			super(os);
+		}
+		@Override public void write(int b) throws IOException {
+			out.write(b);
+			bytes_out++;
+		}
+		@Override public void write(byte[] b, int off, int len)
+			throws IOException
+		{
+			out.write(b, off, len);
+			bytes_out += len;
+		}
+	}
+
+	/** Wrap an input stream to count bytes read, if tracing */
+	protected final InputStream countInput(InputStream is) {
+		if (is != null && TraceRecorder.isEnabled())
+			return new CountingInputStream(is);
+		else
+			return is;
+	}
+
+	/** Wrap an output stream to count bytes written, if tracing */
+	protected final OutputStream countOutput(OutputStream os) {
+		if (os != null && TraceRecorder.isEnabled())
+			return new CountingOutputStream(os);
+		else
+			return os;
+	}
+
+	/** Prepare to open the messenger.  This may wait for a shared
+	 * resource, such as a modem, so it must not be called while holding
+	 * a lock.
+	 * @param p Priority of pending operations. */
+	public void prepare(PriorityLevel p) throws IOException {
+		// subclasses may override
+	}
+
 	/** Open the messenger */
 	abstract public void open() throws IOException;
 
 	/** Close the messenger */
 	abstract public void close();
 
+	/** Get the connection status.
+	 * @return Status message, or null if there is no problem. */
+	public String getConnectStatus() {
+		return null;
+	}
+
 	/** Set the messenger timeout */
 	abstract public void setTimeout(int t) throws IOException;
 
@@ -63,7 +150,7 @@ abstract public class Messenger {
 		if(is == null)
 			throw new EOFException("MESSENGER CLOSED");
 		else
-			return input;
+			return countInput(input);
 	}
 
 	/** Close the input stream */
@@ -93,7 +180,7 @@ abstract public class Messenger {
 		if(os == null)
 			throw new EOFException("MESSENGER CLOSED");
 		else
-			return os;
+			return countOutput(os);
 	}
 
 	/** Close the output stream */
@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2008-2014  Minnesota Department of Transportation
+ * Copyright (C) 2008-2016  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -19,17 +19,19 @@ import java.io.InputStreamReader;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
+import java.net.InetSocketAddress;
 import java.net.SocketTimeoutException;
-import java.util.Iterator;
+import java.net.URI;
+import java.net.URISyntaxException;
 import us.mn.state.dot.sched.DebugLog;
-import us.mn.state.dot.tms.Modem;
-import us.mn.state.dot.tms.ModemHelper;
+import us.mn.state.dot.sched.TimeSteward;
 import us.mn.state.dot.tms.ModemState;
 import us.mn.state.dot.tms.server.ModemImpl;
 
 /**
  * A Modem Messenger provides modem dialup support on top of another messenger
- * (such as StreamMessenger).
+ * (such as StreamMessenger).  A modem is acquired from the modem scheduler
+ * before opening, and released when the messenger is closed.
  *
  * @author Douglas Lau
  */
@@ -38,25 +40,34 @@ public class ModemMessenger extends Messenger {
 	/** Modem debug log */
 	static private final DebugLog MODEM_LOG = new DebugLog("modem");
 
-	/** Get the first available modem */
-	static public ModemImpl getModem() {
-		Iterator<Modem> it = ModemHelper.iterator();
-		while(it.hasNext()) {
-			Modem m = it.next();
-			if(m instanceof ModemImpl) {
-				ModemImpl mdm = (ModemImpl)m;
-				if(mdm.acquire())
-					return mdm;
-			}
+	/** Maximum time to wait for a modem (ms) */
+	static private final long MODEM_WAIT_MS = 5 * 60 * 1000;
+
+	/** Create a stream messenger for a modem */
+	static private Messenger createStreamMessenger(ModemImpl modem)
+		throws IOException
+	{
+		try {
+			URI u = modem.createURI();
+			return new StreamMessenger(new InetSocketAddress(
+				u.getHost(), u.getPort()));
+		}
+		catch (URISyntaxException e) {
+			throw new IOException("INVALID MODEM URI");
+		}
+		catch (IllegalArgumentException e) {
+			throw new IOException(e.getMessage());
 		}
-		return null;
 	}
 
+	/** Name of comm link */
+	private final String link;
+
 	/** Wrapped messenger */
-	protected final Messenger wrapped;
+	protected Messenger wrapped;
 
 	/** Modem to dial */
-	protected final ModemImpl modem;
+	protected ModemImpl modem;
 
 	/** Set the modem state */
 	private void setState(ModemState ms) {
@@ -72,29 +83,73 @@ public class ModemMessenger extends Messenger {
 
 	/** Log a message to debug log */
 	private void log(String msg) {
-		if(MODEM_LOG.isOpen())
-			MODEM_LOG.log(modem.getName() + ": " + msg);
+		if(MODEM_LOG.isOpen()) {
+			ModemImpl m = modem;
+			String n = (m != null) ? m.getName() : link;
+			MODEM_LOG.log(n + ": " + msg);
+		}
 	}
 
-	/** Create a new modem messenger */
-	public ModemMessenger(Messenger m, ModemImpl mdm, String phone) {
-		wrapped = m;
-		modem = mdm;
+	/** Create a new modem messenger.
+	 * @param l Name of comm link.
+	 * @param phone Phone number to dial. */
+	public ModemMessenger(String l, String phone) {
+		link = l;
 		phone_number = phone.replace("p", ",");
 		log("created ModemMessenger");
 	}
 
+	/** Get the connection status */
+	@Override
+	public String getConnectStatus() {
+		Messenger m = wrapped;
+		return (m != null) ? m.getConnectStatus() : null;
+	}
+
 	/** Set the messenger timeout */
 	@Override
 	public void setTimeout(int t) throws IOException {
 		log("set timeout to " + t + " ms");
-		wrapped.setTimeout(t);
+		Messenger w = wrapped;
+		if(w != null)
+			w.setTimeout(t);
 		timeout = t;
 	}
 
-	/** Open the messenger */
+	/** Prepare to open the messenger by waiting for a modem.  Operations
+	 * queued while waiting will be performed in the same call.
+	 * @param p Priority of pending operations. */
+	@Override
+	public void prepare(PriorityLevel p) throws IOException {
+		if(modem == null)
+			acquireModem(p, MODEM_WAIT_MS);
+	}
+
+	/** Acquire a modem from the scheduler */
+	private void acquireModem(PriorityLevel p, long wait_ms)
+		throws IOException
+	{
+		ModemImpl m = ModemScheduler.getInstance().acquire(link, p,
+			wait_ms);
+		if(m == null)
+			throw new IOException("No modem available");
+		try {
+			wrapped = createStreamMessenger(m);
+			wrapped.setTimeout(timeout);
+		}
+		catch(IOException e) {
+			ModemScheduler.getInstance().release(m);
+			throw e;
+		}
+		modem = m;
+	}
+
+	/** Open the messenger.  On failure, the wrapped messenger is closed
+	 * and the modem is released back to the scheduler. */
 	@Override
 	public void open() throws IOException {
+		if(modem == null)
+			acquireModem(PriorityLevel.DEVICE_DATA, 0);
 		log("open");
 		try {
 			wrapped.open();
@@ -102,30 +157,49 @@ public class ModemMessenger extends Messenger {
 		}
 		catch(IOException e) {
 			setState(ModemState.open_error);
+			close();
 			throw e;
 		}
-		output = wrapped.getOutputStream();
-		input = new ModemInputStream(wrapped.getInputStream(""));
+		long start = TimeSteward.currentTimeMillis();
 		try {
+			output = wrapped.getOutputStream();
+			input = new ModemInputStream(wrapped.getInputStream(
+				""));
 			connectModemRetry();
+			recordConnect(start, true);
 			setState(ModemState.online);
 		}
 		catch(IOException e) {
+			recordConnect(start, false);
 			setState(ModemState.connect_error);
+			close();
 			throw e;
 		}
 	}
 
+	/** Record the time to connect a call */
+	private void recordConnect(long start, boolean ok) {
+		long ms = TimeSteward.currentTimeMillis() - start;
+		ModemScheduler.getInstance().recordConnect(modem, ms, ok);
+	}
+
 	/** Close the messenger */
 	@Override
 	public void close() {
 		log("close");
-		wrapped.close();
+		Messenger w = wrapped;
+		if(w != null)
+			w.close();
 		output = null;
 		input = null;
-		if(!ModemState.isError(modem.getState()))
-			setState(ModemState.offline);
-		modem.release();
+		ModemImpl m = modem;
+		if(m != null) {
+			if(!ModemState.isError(m.getState()))
+				setState(ModemState.offline);
+			ModemScheduler.getInstance().release(m);
+		}
+		wrapped = null;
+		modem = null;
 	}
 
 	/** Connect the modem with up to three tries */
@@ -0,0 +1,295 @@
+/*
+ * IRIS -- Intelligent Roadway Information System
+ * Copyright (C) 2016  Minnesota Department of Transportation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package us.mn.state.dot.tms.server.comm;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.PriorityQueue;
+import us.mn.state.dot.sched.DebugLog;
+import us.mn.state.dot.sched.TimeSteward;
+import us.mn.state.dot.tms.Modem;
+import us.mn.state.dot.tms.ModemHelper;
+import us.mn.state.dot.tms.server.ModemImpl;
+
+/**
+ * The modem scheduler assigns modems from the pool to dial-up comm links.
+ * Links waiting for a modem are served in priority order, then oldest
+ * first.  While a link waits, operations for its controller accumulate in
+ * the poller queue, so they are all performed in a single call.  Usage and
+ * connect time are tracked for each modem.
+ *
+ * @author Douglas Lau
+ */
+public class ModemScheduler {
+
+	/** Modem debug log */
+	static private final DebugLog MODEM_LOG = new DebugLog("modem");
+
+	/** Interval to check for new or enabled modems while waiting (ms) */
+	static private final long CHECK_MS = 5000;
+
+	/** Singleton modem scheduler */
+	static private final ModemScheduler SCHEDULER = new ModemScheduler();
+
+	/** Get the modem scheduler */
+	static public ModemScheduler getInstance() {
+		return SCHEDULER;
+	}
+
+	/** Request for a modem */
+	static private class Request implements Comparable<Request> {
+		private final String link;
+		private final PriorityLevel priority;
+		private final long seq;
+		private final long stamp;
+		private Request(String l, PriorityLevel p, long s, long st) {
+			link = l;
+			priority = p;
+			seq = s;
+			stamp = st;
+		}
+		/** Compare for priority, then age */
+		public int compareTo(Request o) {
+			int c = priority.ordinal() - o.priority.ordinal();
+			if (c != 0)
+				return c;
+			return (seq < o.seq) ? -1 : ((seq > o.seq) ? 1 : 0);
+		}
+	}
+
+	/** Usage statistics for one modem */
+	static public class Usage {
+
+		/** Time statistics started */
+		private final long start;
+
+		/** Count of calls */
+		private int calls;
+
+		/** Count of failed connects */
+		private int failures;
+
+		/** Total time in use (ms) */
+		private long busy_ms;
+
+		/** Total time to connect (ms) */
+		private long connect_ms;
+
+		/** Time of current acquire, or 0 if idle */
+		private long acquired;
+
+		/** Create new usage statistics */
+		private Usage(long now) {
+			start = now;
+		}
+
+		/** Get the count of calls */
+		public synchronized int getCalls() {
+			return calls;
+		}
+
+		/** Get the count of failed connects */
+		public synchronized int getFailures() {
+			return failures;
+		}
+
+		/** Get the average time to connect (ms) */
+		public synchronized long getConnectAvg() {
+			int n = calls - failures;
+			return (n > 0) ? connect_ms / n : 0;
+		}
+
+		/** Get the utilization (0 to 1) */
+		public synchronized float getUtilization(long now) {
+			long b = busy_ms;
+			if (acquired > 0)
+				b += now - acquired;
+			long t = now - start;
+			return (t > 0) ? (float)b / t : 0;
+		}
+
+		/** Get usage as a string */
+		public synchronized String toString() {
+			long now = TimeSteward.currentTimeMillis();
+			return calls + " calls, " + failures + " failed, " +
+				"connect " + getConnectAvg() + " ms, " +
+				Math.round(getUtilization(now) * 100) +
+				"% used";
+		}
+	}
+
+	/** Queue of requests waiting for a modem */
+	private final PriorityQueue<Request> waiting =
+		new PriorityQueue<Request>();
+
+	/** Usage statistics for each modem */
+	private final HashMap<String, Usage> usage =
+		new HashMap<String, Usage>();
+
+	/** Sequence number for requests */
+	private long seq = 0;
+
+	/** Don't allow instances to be created */
+	private ModemScheduler() { }
+
+	/** Log a message to debug log */
+	private void log(String msg) {
+		if (MODEM_LOG.isOpen())
+			MODEM_LOG.log(msg);
+	}
+
+	/** Acquire a modem, waiting for one to become available.
+	 * @param link Name of comm link.
+	 * @param p Priority of pending operations.
+	 * @param wait_ms Maximum time to wait (ms).
+	 * @return Modem, or null if none was available in time (or the
+	 *         waiting thread was interrupted). */
+	public synchronized ModemImpl acquire(String link, PriorityLevel p,
+		long wait_ms)
+	{
+		long now = TimeSteward.currentTimeMillis();
+		Request req = new Request(link, p, seq++, now);
+		waiting.add(req);
+		try {
+			long end = now + wait_ms;
+			while (true) {
+				if (waiting.peek() == req) {
+					ModemImpl m = acquireIdle();
+					if (m != null) {
+						acquired(req, m);
+						return m;
+					}
+				}
+				long w = end - TimeSteward.currentTimeMillis();
+				if (w <= 0) {
+					log(link + ": no modem in " + wait_ms +
+						" ms, " + waiting.size() +
+						" waiting");
+					return null;
+				}
+				wait(Math.min(w, CHECK_MS));
+			}
+		}
+		catch (InterruptedException e) {
+			log(link + ": modem wait interrupted");
+			Thread.currentThread().interrupt();
+			return null;
+		}
+		finally {
+			waiting.remove(req);
+			notifyAll();
+		}
+	}
+
+	/** Acquire the least used idle modem.  If one cannot be acquired,
+	 * the next least used is tried. */
+	private ModemImpl acquireIdle() {
+		final long now = TimeSteward.currentTimeMillis();
+		ArrayList<ModemImpl> idle = new ArrayList<ModemImpl>();
+		Iterator<Modem> it = ModemHelper.iterator();
+		while (it.hasNext()) {
+			Modem m = it.next();
+			if (m instanceof ModemImpl && !((ModemImpl)m).isOwned())
+				idle.add((ModemImpl)m);
+		}
+		Collections.sort(idle, new Comparator<ModemImpl>() {
+			public int compare(ModemImpl m0, ModemImpl m1) {
+				return Float.compare(
+					lookupUsage(m0).getUtilization(now),
+					lookupUsage(m1).getUtilization(now));
+			}
+		});
+		for (ModemImpl m: idle) {
+			if (m.acquire())
+				return m;
+			log(m.getName() + ": acquire failed");
+		}
+		return null;
+	}
+
+	/** Lookup usage statistics for a modem */
+	private Usage lookupUsage(ModemImpl m) {
+		Usage u = usage.get(m.getName());
+		if (u == null) {
+			u = new Usage(TimeSteward.currentTimeMillis());
+			usage.put(m.getName(), u);
+		}
+		return u;
+	}
+
+	/** Record a modem acquired for a request */
+	private void acquired(Request req, ModemImpl m) {
+		long now = TimeSteward.currentTimeMillis();
+		Usage u = lookupUsage(m);
+		synchronized (u) {
+			u.calls++;
+			u.acquired = now;
+		}
+		log(m.getName() + ": acquired by " + req.link + " (" +
+			req.priority + ") after " + (now - req.stamp) + " ms");
+	}
+
+	/** Record the time to connect a call.
+	 * @param m Modem.
+	 * @param ms Time to connect (ms).
+	 * @param ok true if call connected. */
+	public synchronized void recordConnect(ModemImpl m, long ms,
+		boolean ok)
+	{
+		Usage u = lookupUsage(m);
+		synchronized (u) {
+			if (ok)
+				u.connect_ms += ms;
+			else
+				u.failures++;
+		}
+	}
+
+	/** Release a modem, making it available to the next request */
+	public synchronized void release(ModemImpl m) {
+		long now = TimeSteward.currentTimeMillis();
+		Usage u = lookupUsage(m);
+		synchronized (u) {
+			if (u.acquired > 0) {
+				u.busy_ms += now - u.acquired;
+				u.acquired = 0;
+			}
+		}
+		m.release();
+		log(m.getName() + ": released, " + u);
+		notifyAll();
+	}
+
+	/** Get usage statistics for a modem */
+	public synchronized Usage getUsage(ModemImpl m) {
+		return lookupUsage(m);
+	}
+
+	/** Get the number of modems available for new calls.  This is the
+	 * number of idle modems minus the number of waiting requests. */
+	public synchronized int getAvailableCount() {
+		int n = 0;
+		Iterator<Modem> it = ModemHelper.iterator();
+		while (it.hasNext()) {
+			Modem m = it.next();
+			if (m instanceof ModemImpl && !((ModemImpl)m).isOwned())
+				n++;
+		}
+		return n - waiting.size();
+	}
+}
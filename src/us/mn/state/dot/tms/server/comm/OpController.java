@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2005-2014  Minnesota Department of Transportation
+ * Copyright (C) 2005-2016  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -152,13 +152,21 @@ abstract public class OpController<T extends ControllerProperty>
 	public void cleanup() {
 		updateMaintStatus();
 		updateErrorStatus();
-		controller.completeOperation(id, isSuccess());
+		if (isExpired()) {
+			if (COMM_LOG.isOpen())
+				COMM_LOG.log(id + " EXPIRED, " + this);
+			controller.expireOperation();
+		}
+		else
+			controller.completeOperation(id, isSuccess());
 		super.cleanup();
 	}
 
 	/** Get the error retry threshold */
 	@Override
 	public int getRetryThreshold() {
-		return (controller.isFailed()) ? 0 : super.getRetryThreshold();
+		return (controller.isFailed() || controller.isBreakerOpen())
+		      ? 0
+		      : super.getRetryThreshold();
 	}
 }
@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2002-2014  Minnesota Department of Transportation
+ * Copyright (C) 2002-2016  Minnesota Department of Transportation
  * Copyright (C) 2014-2015  AHMCT, University of California
  *
  * This program is free software; you can redistribute it and/or modify
@@ -108,6 +108,37 @@ abstract public class Operation<T extends ControllerProperty> {
 		phase = null;
 	}
 
+	/** Deadline for operation (ms since epoch), or 0 for none */
+	private long deadline = 0;
+
+	/** Set the deadline for the operation.  If the deadline passes
+	 * before the operation is complete, it will be expired.
+	 * @param d Deadline (ms since epoch), or 0 for none. */
+	public final void setDeadline(long d) {
+		deadline = d;
+	}
+
+	/** Check if the deadline has passed.
+	 * @param now Current time (ms since epoch). */
+	public final boolean isPastDeadline(long now) {
+		return deadline > 0 && now >= deadline;
+	}
+
+	/** Flag indicating the operation expired */
+	private boolean expired = false;
+
+	/** Check if the operation expired */
+	public final boolean isExpired() {
+		return expired;
+	}
+
+	/** Set the operation to expired.  This does not count as a failure,
+	 * since the controller was never polled. */
+	public synchronized final void setExpired() {
+		expired = true;
+		phase = null;
+	}
+
 	/** Perform a poll with the current phase.
 	 * @param mess Message to use for polling. */
 	public final void poll(CommMessage<T> mess) throws IOException,
@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2000-2014  Minnesota Department of Transportation
+ * Copyright (C) 2000-2016  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -15,6 +15,7 @@
 package us.mn.state.dot.tms.server.comm;
 
 import java.io.PrintStream;
+import us.mn.state.dot.sched.TimeSteward;
 
 /**
  * A prioritized queue which sorts Operation objects by their priority
@@ -54,20 +55,27 @@ public final class OperationQueue<T extends ControllerProperty> {
 		return !closing && !contains(op);
 	}
 
-	/** Check if the queue contains a given operation */
+	/** Check if the queue contains a given operation.  Operations past
+	 * their deadline are ignored, so they can be replaced. */
 	private boolean contains(Operation<T> op) {
-		if (op.equals(work) && !work.isDone())
+		long now = TimeSteward.currentTimeMillis();
+		if (op.equals(work) && isPending(work, now))
 			return true;
 		Node<T> node = front;
 		while (node != null) {
 			Operation<T> nop = node.operation;
-			if (op.equals(nop) && !nop.isDone())
+			if (op.equals(nop) && isPending(nop, now))
 				return true;
 			node = node.next;
 		}
 		return false;
 	}
 
+	/** Check if an operation is pending (not done or past deadline) */
+	private boolean isPending(Operation<T> op, long now) {
+		return !op.isDone() && !op.isPastDeadline(now);
+	}
+
 	/** Add an operation to the queue */
 	private void add(Operation<T> op) {
 		PriorityLevel priority = op.getPriority();
@@ -118,17 +126,36 @@ public final class OperationQueue<T extends ControllerProperty> {
 		return null;
 	}
 
+	/** Get the highest priority of the current and queued operations.
+	 * @return Priority level, or null if the queue is empty. */
+	public synchronized PriorityLevel getPriority() {
+		Operation<T> w = work;
+		if (w != null && front != null) {
+			return (w.getPriority().ordinal() <=
+			        front.priority.ordinal())
+			      ? w.getPriority()
+			      : front.priority;
+		} else if (w != null)
+			return w.getPriority();
+		else
+			return (front != null) ? front.priority : null;
+	}
+
 	/** Does the queue have any elements? */
 	public synchronized boolean hasNext() {
 		return front != null;
 	}
 
-	/** Get the next operation from the queue (and remove it) */
+	/** Get the next operation from the queue (and remove it).  An
+	 * operation past its deadline is set to expired instead of being
+	 * performed. */
 	public synchronized Operation<T> next() {
 		work = null;
 		waitOp();
 		work = front.operation;
 		front = front.next;
+		if (work.isPastDeadline(TimeSteward.currentTimeMillis()))
+			work.setExpired();
 		return work;
 	}
 
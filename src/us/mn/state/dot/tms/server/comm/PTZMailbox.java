@@ -0,0 +1,194 @@
+/*
+ * IRIS -- Intelligent Roadway Information System
+ * Copyright (C) 2016  Minnesota Department of Transportation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package us.mn.state.dot.tms.server.comm;
+
+import java.util.HashMap;
+import us.mn.state.dot.sched.DebugLog;
+import us.mn.state.dot.sched.TimeSteward;
+import us.mn.state.dot.tms.server.CameraImpl;
+
+/**
+ * A PTZ mailbox holds the latest pan/tilt/zoom command for each camera on
+ * a camera poller.  Posting a command replaces any command which has not
+ * been sent yet, so a slow link only transmits the most recent one.  At
+ * most one move operation is queued for each camera; it takes commands
+ * from the mailbox until there are none left.
+ *
+ * @author Douglas Lau
+ */
+public class PTZMailbox {
+
+	/** PTZ debug log */
+	static private final DebugLog PTZ_LOG = new DebugLog("ptz");
+
+	/** Time after which a scheduled operation is assumed lost (ms) */
+	static private final long STALE_MS = 30000;
+
+	/** A pan/tilt/zoom command */
+	static public final class Command {
+
+		/** Pan vector (-1 to 1) */
+		public final float pan;
+
+		/** Tilt vector (-1 to 1) */
+		public final float tilt;
+
+		/** Zoom vector (-1 to 1) */
+		public final float zoom;
+
+		/** Time command was posted */
+		private final long posted;
+
+		/** Create a new PTZ command */
+		private Command(float p, float t, float z, long now) {
+			pan = p;
+			tilt = t;
+			zoom = z;
+			posted = now;
+		}
+
+		/** Check if the command is a stop command */
+		public boolean isStop() {
+			return pan == 0 && tilt == 0 && zoom == 0;
+		}
+
+		/** Get a string representation of the command */
+		@Override
+		public String toString() {
+			return "p: " + pan + ", t: " + tilt + ", z: " + zoom;
+		}
+	}
+
+	/** Mailbox slot for one camera */
+	static private final class Slot {
+
+		/** Latest command not yet taken */
+		private Command latest;
+
+		/** Flag indicating a move operation is queued */
+		private boolean scheduled;
+
+		/** Time of last schedule or take */
+		private long touched;
+	}
+
+	/** Mailbox slots for all cameras */
+	private final HashMap<CameraImpl, Slot> slots =
+		new HashMap<CameraImpl, Slot>();
+
+	/** Count of commands sent */
+	private int n_sent = 0;
+
+	/** Count of commands replaced before being sent */
+	private int n_replaced = 0;
+
+	/** Total latency of sent commands (ms) */
+	private long latency_ms = 0;
+
+	/** Maximum latency of sent commands (ms) */
+	private long latency_max = 0;
+
+	/** Lookup the slot for a camera */
+	private Slot lookupSlot(CameraImpl c) {
+		Slot s = slots.get(c);
+		if (s == null) {
+			s = new Slot();
+			slots.put(c, s);
+		}
+		return s;
+	}
+
+	/** Post a PTZ command for a camera.
+	 * @param c Camera.
+	 * @param p Pan vector.
+	 * @param t Tilt vector.
+	 * @param z Zoom vector.
+	 * @return true if a move operation should be queued. */
+	public synchronized boolean post(CameraImpl c, float p, float t,
+		float z)
+	{
+		long now = TimeSteward.currentTimeMillis();
+		Slot s = lookupSlot(c);
+		if (s.latest != null)
+			n_replaced++;
+		s.latest = new Command(p, t, z, now);
+		if (!s.scheduled || now - s.touched > STALE_MS) {
+			s.scheduled = true;
+			s.touched = now;
+			return true;
+		} else
+			return false;
+	}
+
+	/** Take the latest command for a camera.
+	 * @return Latest command, or null if none is waiting. */
+	public synchronized Command take(CameraImpl c) {
+		Slot s = slots.get(c);
+		if (s != null) {
+			Command cmd = s.latest;
+			s.latest = null;
+			s.touched = TimeSteward.currentTimeMillis();
+			return cmd;
+		} else
+			return null;
+	}
+
+	/** Finish a move operation for a camera.
+	 * @return true if the operation is done, or false if a new command
+	 *         was posted and the operation should continue. */
+	public synchronized boolean finish(CameraImpl c) {
+		Slot s = slots.get(c);
+		if (s != null && s.latest != null)
+			return false;
+		if (s != null)
+			s.scheduled = false;
+		return true;
+	}
+
+	/** Cancel pending commands for a camera, after an operation has
+	 * failed or been cleaned up. */
+	public synchronized void cancel(CameraImpl c) {
+		slots.remove(c);
+	}
+
+	/** Record that a command was written to the link */
+	public synchronized void sent(CameraImpl c, Command cmd) {
+		long ms = TimeSteward.currentTimeMillis() - cmd.posted;
+		n_sent++;
+		latency_ms += ms;
+		latency_max = Math.max(latency_max, ms);
+		if (PTZ_LOG.isOpen()) {
+			PTZ_LOG.log(c.getName() + ": " + cmd + ", latency " +
+				ms + " ms (avg " + (latency_ms / n_sent) +
+				", max " + latency_max + ", replaced " +
+				n_replaced + ")");
+		}
+	}
+
+	/** Get the average latency from post to send (ms) */
+	public synchronized long getAverageLatency() {
+		return (n_sent > 0) ? latency_ms / n_sent : 0;
+	}
+
+	/** Get the maximum latency from post to send (ms) */
+	public synchronized long getMaxLatency() {
+		return latency_max;
+	}
+
+	/** Get the count of commands replaced before being sent */
+	public synchronized int getReplacedCount() {
+		return n_replaced;
+	}
+}
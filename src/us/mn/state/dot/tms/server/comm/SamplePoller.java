@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2009-2014  Minnesota Department of Transportation
+ * Copyright (C) 2009-2016  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -34,6 +34,7 @@ public interface SamplePoller extends DevicePoller {
 
 	/** Query sample data.
  	 * @param c Controller to poll.
- 	 * @param p Sample period in seconds. */
-	void querySamples(ControllerImpl c, int p);
+ 	 * @param p Sample period in seconds.
+ 	 * @return true if samples for the period will be stored. */
+	boolean querySamples(ControllerImpl c, int p);
 }
@@ -0,0 +1,108 @@
+/*
+ * IRIS -- Intelligent Roadway Information System
+ * Copyright (C) 2016  Minnesota Department of Transportation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package us.mn.state.dot.tms.server.comm;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+
+/**
+ * A hashed timer wheel.  Timeouts are placed into slots by deadline, so
+ * scheduling is constant time and each tick only checks one slot.
+ *
+ * @author Douglas Lau
+ */
+public class TimerWheel {
+
+	/** A timeout scheduled on the wheel */
+	static abstract public class Timeout {
+
+		/** Deadline (ms) */
+		private long deadline;
+
+		/** Called when the deadline has passed */
+		abstract protected void expire();
+	}
+
+	/** Tick interval (ms) */
+	private final long tick;
+
+	/** Slots of scheduled timeouts */
+	private final ArrayList<ArrayList<Timeout>> slots;
+
+	/** Last tick which was processed */
+	private long last_tick;
+
+	/** Create a new timer wheel.
+	 * @param t Tick interval (ms).
+	 * @param n_slots Number of slots.
+	 * @param now Current time (ms). */
+	public TimerWheel(long t, int n_slots, long now) {
+		tick = t;
+		slots = new ArrayList<ArrayList<Timeout>>(n_slots);
+		for (int i = 0; i < n_slots; i++)
+			slots.add(new ArrayList<Timeout>());
+		last_tick = now / tick;
+	}
+
+	/** Get the tick interval (ms) */
+	public long getTick() {
+		return tick;
+	}
+
+	/** Schedule a timeout.
+	 * @param to Timeout to schedule.
+	 * @param deadline Time to expire (ms). */
+	public synchronized void schedule(Timeout to, long deadline) {
+		to.deadline = deadline;
+		// Round up, so the deadline has passed when the slot is
+		// processed.  Never place a timeout into a processed slot.
+		long t = Math.max((deadline + tick - 1) / tick, last_tick + 1);
+		slots.get(slotIndex(t)).add(to);
+	}
+
+	/** Get the slot index for a tick */
+	private int slotIndex(long t) {
+		return (int)(t % slots.size());
+	}
+
+	/** Advance the wheel, expiring all timeouts which have passed.
+	 * @param now Current time (ms). */
+	public void advance(long now) {
+		for (Timeout to: collectExpired(now))
+			to.expire();
+	}
+
+	/** Collect expired timeouts, removing them from the wheel */
+	private synchronized ArrayList<Timeout> collectExpired(long now) {
+		ArrayList<Timeout> expired = new ArrayList<Timeout>();
+		long t = now / tick;
+		// Only one full rotation needs to be checked
+		long first = Math.max(last_tick + 1, t - slots.size() + 1);
+		for (long i = first; i <= t; i++) {
+			Iterator<Timeout> it = slots.get(slotIndex(i))
+				.iterator();
+			while (it.hasNext()) {
+				Timeout to = it.next();
+				if (to.deadline <= now) {
+					it.remove();
+					expired.add(to);
+				}
+			}
+		}
+		if (t > last_tick)
+			last_tick = t;
+		return expired;
+	}
+}
@@ -1,6 +1,7 @@
 /*
  * IRIS -- Intelligent Roadway Information System
  * Copyright (C) 2014-2015  AHMCT, University of California
+ * Copyright (C) 2016  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -27,6 +28,7 @@ import us.mn.state.dot.tms.server.CameraImpl;
 import us.mn.state.dot.tms.server.comm.CameraPoller;
 import static us.mn.state.dot.tms.server.comm.MessagePoller.ConnMode;
 import us.mn.state.dot.tms.server.comm.Messenger;
+import us.mn.state.dot.tms.server.comm.PTZMailbox;
 import us.mn.state.dot.tms.server.comm.TransientPoller;
 import us.mn.state.dot.tms.utils.HexString;
 
@@ -50,14 +52,8 @@ public class AxisPTZPoller extends TransientPoller<AxisPTZProperty>
 	private String host = null;
 	private Integer port = null;
 
-	/** Current unmapped pan value */
-	private float cur_p = 0.0F;
-
-	/** Current unmapped tilt value */
-	private float cur_t = 0.0F;
-
-	/** Current unmapped zoom value */
-	private float cur_z = 0.0F;
+	/** Mailbox for PTZ commands */
+	private final PTZMailbox ptz = new PTZMailbox();
 
 	/**
 	 * Create a new Axis PTZ poller.
@@ -117,18 +113,8 @@ public class AxisPTZPoller extends TransientPoller<AxisPTZProperty>
 	/** Send a PTZ camera move command */
 	@Override
 	public void sendPTZ(CameraImpl c, float p, float t, float z) {
-		if ((p != cur_p) || (t != cur_t)) {
-			AxisPTZProperty prop = new PanTiltProperty(mapPTZ(p),
-				mapPTZ(t));
-			addOperation(new OpAxisPTZ(c, prop));
-			cur_p = p;
-			cur_t = t;
-		}
-		if (z != cur_z) {
-			AxisPTZProperty prop = new ZoomProperty(mapPTZ(z));
-			addOperation(new OpAxisPTZ(c, prop));
-			cur_z = z;
-		}
+		if (ptz.post(c, p, t, z))
+			addOperation(new OpMoveCamera(c, ptz));
 	}
 
 	/** Send a store camera preset command */
@@ -0,0 +1,101 @@
+/*
+ * IRIS -- Intelligent Roadway Information System
+ * Copyright (C) 2016  Minnesota Department of Transportation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package us.mn.state.dot.tms.server.comm.axisptz;
+
+import java.io.IOException;
+import us.mn.state.dot.tms.server.CameraImpl;
+import us.mn.state.dot.tms.server.comm.CommMessage;
+import us.mn.state.dot.tms.server.comm.OpDevice;
+import us.mn.state.dot.tms.server.comm.PTZMailbox;
+import us.mn.state.dot.tms.server.comm.PriorityLevel;
+
+/**
+ * Axis VAPIX operation to move a camera.  Commands are taken from a PTZ
+ * mailbox, and pan/tilt or zoom are only sent when they have changed.
+ *
+ * @author Douglas Lau
+ */
+public class OpMoveCamera extends OpDevice<AxisPTZProperty> {
+
+	/** Camera to move */
+	private final CameraImpl camera;
+
+	/** PTZ mailbox */
+	private final PTZMailbox mailbox;
+
+	/** Pan value last sent */
+	private float cur_p = Float.NaN;
+
+	/** Tilt value last sent */
+	private float cur_t = Float.NaN;
+
+	/** Zoom value last sent */
+	private float cur_z = Float.NaN;
+
+	/** Create a new operation to move a camera.
+	 * @param c Camera to move.
+	 * @param mb PTZ mailbox to take commands from. */
+	public OpMoveCamera(CameraImpl c, PTZMailbox mb) {
+		super(PriorityLevel.COMMAND, c);
+		camera = c;
+		mailbox = mb;
+	}
+
+	/** Create the second phase of the operation */
+	@Override
+	protected Phase<AxisPTZProperty> phaseTwo() {
+		return new Move();
+	}
+
+	/** Phase to move the camera */
+	protected class Move extends Phase<AxisPTZProperty> {
+
+		/** Send the latest command from the mailbox */
+		protected Phase<AxisPTZProperty> poll(
+			CommMessage<AxisPTZProperty> mess) throws IOException
+		{
+			PTZMailbox.Command cmd = mailbox.take(camera);
+			if (cmd == null)
+				return mailbox.finish(camera) ? null : this;
+			boolean pt = (cmd.pan != cur_p) || (cmd.tilt != cur_t);
+			boolean z = (cmd.zoom != cur_z);
+			if (pt) {
+				mess.add(new PanTiltProperty(
+					AxisPTZPoller.mapPTZ(cmd.pan),
+					AxisPTZPoller.mapPTZ(cmd.tilt)));
+			}
+			if (z) {
+				mess.add(new ZoomProperty(
+					AxisPTZPoller.mapPTZ(cmd.zoom)));
+			}
+			if (pt || z) {
+				mess.storeProps();
+				mailbox.sent(camera, cmd);
+			}
+			cur_p = cmd.pan;
+			cur_t = cmd.tilt;
+			cur_z = cmd.zoom;
+			return this;
+		}
+	}
+
+	/** Cleanup the operation */
+	@Override
+	public void cleanup() {
+		if (!isSuccess())
+			mailbox.cancel(camera);
+		super.cleanup();
+	}
+}
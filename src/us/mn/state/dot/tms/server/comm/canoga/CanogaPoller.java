@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2006-2014  Minnesota Department of Transportation
+ * Copyright (C) 2006-2016  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -114,10 +114,13 @@ public class CanogaPoller extends MessagePoller<CanogaProperty>
  	 * @param c Controller to poll.
  	 * @param p Sample period in seconds. */
 	@Override
-	public void querySamples(ControllerImpl c, int p) {
+	public boolean querySamples(ControllerImpl c, int p) {
 		OpQueryEventSamples qes = getEventCollector(c);
-		if (p == 30)
+		if (p == 30) {
 			qes.binSamples();
+			return true;
+		} else
+			return false;
 	}
 
 	/** Get the protocol debug log */
@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2006-2014  Minnesota Department of Transportation
+ * Copyright (C) 2006-2016  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -46,7 +46,9 @@ public class OpQueryEventSamples extends OpCanoga {
 	/** Get the error retry threshold */
 	@Override
 	public int getRetryThreshold() {
-		if (controller.hasActiveDetector())
+		if (controller.isBreakerOpen())
+			return 0;
+		else if (controller.hasActiveDetector())
 			return Integer.MAX_VALUE;
 		else
 			return super.getRetryThreshold();
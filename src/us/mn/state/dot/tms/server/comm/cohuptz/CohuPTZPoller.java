@@ -1,6 +1,7 @@
 /*
  * IRIS -- Intelligent Roadway Information System
  * Copyright (C) 2014  AHMCT, University of California
+ * Copyright (C) 2016  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -19,6 +20,7 @@ import us.mn.state.dot.tms.DeviceRequest;
 import us.mn.state.dot.tms.server.comm.CameraPoller;
 import us.mn.state.dot.tms.server.comm.MessagePoller;
 import us.mn.state.dot.tms.server.comm.Messenger;
+import us.mn.state.dot.tms.server.comm.PTZMailbox;
 
 /**
  * Poller for the Cohu PTZ protocol
@@ -43,6 +45,9 @@ public class CohuPTZPoller extends MessagePoller implements CameraPoller {
 	/** Current zoom value */
 	protected float curZoom = 0.0F;
 
+	/** Mailbox for PTZ commands */
+	private final PTZMailbox ptz = new PTZMailbox();
+
 	/** Create a new Cohu PTZ poller */
 	public CohuPTZPoller(String n, Messenger m) {
 		super(n, m);
@@ -57,24 +62,8 @@ public class CohuPTZPoller extends MessagePoller implements CameraPoller {
 	/** Send a "PTZ camera move" command */
 	@Override
 	public void sendPTZ(CameraImpl c, float p, float t, float z) {
-		Float pan  = null;
-		Float tilt = null;
-		Float zoom = null;
-
-		if (p != curPan) {
-			pan = Float.valueOf(p);
-			curPan = p;
-		}
-		if (t != curTilt) {
-			tilt = Float.valueOf(t);
-			curTilt = t;
-		}
-		if (z != curZoom) {
-			zoom = Float.valueOf(z);
-			curZoom = z;
-		}
-
-		addOperation(new OpPTZCamera(c, this, pan, tilt, zoom));
+		if (ptz.post(c, p, t, z))
+			addOperation(new OpPTZCamera(c, this, ptz));
 	}
 
 	/** Send a "store camera preset" command */
@@ -1,6 +1,7 @@
 /*
  * IRIS -- Intelligent Roadway Information System
  * Copyright (C) 2014  AHMCT, University of California
+ * Copyright (C) 2016  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -16,40 +17,39 @@
 package us.mn.state.dot.tms.server.comm.cohuptz;
 
 import java.io.IOException;
-import java.lang.Float;
 import us.mn.state.dot.tms.server.CameraImpl;
 import us.mn.state.dot.tms.server.comm.CommMessage;
+import us.mn.state.dot.tms.server.comm.PTZMailbox;
 import us.mn.state.dot.tms.server.comm.PriorityLevel;
 
 /**
- * Cohu PTZ operation to pan/tilt/zoom a camera.
+ * Cohu PTZ operation to pan/tilt/zoom a camera.  Commands are taken from
+ * a PTZ mailbox, and only vectors which have changed are sent.
  *
  * @author Travis Swanston
+ * @author Douglas Lau
  */
 public class OpPTZCamera extends OpCohuPTZ {
 
-	/** pan vector */
-	protected final Float pan;
+	/** Camera to move */
+	private final CameraImpl camera;
 
-	/** tilt vector */
-	protected final Float tilt;
+	/** PTZ mailbox */
+	private final PTZMailbox mailbox;
 
-	/** zoom vector */
-	protected final Float zoom;
+	/** Current command */
+	private PTZMailbox.Command cmd;
 
 	/**
 	 * Create the operation.
 	 * @param c the CameraImpl instance
 	 * @param cp the CohuPTZPoller instance
-	 * @param p the pan vector [-1..1] or null for NOP
-	 * @param t the tilt vector [-1..1] or null for NOP
-	 * @param z the zoom vector [-1..1] or null for NOP
+	 * @param mb the PTZ mailbox to take commands from
 	 */
-	public OpPTZCamera(CameraImpl c, CohuPTZPoller cp, Float p, Float t, Float z) {
+	public OpPTZCamera(CameraImpl c, CohuPTZPoller cp, PTZMailbox mb) {
 		super(PriorityLevel.COMMAND, c, cp);
-		pan  = p;
-		tilt = t;
-		zoom = z;
+		camera = c;
+		mailbox = mb;
 	}
 
 	/** Begin the operation. */
@@ -61,9 +61,13 @@ public class OpPTZCamera extends OpCohuPTZ {
 	/** pan phase, 1/3 */
 	protected class PanPhase extends Phase {
 		protected Phase poll(CommMessage mess) throws IOException {
-			if (pan != null) {
-				mess.add(new PanProperty(pan.floatValue()));
+			cmd = mailbox.take(camera);
+			if (cmd == null)
+				return mailbox.finish(camera) ? null : this;
+			if (cmd.pan != poller.curPan) {
+				mess.add(new PanProperty(cmd.pan));
 				doStoreProps(mess);
+				poller.curPan = cmd.pan;
 			}
 			return new TiltPhase();
 		}
@@ -72,9 +76,10 @@ public class OpPTZCamera extends OpCohuPTZ {
 	/** tilt phase, 2/3 */
 	protected class TiltPhase extends Phase {
 		protected Phase poll(CommMessage mess) throws IOException {
-			if (tilt != null) {
-				mess.add(new TiltProperty(tilt.floatValue()));
+			if (cmd.tilt != poller.curTilt) {
+				mess.add(new TiltProperty(cmd.tilt));
 				doStoreProps(mess);
+				poller.curTilt = cmd.tilt;
 			}
 			return new ZoomPhase();
 		}
@@ -83,12 +88,21 @@ public class OpPTZCamera extends OpCohuPTZ {
 	/** zoom phase, 3/3 */
 	protected class ZoomPhase extends Phase {
 		protected Phase poll(CommMessage mess) throws IOException {
-			if (zoom != null) {
-				mess.add(new ZoomProperty(zoom.floatValue()));
+			if (cmd.zoom != poller.curZoom) {
+				mess.add(new ZoomProperty(cmd.zoom));
 				doStoreProps(mess);
+				poller.curZoom = cmd.zoom;
 			}
-			return null;
+			mailbox.sent(camera, cmd);
+			return new PanPhase();
 		}
 	}
 
+	/** Cleanup the operation */
+	@Override
+	public void cleanup() {
+		if (!isSuccess())
+			mailbox.cancel(camera);
+		super.cleanup();
+	}
 }
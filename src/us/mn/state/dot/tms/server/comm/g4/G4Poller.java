@@ -1,7 +1,7 @@
 /*
  * IRIS -- Intelligent Roadway Information System
  * Copyright (C) 2012  Iteris Inc.
- * Copyright (C) 2012-2014  Minnesota Department of Transportation
+ * Copyright (C) 2012-2016  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -60,9 +60,9 @@ public class G4Poller extends MessagePoller<G4Property> implements SamplePoller{
  	 * @param c Controller to poll.
  	 * @param p Sample period in seconds. */
 	@Override
-	public void querySamples(ControllerImpl c, int p) {
-		if (p == 30)
-			addOperation(new OpQueryStats(c, p));
+	public boolean querySamples(ControllerImpl c, int p) {
+		return (p == 30) &&
+		       addSampleOperation(new OpQueryStats(c, p), p);
 	}
 
 	/** Get the protocol debug log */
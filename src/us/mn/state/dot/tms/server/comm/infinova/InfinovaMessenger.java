@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2011-2014  Minnesota Department of Transportation
+ * Copyright (C) 2011-2016  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -16,6 +16,7 @@ package us.mn.state.dot.tms.server.comm.infinova;
 
 import java.io.IOException;
 import us.mn.state.dot.tms.server.comm.Messenger;
+import us.mn.state.dot.tms.server.comm.PriorityLevel;
 
 /**
  * Infinova Messenger
@@ -32,12 +33,24 @@ public class InfinovaMessenger extends Messenger {
 		wrapped = m;
 	}
 
+	/** Get the connection status */
+	@Override
+	public String getConnectStatus() {
+		return wrapped.getConnectStatus();
+	}
+
 	/** Set the messenger timeout */
 	@Override
 	public void setTimeout(int t) throws IOException {
 		wrapped.setTimeout(t);
 	}
 
+	/** Prepare to open the messenger */
+	@Override
+	public void prepare(PriorityLevel p) throws IOException {
+		wrapped.prepare(p);
+	}
+
 	/** Open the messenger */
 	@Override
 	public void open() throws IOException {
@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2007-2014  Minnesota Department of Transportation
+ * Copyright (C) 2007-2016  Minnesota Department of Transportation
  * Copyright (C) 2014  AHMCT, University of California
  *
  * This program is free software; you can redistribute it and/or modify
@@ -20,6 +20,7 @@ import us.mn.state.dot.tms.DeviceRequest;
 import us.mn.state.dot.tms.server.CameraImpl;
 import us.mn.state.dot.tms.server.comm.CameraPoller;
 import us.mn.state.dot.tms.server.comm.Messenger;
+import us.mn.state.dot.tms.server.comm.PTZMailbox;
 import us.mn.state.dot.tms.server.comm.TransientPoller;
 
 /**
@@ -39,6 +40,9 @@ public class ManchesterPoller extends TransientPoller<ManchesterProperty>
 	/** Highest allowed address for Manchester protocol */
 	static protected final int ADDRESS_MAX = 1024;
 
+	/** Mailbox for PTZ commands */
+	private final PTZMailbox ptz = new PTZMailbox();
+
 	/** Create a new Manchester poller */
 	public ManchesterPoller(String n, Messenger m) {
 		super(n, m);
@@ -52,7 +56,8 @@ public class ManchesterPoller extends TransientPoller<ManchesterProperty>
 	/** Send a PTZ camera move command */
 	@Override
 	public void sendPTZ(CameraImpl c, float p, float t, float z) {
-		addOperation(new OpMoveCamera(c, p, t, z));
+		if (ptz.post(c, p, t, z))
+			addOperation(new OpMoveCamera(c, ptz));
 	}
 
 	/** Send a store camera preset command */
@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2007-2014  Minnesota Department of Transportation
+ * Copyright (C) 2007-2016  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -33,17 +33,22 @@ abstract public class OpManchester extends OpDevice<ManchesterProperty> {
 	static private final int CMD_INTERVAL_MS = 50;
 
 	/** Time stamp when operation will expire */
-	private final long expire;
+	private long expire;
 
-	/** Check if the operation has expired */
-	protected boolean isExpired() {
+	/** Check if the operation has timed out */
+	protected boolean isTimedOut() {
 		return TimeSteward.currentTimeMillis() >= expire;
 	}
 
+	/** Reset the operation timeout */
+	protected void resetTimeout() {
+		expire = TimeSteward.currentTimeMillis() + OP_TIMEOUT_MS;
+	}
+
 	/** Create a new manchester operation */
 	protected OpManchester(CameraImpl c) {
 		super(PriorityLevel.COMMAND, c);
-		expire = TimeSteward.currentTimeMillis() + OP_TIMEOUT_MS;
+		resetTimeout();
 	}
 
 	/** Time stamp when ready to send */
@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2007-2014  Minnesota Department of Transportation
+ * Copyright (C) 2007-2016  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -17,6 +17,7 @@ package us.mn.state.dot.tms.server.comm.manchester;
 import java.io.IOException;
 import us.mn.state.dot.tms.server.CameraImpl;
 import us.mn.state.dot.tms.server.comm.CommMessage;
+import us.mn.state.dot.tms.server.comm.PTZMailbox;
 
 /**
  * Manchester operation to move a camera.
@@ -38,21 +39,36 @@ public class OpMoveCamera extends OpManchester {
 		return Math.round(clamp_float(value) * range);
 	}
 
+	/** Camera to move */
+	private final CameraImpl camera;
+
+	/** PTZ mailbox */
+	private final PTZMailbox mailbox;
+
 	/** The direction (and speed) to pan the camera */
-	private final int pan;
+	private int pan;
 
 	/** The direction (and speed) to tilt the camera */
-	private final int tilt;
+	private int tilt;
 
 	/** The direction to zoom the camera */
-	private final int zoom;
+	private int zoom;
 
-	/** Create a new operation to move a camera */
-	public OpMoveCamera(CameraImpl c, float p, float t, float z) {
+	/** Create a new operation to move a camera.
+	 * @param c Camera to move.
+	 * @param mb PTZ mailbox to take commands from. */
+	public OpMoveCamera(CameraImpl c, PTZMailbox mb) {
 		super(c);
-		pan = map_float(p, PTZ_RANGE);
-		tilt = map_float(t, PTZ_RANGE);
-		zoom = map_float(z, PTZ_RANGE);
+		camera = c;
+		mailbox = mb;
+	}
+
+	/** Set the current command */
+	private void setCommand(PTZMailbox.Command cmd) {
+		pan = map_float(cmd.pan, PTZ_RANGE);
+		tilt = map_float(cmd.tilt, PTZ_RANGE);
+		zoom = map_float(cmd.zoom, PTZ_RANGE);
+		resetTimeout();
 	}
 
 	/**
@@ -72,11 +88,16 @@ public class OpMoveCamera extends OpManchester {
 	/** Phase to move the camera */
 	protected class Move extends Phase<ManchesterProperty> {
 
-		/** Command controller to move the camera */
+		/** Command controller to move the camera.  The current command
+		 * is repeated until it is replaced by a newer one from the
+		 * mailbox, or until it stops or times out. */
 		protected Phase<ManchesterProperty> poll(
 			CommMessage<ManchesterProperty> mess) throws IOException
 		{
 			sleepUntilReady();
+			PTZMailbox.Command cmd = mailbox.take(camera);
+			if (cmd != null)
+				setCommand(cmd);
 			if (pan != 0)
 				mess.add(new PanProperty(pan));
 			if (tilt != 0)
@@ -84,10 +105,20 @@ public class OpMoveCamera extends OpManchester {
 			if (zoom != 0)
 				mess.add(new ZoomProperty(zoom));
 			mess.storeProps();
-			if (isStopCmd() || isExpired())
-				return null;
+			if (cmd != null)
+				mailbox.sent(camera, cmd);
+			if (isStopCmd() || isTimedOut())
+				return mailbox.finish(camera) ? null : this;
 			else
 				return this;
 		}
 	}
+
+	/** Cleanup the operation */
+	@Override
+	public void cleanup() {
+		if (!isSuccess())
+			mailbox.cancel(camera);
+		super.cleanup();
+	}
 }
@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2000-2014  Minnesota Department of Transportation
+ * Copyright (C) 2000-2016  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -113,14 +113,15 @@ public class MndotPoller extends MessagePoller implements LCSPoller,AlarmPoller,
  	 * @param c Controller to poll.
  	 * @param p Sample period in seconds. */
 	@Override
-	public void querySamples(ControllerImpl c, int p) {
+	public boolean querySamples(ControllerImpl c, int p) {
 		switch (p) {
 		case OpQuerySamples30Sec.SAMPLE_PERIOD_SEC:
-			addOperation(new OpQuerySamples30Sec(c));
-			break;
+			return addSampleOperation(new OpQuerySamples30Sec(c),
+				p);
 		case OpQuerySamples5Min.SAMPLE_PERIOD_SEC:
-			addOperation(new OpQuerySamples5Min(c));
-			break;
+			return addSampleOperation(new OpQuerySamples5Min(c), p);
+		default:
+			return false;
 		}
 	}
 
@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2000-2014  Minnesota Department of Transportation
+ * Copyright (C) 2000-2016  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -16,6 +16,7 @@ package us.mn.state.dot.tms.server.comm.msgfeed;
 
 import us.mn.state.dot.sched.DebugLog;
 import us.mn.state.dot.tms.server.ControllerImpl;
+import us.mn.state.dot.tms.server.comm.HttpFileMessenger;
 import us.mn.state.dot.tms.server.comm.MessagePoller;
 import us.mn.state.dot.tms.server.comm.Messenger;
 
@@ -39,10 +40,28 @@ public class MsgFeedPoller extends MessagePoller<MsgFeedProperty> {
 	/** Feed ID */
 	private final String feed_id;
 
+	/** HTTP messenger, for conditional requests (may be null) */
+	private final HttpFileMessenger http;
+
 	/** Create a new poller */
 	public MsgFeedPoller(String n, Messenger m) {
 		super(n, m);
 		feed_id = n;
+		http = (m instanceof HttpFileMessenger)
+		     ? (HttpFileMessenger)m
+		     : null;
+	}
+
+	/** Handle a feed which was read and decoded successfully */
+	void feedDecoded() {
+		if(http != null)
+			http.storeValidators();
+	}
+
+	/** Handle an error reading or decoding a feed */
+	void feedFailed() {
+		if(http != null)
+			http.clearValidators();
 	}
 
 	/** Check if a drop address is valid */
@@ -54,7 +73,7 @@ public class MsgFeedPoller extends MessagePoller<MsgFeedProperty> {
 	/** Query message feed */
 	public void queryMessages(ControllerImpl c) {
 		log("creating OpReadMsgFeed: " + c);
-		addOperation(new OpReadMsgFeed(c, feed_id));
+		addOperation(new OpReadMsgFeed(c, feed_id, this));
 	}
 
 	/** Get the protocol debug log */
@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2002-2014  Minnesota Department of Transportation
+ * Copyright (C) 2002-2016  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -32,10 +32,16 @@ public class OpReadMsgFeed extends OpController<MsgFeedProperty> {
 	/** Feed name */
 	private final String feed;
 
+	/** Feed poller */
+	private final MsgFeedPoller poller;
+
 	/** Create a new operation to read msg feed */
-	protected OpReadMsgFeed(ControllerImpl c, String fid) {
+	protected OpReadMsgFeed(ControllerImpl c, String fid,
+		MsgFeedPoller p)
+	{
 		super(PriorityLevel.DATA_30_SEC, c);
 		feed = fid;
+		poller = p;
 		MsgFeedPoller.log("Polling feed " + feed);
 	}
 
@@ -54,6 +60,7 @@ public class OpReadMsgFeed extends OpController<MsgFeedProperty> {
 		{
 			mess.add(new MsgFeedProperty(feed));
 			mess.queryProps();
+			poller.feedDecoded();
 			return null;
 		}
 	}
@@ -62,6 +69,7 @@ public class OpReadMsgFeed extends OpController<MsgFeedProperty> {
 	@Override
 	public void handleCommError(EventType et, String msg) {
 		MsgFeedPoller.log("ERROR: " + msg);
+		poller.feedFailed();
 		super.handleCommError(et, msg);
 	}
 
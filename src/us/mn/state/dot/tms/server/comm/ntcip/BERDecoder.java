@@ -0,0 +1,270 @@
+/*
+ * IRIS -- Intelligent Roadway Information System
+ * Copyright (C) 2016  Minnesota Department of Transportation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package us.mn.state.dot.tms.server.comm.ntcip;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import us.mn.state.dot.tms.server.comm.ParsingException;
+import static us.mn.state.dot.tms.server.comm.ntcip.BER.HIGH_BIT;
+import static us.mn.state.dot.tms.server.comm.ntcip.BER.RESERVED;
+import static us.mn.state.dot.tms.server.comm.ntcip.BER.SEVEN_BITS;
+
+/**
+ * BER decoder which parses from a reusable byte buffer.  One complete
+ * message is read into the buffer, then values are decoded in place.
+ *
+ * @author Douglas Lau
+ */
+public class BERDecoder {
+
+	/** End of buffer exception */
+	static private final EOFException END_OF_BUFFER =
+		new EOFException("END OF BUFFER");
+
+	/** Buffer for received data */
+	private ByteBuffer buf;
+
+	/** Create a new BER decoder.
+	 * @param size Initial buffer size. */
+	public BERDecoder(int size) {
+		buf = ByteBuffer.allocate(size);
+		buf.flip();
+	}
+
+	/** Create a BER decoder for a received datagram.
+	 * @param b Buffer containing datagram.
+	 * @param len Length of datagram. */
+	public BERDecoder(byte[] b, int len) {
+		buf = ByteBuffer.wrap(b, 0, len);
+	}
+
+	/** Get the number of bytes remaining to decode */
+	public int remaining() {
+		return buf.remaining();
+	}
+
+	/** Read one complete BER encoded value from an input stream into the
+	 * buffer.  Any previously read data is discarded. */
+	public void readMessage(InputStream is) throws IOException {
+		buf.clear();
+		int first = readByte(is);
+		if ((first & ASN1.Tag.ONE_OCTET) == ASN1.Tag.ONE_OCTET) {
+			for (int i = 0; i < 4; i++) {
+				if ((readByte(is) & HIGH_BIT) == 0)
+					break;
+			}
+		}
+		int length = readByte(is);
+		if (length == RESERVED)
+			throw new ParsingException("RESERVED LENGTH CODE");
+		if ((length & HIGH_BIT) != 0) {
+			int n = length & SEVEN_BITS;
+			if (n == 0)
+				throw new ParsingException("INDEFINITE LENGTH");
+			if (n > 2)
+				throw new ParsingException("INVALID LENGTH");
+			for (length = 0; n > 0; n--)
+				length = (length << 8) | readByte(is);
+		}
+		ensureCapacity(length);
+		byte[] b = buf.array();
+		int pos = buf.position();
+		for (int off = 0; off < length; ) {
+			int n = is.read(b, pos + off, length - off);
+			if (n < 0)
+				throw BER.END_OF_STREAM;
+			off += n;
+		}
+		buf.position(pos + length);
+		buf.flip();
+	}
+
+	/** Read one byte from an input stream into the buffer */
+	private int readByte(InputStream is) throws IOException {
+		int b = is.read();
+		if (b < 0)
+			throw BER.END_OF_STREAM;
+		ensureCapacity(1);
+		buf.put((byte)b);
+		return b;
+	}
+
+	/** Make sure there is room to read more bytes into the buffer */
+	private void ensureCapacity(int n) {
+		if (n > buf.remaining()) {
+			int size = Math.max(buf.capacity() * 2,
+				buf.position() + n);
+			ByteBuffer b = ByteBuffer.allocate(size);
+			buf.flip();
+			b.put(buf);
+			buf = b;
+		}
+	}
+
+	/** Decode one byte */
+	private int read() throws EOFException {
+		if (buf.hasRemaining())
+			return buf.get() & 0xFF;
+		else
+			throw END_OF_BUFFER;
+	}
+
+	/** Decode a BER identifier and check that it matches a tag.
+	 * @param tag Expected tag.
+	 * @return true if identifier matches tag. */
+	public boolean decodeIdentifier(ASN1.Tag tag) throws IOException {
+		int first = read();
+		byte clazz = (byte)(first & ASN1.Tag.CLASS_MASK);
+		boolean constructed = (first & ASN1.Tag.CONSTRUCTED) != 0;
+		int number = first & ASN1.Tag.ONE_OCTET;
+		if (number == ASN1.Tag.ONE_OCTET)
+			number = decodeSubidentifier();
+		return clazz == tag.clazz &&
+		       constructed == tag.constructed &&
+		       number == tag.number;
+	}
+
+	/** Decode a base-128 subidentifier */
+	private int decodeSubidentifier() throws IOException {
+		int number = 0;
+		for (int i = 0; i < 4; i++) {
+			int next = read();
+			number = (number << 7) | (next & SEVEN_BITS);
+			if ((next & HIGH_BIT) == 0)
+				return number;
+		}
+		throw new ParsingException("INVALID SUBIDENTIFIER");
+	}
+
+	/** Decode a BER length */
+	public int decodeLength() throws IOException {
+		int first = read();
+		if (first == RESERVED)
+			throw new ParsingException("RESERVED LENGTH CODE");
+		int length = first & SEVEN_BITS;
+		if (length != first) {
+			if (length == 0)
+				throw new ParsingException("INDEFINITE LENGTH");
+			int i = length;
+			for (length = 0; i > 0; i--)
+				length = (length << 8) | read();
+		}
+		if (length < 0 || length > buf.remaining()) {
+			throw new ParsingException("INVALID LENGTH: " + length +
+				" > " + buf.remaining());
+		}
+		return length;
+	}
+
+	/** Decode an integer */
+	public int decodeInteger() throws IOException {
+		if (!decodeIdentifier(ASN1.Tag.INTEGER))
+			throw new ParsingException("EXPECTED AN INTEGER TAG");
+		return decodeIntegerContents(true);
+	}
+
+	/** Decode an unsigned integer value with a specified tag */
+	public int decodeUnsigned(ASN1.Tag tag) throws IOException {
+		if (!decodeIdentifier(tag))
+			throw new ParsingException("EXPECTED " + tag.number);
+		return decodeIntegerContents(false);
+	}
+
+	/** Decode the length and contents of an integer value */
+	private int decodeIntegerContents(boolean signed) throws IOException {
+		int length = decodeLength();
+		if (length < 1 || length > 4)
+			throw new ParsingException("INVALID INTEGER LENGTH");
+		int value = read();
+		if (signed)
+			value = (byte)value;	// NOTE: cast to preserve sign
+		for (int i = 1; i < length; i++)
+			value = (value << 8) | read();
+		return value;
+	}
+
+	/** Decode an octet string */
+	public byte[] decodeOctetString() throws IOException {
+		if (!decodeIdentifier(ASN1.Tag.OCTET_STRING))
+			throw new ParsingException("EXPECTED OCTET STRING TAG");
+		byte[] b = new byte[decodeLength()];
+		buf.get(b);
+		return b;
+	}
+
+	/** Decode an octet string and check that it matches a value.
+	 * @param value Expected value.
+	 * @return true if octet string matches value. */
+	public boolean matchOctetString(byte[] value) throws IOException {
+		if (!decodeIdentifier(ASN1.Tag.OCTET_STRING))
+			throw new ParsingException("EXPECTED OCTET STRING TAG");
+		int length = decodeLength();
+		boolean match = (length == value.length);
+		for (int i = 0; i < length; i++) {
+			byte b = buf.get();
+			if (match && b != value[i])
+				match = false;
+		}
+		return match;
+	}
+
+	/** Decode an object identifier, discarding its value */
+	public void skipObjectIdentifier() throws IOException {
+		if (!decodeIdentifier(ASN1.Tag.OBJECT_IDENTIFIER)) {
+			throw new ParsingException(
+				"EXPECTED OBJECT IDENTIFIER TAG");
+		}
+		int length = decodeLength();
+		if (length < 1)
+			throw new ParsingException("INVALID OID LENGTH");
+		buf.position(buf.position() + length);
+	}
+
+	/** Decode the identifier and length of a value with any tag.
+	 * @return Length of contents. */
+	public int decodeHeader() throws IOException {
+		int first = read();
+		if ((first & ASN1.Tag.ONE_OCTET) == ASN1.Tag.ONE_OCTET)
+			decodeSubidentifier();
+		return decodeLength();
+	}
+
+	/** Skip a value with any tag */
+	public void skipValue() throws IOException {
+		int length = decodeHeader();
+		buf.position(buf.position() + length);
+	}
+
+	/** Decode a sequence (or sequence-of)
+	 * @return Length of sequence */
+	public int decodeSequence() throws IOException {
+		return decodeConstructed(ASN1.Tag.SEQUENCE,
+			"EXPECTED SEQUENCE TAG");
+	}
+
+	/** Decode the identifier and length of a constructed value
+	 * @param tag Expected tag.
+	 * @param msg Error message if tag does not match.
+	 * @return Length of contents. */
+	public int decodeConstructed(ASN1.Tag tag, String msg)
+		throws IOException
+	{
+		if (!decodeIdentifier(tag))
+			throw new ParsingException(msg);
+		return decodeLength();
+	}
+}
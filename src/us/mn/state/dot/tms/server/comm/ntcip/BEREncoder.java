@@ -0,0 +1,183 @@
+/*
+ * IRIS -- Intelligent Roadway Information System
+ * Copyright (C) 2016  Minnesota Department of Transportation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package us.mn.state.dot.tms.server.comm.ntcip;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import static us.mn.state.dot.tms.server.comm.ntcip.BER.HIGH_BIT;
+import static us.mn.state.dot.tms.server.comm.ntcip.BER.SEVEN_BITS;
+
+/**
+ * BER encoder which writes back-to-front into a reusable buffer.  Values
+ * must be encoded in reverse order.  Since the contents of a constructed
+ * value are encoded before its identifier and length, the length is known
+ * without copying the contents into a separate buffer.
+ *
+ * @author Douglas Lau
+ */
+public class BEREncoder {
+
+	/** Buffer for encoded data.  Data is stored at the end of the buffer,
+	 * from pos to buf.length. */
+	private byte[] buf;
+
+	/** Position of first encoded byte */
+	private int pos;
+
+	/** Create a new BER encoder.
+	 * @param size Initial buffer size. */
+	public BEREncoder(int size) {
+		buf = new byte[size];
+		pos = size;
+	}
+
+	/** Reset the encoder, discarding all encoded data */
+	public void reset() {
+		pos = buf.length;
+	}
+
+	/** Get the length of encoded data.  This can be used as a mark for
+	 * the end of the contents of a constructed value.
+	 * @see BEREncoder#encodeConstructed */
+	public int length() {
+		return buf.length - pos;
+	}
+
+	/** Make sure there is room to encode more bytes */
+	private void ensureCapacity(int n) {
+		if (n > pos) {
+			int len = length();
+			int size = Math.max(buf.length * 2, len + n);
+			byte[] b = new byte[size];
+			System.arraycopy(buf, pos, b, size - len, len);
+			buf = b;
+			pos = size - len;
+		}
+	}
+
+	/** Encode one byte */
+	public void write(int b) {
+		ensureCapacity(1);
+		buf[--pos] = (byte)b;
+	}
+
+	/** Encode an array of bytes */
+	public void write(byte[] b) {
+		ensureCapacity(b.length);
+		pos -= b.length;
+		System.arraycopy(b, 0, buf, pos, b.length);
+	}
+
+	/** Write all encoded data to an output stream */
+	public void writeTo(OutputStream os) throws IOException {
+		os.write(buf, pos, length());
+	}
+
+	/** Get a copy of the encoded data */
+	public byte[] toByteArray() {
+		byte[] b = new byte[length()];
+		System.arraycopy(buf, pos, b, 0, b.length);
+		return b;
+	}
+
+	/** Encode a BER identifier */
+	public void encodeIdentifier(ASN1.Tag tag) {
+		byte first = tag.clazz;
+		if (tag.constructed)
+			first |= ASN1.Tag.CONSTRUCTED;
+		if (tag.number < ASN1.Tag.ONE_OCTET)
+			write(first | tag.number);
+		else {
+			encodeSubidentifier(tag.number);
+			write(first | ASN1.Tag.ONE_OCTET);
+		}
+	}
+
+	/** Encode a base-128 subidentifier */
+	private void encodeSubidentifier(int number) {
+		write(number & SEVEN_BITS);
+		for (number >>>= 7; number > 0; number >>>= 7)
+			write((number & SEVEN_BITS) | HIGH_BIT);
+	}
+
+	/** Encode a BER length */
+	public void encodeLength(int length) {
+		if (length < 128)
+			write(length);
+		else if (length < 256) {
+			write(length);
+			write(HIGH_BIT | 1);
+		} else {
+			write(length & 0xFF);
+			write(length >> 8);
+			write(HIGH_BIT | 2);
+		}
+	}
+
+	/** Encode the identifier and length of a constructed value, such as
+	 * a sequence.  The contents must already be encoded.
+	 * @param tag Identifier tag.
+	 * @param mark Encoded length before the contents were encoded. */
+	public void encodeConstructed(ASN1.Tag tag, int mark) {
+		encodeLength(length() - mark);
+		encodeIdentifier(tag);
+	}
+
+	/** Encode a boolean value */
+	public void encodeBoolean(boolean value) {
+		write(value ? 0xFF : 0x00);
+		encodeLength(1);
+		encodeIdentifier(ASN1.Tag.BOOLEAN);
+	}
+
+	/** Encode an integer value */
+	public void encodeInteger(int value) {
+		int len = 1;
+		write(value);
+		for (int shift = 8; shift < 32; shift += 8) {
+			// Stop when the remaining bits are all sign bits
+			int rest = value >> (shift - 1);
+			if (rest == 0 || rest == -1)
+				break;
+			write(value >> shift);
+			len++;
+		}
+		encodeLength(len);
+		encodeIdentifier(ASN1.Tag.INTEGER);
+	}
+
+	/** Encode an octet string */
+	public void encodeOctetString(byte[] string) {
+		write(string);
+		encodeLength(string.length);
+		encodeIdentifier(ASN1.Tag.OCTET_STRING);
+	}
+
+	/** Encode a null value */
+	public void encodeNull() {
+		encodeLength(0);
+		encodeIdentifier(ASN1.Tag.NULL);
+	}
+
+	/** Encode an object identifier */
+	public void encodeObjectIdentifier(int[] oid) {
+		int mark = length();
+		for (int i = oid.length - 1; i >= 2; i--)
+			encodeSubidentifier(oid[i]);
+		write(oid[0] * 40 + oid[1]);
+		encodeLength(length() - mark);
+		encodeIdentifier(ASN1.Tag.OBJECT_IDENTIFIER);
+	}
+}
@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2000-2012  Minnesota Department of Transportation
+ * Copyright (C) 2000-2016  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -20,6 +20,7 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import us.mn.state.dot.tms.server.ControllerImpl;
 import us.mn.state.dot.tms.server.comm.Messenger;
+import us.mn.state.dot.tms.server.comm.PriorityLevel;
 
 /**
  * HDLC Messenger
@@ -36,11 +37,22 @@ public class HDLCMessenger extends Messenger {
 		wrapped = m;
 	}
 
+	/** Get the connection status */
+	@Override
+	public String getConnectStatus() {
+		return wrapped.getConnectStatus();
+	}
+
 	/** Set the messenger timeout */
 	public void setTimeout(int t) throws IOException {
 		wrapped.setTimeout(t);
 	}
 
+	/** Prepare to open the messenger */
+	public void prepare(PriorityLevel p) throws IOException {
+		wrapped.prepare(p);
+	}
+
 	/** Open the messenger */
 	public void open() throws IOException {
 		wrapped.open();
@@ -62,7 +74,8 @@ public class HDLCMessenger extends Messenger {
 		InputStream _input = input;	// Avoid races
 		if(_input != null) {
 			int drop = c.getDrop();
-			return new HDLC.AddressedInputStream(_input, drop);
+			return countInput(new HDLC.AddressedInputStream(_input,
+				drop));
 		} else
 			throw new EOFException("MESSENGER CLOSED");
 	}
@@ -74,7 +87,8 @@ public class HDLCMessenger extends Messenger {
 		OutputStream _output = output;	// Avoid races
 		if(_output != null) {
 			int drop = c.getDrop();
-			return new HDLC.AddressedOutputStream(_output, drop);
+			return countOutput(new HDLC.AddressedOutputStream(
+				_output, drop));
 		} else
 			throw new EOFException("MESSENGER CLOSED");
 	}
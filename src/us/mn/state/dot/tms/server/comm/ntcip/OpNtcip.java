@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2013  Minnesota Department of Transportation
+ * Copyright (C) 2013-2016  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -35,6 +35,12 @@ abstract public class OpNtcip extends OpDevice {
 			NTCIP_LOG.log(device.getName() + "! " + msg);
 	}
 
+	/** Log a progress msg */
+	protected void logInfo(String msg) {
+		if(NTCIP_LOG.isOpen())
+			NTCIP_LOG.log(device.getName() + ": " + msg);
+	}
+
 	/** Log a property query */
 	protected void logQuery(ASN1Object prop) {
 		if(NTCIP_LOG.isOpen())
@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2000-2015  Minnesota Department of Transportation
+ * Copyright (C) 2000-2016  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -21,6 +21,7 @@ import java.util.LinkedList;
 import java.util.SortedMap;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 import us.mn.state.dot.sched.TimeSteward;
 import us.mn.state.dot.tms.Base64;
 import us.mn.state.dot.tms.DMSHelper;
@@ -29,6 +30,7 @@ import us.mn.state.dot.tms.FontFinder;
 import us.mn.state.dot.tms.FontHelper;
 import us.mn.state.dot.tms.Glyph;
 import us.mn.state.dot.tms.Graphic;
+import us.mn.state.dot.tms.SystemAttrEnum;
 import us.mn.state.dot.tms.server.DMSImpl;
 import us.mn.state.dot.tms.server.comm.CommMessage;
 import us.mn.state.dot.tms.server.comm.PriorityLevel;
@@ -400,53 +402,152 @@ public class OpSendDMSFonts extends OpDMS {
 		}
 	}
 
-	/** Add a character to the font table */
+	/** Character properties for one glyph */
+	static protected class CharacterProps {
+
+		/** Character width */
+		protected final CharacterWidth width;
+
+		/** Character bitmap */
+		protected final CharacterBitmap bitmap;
+
+		/** Create character properties for a glyph */
+		protected CharacterProps(int row, Glyph glyph)
+			throws IOException
+		{
+			int code_point = glyph.getCodePoint();
+			Graphic graphic = glyph.getGraphic();
+			width = new CharacterWidth(row, code_point);
+			bitmap = new CharacterBitmap(row, code_point);
+			width.setInteger(graphic.getWidth());
+			bitmap.setOctetString(Base64.decode(
+				graphic.getPixels()));
+		}
+
+		/** Get the estimated encoded size (bytes) */
+		protected int getSize() {
+			return GLYPH_OVERHEAD + bitmap.getOctetString().length;
+		}
+	}
+
+	/** Estimated encoded size of one glyph, not including the bitmap.
+	 * This covers two variable bindings with OIDs and headers. */
+	static private final int GLYPH_OVERHEAD = 64;
+
+	/** Estimated encoded size of an SNMP message, without bindings */
+	static private final int MESSAGE_OVERHEAD = 64;
+
+	/** Mapping of DMS names to max PDU sizes discovered by tooBig
+	 * responses.  A size of 0 means one glyph per request. */
+	static private final ConcurrentHashMap<String, Integer> PDU_SIZES =
+		new ConcurrentHashMap<String, Integer>();
+
+	/** Get the max PDU size for character batches */
+	private int getMaxPduSize() {
+		Integer sz = PDU_SIZES.get(dms.getName());
+		int max = SystemAttrEnum.DMS_FONT_PDU_SIZE.getInt();
+		return (sz != null) ? Math.min(sz, max) : max;
+	}
+
+	/** Add characters to the font table.  As many characters as will fit
+	 * in the max PDU size are sent with each SET request. */
 	protected class AddCharacter extends Phase {
 
 		/** Iterator for remaining glyphs */
 		protected final Iterator<Glyph> chars;
 
-		/** Current glyph */
-		protected Glyph glyph;
+		/** Total number of glyphs */
+		protected final int total;
+
+		/** Characters not yet stored */
+		protected final LinkedList<CharacterProps> pending =
+			new LinkedList<CharacterProps>();
 
 		/** Count of characters added */
 		protected int count = 0;
 
+		/** Count of bytes (estimated) added */
+		protected int n_bytes = 0;
+
+		/** Largest batch size (estimated) stored successfully */
+		protected int max_stored = 0;
+
+		/** Start time of upload */
+		protected final long start = TimeSteward.currentTimeMillis();
+
 		/** Create a new add character phase */
 		public AddCharacter(Collection<Glyph> c) {
 			chars = c.iterator();
-			if(chars.hasNext())
-				glyph = chars.next();
+			total = c.size();
 		}
 
-		/** Add a character to the font table */
+		/** Add a batch of characters to the font table */
 		protected Phase poll(CommMessage mess) throws IOException {
-			int code_point = glyph.getCodePoint();
-			Graphic graphic = glyph.getGraphic();
-			byte[] pixels = Base64.decode(graphic.getPixels());
-			CharacterWidth char_width = new CharacterWidth(row,
-				code_point);
-			CharacterBitmap char_bitmap = new CharacterBitmap(row,
-				code_point);
-			char_width.setInteger(graphic.getWidth());
-			char_bitmap.setOctetString(pixels);
-			mess.add(char_width);
-			mess.add(char_bitmap);
-			logStore(char_width);
-			logStore(char_bitmap);
-			mess.storeProps();
-			count++;
-			if (count % 20 == 0 && !controller.isFailed())
-				setSuccess(true);
-			if(chars.hasNext()) {
-				glyph = chars.next();
-				return this;
-			} else {
-				if(version2)
-					return new ValidateFontV2();
-				else
-					return new ValidateFontV1();
+			int max_size = getMaxPduSize() - MESSAGE_OVERHEAD;
+			int size = 0;
+			int n = 0;
+			for(CharacterProps cp = peekCharacter(n); cp != null;
+			    cp = peekCharacter(n))
+			{
+				int sz = cp.getSize();
+				if(n > 0 && size + sz > max_size)
+					break;
+				mess.add(cp.width);
+				mess.add(cp.bitmap);
+				logStore(cp.width);
+				logStore(cp.bitmap);
+				size += sz;
+				n++;
+			}
+			try {
+				mess.storeProps();
 			}
+			catch(SNMP.Message.TooBig e) {
+				if(n > 1) {
+					logInfo("tooBig: " + n + " glyphs, " +
+						size + " bytes");
+					int sz = size + MESSAGE_OVERHEAD - 1;
+					PDU_SIZES.put(dms.getName(),
+						Math.min(max_stored, sz));
+					return this;
+				} else
+					throw e;
+			}
+			for(int i = 0; i < n; i++)
+				pending.removeFirst();
+			max_stored = Math.max(max_stored, size +
+				MESSAGE_OVERHEAD);
+			logProgress(n, size);
+			if(chars.hasNext() || !pending.isEmpty())
+				return this;
+			else if(version2)
+				return new ValidateFontV2();
+			else
+				return new ValidateFontV1();
+		}
+
+		/** Peek at a pending character.
+		 * @param i Index of pending character.
+		 * @return Character properties, or null if none left. */
+		private CharacterProps peekCharacter(int i) throws IOException {
+			while(pending.size() <= i && chars.hasNext())
+				pending.add(new CharacterProps(row,
+					chars.next()));
+			return (i < pending.size()) ? pending.get(i) : null;
+		}
+
+		/** Log upload progress after storing a batch */
+		private void logProgress(int n, int size) {
+			int c = count;
+			count += n;
+			n_bytes += size;
+			if(count / 20 > c / 20 && !controller.isFailed())
+				setSuccess(true);
+			long ms = TimeSteward.currentTimeMillis() - start;
+			long bps = (ms > 0) ? n_bytes * 1000L / ms : 0;
+			logInfo("Font " + font.getNumber() + ": " + count +
+				"/" + total + " glyphs, " + n +
+				" per request, " + bps + " bytes/sec");
 		}
 	}
 
@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2000-2014  Minnesota Department of Transportation
+ * Copyright (C) 2000-2016  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -17,11 +17,12 @@ package us.mn.state.dot.tms.server.comm.ntcip;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.io.ByteArrayOutputStream;
+import java.util.Iterator;
 import java.util.LinkedList;
 import us.mn.state.dot.sched.DebugLog;
 import us.mn.state.dot.tms.server.comm.CommMessage;
 import us.mn.state.dot.tms.server.comm.ControllerProperty;
+import us.mn.state.dot.tms.server.comm.DatagramMux;
 import us.mn.state.dot.tms.server.comm.ParsingException;
 
 /**
@@ -29,7 +30,7 @@ import us.mn.state.dot.tms.server.comm.ParsingException;
  *
  * @author Douglas Lau
  */
-public class SNMP extends BER {
+public class SNMP {
 
 	/** SNMP debug log */
 	static private final DebugLog SNMP_LOG = new DebugLog("snmp");
@@ -73,24 +74,6 @@ public class SNMP extends BER {
 		static public final Tag COUNTER = new Tag(APPLICATION, false,1);
 	}
 
-	/** Get a tag that matches */
-	protected ASN1.Tag getTag(byte clazz, boolean constructed, int number) {
-		Tag tag = new Tag(clazz, constructed, number);
-		if(tag.equals(Tag.GET_REQUEST))
-			return Tag.GET_REQUEST;
-		if(tag.equals(Tag.GET_NEXT_REQUEST))
-			return Tag.GET_NEXT_REQUEST;
-		if(tag.equals(Tag.GET_RESPONSE))
-			return Tag.GET_RESPONSE;
-		if(tag.equals(Tag.SET_REQUEST))
-			return Tag.SET_REQUEST;
-		if(tag.equals(Tag.TRAP))
-			return Tag.TRAP;
-		if(tag.equals(Tag.COUNTER))
-			return Tag.COUNTER;
-		return super.getTag(clazz, constructed, number);
-	}
-
 	/** SNMP version number */
 	static public final int SNMP_VERSION = 0;
 
@@ -104,25 +87,47 @@ public class SNMP extends BER {
 	/** Last SNMP request-id */
 	protected int last_request = 0;
 
-	/** Encode an SNMP message */
-	protected void encodeSNMPMessage(String community) throws IOException {
-		byte[] pdu = getEncodedData();
-		encodeInteger(SNMP_VERSION);
-		encodeOctetString(community.getBytes());
-		encoder.write(pdu);
-		encodeSequence(getEncodedData());
+	/** Parser for request IDs, used to demultiplex datagrams */
+	static public final DatagramMux.RequestIdParser REQUEST_ID_PARSER =
+		new DatagramMux.RequestIdParser()
+	{
+		public Integer parseRequestId(byte[] b, int len) {
+			try {
+				BERDecoder dec = new BERDecoder(b, len);
+				dec.decodeSequence();
+				dec.skipValue();	// version
+				dec.skipValue();	// community
+				dec.decodeHeader();	// PDU
+				return dec.decodeInteger();
+			}
+			catch(IOException e) {
+				return null;
+			}
+		}
+	};
+
+	/** Encoder for request messages (reused for all messages) */
+	protected final BEREncoder encoder = new BEREncoder(1024);
+
+	/** Decoder for response messages (reused for all messages) */
+	protected final BERDecoder decoder = new BERDecoder(1024);
+
+	/** Encode an SNMP message.  The PDU must already be encoded. */
+	protected void encodeSNMPMessage(byte[] community) {
+		encoder.encodeOctetString(community);
+		encoder.encodeInteger(SNMP_VERSION);
+		encoder.encodeConstructed(Tag.SEQUENCE, 0);
 	}
 
 	/** Decode an SNMP message */
-	protected void decodeSNMPMessage(InputStream is, String community)
+	protected void decodeSNMPMessage(InputStream is, byte[] community)
 		throws IOException
 	{
-		if(decodeSequence(is) > is.available())
-			throw new ParsingException("INVALID SNMP LENGTH");
-		if(decodeInteger(is) != 0)
+		decoder.readMessage(is);
+		decoder.decodeSequence();
+		if(decoder.decodeInteger() != SNMP_VERSION)
 			throw new ParsingException("SNMP VERSION MISMATCH");
-		String c = new String(decodeOctetString(is));
-		if(!c.equals(community))
+		if(!decoder.matchOctetString(community))
 			throw new ParsingException("SNMP COMMUNITY MISMATCH");
 	}
 
@@ -136,7 +141,7 @@ public class SNMP extends BER {
 		protected final InputStream is;
 
 		/** Community name */
-		protected final String community;
+		protected final byte[] community;
 
 		/** SNMP request-id */
 		public final int request_id;
@@ -149,7 +154,7 @@ public class SNMP extends BER {
 		public Message(OutputStream o, InputStream i, String c) {
 			os = o;
 			is = i;
-			community = (c != null) ? c : PUBLIC;
+			community = ((c != null) ? c : PUBLIC).getBytes();
 			request_id = last_request++;
 			if(last_request > REQUEST_ID_MAX_LEDSTAR_BUG)
 				last_request = 0;
@@ -169,11 +174,11 @@ public class SNMP extends BER {
 			if(mos.isEmpty())
 				return;
 			is.skip(is.available());
+			encoder.reset();
 			encodeVarBindList(false);
 			encodeRequestPDU(Tag.GET_REQUEST);
 			encodeSNMPMessage(community);
 			encoder.writeTo(os);
-			encoder.reset();
 			os.flush();
 			decodeResponse();
 		}
@@ -186,11 +191,11 @@ public class SNMP extends BER {
 			if(mos.isEmpty())
 				return;
 			is.skip(is.available());
+			encoder.reset();
 			encodeVarBindList(true);
 			encodeRequestPDU(Tag.SET_REQUEST);
 			encodeSNMPMessage(community);
 			encoder.writeTo(os);
-			encoder.reset();
 			os.flush();
 			decodeResponse();
 		}
@@ -200,13 +205,12 @@ public class SNMP extends BER {
 			for(int i = 0;; i++) {
 				try {
 					decodeSNMPMessage(is, community);
-					decodeResponsePDU(is);
-					decodeVarBindList(is);
+					decodeResponsePDU();
+					decodeVarBindList();
 					return;
 				}
 				catch(RequestIDException e) {
 					SNMP_LOG.log(e.getMessage());
-					is.skip(is.available());
 					if(i >= 5)
 						throw e;
 				}
@@ -217,123 +221,89 @@ public class SNMP extends BER {
 		protected void encodeValue(ASN1Object mo) throws IOException {
 			if(mo instanceof ASN1Integer) {
 				ASN1Integer value = (ASN1Integer)mo;
-				encodeInteger(value.getInteger());
+				encoder.encodeInteger(value.getInteger());
 			} else if(mo instanceof ASN1OctetString) {
 				ASN1OctetString value = (ASN1OctetString)mo;
-				encodeOctetString(value.getOctetString());
+				encoder.encodeOctetString(value.getOctetString());
 			} else
 				throw new IOException("UNKNOWN OBJECT TYPE");
 		}
 
-		/** Encode a null variable binding */
+		/** Encode a variable binding.  Since the encoder writes
+		 * back-to-front, the value is encoded before the OID. */
 		protected void encodeVarBind(ASN1Object mo, boolean set)
 			throws IOException
 		{
-			encodeObjectIdentifier(mo.getOID());
+			int mark = encoder.length();
 			if(set)
 				encodeValue(mo);
 			else
-				encodeNull();
-			encodeSequence(getEncodedData());
+				encoder.encodeNull();
+			encoder.encodeObjectIdentifier(mo.getOID());
+			encoder.encodeConstructed(Tag.SEQUENCE, mark);
 		}
 
-		/** Encode the variable binding list */
+		/** Encode the variable binding list (in reverse order) */
 		protected void encodeVarBindList(boolean set)
 			throws IOException
 		{
-			ByteArrayOutputStream vb = new ByteArrayOutputStream();
-			for(ASN1Object mo: mos) {
-				encodeVarBind(mo, set);
-				vb.write(getEncodedData());
-			}
-			encodeSequence(vb.toByteArray());
+			int mark = encoder.length();
+			Iterator<ASN1Object> it = mos.descendingIterator();
+			while(it.hasNext())
+				encodeVarBind(it.next(), set);
+			encoder.encodeConstructed(Tag.SEQUENCE, mark);
 		}
 
-		/** Encode an SNMP request PDU
+		/** Encode an SNMP request PDU.  The variable binding list must
+		 * already be encoded.
 		 * @param tag PDU type identifier */
-		protected void encodeRequestPDU(Tag tag) throws IOException {
-			byte[] varBindList = getEncodedData();
-			encodeInteger(request_id);
-			encodeInteger(0);	// error-status
-			encodeInteger(0);	// error-index
-			encoder.write(varBindList);
-			byte[] buffer = getEncodedData();
-			encodeIdentifier(tag);
-			encodeLength(buffer.length);
-			encoder.write(buffer);
+		protected void encodeRequestPDU(Tag tag) {
+			encoder.encodeInteger(0);	// error-index
+			encoder.encodeInteger(0);	// error-status
+			encoder.encodeInteger(request_id);
+			encoder.encodeConstructed(tag, 0);
 		}
 
 		/** Decode the value of an MIB object */
-		protected void decodeValue(InputStream is, ASN1Object mo)
-			throws IOException
-		{
+		protected void decodeValue(ASN1Object mo) throws IOException {
 			if(mo instanceof Counter) {
 				Counter value = (Counter)mo;
-				value.setInteger(decodeCounter(is));
+				value.setInteger(decoder.decodeUnsigned(
+					Tag.COUNTER));
 			} else if(mo instanceof ASN1Integer) {
 				ASN1Integer value = (ASN1Integer)mo;
-				value.setInteger(decodeInteger(is));
+				value.setInteger(decoder.decodeInteger());
 			} else if(mo instanceof ASN1OctetString) {
 				ASN1OctetString value = (ASN1OctetString)mo;
-				value.setOctetString(decodeOctetString(is));
+				value.setOctetString(decoder.decodeOctetString());
 			} else
 				throw new IOException("UNKNOWN OBJECT TYPE");
 		}
 
-		/** Decode a counter (from RFC1155-SMI) */
-		protected int decodeCounter(InputStream is) throws IOException {
-			if(decodeIdentifier(is) != Tag.COUNTER)
-				throw new ParsingException("EXPECTED COUNTER");
-			int length = decodeLength(is);
-			if(length < 1 || length > 4) {
-				throw new ParsingException(
-					"INVALID COUNTER LENGTH");
-			}
-			int value = is.read();
-			if(value < 0)
-				throw END_OF_STREAM;
-			for(int i = 1; i < length; i++) {
-				value <<= 8;
-				int v = is.read();
-				if(v < 0)
-					throw END_OF_STREAM;
-				value |= v;
-			}
-			return value;
-		}
-
 		/** Decode a variable binding */
-		protected void decodeVarBind(InputStream is, ASN1Object mo)
-			throws IOException
-		{
-			decodeSequence(is);
+		protected void decodeVarBind(ASN1Object mo) throws IOException {
+			decoder.decodeSequence();
 			// FIXME: compare with OID from mo
-			decodeObjectIdentifier(is);
-			decodeValue(is, mo);
+			decoder.skipObjectIdentifier();
+			decodeValue(mo);
 		}
 
 		/** Decode the variable binding list */
-		protected void decodeVarBindList(InputStream is)
-			throws IOException
-		{
-			decodeSequence(is);
+		protected void decodeVarBindList() throws IOException {
+			decoder.decodeSequence();
 			for(ASN1Object mo: mos)
-				decodeVarBind(is, mo);
+				decodeVarBind(mo);
 		}
 
 		/** Decode an SNMP response PDU */
-		protected void decodeResponsePDU(InputStream is)
-			throws IOException
-		{
-			if(decodeIdentifier(is) != Tag.GET_RESPONSE)
-				throw new ParsingException("!GET_RESPONSE TAG");
-			if(decodeLength(is) > is.available())
-				throw new ParsingException("INVALID PDU LEN");
-			int request = decodeInteger(is);
+		protected void decodeResponsePDU() throws IOException {
+			decoder.decodeConstructed(Tag.GET_RESPONSE,
+				"!GET_RESPONSE TAG");
+			int request = decoder.decodeInteger();
 			if(request != request_id)
 				throw new RequestIDException(request);
-			int error = decodeInteger(is);
-			int index = decodeInteger(is);
+			int error = decoder.decodeInteger();
+			int index = decoder.decodeInteger();
 			switch(error) {
 			case TOO_BIG:
 				throw new TooBig();
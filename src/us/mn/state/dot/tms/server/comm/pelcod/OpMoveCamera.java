@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2007-2014  Minnesota Department of Transportation
+ * Copyright (C) 2007-2016  Minnesota Department of Transportation
  * Copyright (C) 2014  AHMCT, University of California
  *
  * This program is free software; you can redistribute it and/or modify
@@ -18,6 +18,7 @@ package us.mn.state.dot.tms.server.comm.pelcod;
 import java.io.IOException;
 import us.mn.state.dot.tms.server.CameraImpl;
 import us.mn.state.dot.tms.server.comm.CommMessage;
+import us.mn.state.dot.tms.server.comm.PTZMailbox;
 
 /**
  * Pelco operation to move a camera.
@@ -40,16 +41,30 @@ public class OpMoveCamera extends OpPelcoD {
 		return Math.round(clamp_float(value) * (range - 1));
 	}
 
+	/** Camera to move */
+	private final CameraImpl camera;
+
+	/** PTZ mailbox */
+	private final PTZMailbox mailbox;
+
 	/** Command property */
-	private final CommandProperty prop;
+	private CommandProperty prop;
 
-	/** Create a new operation to move a camera */
-	public OpMoveCamera(CameraImpl c, float p, float t, float z) {
+	/** Create a new operation to move a camera.
+	 * @param c Camera to move.
+	 * @param mb PTZ mailbox to take commands from. */
+	public OpMoveCamera(CameraImpl c, PTZMailbox mb) {
 		super(c);
-		int pan = map_float(p, PTZ_RANGE);
-		int tilt = map_float(t, PTZ_RANGE);
-		int zoom = map_float(z, PTZ_RANGE);
-		prop = new CommandProperty(pan, tilt, zoom, 0, 0);
+		camera = c;
+		mailbox = mb;
+	}
+
+	/** Create a command property */
+	static private CommandProperty createProp(PTZMailbox.Command cmd) {
+		int pan = map_float(cmd.pan, PTZ_RANGE);
+		int tilt = map_float(cmd.tilt, PTZ_RANGE);
+		int zoom = map_float(cmd.zoom, PTZ_RANGE);
+		return new CommandProperty(pan, tilt, zoom, 0, 0);
 	}
 
 	/** Create the second phase of the operation */
@@ -60,22 +75,39 @@ public class OpMoveCamera extends OpPelcoD {
 	/** Phase to move the camera */
 	protected class Move extends Phase<PelcoDProperty> {
 
-		/** Number of times this request was sent */
+		/** Number of times the current property was sent */
 		private int n_sent = 0;
 
-		/** Command controller to move the camera */
+		/** Command controller to move the camera.  The latest command
+		 * from the mailbox is sent; a stop command is sent twice. */
 		protected Phase<PelcoDProperty> poll(
 			CommMessage<PelcoDProperty> mess) throws IOException
 		{
+			PTZMailbox.Command cmd = mailbox.take(camera);
+			if (cmd != null) {
+				prop = createProp(cmd);
+				n_sent = 0;
+			} else if (!shouldResend())
+				return mailbox.finish(camera) ? null : this;
 			mess.add(prop);
 			mess.storeProps();
 			n_sent++;
-			return shouldResend() ? this : null;
+			if (cmd != null)
+				mailbox.sent(camera, cmd);
+			return this;
 		}
 
 		/** Should we resend the property? */
 		private boolean shouldResend() {
-			return prop.isStop() && (n_sent < 2);
+			return prop != null && prop.isStop() && (n_sent < 2);
 		}
 	}
+
+	/** Cleanup the operation */
+	@Override
+	public void cleanup() {
+		if (!isSuccess())
+			mailbox.cancel(camera);
+		super.cleanup();
+	}
 }
@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2009-2014  Minnesota Department of Transportation
+ * Copyright (C) 2009-2016  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -71,9 +71,9 @@ public class SS125Poller extends MessagePoller<SS125Property>
  	 * @param c Controller to poll.
  	 * @param p Sample period in seconds. */
 	@Override
-	public void querySamples(ControllerImpl c, int p) {
-		if (p == 30)
-			addOperation(new OpQuerySamples(c, p));
+	public boolean querySamples(ControllerImpl c, int p) {
+		return (p == 30) &&
+		       addSampleOperation(new OpQuerySamples(c, p), p);
 	}
 
 	/** Get the protocol debug log */
@@ -0,0 +1,112 @@
+/*
+ * IRIS -- Intelligent Roadway Information System
+ * Copyright (C) 2016  Minnesota Department of Transportation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package us.mn.state.dot.tms;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import junit.framework.TestCase;
+import us.mn.state.dot.tms.client.roads.ClientGeoLoc;
+
+/**
+ * GeoIndex test cases
+ *
+ * @author Douglas Lau
+ */
+public class GeoIndexTest extends TestCase {
+
+	private final Random rand = new Random(42);
+
+	private final GeoIndex<Integer> index = new GeoIndex<Integer>();
+
+	private final ArrayList<GeoLoc> locs = new ArrayList<GeoLoc>();
+
+	public GeoIndexTest(String name) {
+		super(name);
+	}
+
+	@Override
+	protected void setUp() {
+		for (int i = 0; i < 500; i++) {
+			float lat = 44.8f + rand.nextFloat() * 0.3f;
+			float lon = -93.5f + rand.nextFloat() * 0.5f;
+			GeoLoc loc = new ClientGeoLoc(null, (short)0, lat, lon,0);
+			locs.add(loc);
+			index.put(i, loc);
+		}
+	}
+
+	/** Find the nearest objects by checking every location */
+	private List<Integer> bruteNearest(double lat, double lon, int n) {
+		ArrayList<Integer> objs = new ArrayList<Integer>();
+		boolean[] used = new boolean[locs.size()];
+		for (int k = 0; k < n; k++) {
+			int best = -1;
+			double bm = Double.POSITIVE_INFINITY;
+			for (int i = 0; i < locs.size(); i++) {
+				double m = meters(locs.get(i), lat, lon);
+				if (!used[i] && m < bm) {
+					best = i;
+					bm = m;
+				}
+			}
+			used[best] = true;
+			objs.add(best);
+		}
+		return objs;
+	}
+
+	private double meters(GeoLoc loc, double lat, double lon) {
+		return GeoPoint.distanceMeters(lat, lon, loc.getLat(),
+			loc.getLon());
+	}
+
+	public void testNearest() {
+		for (int t = 0; t < 50; t++) {
+			double lat = 44.7 + rand.nextDouble() * 0.5;
+			double lon = -93.6 + rand.nextDouble() * 0.7;
+			assertEquals(bruteNearest(lat, lon, 5),
+				index.findNearest(lat, lon, 5));
+		}
+		assertEquals(1, index.findNearest(0, 0, 1).size());
+	}
+
+	public void testWithin() {
+		for (int t = 0; t < 50; t++) {
+			double lat = 44.8 + rand.nextDouble() * 0.3;
+			double lon = -93.5 + rand.nextDouble() * 0.5;
+			List<Integer> objs = index.findWithin(lat, lon, 2000);
+			int n = 0;
+			for (int i = 0; i < locs.size(); i++) {
+				if (meters(locs.get(i), lat, lon) <= 2000) {
+					assertTrue(objs.contains(i));
+					n++;
+				}
+			}
+			assertEquals(n, objs.size());
+		}
+	}
+
+	public void testRemove() {
+		GeoLoc loc = locs.get(7);
+		List<Integer> objs = index.findNearest(loc.getLat(),
+			loc.getLon(), 1);
+		assertEquals(Integer.valueOf(7), objs.get(0));
+		index.remove(7);
+		objs = index.findNearest(loc.getLat(), loc.getLon(), 1);
+		assertFalse(objs.contains(7));
+		assertEquals(499, index.size());
+	}
+}
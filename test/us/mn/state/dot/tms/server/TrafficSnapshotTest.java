@@ -0,0 +1,81 @@
+/*
+ * IRIS -- Intelligent Roadway Information System
+ * Copyright (C) 2016  Minnesota Department of Transportation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package us.mn.state.dot.tms.server;
+
+import java.io.StringWriter;
+import junit.framework.TestCase;
+
+/**
+ * Traffic snapshot test cases
+ * @author Douglas Lau
+ */
+public class TrafficSnapshotTest extends TestCase {
+
+	/** constructor */
+	public TrafficSnapshotTest(String name) {
+		super(name);
+	}
+
+	/** test adding and looking up sensors */
+	public void testColumns() {
+		TrafficSnapshot.Columns c = new TrafficSnapshot.Columns();
+		for (int i = 0; i < 300; i++)
+			c.add("D" + i, TrafficSnapshot.SAMPLING, i, 5, i * 120,
+				1, 60);
+		c.trim();
+		assertTrue(c.size() == 300);
+		assertTrue(c.lookup("D0") == 0);
+		assertTrue(c.lookup("D299") == 299);
+		assertTrue(c.lookup("D300") == -1);
+		assertTrue(c.getVolume(10) == 10);
+		assertTrue(c.getFlow(10) == 1200);
+		assertTrue(c.hasFlag(10, TrafficSnapshot.SAMPLING));
+		assertFalse(c.hasFlag(10, TrafficSnapshot.MAINLINE));
+	}
+
+	/** test refilling columns with a different set of sensors */
+	public void testRefill() {
+		TrafficSnapshot.Columns c = new TrafficSnapshot.Columns();
+		c.add("D1", 0, 1, 1, 1, 1, 1);
+		c.add("D2", 0, 2, 2, 2, 2, 2);
+		c.add("D3", 0, 3, 3, 3, 3, 3);
+		c.trim();
+		c.reset();
+		c.add("D2", 0, 4, 4, 4, 4, 4);
+		c.add("D3", 0, 5, 5, 5, 5, 5);
+		c.trim();
+		assertTrue(c.size() == 2);
+		assertTrue(c.lookup("D1") == -1);
+		assertTrue(c.lookup("D2") == 0);
+		assertTrue(c.lookup("D3") == 1);
+		assertTrue(c.getVolume(c.lookup("D3")) == 5);
+	}
+
+	/** test writing sample XML */
+	public void testSampleXml() throws Exception {
+		TrafficSnapshot.Columns c = new TrafficSnapshot.Columns();
+		c.add("D1", TrafficSnapshot.SAMPLING | TrafficSnapshot.MAINLINE,
+			10, 5, 1200, 20, 60);
+		c.add("D2", TrafficSnapshot.SAMPLING |
+			TrafficSnapshot.FAKE_FLOW, -1, -1, 900, -1, 55);
+		c.add("D3", 0, 10, 5, 1200, 20, 60);
+		StringWriter w = new StringWriter();
+		c.writeSampleXml(w);
+		String x = w.toString();
+		assertTrue(x.contains("sensor='D1' flow='1200' speed='60'"));
+		assertTrue(x.contains("sensor='D2'/>"));
+		assertFalse(x.contains("D3"));
+	}
+}
@@ -0,0 +1,156 @@
+/*
+ * IRIS -- Intelligent Roadway Information System
+ * Copyright (C) 2016  Minnesota Department of Transportation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package us.mn.state.dot.tms.server.comm;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import junit.framework.TestCase;
+
+/**
+ * HTTP file messenger test cases, using a local HTTP stub.
+ *
+ * @author Douglas Lau
+ */
+public class HttpFileMessengerTest extends TestCase {
+
+	/** ETag of stub file */
+	static private final String ETAG = "\"v1\"";
+
+	/** Contents of stub file */
+	static private final String BODY =
+		"V1\tHELLO\t2099-01-01 00:00:00-0600\n";
+
+	/** Stub HTTP server */
+	private HttpServer server;
+
+	/** Number of full responses sent */
+	private int n_full;
+
+	/** Number of "not modified" responses sent */
+	private int n_not_modified;
+
+	/** constructor */
+	public HttpFileMessengerTest(String name) {
+		super(name);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		server = HttpServer.create(new InetSocketAddress("localhost",
+			0), 0);
+		server.createContext("/feed", new HttpHandler() {
+			public void handle(HttpExchange ex) throws IOException {
+				String inm = ex.getRequestHeaders().getFirst(
+					"If-None-Match");
+				if (ETAG.equals(inm)) {
+					n_not_modified++;
+					ex.sendResponseHeaders(304, -1);
+				} else {
+					n_full++;
+					byte[] b = BODY.getBytes("UTF-8");
+					ex.getResponseHeaders().add("ETag",
+						ETAG);
+					ex.sendResponseHeaders(200, b.length);
+					OutputStream os = ex.getResponseBody();
+					os.write(b);
+					os.close();
+				}
+				ex.close();
+			}
+		});
+		server.start();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		server.stop(0);
+	}
+
+	/** Get URL of stub feed */
+	private URL feedUrl() throws IOException {
+		return new URL("http://localhost:" +
+			server.getAddress().getPort() + "/feed");
+	}
+
+	/** Read a stream fully */
+	static private String read(InputStream is) throws IOException {
+		StringBuilder sb = new StringBuilder();
+		int b = is.read();
+		while (b >= 0) {
+			sb.append((char)b);
+			b = is.read();
+		}
+		return sb.toString();
+	}
+
+	/** test conditional requests */
+	public void testConditional() throws IOException {
+		HttpFileMessenger m = new HttpFileMessenger(feedUrl());
+		m.setConditional(true);
+		assertEquals(BODY, read(m.getInputStream("")));
+		assertFalse(m.isNotModified());
+		m.storeValidators();
+		assertEquals("", read(m.getInputStream("")));
+		assertTrue(m.isNotModified());
+		m.close();
+		assertTrue(n_full == 1);
+		assertTrue(n_not_modified == 1);
+	}
+
+	/** test validators are not stored until decoded */
+	public void testNotStored() throws IOException {
+		HttpFileMessenger m = new HttpFileMessenger(feedUrl());
+		m.setConditional(true);
+		assertEquals(BODY, read(m.getInputStream("")));
+		assertEquals(BODY, read(m.getInputStream("")));
+		assertFalse(m.isNotModified());
+		m.close();
+		assertTrue(n_full == 2);
+		assertTrue(n_not_modified == 0);
+	}
+
+	/** test validators are cleared after a decode failure */
+	public void testDecodeFailure() throws IOException {
+		HttpFileMessenger m = new HttpFileMessenger(feedUrl());
+		m.setConditional(true);
+		assertEquals(BODY, read(m.getInputStream("")));
+		m.storeValidators();
+		assertEquals("", read(m.getInputStream("")));
+		assertTrue(m.isNotModified());
+		// decoding failed -- next request must not be conditional
+		m.clearValidators();
+		assertEquals(BODY, read(m.getInputStream("")));
+		assertFalse(m.isNotModified());
+		m.close();
+		assertTrue(n_full == 2);
+		assertTrue(n_not_modified == 1);
+	}
+
+	/** test unconditional requests */
+	public void testUnconditional() throws IOException {
+		HttpFileMessenger m = new HttpFileMessenger(feedUrl());
+		assertEquals(BODY, read(m.getInputStream("")));
+		assertEquals(BODY, read(m.getInputStream("")));
+		m.close();
+		assertTrue(n_full == 2);
+		assertTrue(n_not_modified == 0);
+	}
+}
@@ -0,0 +1,125 @@
+/*
+ * IRIS -- Intelligent Roadway Information System
+ * Copyright (C) 2016  Minnesota Department of Transportation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package us.mn.state.dot.tms.server.comm.ntcip;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import junit.framework.TestCase;
+
+/**
+ * BER encoder test cases.
+ *
+ * @author Doug Lau
+ */
+public class BEREncoderTest extends TestCase {
+
+	static private final int[] OID = { 1, 3, 6, 1, 4, 1, 1206, 4, 2 };
+
+	static private final int[] INTS = {
+		0, 1, 127, 128, 255, 256, 32767, 32768, 65535, -1, -128, -129,
+		Integer.MAX_VALUE, Integer.MIN_VALUE
+	};
+
+	/** Legacy BER encoder */
+	static private class Legacy extends BER {
+		byte[] integer(int v) throws IOException {
+			encodeInteger(v);
+			return getEncodedData();
+		}
+		byte[] octetString(byte[] s) throws IOException {
+			encodeOctetString(s);
+			return getEncodedData();
+		}
+		byte[] sequence(byte[] s) throws IOException {
+			encodeSequence(s);
+			return getEncodedData();
+		}
+	}
+
+	private final Legacy legacy = new Legacy();
+
+	private final BEREncoder encoder = new BEREncoder(4);
+
+	public BEREncoderTest(String name) {
+		super(name);
+	}
+
+	public void testInteger() throws IOException {
+		for (int v: INTS) {
+			encoder.reset();
+			encoder.encodeInteger(v);
+			assertTrue(Arrays.equals(legacy.integer(v),
+				encoder.toByteArray()));
+			BERDecoder dec = decoder(encoder.toByteArray());
+			assertTrue(dec.decodeInteger() == v);
+		}
+	}
+
+	public void testOctetString() throws IOException {
+		for (int len: new int[] { 0, 1, 127, 128, 255, 256, 1000 }) {
+			byte[] s = new byte[len];
+			Arrays.fill(s, (byte)'A');
+			encoder.reset();
+			encoder.encodeOctetString(s);
+			assertTrue(Arrays.equals(legacy.octetString(s),
+				encoder.toByteArray()));
+			BERDecoder dec = decoder(encoder.toByteArray());
+			assertTrue(Arrays.equals(dec.decodeOctetString(), s));
+		}
+	}
+
+	public void testSequence() throws IOException {
+		byte[] s = new byte[300];
+		encoder.reset();
+		encoder.encodeOctetString(s);
+		encoder.encodeInteger(5);
+		encoder.encodeConstructed(ASN1.Tag.SEQUENCE, 0);
+		byte[] seq = legacy.integer(5);
+		byte[] os = legacy.octetString(s);
+		byte[] b = new byte[seq.length + os.length];
+		System.arraycopy(seq, 0, b, 0, seq.length);
+		System.arraycopy(os, 0, b, seq.length, os.length);
+		assertTrue(Arrays.equals(legacy.sequence(b),
+			encoder.toByteArray()));
+		BERDecoder dec = new BERDecoder(4);
+		dec.readMessage(new ByteArrayInputStream(
+			encoder.toByteArray()));
+		assertTrue(dec.decodeSequence() == b.length);
+		assertTrue(dec.decodeInteger() == 5);
+		assertTrue(dec.matchOctetString(s));
+		assertTrue(dec.remaining() == 0);
+	}
+
+	public void testObjectIdentifier() throws IOException {
+		encoder.reset();
+		encoder.encodeObjectIdentifier(OID);
+		byte[] b = encoder.toByteArray();
+		byte[] exp = { 0x06, 0x09, 0x2B, 0x06, 0x01, 0x04, 0x01,
+			(byte)0x89, 0x36, 0x04, 0x02 };
+		assertTrue(Arrays.equals(exp, b));
+		BERDecoder dec = decoder(b);
+		dec.skipObjectIdentifier();
+		assertTrue(dec.remaining() == 0);
+	}
+
+	/** Create a decoder containing a value wrapped in a sequence */
+	private BERDecoder decoder(byte[] b) throws IOException {
+		BERDecoder dec = new BERDecoder(4);
+		dec.readMessage(new ByteArrayInputStream(legacy.sequence(b)));
+		dec.decodeSequence();
+		return dec;
+	}
+}